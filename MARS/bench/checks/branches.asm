@@ -0,0 +1,47 @@
+# Executes each conditional branch once with a negative, a zero and a positive
+# register: 18 branches of which 9 are taken, one for each of beqz, bltz and bgtz
+# and two for each of bnez, bgez and blez.  Every branch goes to the next
+# instruction, so the path is the same whether it is taken or not.  Used by
+# BranchCheck.
+	.text
+main:	add r8 = r0 , -1
+	add r9 = r0 , 0
+	add r10 = r0 , 1
+	beqz r8 , b0
+b0:
+	beqz r9 , b1
+b1:
+	beqz r10 , b2
+b2:
+	bnez r8 , b3
+b3:
+	bnez r9 , b4
+b4:
+	bnez r10 , b5
+b5:
+	bltz r8 , b6
+b6:
+	bltz r9 , b7
+b7:
+	bltz r10 , b8
+b8:
+	bgez r8 , b9
+b9:
+	bgez r9 , b10
+b10:
+	bgez r10 , b11
+b11:
+	bgtz r8 , b12
+b12:
+	bgtz r9 , b13
+b13:
+	bgtz r10 , b14
+b14:
+	blez r8 , b15
+b15:
+	blez r9 , b16
+b16:
+	blez r10 , b17
+b17:
+	add r2 = r0 , 10		# exit
+	syscall
@@ -0,0 +1,19 @@
+# Raises two address errors, each handled in three instructions, then reads
+# Count.  Only instructions that complete are counted, not the faulting loads,
+# so Count is 7: six in the handler and the one setting up the read.  Prints
+# Count.  Used by TimerCheck.
+	.text
+main:	lw r8 = r0 -3		# address error, not counted
+	lw r8 = r0 -3		# address error, not counted
+	add r2 = r0 , 63
+	syscall			# read Count
+	add r4 = r2 , 0
+	add r2 = r0 , 1
+	syscall			# print Count
+	add r2 = r0 , 10
+	syscall
+
+	.ktext 0x80000180
+	add r26 = r2 , 0	# save v0 in k0
+	add r2 = r0 , 65
+	syscall			# return past the faulting load
@@ -0,0 +1,23 @@
+# Allocates two 24-byte blocks, frees the first and allocates 16 bytes, then
+# prints the distance of the new block from the freed one: 0 when the freed
+# block is reused.  Used by HeapAllocatorCheck.
+	.text
+main:	add r2 = r0 , 60		# malloc 24
+	add r4 = r0 , 24
+	syscall
+	add r16 = r2 , 0
+	add r2 = r0 , 60		# malloc 24
+	add r4 = r0 , 24
+	syscall
+	add r17 = r2 , 0
+	add r2 = r0 , 61		# free the first
+	add r4 = r16 , 0
+	syscall
+	add r2 = r0 , 60		# malloc 16
+	add r4 = r0 , 16
+	syscall
+	subf r4 = r2 , r16
+	add r2 = r0 , 1			# print int
+	syscall
+	add r2 = r0 , 10		# exit
+	syscall
@@ -0,0 +1,27 @@
+# Prints a string and the sum of the words of its data segment, adding each word
+# in a called function, so a memory image that loses or misplaces any of its text
+# or data changes what it prints.  Used by DumpLoadCheck.
+	.data
+values:	.word 7, -3, 100000, 0x12345678, 0
+title:	.asciiz "sum "
+	.text
+main:	set0 r14 = 4097
+	shl r14 = r14 , 16		# r14 = 0x10010000, address of values
+	add r2 = r0 , 4			# print string
+	add r4 = r14 , 20		# title
+	syscall
+	add r4 = r0 , 0
+	add r6 = r0 , 0
+sum:	lw r10 = r14 , r6 , 2
+	jal accumulate
+	add r6 = r6 , 1
+	lt r7 = r6 , 5
+	bnez r7 , sum
+	add r2 = r0 , 34		# print int hex
+	syscall
+	add r2 = r0 , 10		# exit
+	syscall
+
+# accumulate: returns r4 + r10 in r4
+accumulate:
+	ret_add r4 = r4 , r10
@@ -0,0 +1,44 @@
+# Library for LinkCheck.  Its data holds the addresses of a label of its own and
+# of counter in main.asm, and it prints results of instructions whose encodings
+# are shared with other instructions, so a linker that misplaces, mis-relocates
+# or decodes any of them wrongly changes what it prints.
+	.globl calc
+	.data
+value:	.word 42
+ptr:	.word value, counter
+	.text
+calc:	add r16 = r31 , 0
+	set0 r9 = 4097
+	shl r9 = r9 , 16
+	add r9 = r9 , 12		# ptr, after counter and value
+	lw r10 = r9 , r0 , 2		# address of value
+	lw r4 = r10 , r0 , 2
+	jal pr
+	add r11 = r0 , 1
+	lw r10 = r9 , r11 , 2		# address of counter
+	lw r4 = r10 , r0 , 2
+	jal pr
+	set0 r10 = 4097
+	add r11 = r0 , 3
+	ror r4 = r10 , 4
+	jal pr
+	sar r4 = r10 , 4
+	jal pr
+	srl r4 = r10 , 4
+	jal pr
+	and_geu r4 = r10 , r11
+	jal pr
+	and_ltu r4 = r10 , r11
+	jal pr
+	and_ge r4 = r10 , r11
+	jal pr
+	add r31 = r16 , 0
+	jr r31
+
+# pr: print r4 and a space
+pr:	add r2 = r0 , 1			# print int
+	syscall
+	add r2 = r0 , 11		# print char
+	add r4 = r0 , 32
+	syscall
+	jr r31
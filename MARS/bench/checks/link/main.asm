@@ -0,0 +1,10 @@
+# Main program for LinkCheck: calls calc in lib.asm, which reads counter.
+# counter takes 8 bytes, so lib.asm's data follows it at the same address
+# whether the two files are assembled together or linked.
+	.globl main, counter
+	.data
+counter: .word 7, 0
+	.text
+main:	jal calc
+	add r2 = r0 , 10		# exit
+	syscall
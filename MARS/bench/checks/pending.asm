@@ -0,0 +1,39 @@
+# Sets Compare so that Count reaches it while the exception handler runs with
+# EXL set, then waits for the timer interrupt, which is taken once the handler
+# returns.  Prints the number of timer interrupts taken.  Used by TimerCheck.
+	.text
+main:	add r21 = r0 , 1
+	add r4 = r0 , 20
+	add r2 = r0 , 64
+	syscall			# Compare = 20, reached inside the handler
+	lw r8 = r0 -3		# address error: enter the handler
+	add r16 = r0 , 0
+wait:	bnez r20 , done
+	add r16 = r16 , 1
+	lt r8 = r16 , 100
+	bnez r8 , wait
+done:	add r4 = r20 , 0
+	add r2 = r0 , 1
+	syscall			# print timer interrupts taken
+	add r2 = r0 , 10
+	syscall
+
+	.ktext 0x80000180
+	add r26 = r2 , 0
+	add r27 = r4 , 0
+	beqz r21 , timer	# not the first entry: the interrupt
+	add r21 = r0 , 0
+	add r9 = r0 , 0
+spin:	add r9 = r9 , 1
+	lt r8 = r9 , 100
+	bnez r8 , spin		# Count passes Compare with EXL set
+	bnez r9 , back		# return with the interrupt pending
+timer:	add r20 = r20 , 1
+	add r2 = r0 , 63
+	syscall
+	add r4 = r2 , 30000
+	add r2 = r0 , 64
+	syscall			# acknowledge
+back:	add r4 = r27 , 0
+	add r2 = r0 , 65
+	syscall
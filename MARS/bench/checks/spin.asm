@@ -0,0 +1,3 @@
+# Loops forever, so that TimerCheck can let a given number of instructions run.
+	.text
+main:	beqz r0 , main
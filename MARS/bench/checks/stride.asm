@@ -0,0 +1,18 @@
+# Reads one word of each 16-byte block of a 1K array, twice, and nothing else
+# from data memory: 128 reads, of which the second 64 hit only in a data cache
+# of at least 1K.  Used by CacheCheck.
+	.data
+array:	.space 1024
+	.text
+main:	set0 r14 = 4097
+	shl r14 = r14 , 16		# r14 = 0x10010000, address of array
+	add r8 = r0 , 2			# passes
+pass:	add r6 = r0 , 0
+next:	lw r10 = r14 , r6 , 2		# word r6 of array
+	add r6 = r6 , 4
+	lt r7 = r6 , 256
+	bnez r7 , next
+	add r8 = r8 , -1
+	bnez r8 , pass
+	add r2 = r0 , 10		# exit
+	syscall
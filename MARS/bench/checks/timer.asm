@@ -0,0 +1,43 @@
+# Sets Compare 1000 instructions ahead and counts up in a loop until the timer
+# interrupt handler, which sets Compare 1000 further on each time, has run five
+# times.  Prints the ticks, the loop count and Count.  Used by TimerCheck.
+	.text
+main:	add r4 = r0 , 1000
+	add r2 = r0 , 64
+	syscall			# Compare = 1000
+	add r16 = r0 , 0	# work counter
+loop:	add r16 = r16 , 1
+	add r8 = r20 , -5
+	bltz r8 , loop		# until 5 ticks
+	add r4 = r20 , 0
+	add r2 = r0 , 1
+	syscall			# print ticks
+	add r4 = r0 , 32
+	add r2 = r0 , 11
+	syscall
+	add r4 = r16 , 0
+	add r2 = r0 , 1
+	syscall			# print work done
+	add r4 = r0 , 32
+	add r2 = r0 , 11
+	syscall
+	add r2 = r0 , 63
+	syscall
+	add r4 = r2 , 0
+	add r2 = r0 , 1
+	syscall			# print count
+	add r2 = r0 , 10
+	syscall
+
+	.ktext 0x80000180
+	add r26 = r2 , 0	# save v0 in k0
+	add r27 = r4 , 0	# save a0 in k1
+	add r20 = r20 , 1
+	add r2 = r0 , 63
+	syscall
+	add r4 = r2 , 1000
+	add r2 = r0 , 64
+	syscall			# Compare = Count + 1000, acknowledges
+	add r4 = r27 , 0
+	add r2 = r0 , 65
+	syscall			# return
@@ -0,0 +1,96 @@
+   package mars.bench;
+
+   import java.lang.management.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Counts the bytes of heap allocated by the current thread, or by all threads,
+ * where the Java virtual machine supports it, as HotSpot does.
+ */
+
+    public class AllocationCounter {
+   
+      private static final com.sun.management.ThreadMXBean threads = getThreadBean();
+   
+       private AllocationCounter() {
+      }
+   
+       private static com.sun.management.ThreadMXBean getThreadBean() {
+         try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean
+                  && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+               ((com.sun.management.ThreadMXBean) bean).setThreadAllocatedMemoryEnabled(true);
+               return (com.sun.management.ThreadMXBean) bean;
+            }
+         }
+             catch (Throwable e) {
+            // not HotSpot: allocation is not counted
+            }
+         return null;
+      }
+   
+   /**
+    * @return true if allocatedBytes() counts allocation.
+    */
+       public static boolean isSupported() {
+         return threads != null;
+      }
+   
+   /**
+    * @return bytes allocated by the current thread since it started, or 0 if not supported.
+    * Only the difference between two readings is meaningful.
+    */
+       public static long allocatedBytes() {
+         return (threads == null) ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+   
+   /**
+    * Count allocation by all threads, such as the simulator's, which runs apart from
+    * the thread that started it.  A thread that ends between two readings takes its
+    * allocation with it, so the threads doing the work should outlive the readings.
+    * @return bytes allocated by all live threads since they started, or 0 if not supported.
+    * Only the difference between two readings is meaningful.
+    */
+       public static long allocatedBytesAllThreads() {
+         if (threads == null) {
+            return 0;
+         }
+         long[] bytes = threads.getThreadAllocatedBytes(threads.getAllThreadIds());
+         long total = 0;
+         for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] > 0) {
+               total += bytes[i];
+            }
+         }
+         return total;
+      }
+   }
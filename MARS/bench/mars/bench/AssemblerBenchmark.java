@@ -0,0 +1,202 @@
+   package mars.bench;
+
+   import mars.*;
+   import mars.assembler.*;
+   import java.io.*;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Measures the throughput of the assembler, in source lines per second, and the
+ * bytes it allocates per line, separately for tokenizing and for each phase of
+ * assembly: the first pass, the second pass and code generation.  The program
+ * assembled is written by ProgramGenerator unless source files are given.
+ * <p>
+ * Each iteration tokenizes every file anew, bypassing the source cache, then assembles the tokenized files with
+ * an AssemblyPhaseListener noting the time and allocation at each phase boundary.
+ * The warmup iterations let the JIT compiler settle and are not measured.  Lines
+ * are counted after .include files are expanded.  Results are printed and saved as
+ * JSON in the layout of JMH result files.
+ * <p>
+ * Usage: <code>java mars.bench.AssemblerBenchmark [-lines n] [-includes n] [-macros n]
+ * [-warmup n] [-iterations n] [-out file.json] [source files]</code>
+ * <p>
+ * The benchmarks are kept out of the src folder so that they are not packaged in
+ * Mars.jar.  From the bench folder, compile them against the MARS classes with
+ * <code>javac -cp ../src mars/bench/*.java</code> and run them with
+ * <code>../src</code> and <code>.</code> on the class path.
+ */
+
+    public class AssemblerBenchmark implements AssemblyPhaseListener {
+   
+      private static final String[] PHASES = { "pass1", "pass2", "codegen" };
+   
+      private long[] phaseTimes = new long[AssemblyPhaseListener.FINISHED + 1];
+      private long[] phaseAllocations = new long[AssemblyPhaseListener.FINISHED + 1];
+   
+   /**
+    * Note the time and allocation as a phase begins.
+    * @param phase the phase.
+    */
+       public void phaseBegins(int phase) {
+         phaseAllocations[phase] = AllocationCounter.allocatedBytes();
+         phaseTimes[phase] = System.nanoTime();
+      }
+   
+   /**
+    * Run the benchmark.
+    * @param args options and source files, as described above.
+    * @throws Exception if the program cannot be written or assembled, or the results saved.
+    */
+       public static void main(String[] args) throws Exception {
+         ProgramGenerator generator = new ProgramGenerator();
+         int warmup = 5;
+         int iterations = 10;
+         File out = new File("assembler-benchmark.json");
+         ArrayList<String> filenames = new ArrayList<String>();
+         try {
+            for (int i = 0; i < args.length; i++) {
+               if (args[i].equals("-lines")) {
+                  generator.setLines(Integer.parseInt(args[++i]));
+               }
+               else if (args[i].equals("-includes")) {
+                  generator.setIncludeDepth(Integer.parseInt(args[++i]));
+               }
+               else if (args[i].equals("-macros")) {
+                  generator.setMacroDepth(Integer.parseInt(args[++i]));
+               }
+               else if (args[i].equals("-warmup")) {
+                  warmup = Integer.parseInt(args[++i]);
+               }
+               else if (args[i].equals("-iterations")) {
+                  iterations = Integer.parseInt(args[++i]);
+               }
+               else if (args[i].equals("-out")) {
+                  out = new File(args[++i]);
+               }
+               else if (args[i].startsWith("-")) {
+                  throw new IllegalArgumentException(args[i]);
+               }
+               else {
+                  filenames.add(new File(args[i]).getAbsolutePath());
+               }
+            }
+         }
+             catch (RuntimeException e) { // unknown option, or missing or malformed number
+               System.err.println("Usage: java mars.bench.AssemblerBenchmark [-lines n] [-includes n] [-macros n]"
+                  + " [-warmup n] [-iterations n] [-out file.json] [source files]");
+               System.exit(1);
+            }
+         Globals.initialize(false);
+         BenchmarkResults results = new BenchmarkResults(warmup, iterations);
+         if (filenames.isEmpty()) {
+            File directory = createTempDirectory();
+            filenames.add(generator.generate(directory).getAbsolutePath());
+            File[] files = directory.listFiles();
+            for (int i = 0; i < files.length; i++) {
+               files[i].deleteOnExit();   // deleted before the directory
+            }
+            results.setParam("program", "synthetic");
+            results.setParam("lines", Integer.toString(generator.getLines()));
+            results.setParam("includes", Integer.toString(generator.getIncludeDepth()));
+            results.setParam("macros", Integer.toString(generator.getMacroDepth()));
+         }
+         else {
+            results.setParam("program", filenames.toString());
+         }
+         new AssemblerBenchmark().run(filenames, warmup, iterations, results);
+         results.print(System.out);
+         results.write(out);
+         System.out.println("Results saved to " + out);
+      }
+   
+       private void run(ArrayList<String> filenames, int warmup, int iterations, BenchmarkResults results)
+              throws ProcessingException {
+         String name = getClass().getName();
+         Metric[] throughput = new Metric[PHASES.length + 1];
+         Metric[] allocation = new Metric[PHASES.length + 1];
+         for (int i = 0; i < throughput.length; i++) {
+            throughput[i] = new Metric("lines/s");
+            allocation[i] = new Metric("B/line");
+         }
+         for (int iteration = -warmup; iteration < iterations; iteration++) {
+            Globals.sourceCache.clear(); // tokenize every file anew
+            System.gc();
+            ArrayList<MIPSprogram> programs = new ArrayList<MIPSprogram>();
+            int lines = 0;
+            long time = 0;
+            long allocated = 0;
+            for (int i = 0; i < filenames.size(); i++) {
+               MIPSprogram program = new MIPSprogram();
+               program.readSource(filenames.get(i));
+               long startAllocation = AllocationCounter.allocatedBytes();
+               long start = System.nanoTime();
+               program.tokenize();
+               time += System.nanoTime() - start;
+               allocated += AllocationCounter.allocatedBytes() - startAllocation;
+               lines += program.getTokenList().size();
+               programs.add(program);
+            }
+            Assembler assembler = new Assembler();
+            assembler.setPhaseListener(this);
+            assembler.assemble(programs, true, false);
+            if (iteration < 0) {
+               continue;
+            }
+            record(throughput[0], allocation[0], lines, time, allocated);
+            for (int phase = 0; phase < PHASES.length; phase++) {
+               record(throughput[phase + 1], allocation[phase + 1], lines,
+                  phaseTimes[phase + 1] - phaseTimes[phase], phaseAllocations[phase + 1] - phaseAllocations[phase]);
+            }
+         }
+         for (int i = 0; i < throughput.length; i++) {
+            LinkedHashMap<String, Metric> secondary = new LinkedHashMap<String, Metric>();
+            if (AllocationCounter.isSupported()) {
+               secondary.put("alloc.bytes/line", allocation[i]);
+            }
+            results.add(name + "." + ((i == 0) ? "tokenize" : PHASES[i - 1]), throughput[i], secondary);
+         }
+      }
+   
+       private static void record(Metric throughput, Metric allocation, int lines, long nanos, long bytes) {
+         throughput.add(lines * 1e9 / Math.max(nanos, 1));
+         allocation.add((double) bytes / lines);
+      }
+   
+       private static File createTempDirectory() throws IOException {
+         File directory = File.createTempFile("mars-bench", "");
+         if (!directory.delete() || !directory.mkdir()) {
+            throw new IOException("Cannot create directory " + directory);
+         }
+         directory.deleteOnExit();
+         return directory;
+      }
+   }
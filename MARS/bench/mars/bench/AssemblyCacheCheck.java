@@ -0,0 +1,158 @@
+   package mars.bench;
+
+   import mars.*;
+   import mars.assembler.*;
+   import mars.mips.hardware.*;
+   import java.io.*;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Checks that a program restored from the AssemblyCache is the program the
+ * assembler produced.  Each program is assembled and stored in a cache in a
+ * temporary directory, as the "cache" command option does; then it is loaded
+ * back, and its text and data words, machine list, labels and output must equal
+ * those of the assembled program.  Also checks that an entry is not used once a
+ * file brought in by .include has changed.
+ * <p>
+ * Usage: <code>java mars.bench.AssemblyCacheCheck</code>, from the bench folder.
+ */
+
+    public class AssemblyCacheCheck {
+
+      private static final String[] PROGRAMS = {
+         "checks/image.asm", "workloads/alu.asm", "workloads/calls.asm",
+         "workloads/memory.asm", "workloads/branch.asm" };
+      private static final int MAX_STEPS = 5000000;
+
+   /**
+    * Run the check.
+    * @param args not used.
+    * @throws Exception if a program does not assemble or run, or a file cannot be used.
+    */
+       public static void main(String[] args) throws Exception {
+         RegressionCheck check = new RegressionCheck("AssemblyCacheCheck");
+         File directory = temporaryDirectory();
+         AssemblyCache cache = new AssemblyCache(directory, 64L * 1024 * 1024);
+         for (int i = 0; i < PROGRAMS.length; i++) {
+            roundTrip(check, cache, PROGRAMS[i]);
+         }
+
+         File main = new File(directory, "main.asm");
+         File included = new File(directory, "included.asm");
+         write(main, "\t.text\nmain:\t.include \"included.asm\"\n\tadd r2 = r0 , 1\n\tsyscall\n");
+         write(included, "\tadd r4 = r0 , 5\n");
+         ArrayList<String> files = new ArrayList<String>();
+         files.add(main.getAbsolutePath());
+         String key = cache.getKey(files, files.get(0), true, false);
+         MIPSprogram program = new MIPSprogram();
+         ArrayList<?> programs = program.prepareFilesForAssembly(files, files.get(0), null);
+         cache.store(key, programs, program, program.assemble(programs, true, false));
+         check.check("entry with its included file unchanged is used",
+            cache.load(key, new MIPSprogram(), new ErrorList()) != null);
+         write(included, "\tadd r4 = r0 , 6\n");
+         check.check("entry with a changed included file is not used",
+            cache.load(key, new MIPSprogram(), new ErrorList()) == null);
+         check.check("same key after the included file changed", key.equals(cache.getKey(files, files.get(0), true, false)));
+
+         cache.clear();
+         main.delete();
+         included.delete();
+         directory.delete();
+         check.finish();
+      }
+
+      // Assemble and store the program, then load it back and compare.
+       private static void roundTrip(RegressionCheck check, AssemblyCache cache, String filename)
+              throws Exception {
+         ArrayList<String> files = new ArrayList<String>();
+         files.add(new File(filename).getAbsolutePath());
+         String key = cache.getKey(files, files.get(0), true, false);
+         check.check(filename + ": not in the cache before it is stored",
+            cache.load(key, new MIPSprogram(), new ErrorList()) == null);
+         MIPSprogram assembled = new MIPSprogram();
+         ArrayList<?> programs = assembled.prepareFilesForAssembly(files, files.get(0), null);
+         ErrorList warnings = assembled.assemble(programs, true, false);
+         cache.store(key, programs, assembled, warnings);
+         int[] text = RegressionCheck.readWords(Memory.textBaseAddress, Memory.textLimitAddress);
+         int[] data = RegressionCheck.readWords(Memory.dataBaseAddress, Memory.dataSegmentLimitAddress);
+         String machineList = describe(assembled.getMachineList());
+         String labels = RegressionCheck.describe(Globals.symbolTable)
+            + RegressionCheck.describe(assembled.getLocalSymbolTable());
+         RegressionCheck.resetRegisters();
+         String expected = RegressionCheck.run(assembled, MAX_STEPS);
+
+         Globals.memory.clear();
+         Globals.symbolTable.clear();
+         MIPSprogram restored = new MIPSprogram();
+         ArrayList<MIPSprogram> loaded = cache.load(key, restored, new ErrorList());
+         if (!check.check(filename + ": loaded from the cache", loaded != null)) {
+            return;
+         }
+         check.check(filename + ": text words", Arrays.equals(text,
+            RegressionCheck.readWords(Memory.textBaseAddress, Memory.textLimitAddress)));
+         check.check(filename + ": data words", Arrays.equals(data,
+            RegressionCheck.readWords(Memory.dataBaseAddress, Memory.dataSegmentLimitAddress)));
+         check.expect(filename + ": machine list", machineList, describe(restored.getMachineList()));
+         check.expect(filename + ": labels", labels, RegressionCheck.describe(Globals.symbolTable)
+            + RegressionCheck.describe(loaded.get(0).getLocalSymbolTable()));
+         RegressionCheck.resetRegisters();
+         check.expect(filename + ": output", expected, RegressionCheck.run(restored, MAX_STEPS));
+      }
+
+      // One line for each statement: address, machine code, source line and source.
+       private static String describe(ArrayList<?> machineList) {
+         StringBuffer result = new StringBuffer();
+         for (int i = 0; i < machineList.size(); i++) {
+            ProgramStatement statement = (ProgramStatement) machineList.get(i);
+            result.append(statement.getAddress() + " " + statement.getBinaryStatement() + " "
+               + statement.getSourceLine() + " " + statement.getSource() + "\n");
+         }
+         return result.toString();
+      }
+
+       private static File temporaryDirectory() throws IOException {
+         File directory = File.createTempFile("cache", "");
+         directory.delete();
+         directory.mkdirs();
+         return directory;
+      }
+
+       private static void write(File file, String contents) throws IOException {
+         Writer out = new FileWriter(file);
+         try {
+            out.write(contents);
+         }
+         finally {
+            out.close();
+         }
+      }
+   }
@@ -0,0 +1,235 @@
+   package mars.bench;
+
+   import java.io.*;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Results of a benchmark run, printed as a table and saved as JSON for comparing
+ * runs.  The JSON is an array with one object per benchmark, laid out as JMH
+ * writes its results, so tools that read JMH result files can read these too:
+ * the primary metric is the throughput and the secondary metrics are such
+ * things as bytes allocated per line.
+ */
+
+    public class BenchmarkResults {
+   
+      private int warmupIterations;
+      private int measurementIterations;
+      private LinkedHashMap<String, String> params;  // parameters of the whole run
+      private ArrayList<Result> results;
+   
+   /**
+    * @param warmupIterations number of iterations run before measuring.
+    * @param measurementIterations number of iterations measured.
+    */
+       public BenchmarkResults(int warmupIterations, int measurementIterations) {
+         this.warmupIterations = warmupIterations;
+         this.measurementIterations = measurementIterations;
+         this.params = new LinkedHashMap<String, String>();
+         this.results = new ArrayList<Result>();
+      }
+   
+   /**
+    * Record a parameter of the run, such as the size of the program, to be
+    * saved with every benchmark added after.
+    * @param name parameter name.
+    * @param value parameter value.
+    */
+       public void setParam(String name, String value) {
+         params.put(name, value);
+      }
+   
+   /**
+    * Add the results of one benchmark.
+    * @param benchmark full name of the benchmark, such as "mars.bench.AssemblerBenchmark.tokenize".
+    * @param primary throughput measured.
+    * @param secondary names of other metrics, such as "alloc.bytes/line", mapped to the Metric;
+    * null or empty if none.
+    */
+       public void add(String benchmark, Metric primary, Map<String, Metric> secondary) {
+         add(benchmark, null, primary, secondary);
+      }
+   
+   /**
+    * Add the results of one benchmark run with parameters of its own.
+    * @param benchmark full name of the benchmark.
+    * @param benchmarkParams parameter names mapped to values, saved with those of the
+    * run; null if none.
+    * @param primary throughput measured.
+    * @param secondary names of other metrics mapped to the Metric; null or empty if none.
+    */
+       public void add(String benchmark, Map<String, String> benchmarkParams, Metric primary,
+                       Map<String, Metric> secondary) {
+         Result result = new Result();
+         result.benchmark = benchmark;
+         result.params = new LinkedHashMap<String, String>(params);
+         result.label = benchmark;
+         if (benchmarkParams != null && !benchmarkParams.isEmpty()) {
+            result.params.putAll(benchmarkParams);
+            result.label += " " + benchmarkParams.values();
+         }
+         result.primary = primary;
+         result.secondary = (secondary == null) ? new LinkedHashMap<String, Metric>()
+                                              : new LinkedHashMap<String, Metric>(secondary);
+         results.add(result);
+      }
+   
+   /**
+    * Print a line for each metric of each benchmark.
+    * @param out where to print.
+    */
+       public void print(PrintStream out) {
+         out.println(pad("Benchmark", 64) + pad("Score", 16) + pad("Error", 14) + "Units");
+         for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            print(out, result.label, result.primary);
+            Iterator<String> names = result.secondary.keySet().iterator();
+            while (names.hasNext()) {
+               String name = names.next();
+               print(out, result.label + ":" + name, result.secondary.get(name));
+            }
+         }
+      }
+   
+       private void print(PrintStream out, String name, Metric metric) {
+         out.println(pad(name, 64) + pad(format(metric.getScore()), 16)
+            + pad("+- " + format(metric.getScoreError()), 14) + metric.getUnit());
+      }
+   
+   /**
+    * Save the results as JSON.
+    * @param file file to write, replaced if it exists.
+    * @throws IOException if the file cannot be written.
+    */
+       public void write(File file) throws IOException {
+         PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+         try {
+            out.println("[");
+            for (int i = 0; i < results.size(); i++) {
+               Result result = results.get(i);
+               out.println("    {");
+               out.println("        \"benchmark\" : " + quote(result.benchmark) + ",");
+               out.println("        \"mode\" : \"thrpt\",");
+               out.println("        \"threads\" : 1,");
+               out.println("        \"forks\" : 0,");
+               out.println("        \"warmupIterations\" : " + warmupIterations + ",");
+               out.println("        \"measurementIterations\" : " + measurementIterations + ",");
+               out.println("        \"params\" : {");
+               Iterator<String> names = result.params.keySet().iterator();
+               while (names.hasNext()) {
+                  String name = names.next();
+                  out.println("            " + quote(name) + " : " + quote(result.params.get(name))
+                     + (names.hasNext() ? "," : ""));
+               }
+               out.println("        },");
+               out.print("        \"primaryMetric\" : ");
+               writeMetric(out, result.primary, "        ");
+               out.println(",");
+               out.println("        \"secondaryMetrics\" : {");
+               names = result.secondary.keySet().iterator();
+               while (names.hasNext()) {
+                  String name = names.next();
+                  out.print("            " + quote(name) + " : ");
+                  writeMetric(out, result.secondary.get(name), "            ");
+                  out.println(names.hasNext() ? "," : "");
+               }
+               out.println("        }");
+               out.println((i < results.size() - 1) ? "    }," : "    }");
+            }
+            out.println("]");
+         }
+         finally {
+            out.close();
+         }
+         if (out.checkError()) {
+            throw new IOException("Error writing " + file);
+         }
+      }
+   
+       private static void writeMetric(PrintWriter out, Metric metric, String indent) {
+         out.println("{");
+         out.println(indent + "    \"score\" : " + number(metric.getScore()) + ",");
+         out.println(indent + "    \"scoreError\" : " + number(metric.getScoreError()) + ",");
+         out.println(indent + "    \"scoreConfidence\" : [ "
+            + number(metric.getScore() - metric.getScoreError()) + ", "
+            + number(metric.getScore() + metric.getScoreError()) + " ],");
+         out.println(indent + "    \"scoreUnit\" : " + quote(metric.getUnit()) + ",");
+         StringBuffer raw = new StringBuffer();
+         for (int i = 0; i < metric.getCount(); i++) {
+            raw.append((i == 0) ? "" : ", ").append(number(metric.sample(i)));
+         }
+         out.println(indent + "    \"rawData\" : [ [ " + raw + " ] ]");
+         out.print(indent + "}");
+      }
+   
+      // JSON has no NaN, so a missing value is written as the string JMH uses.
+       private static String number(double value) {
+         return (Double.isNaN(value) || Double.isInfinite(value)) ? "\"NaN\"" : Double.toString(value);
+      }
+   
+       private static String quote(String value) {
+         StringBuffer quoted = new StringBuffer("\"");
+         for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+               quoted.append('\\').append(c);
+            }
+            else if (c < ' ') {
+               quoted.append(String.format("\\u%04x", new Object[] { Integer.valueOf(c) }));
+            }
+            else {
+               quoted.append(c);
+            }
+         }
+         return quoted.append('"').toString();
+      }
+   
+       private static String format(double value) {
+         return Double.isNaN(value) ? "NaN" : String.format("%.3f", new Object[] { Double.valueOf(value) });
+      }
+   
+       private static String pad(String s, int width) {
+         StringBuffer padded = new StringBuffer(s);
+         do {
+            padded.append(' ');
+         } while (padded.length() < width);
+         return padded.toString();
+      }
+   
+       private static class Result {
+         String benchmark;
+         String label;             // benchmark with its own parameters, for printing
+         LinkedHashMap<String, String> params;
+         Metric primary;
+         LinkedHashMap<String, Metric> secondary;
+      }
+   }
@@ -0,0 +1,141 @@
+   package mars.bench;
+
+   import mars.*;
+   import mars.simulator.branch.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Checks the branch predictors on short branch traces whose outcomes are worked
+ * out by hand: a loop branch taken three times out of four, which static and
+ * bimodal predictors get partly right and a local history predictor learns, and a
+ * branch that repeats the outcome of the branch before it, which only global
+ * history predicts.  Then checks the branch target buffer on indirect jumps, and
+ * that every conditional branch instruction of checks/branches.asm reports whether
+ * it was taken.
+ * <p>
+ * Usage: <code>java mars.bench.BranchCheck</code>, from the bench folder.
+ */
+
+    public class BranchCheck {
+
+      private static final int LOOP = 0x00400010, LOOP_TOP = 0x00400000;
+      private static final int FIRST = 0x00400100, SECOND = 0x00400200, NEXT = 0x00400300;
+      private static final int MAX_STEPS = 1000;
+
+   /**
+    * Run the check.
+    * @param args not used.
+    * @throws Exception if checks/branches.asm does not assemble or run.
+    */
+       public static void main(String[] args) throws Exception {
+         RegressionCheck check = new RegressionCheck("BranchCheck");
+
+         // A backward loop branch taken, taken, taken, not taken, 10 times.  1-bit counters
+         // miss the first and last of each period, 2-bit counters only the last after the first.
+         BranchEvaluator evaluator = new BranchEvaluator(
+            "static:taken,static:nottaken,static:btfn,bimodal:16:1,bimodal:16:2");
+         for (int i = 0; i < 40; i++) {
+            evaluator.branch(LOOP, LOOP_TOP, i % 4 != 3);
+         }
+         check.expect("loop: correct of static taken, not taken, btfn, 1-bit, 2-bit", "30 10 30 20 29",
+            correct(evaluator));
+         check.expect("loop: local history correct after 5 periods", "20",
+            correctAfter(new LocalHistoryPredictor(16, 4), 20, 40, false));
+
+         // FIRST alternates taken and not taken, SECOND repeats FIRST.  The counter of each
+         // alternates between weakly not taken and weakly taken and is always wrong.
+         evaluator = new BranchEvaluator("bimodal:1024:2");
+         for (int i = 0; i < 80; i++) {
+            evaluator.branch((i % 2 == 0) ? FIRST : SECOND, NEXT, (i / 2) % 2 == 0);
+         }
+         check.expect("correlated: bimodal correct", "0", correct(evaluator));
+         check.expect("correlated: gshare correct after 20 pairs", "40",
+            correctAfter(new GsharePredictor(256, 8), 40, 80, true));
+         check.expect("correlated: tournament correct after 20 pairs", "40",
+            correctAfter(new TournamentPredictor(256, 8), 40, 80, true));
+
+         // Two jumps sharing an entry of a 4-entry buffer evict each other; a jump with a
+         // changing target is never predicted; one with a fixed target is, after the first.
+         BranchTargetBuffer btb = new BranchTargetBuffer(4);
+         int hits = 0;
+         for (int i = 0; i < 10; i++) {
+            hits += btb.jump(NEXT, FIRST) ? 1 : 0;
+            hits += btb.jump(NEXT + 16, FIRST) ? 1 : 0;
+         }
+         check.expect("btb: hits of jumps sharing an entry", "0", Integer.toString(hits));
+         btb.reset();
+         hits = 0;
+         for (int i = 0; i < 10; i++) {
+            hits += btb.jump(NEXT, (i % 2 == 0) ? FIRST : SECOND) ? 1 : 0;
+            hits += btb.jump(NEXT + 4, FIRST) ? 1 : 0;
+         }
+         check.expect("btb: hits of a changing and a fixed target", "9", Integer.toString(hits));
+
+         // A single 1-bit counter is right whenever a branch goes the way of the one before.
+         MIPSprogram program = RegressionCheck.assemble(new String[] { "checks/branches.asm" });
+         evaluator = new BranchEvaluator("static:taken,bimodal:1:1");
+         evaluator.start();
+         try {
+            RegressionCheck.run(program, MAX_STEPS);
+         }
+         finally {
+            BranchEvaluator.stop();
+         }
+         check.expect("branches.asm: branches, taken, same as the previous", "18 9 8",
+            evaluator.getBranches() + " " + correct(evaluator));
+         check.finish();
+      }
+
+      // Number of correct predictions of each predictor of an evaluator, separated by spaces.
+       private static String correct(BranchEvaluator evaluator) {
+         StringBuffer result = new StringBuffer();
+         for (int i = 0; i < evaluator.getPredictors().length; i++) {
+            result.append((i == 0) ? "" : " ").append(evaluator.getCorrect(i));
+         }
+         return result.toString();
+      }
+
+      // Feed the loop trace or the correlated trace to a predictor, returning the number
+      // of correct predictions from branch first on.
+       private static String correctAfter(BranchPredictor predictor, int first, int count, boolean correlated) {
+         int correct = 0;
+         for (int i = 0; i < count; i++) {
+            int address = correlated ? ((i % 2 == 0) ? FIRST : SECOND) : LOOP;
+            int target = correlated ? NEXT : LOOP_TOP;
+            boolean taken = correlated ? (i / 2) % 2 == 0 : i % 4 != 3;
+            if (predictor.predict(address, target) == taken && i >= first) {
+               correct++;
+            }
+            predictor.update(address, taken);
+         }
+         return Integer.toString(correct);
+      }
+   }
@@ -0,0 +1,169 @@
+   package mars.bench;
+
+   import mars.*;
+   import mars.mips.hardware.*;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Checks the hit and miss counts of the cache simulator on short address traces
+ * whose outcomes are worked out by hand: conflicts in a direct mapped cache, the
+ * victims chosen by LRU, FIFO and PLRU replacement, and the traffic of write-back
+ * and write-through caches to the next level.  Then checks a CacheHierarchy fed
+ * by checks/stride.asm, which reads one word of each block of a 1K array twice.
+ * Last, checks that the miss ratios a CacheSweep finds in one pass over a long
+ * pseudo-random trace are those of simulating each of its LRU organizations.
+ * <p>
+ * Usage: <code>java mars.bench.CacheCheck</code>, from the bench folder.
+ */
+
+    public class CacheCheck {
+
+      private static final int MAX_STEPS = 10000;
+      private static final String SWEEP = "256-4K:16,32:1-4,full";
+      private static final int[] SWEEP_SIZES = { 256, 512, 1024, 2048, 4096 };
+      private static final int[] SWEEP_BLOCKS = { 16, 32 };
+      private static final int[] SWEEP_WAYS = { 1, 2, 4, 0 };
+      private static final int SWEEP_REFERENCES = 200000;
+
+   /**
+    * Run the check.
+    * @param args not used.
+    * @throws Exception if checks/stride.asm does not assemble or run.
+    */
+       public static void main(String[] args) throws Exception {
+         RegressionCheck check = new RegressionCheck("CacheCheck");
+
+         // 4 sets of 16 bytes: 0-12 share a block, 64 maps to the set of 0.
+         Cache cache = new Cache("DM", 64, 16, 1, Cache.LRU, true, null);
+         check.expect("direct mapped: misses", "3", misses(cache, new int[] { 0, 4, 8, 12, 64, 0 }));
+
+         // One set of two blocks: A B A C A.  LRU evicts B for C, FIFO evicts A.
+         int[] trace = { 0, 16, 0, 32, 0 };
+         check.expect("2-way LRU: misses", "3", misses(new Cache("LRU", 32, 16, 2, Cache.LRU, true, null), trace));
+         check.expect("2-way FIFO: misses", "4", misses(new Cache("FIFO", 32, 16, 2, Cache.FIFO, true, null), trace));
+
+         // One set of four blocks: A B C D A E B C.  LRU evicts B for E, then C for B,
+         // then D for C; the PLRU tree evicts C for E, and B is still there.
+         trace = new int[] { 0, 16, 32, 48, 0, 64, 16, 32 };
+         check.expect("4-way LRU: misses", "7", misses(new Cache("LRU", 64, 16, 4, Cache.LRU, true, null), trace));
+         check.expect("4-way PLRU: misses", "6", misses(new Cache("PLRU", 64, 16, 4, Cache.PLRU, true, null), trace));
+
+         // Two sets of one block, writing 0 then 32, which conflict.
+         Cache next = new Cache("L2", 1024, 16, 1, Cache.LRU, true, null);
+         cache = new Cache("WB", 32, 16, 1, Cache.LRU, true, next);
+         cache.write(0);
+         cache.write(32);
+         check.expect("write-back: writebacks before flush", Long.valueOf(1), Long.valueOf(cache.getWritebacks()));
+         cache.flush();
+         check.expect("write-back: writebacks after flush", Long.valueOf(2), Long.valueOf(cache.getWritebacks()));
+         check.expect("write-back: next level reads, writes", "2 2", next.getReads() + " " + next.getWrites());
+         next = new Cache("L2", 1024, 16, 1, Cache.LRU, true, null);
+         cache = new Cache("WT", 32, 16, 1, Cache.LRU, false, next);
+         cache.write(0);
+         cache.write(32);
+         cache.write(32);
+         check.expect("write-through: write misses", Long.valueOf(3), Long.valueOf(cache.getWriteMisses()));
+         check.expect("write-through: next level reads, writes", "0 3", next.getReads() + " " + next.getWrites());
+
+         check.expect("stride.asm, 512B L1D: accesses, misses", "128 128", runStride("L1D=512:16:1")[0]);
+         check.expect("stride.asm, 1K L1D: accesses, misses", "128 64", runStride("L1D=1K:16:1")[0]);
+         // The L2 also takes the 523 instruction fetches, and misses once for each of
+         // the 2 blocks of text and 32 blocks of the array.
+         String[] levels = runStride("L1D=1K:16:1,L2=4K:32:2");
+         check.expect("stride.asm, L1D and L2: L1D accesses, misses", "128 64", levels[0]);
+         check.expect("stride.asm, L1D and L2: L2 accesses, misses", "587 34", levels[1]);
+
+         // Mostly near the previous reference, sometimes anywhere in 16K.
+         Random random = new Random(1);
+         int[] references = new int[SWEEP_REFERENCES];
+         int address = 0;
+         for (int i = 0; i < references.length; i++) {
+            address = (random.nextInt(10) < 7) ? (address + 4 * (random.nextInt(33) - 16)) & 0x3FFC
+                                               : 4 * random.nextInt(4096);
+            references[i] = address;
+         }
+         CacheSweep sweep = new CacheSweep(SWEEP);
+         for (int i = 0; i < references.length; i++) {
+            sweep.reference(references[i]);
+         }
+         int agree = 0, organizations = 0;
+         for (int s = 0; s < SWEEP_SIZES.length; s++) {
+            for (int b = 0; b < SWEEP_BLOCKS.length; b++) {
+               for (int w = 0; w < SWEEP_WAYS.length; w++) {
+                  int ways = (SWEEP_WAYS[w] == 0) ? SWEEP_SIZES[s] / SWEEP_BLOCKS[b] : SWEEP_WAYS[w];
+                  cache = new Cache("LRU", SWEEP_SIZES[s], SWEEP_BLOCKS[b], ways, Cache.LRU, true, null);
+                  long simulated = Long.parseLong(misses(cache, references));
+                  double ratio = sweep.getMissRatio(SWEEP_SIZES[s], SWEEP_BLOCKS[b], SWEEP_WAYS[w]);
+                  if (Math.round(ratio * references.length) == simulated) {
+                     agree++;
+                  }
+                  else {
+                     System.out.println("      " + cache + ": sweep " + ratio + ", simulated "
+                        + simulated / (double) references.length);
+                  }
+                  organizations++;
+               }
+            }
+         }
+         check.expect("sweep: organizations agreeing with simulation", Integer.valueOf(organizations),
+            Integer.valueOf(agree));
+         check.finish();
+      }
+
+      // Read each address of a trace, returning the number of misses.
+       private static String misses(Cache cache, int[] trace) {
+         for (int i = 0; i < trace.length; i++) {
+            cache.read(trace[i]);
+         }
+         return Long.toString(cache.getReadMisses());
+      }
+
+      // Run checks/stride.asm through a hierarchy, returning the accesses and misses of each level.
+       private static String[] runStride(String description) throws ProcessingException {
+         MIPSprogram program = RegressionCheck.assemble(new String[] { "checks/stride.asm" });
+         CacheHierarchy hierarchy = new CacheHierarchy(description);
+         hierarchy.start();
+         try {
+            RegressionCheck.run(program, MAX_STEPS);
+         }
+         finally {
+            CacheHierarchy.stop();
+         }
+         Cache[] levels = hierarchy.getLevels();
+         String[] counts = new String[levels.length];
+         for (int i = 0; i < levels.length; i++) {
+            counts[i] = (levels[i].getReads() + levels[i].getWrites()) + " "
+               + (levels[i].getReadMisses() + levels[i].getWriteMisses());
+         }
+         return counts;
+      }
+   }
@@ -0,0 +1,170 @@
+   package mars.bench;
+
+   import mars.*;
+   import mars.assembler.*;
+   import mars.mips.dump.*;
+   import mars.mips.hardware.*;
+   import java.io.*;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Checks that a memory image dumped in each loadable format loads back unchanged.
+ * Each program is assembled, its text and data segments are dumped, and it is run;
+ * then memory is cleared, the dumps are loaded, and the loaded words and the output
+ * of running them must equal the assembled ones.  Also checks that the records of an
+ * Intel hex file are stored at their own offsets: checks/gap.hex holds words at
+ * offsets 0, 4 and 12, out of order, leaving the word at offset 8 zero.
+ * <p>
+ * Each program is also dumped whole in ELF, which must restore every segment and
+ * the address of every label when loaded into cleared memory and an empty symbol
+ * table.
+ * <p>
+ * Usage: <code>java mars.bench.DumpLoadCheck</code>, from the bench folder.
+ */
+
+    public class DumpLoadCheck {
+
+      private static final String[] PROGRAMS = {
+         "checks/image.asm", "workloads/calls.asm", "workloads/memory.asm" };
+      private static final AbstractWordLoadFormat[] FORMATS = {
+         new BinaryDumpFormat(), new BinaryTextDumpFormat(), new HexTextDumpFormat(), new IntelHexDumpFormat() };
+      private static final int MAX_STEPS = 5000000;
+      private static final int[] BASES = { Memory.textBaseAddress, Memory.dataBaseAddress,
+                                           Memory.kernelTextBaseAddress, Memory.kernelDataBaseAddress };
+      private static final int[] LIMITS = { Memory.textLimitAddress, Memory.dataSegmentLimitAddress,
+                                            Memory.kernelTextLimitAddress, Memory.kernelDataSegmentLimitAddress };
+
+   /**
+    * Run the check.
+    * @param args not used.
+    * @throws Exception if a program does not assemble or run, or a file cannot be used.
+    */
+       public static void main(String[] args) throws Exception {
+         RegressionCheck check = new RegressionCheck("DumpLoadCheck");
+         for (int p = 0; p < PROGRAMS.length; p++) {
+            for (int f = 0; f < FORMATS.length; f++) {
+               roundTrip(check, PROGRAMS[p], FORMATS[f]);
+            }
+            elfRoundTrip(check, PROGRAMS[p]);
+         }
+         Globals.memory.clear();
+         new IntelHexDumpFormat().loadMemoryRange(new File("checks/gap.hex"), Memory.dataBaseAddress);
+         int[] words = new int[4];
+         for (int i = 0; i < words.length; i++) {
+            words[i] = Globals.memory.getRawWord(Memory.dataBaseAddress + i * Memory.WORD_LENGTH_BYTES);
+         }
+         check.expect("gap.hex words at their record offsets", "[286331153, 858993459, 0, 572662306]",
+            Arrays.toString(words));
+         check.finish();
+      }
+
+      // Dump the program's segments, run it, then load and run the dumps.
+       private static void roundTrip(RegressionCheck check, String filename, AbstractWordLoadFormat format)
+              throws Exception {
+         String name = filename + " as " + format.getCommandDescriptor();
+         MIPSprogram program = RegressionCheck.assemble(new String[] { filename });
+         int[] text = RegressionCheck.readWords(Memory.textBaseAddress, Memory.textLimitAddress);
+         int[] data = RegressionCheck.readWords(Memory.dataBaseAddress, Memory.dataSegmentLimitAddress);
+         File textFile = dump(format, Memory.textBaseAddress, text.length);
+         File dataFile = dump(format, Memory.dataBaseAddress, data.length);
+         String expected = RegressionCheck.run(program, MAX_STEPS);
+
+         Globals.memory.clear();
+         if (textFile != null) {
+            format.loadMemoryRange(textFile, Memory.textBaseAddress);
+         }
+         if (dataFile != null) {
+            format.loadMemoryRange(dataFile, Memory.dataBaseAddress);
+         }
+         check.check(name + ": text words", Arrays.equals(text,
+            RegressionCheck.readWords(Memory.textBaseAddress, Memory.textLimitAddress)));
+         check.check(name + ": data words", Arrays.equals(data,
+            RegressionCheck.readWords(Memory.dataBaseAddress, Memory.dataSegmentLimitAddress)));
+         RegressionCheck.resetRegisters();
+         check.expect(name + ": output", expected, RegressionCheck.run(new MIPSprogram(), MAX_STEPS));
+      }
+
+      // Dump the whole program in ELF, run it, then load and run the dump.
+       private static void elfRoundTrip(RegressionCheck check, String filename) throws Exception {
+         String name = filename + " as ELF";
+         MIPSprogram program = RegressionCheck.assemble(new String[] { filename });
+         ArrayList<int[]> segments = new ArrayList<int[]>();
+         for (int i = 0; i < BASES.length; i++) {
+            segments.add(RegressionCheck.readWords(BASES[i], LIMITS[i]));
+         }
+         ArrayList<Symbol> symbols = new ArrayList<Symbol>();
+         addSymbols(symbols, program.getLocalSymbolTable());
+         addSymbols(symbols, Globals.symbolTable);
+         File file = File.createTempFile("check", ".elf");
+         file.deleteOnExit();
+         new ElfDumpFormat().dumpMemoryRange(file, Memory.textBaseAddress, Memory.textBaseAddress);
+         String expected = RegressionCheck.run(program, MAX_STEPS);
+
+         Globals.memory.clear();
+         Globals.symbolTable.clear();
+         new ElfDumpFormat().loadMemoryRange(file, Memory.textBaseAddress);
+         boolean same = true;
+         for (int i = 0; i < BASES.length; i++) {
+            same &= Arrays.equals(segments.get(i), RegressionCheck.readWords(BASES[i], LIMITS[i]));
+         }
+         check.check(name + ": segment words", same);
+         int restored = 0;
+         for (int i = 0; i < symbols.size(); i++) {
+            Symbol symbol = symbols.get(i);
+            if (Globals.symbolTable.getAddress(symbol.getName()) == symbol.getAddress()) {
+               restored++;
+            }
+         }
+         check.expect(name + ": " + symbols.size() + " labels restored", symbols.size(), restored);
+         RegressionCheck.resetRegisters();
+         check.expect(name + ": output", expected, RegressionCheck.run(new MIPSprogram(), MAX_STEPS));
+      }
+
+       private static void addSymbols(ArrayList<Symbol> symbols, SymbolTable table) {
+         ArrayList<?> all = table.getAllSymbols();
+         for (int i = 0; i < all.size(); i++) {
+            symbols.add((Symbol) all.get(i));
+         }
+      }
+
+      // Dump the given number of words to a temporary file, or return null if there are none.
+       private static File dump(DumpFormat format, int firstAddress, int words)
+              throws AddressErrorException, IOException {
+         if (words == 0) {
+            return null;
+         }
+         File file = File.createTempFile("check", "." + format.getFileExtension());
+         file.deleteOnExit();
+         format.dumpMemoryRange(file, firstAddress, firstAddress + (words - 1) * Memory.WORD_LENGTH_BYTES);
+         return file;
+      }
+   }
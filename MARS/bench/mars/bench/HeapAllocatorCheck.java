@@ -0,0 +1,135 @@
+   package mars.bench;
+
+   import mars.*;
+   import mars.mips.hardware.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Checks that the HeapAllocator behind the malloc, free and realloc syscalls
+ * reuses freed blocks and coalesces adjacent ones.  The allocator is driven
+ * directly on cleared memory, then checks/heap.asm checks reuse through the
+ * syscalls.
+ * <p>
+ * Usage: <code>java mars.bench.HeapAllocatorCheck</code>, from the bench folder.
+ */
+
+    public class HeapAllocatorCheck {
+
+      private static final int MAX_STEPS = 1000;
+
+   /**
+    * Run the check.
+    * @param args not used.
+    * @throws Exception if memory cannot be used or checks/heap.asm does not assemble or run.
+    */
+       public static void main(String[] args) throws Exception {
+         RegressionCheck check = new RegressionCheck("HeapAllocatorCheck");
+
+         HeapAllocator heap = clear();
+         int first = heap.malloc(24);
+         heap.malloc(24);
+         heap.free(first);
+         check.expect("freed block reused by a smaller malloc", first, heap.malloc(16));
+
+         heap = clear();
+         int a = heap.malloc(24);
+         int b = heap.malloc(24);
+         int c = heap.malloc(24);
+         heap.malloc(24);
+         heap.free(a);
+         heap.free(c);
+         check.expect("free blocks apart before coalescing", 3, heap.getFreeBlockCount());
+         heap.free(b);
+         check.expect("free blocks after freeing the block between", 2, heap.getFreeBlockCount());
+         check.expect("coalesced block reused by a malloc of its size", a, heap.malloc(72));
+
+         heap = clear();
+         a = heap.malloc(16);
+         b = heap.malloc(16);
+         heap.free(b);
+         check.expect("realloc grows in place into the following free block", a, heap.realloc(a, 32));
+
+         heap = clear();
+         a = heap.malloc(8);
+         Globals.memory.setRawWord(a, 0x11111111);
+         Globals.memory.setRawWord(a + 4, 0x22222222);
+         heap.malloc(8);
+         final int[] accesses = new int[1];
+         MemoryAccessListener listener =
+             new MemoryAccessListener() {
+                public void memoryAccessed(int type, int address, int length, int value) {
+                  accesses[0]++;
+               }
+            };
+         Globals.memory.addAccessListener(listener);
+         int moved = heap.realloc(a, 64);
+         Globals.memory.removeAccessListener(listener);
+         check.check("realloc moves a block that cannot grow in place", moved != a && moved != 0);
+         check.check("realloc copies the contents of a moved block",
+            Globals.memory.getRawWord(moved) == 0x11111111 && Globals.memory.getRawWord(moved + 4) == 0x22222222);
+         check.expect("realloc copies without reporting memory accesses", 0, accesses[0]);
+         check.expect("realloc frees the old block for reuse", a, heap.malloc(8));
+
+         heap = clear();
+         int[] blocks = new int[10];
+         for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = heap.malloc(8 * (i + 1));
+         }
+         for (int i = 0; i < blocks.length; i += 2) {
+            heap.free(blocks[i]);
+         }
+         for (int i = 1; i < blocks.length; i += 2) {
+            heap.free(blocks[i]);
+         }
+         check.expect("nothing allocated after freeing every block", 0, heap.getAllocatedBytes());
+         check.expect("one free block after freeing every block", 1, heap.getFreeBlockCount());
+         check.expect("free block spans the heap", heap.getHeapBytes(), heap.getFreeBytes());
+
+         boolean rejected = false;
+         try {
+            heap.free(blocks[0]);
+         }
+            catch (IllegalArgumentException e) {
+               rejected = true;
+            }
+         check.check("second free of a block rejected", rejected);
+
+         MIPSprogram program = RegressionCheck.assemble(new String[] { "checks/heap.asm" });
+         check.expect("checks/heap.asm reuses the freed block", "0", RegressionCheck.run(program, MAX_STEPS));
+         check.finish();
+      }
+
+      // Clear memory, which starts a new, empty heap.
+       private static HeapAllocator clear() {
+         Globals.memory.clear();
+         return Globals.memory.getHeapAllocator();
+      }
+   }
@@ -0,0 +1,133 @@
+   package mars.bench;
+
+   import mars.*;
+   import mars.assembler.*;
+   import mars.mips.hardware.*;
+   import java.io.*;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Checks that linking separately assembled object modules gives the program that
+ * assembling all of their source files together gives.  checks/link/main.asm and
+ * checks/link/lib.asm refer to each other's labels from both text and data; they
+ * are assembled together, then assembled as one object module, and as one module
+ * each written to and read back from an object file, and linked.  The text and data
+ * words, global labels and output of each linked program must equal those of the
+ * whole program.  Also checks that the linker rejects a label defined twice and a
+ * label not defined.
+ * <p>
+ * Usage: <code>java mars.bench.LinkCheck</code>, from the bench folder.
+ */
+
+    public class LinkCheck {
+
+      private static final String MAIN = "checks/link/main.asm";
+      private static final String LIBRARY = "checks/link/lib.asm";
+      private static final String OUTPUT = "42 7 4097 256 256 32 0 32 ";
+      private static final int MAX_STEPS = 10000;
+
+   /**
+    * Run the check.
+    * @param args not used.
+    * @throws Exception if a program does not assemble or run, or a file cannot be used.
+    */
+       public static void main(String[] args) throws Exception {
+         RegressionCheck check = new RegressionCheck("LinkCheck");
+         MIPSprogram whole = RegressionCheck.assemble(new String[] { MAIN, LIBRARY });
+         int[] text = RegressionCheck.readWords(Memory.textBaseAddress, Memory.textLimitAddress);
+         int[] data = RegressionCheck.readWords(Memory.dataBaseAddress, Memory.dataSegmentLimitAddress);
+         String labels = RegressionCheck.describe(Globals.symbolTable);
+         String output = RegressionCheck.run(whole, MAX_STEPS);
+         check.expect("whole program output", OUTPUT, output);
+
+         ArrayList<ObjectModule> modules = new ArrayList<ObjectModule>();
+         modules.add(assembleObject(new String[] { MAIN, LIBRARY }));
+         compare(check, "one module", modules, text, data, labels, output);
+
+         modules.clear();
+         modules.add(writeAndRead(assembleObject(new String[] { MAIN })));
+         modules.add(writeAndRead(assembleObject(new String[] { LIBRARY })));
+         compare(check, "module per file", modules, text, data, labels, output);
+
+         modules.clear();
+         modules.add(assembleObject(new String[] { MAIN }));
+         modules.add(assembleObject(new String[] { LIBRARY }));
+         modules.add(assembleObject(new String[] { LIBRARY }));
+         check.check("label defined twice rejected", !links(modules));
+         modules.remove(2);
+         modules.remove(1);
+         check.check("label not defined rejected", !links(modules));
+         check.finish();
+      }
+
+      // Link the modules and compare the program with the whole program.
+       private static void compare(RegressionCheck check, String name, ArrayList<ObjectModule> modules,
+              int[] text, int[] data, String labels, String output) throws Exception {
+         MIPSprogram linked = new MIPSprogram();
+         linked.link(modules);
+         check.check(name + ": text words", Arrays.equals(text,
+            RegressionCheck.readWords(Memory.textBaseAddress, Memory.textLimitAddress)));
+         check.check(name + ": data words", Arrays.equals(data,
+            RegressionCheck.readWords(Memory.dataBaseAddress, Memory.dataSegmentLimitAddress)));
+         check.expect(name + ": global labels", labels, RegressionCheck.describe(Globals.symbolTable));
+         RegressionCheck.resetRegisters();
+         check.expect(name + ": output", output, RegressionCheck.run(linked, MAX_STEPS));
+      }
+
+      // Assemble source files into one object module, the first being the main file.
+       private static ObjectModule assembleObject(String[] filenames) throws ProcessingException {
+         ArrayList<String> files = new ArrayList<String>();
+         for (int i = 0; i < filenames.length; i++) {
+            files.add(new File(filenames[i]).getAbsolutePath());
+         }
+         MIPSprogram program = new MIPSprogram();
+         return new Assembler().assembleObject(program.prepareFilesForAssembly(files, files.get(0), null), true, false);
+      }
+
+      // Write a module to a temporary object file and read it back.
+       private static ObjectModule writeAndRead(ObjectModule module) throws IOException {
+         File file = File.createTempFile("check", "." + ObjectModule.EXTENSION);
+         file.deleteOnExit();
+         module.write(file);
+         return ObjectModule.read(file);
+      }
+
+       private static boolean links(ArrayList<ObjectModule> modules) {
+         try {
+            new MIPSprogram().link(modules);
+            return true;
+         }
+            catch (ProcessingException e) {
+               return false;
+            }
+      }
+   }
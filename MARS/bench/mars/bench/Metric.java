@@ -0,0 +1,144 @@
+   package mars.bench;
+
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * The samples of one measured quantity, one per measurement iteration, with the
+ * summary statistics reported for it.  As in JMH, the score is the mean and the
+ * score error is the half width of its 99.9% confidence interval.
+ */
+
+    public class Metric {
+   
+      // Student's t quantiles for a two-sided 99.9% interval, by degrees of freedom 1 to 30.
+      private static final double[] T_999 = {
+         636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+         4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+         3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646 };
+      private static final double T_999_LIMIT = 3.291;
+   
+      private String unit;
+      private ArrayList<Double> samples;
+   
+   /**
+    * @param unit unit of the samples, such as "lines/s".
+    */
+       public Metric(String unit) {
+         this.unit = unit;
+         this.samples = new ArrayList<Double>();
+      }
+   
+   /**
+    * @param sample value measured by one iteration.
+    */
+       public void add(double sample) {
+         samples.add(Double.valueOf(sample));
+      }
+   
+   /**
+    * @return unit of the samples.
+    */
+       public String getUnit() {
+         return unit;
+      }
+   
+   /**
+    * @return number of samples.
+    */
+       public int getCount() {
+         return samples.size();
+      }
+   
+   /**
+    * @return mean of the samples, or NaN if there are none.
+    */
+       public double getScore() {
+         double sum = 0;
+         for (int i = 0; i < samples.size(); i++) {
+            sum += sample(i);
+         }
+         return sum / samples.size();
+      }
+   
+   /**
+    * @return half width of the 99.9% confidence interval of the mean, or NaN if
+    * there are fewer than two samples.
+    */
+       public double getScoreError() {
+         int n = samples.size();
+         if (n < 2) {
+            return Double.NaN;
+         }
+         double mean = getScore();
+         double squares = 0;
+         for (int i = 0; i < n; i++) {
+            squares += (sample(i) - mean) * (sample(i) - mean);
+         }
+         double deviation = Math.sqrt(squares / (n - 1));
+         double t = (n - 1 <= T_999.length) ? T_999[n - 2] : T_999_LIMIT;
+         return t * deviation / Math.sqrt(n);
+      }
+   
+   /**
+    * @return smallest sample, or NaN if there are none.
+    */
+       public double getMin() {
+         double min = Double.NaN;
+         for (int i = 0; i < samples.size(); i++) {
+            if (!(sample(i) >= min)) {
+               min = sample(i);
+            }
+         }
+         return min;
+      }
+   
+   /**
+    * @return largest sample, or NaN if there are none.
+    */
+       public double getMax() {
+         double max = Double.NaN;
+         for (int i = 0; i < samples.size(); i++) {
+            if (!(sample(i) <= max)) {
+               max = sample(i);
+            }
+         }
+         return max;
+      }
+   
+   /**
+    * @param i index of a sample, in the order they were added.
+    * @return the sample.
+    */
+       public double sample(int i) {
+         return samples.get(i).doubleValue();
+      }
+   }
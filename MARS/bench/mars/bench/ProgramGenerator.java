@@ -0,0 +1,268 @@
+   package mars.bench;
+
+   import java.io.*;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Writes synthetic COE403 assembly programs of a chosen size for benchmarking the
+ * assembler.  The program is a main file that includes a chain of files, each
+ * including the next, which define nested macros, .eqv symbols and data.  The main
+ * file then repeats blocks of code and data until it reaches the requested number of
+ * lines.  Each block has a label, a .word list holding numbers and a label address,
+ * an .asciiz string, basic instructions, pseudo-instructions that expand to one or
+ * several basic instructions, loads and stores, backward and forward branches and,
+ * in every fourth block, a call of the outermost macro.  Registers and immediates
+ * are chosen by a seeded random number generator, so a given set of parameters
+ * always produces the same program.
+ * <p>
+ * Usage: <code>java mars.bench.ProgramGenerator [-lines n] [-includes n] [-macros n]
+ * [-seed n] directory</code>
+ */
+
+    public class ProgramGenerator {
+   
+   /** Name of the main file written to the directory. */
+      public static final String MAIN_FILE = "main.asm";
+   
+      // Registers 20 and 21 are temporaries of the pseudo-instruction expansions.
+      private static final int REGISTERS = 20;
+   
+      private int lines = 20000;
+      private int includeDepth = 4;
+      private int macroDepth = 4;
+      private long seed = 403;
+      private Random random;
+   
+   /**
+    * @param lines approximate number of lines in the main file; at least one block is written.
+    */
+       public void setLines(int lines) {
+         this.lines = lines;
+      }
+   
+   /**
+    * @return approximate number of lines in the main file.
+    */
+       public int getLines() {
+         return lines;
+      }
+   
+   /**
+    * @param includeDepth number of files in the chain of .include files, at least 1.
+    */
+       public void setIncludeDepth(int includeDepth) {
+         this.includeDepth = Math.max(includeDepth, 1);
+      }
+   
+   /**
+    * @return number of files in the chain of .include files.
+    */
+       public int getIncludeDepth() {
+         return includeDepth;
+      }
+   
+   /**
+    * @param macroDepth number of macros, each but the innermost calling the next, at least 1.
+    */
+       public void setMacroDepth(int macroDepth) {
+         this.macroDepth = Math.max(macroDepth, 1);
+      }
+   
+   /**
+    * @return number of nested macros.
+    */
+       public int getMacroDepth() {
+         return macroDepth;
+      }
+   
+   /**
+    * @param seed seed for choosing registers and values.
+    */
+       public void setSeed(long seed) {
+         this.seed = seed;
+      }
+   
+   /**
+    * Write the program.
+    * @param directory directory to write the files to, created if need be.
+    * @return the main file.
+    * @throws IOException if a file cannot be written.
+    */
+       public File generate(File directory) throws IOException {
+         directory.mkdirs();
+         random = new Random(seed);
+         for (int level = 1; level <= includeDepth; level++) {
+            PrintWriter out = open(new File(directory, includeName(level)));
+            try {
+               writeInclude(out, level);
+            }
+            finally {
+               out.close();
+            }
+         }
+         File main = new File(directory, MAIN_FILE);
+         PrintWriter out = open(main);
+         try {
+            writeMain(out);
+         }
+         finally {
+            out.close();
+         }
+         return main;
+      }
+   
+       private void writeInclude(PrintWriter out, int level) {
+         out.println("# Synthetic COE403 source generated by mars.bench.ProgramGenerator, include level " + level);
+         if (level < includeDepth) {
+            out.println(".include \"" + includeName(level + 1) + "\"");
+         }
+         out.println(".eqv STEP" + level + " " + level);
+         // Macros are spread over the files.  All are defined before main calls any.
+         for (int depth = level; depth <= macroDepth; depth += includeDepth) {
+            String name = "level" + depth;
+            out.println(".macro " + name + "(%d, %s)");
+            if (depth < macroDepth) {
+               out.println("loop:\tadd %d = %s , " + depth);
+               out.println("\tlevel" + (depth + 1) + "(%s, %d)");
+               out.println("\tsubf %d = %d , %s");
+               out.println("\tbnez %d , loop");
+            }
+            else {
+               out.println("\tadd %d = %s , " + depth);
+               out.println("\tmov %s = %d");
+            }
+            out.println(".end_macro");
+         }
+         out.println("\t.data");
+         out.println("include" + level + ":\t.word " + words(8));
+         out.println("\t.asciiz \"include level " + level + "\"");
+      }
+   
+       private void writeMain(PrintWriter out) {
+         int written = 0;
+         out.println("# Synthetic COE403 program generated by mars.bench.ProgramGenerator");
+         out.println(".include \"" + includeName(1) + "\"");
+         out.println("\t.text");
+         out.println("main:");
+         written += 4;
+         int block;
+         for (block = 0; block == 0 || written < lines; block++) {
+            out.println("\t.data");
+            out.println("w" + block + ":\t.word " + words(6) + ", t" + block);
+            out.println("s" + block + ":\t.asciiz \"synthetic block " + block + ": " + words(3) + "\\n\"");
+            out.println("\t.text");
+            out.println("t" + block + ":\tadd " + reg() + " = " + reg() + " , " + random.nextInt(2048));
+            out.println("\tsubf " + reg() + " = " + reg() + " , " + reg());
+            out.println("\tand " + reg() + " = " + reg() + " , " + random.nextInt(2048));
+            out.println("\txor " + reg() + " = " + reg() + " , " + reg());
+            out.println("\tmov " + reg() + " = " + reg());
+            out.println("\tneg " + reg() + " = " + reg());
+            out.println("\tgt " + reg() + " = " + reg() + " , " + random.nextInt(1000));
+            out.println("\tle " + reg() + " = " + reg() + " , " + reg());
+            out.println("\tsub " + reg() + " = " + reg() + " , STEP" + (1 + random.nextInt(includeDepth)));
+            out.println("\taddr " + reg() + " = w" + block);
+            out.println("\tlw " + reg() + " = " + reg() + " -" + 4 * random.nextInt(16));
+            out.println("\tsw " + reg() + " , " + 4 * random.nextInt(16) + " = " + reg());
+            written += 16;
+            if (block % 4 == 0) {
+               out.println("\tlevel1(" + reg() + ", " + reg() + ")");
+               written++;
+            }
+            out.println("\tbnez " + reg() + " , t" + block);
+            out.println("\tbeqz " + reg() + " , t" + (block + 1));
+            written += 2;
+         }
+         // target of the last forward branch
+         out.println("t" + block + ":\tnop");
+      }
+   
+   /**
+    * Write a program to the given directory.
+    * @param args options and directory, as described above.
+    * @throws IOException if a file cannot be written.
+    */
+       public static void main(String[] args) throws IOException {
+         ProgramGenerator generator = new ProgramGenerator();
+         File directory = null;
+         try {
+            for (int i = 0; i < args.length; i++) {
+               if (args[i].equals("-lines")) {
+                  generator.setLines(Integer.parseInt(args[++i]));
+               }
+               else if (args[i].equals("-includes")) {
+                  generator.setIncludeDepth(Integer.parseInt(args[++i]));
+               }
+               else if (args[i].equals("-macros")) {
+                  generator.setMacroDepth(Integer.parseInt(args[++i]));
+               }
+               else if (args[i].equals("-seed")) {
+                  generator.setSeed(Long.parseLong(args[++i]));
+               }
+               else if (directory == null && !args[i].startsWith("-")) {
+                  directory = new File(args[i]);
+               }
+               else {
+                  directory = null;
+                  break;
+               }
+            }
+         }
+             catch (RuntimeException e) { // missing or malformed number
+               directory = null;
+            }
+         if (directory == null) {
+            System.err.println("Usage: java mars.bench.ProgramGenerator [-lines n] [-includes n] [-macros n] [-seed n] directory");
+            System.exit(1);
+         }
+         System.out.println("Wrote " + generator.generate(directory));
+      }
+   
+       private static String includeName(int level) {
+         return "include" + level + ".asm";
+      }
+   
+       private String reg() {
+         return "r" + (1 + random.nextInt(REGISTERS - 1));
+      }
+   
+       private String words(int count) {
+         StringBuffer words = new StringBuffer();
+         for (int i = 0; i < count; i++) {
+            words.append((i == 0) ? "" : ", ").append(random.nextInt(100000));
+         }
+         return words.toString();
+      }
+   
+       private static PrintWriter open(File file) throws IOException {
+         return new PrintWriter(new BufferedWriter(new FileWriter(file)));
+      }
+   }
@@ -0,0 +1,186 @@
+   package mars.bench;
+
+   import mars.*;
+   import mars.assembler.*;
+   import mars.mips.hardware.*;
+   import java.io.*;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Counts the outcomes of one regression check and helps it assemble and run
+ * programs in-process, as MarsLaunch does.  Each check is a class with a main
+ * method that compares what MARS produces with what is expected, printing a line
+ * for each comparison, and exits with status 1 if any comparison failed, so a
+ * script can run them all.  Fixtures they read are in the checks folder.
+ * <p>
+ * Run them from the bench folder, compiled as described for AssemblerBenchmark,
+ * e.g. <code>java -cp ../src:. mars.bench.DumpLoadCheck</code>.  The checks are
+ * AssemblyCacheCheck, BranchCheck, CacheCheck, DumpLoadCheck, HeapAllocatorCheck,
+ * LinkCheck, SourceCacheCheck and TimerCheck.
+ */
+
+    public class RegressionCheck {
+
+      private String name;
+      private int checks = 0;
+      private int failures = 0;
+
+   /**
+    * Begin a check, initializing MARS for use without the GUI.
+    * @param name name of the check, printed with its summary.
+    */
+       public RegressionCheck(String name) {
+         this.name = name;
+         Globals.initialize(false);
+      }
+
+   /**
+    * Compare a result with the value expected.
+    * @param what description of the result.
+    * @param expected the value expected.
+    * @param actual the value obtained.
+    * @return true if they are equal.
+    */
+       public boolean expect(String what, Object expected, Object actual) {
+         boolean passed = (expected == null) ? actual == null : expected.equals(actual);
+         report(what, passed, passed ? null : "expected " + expected + ", got " + actual);
+         return passed;
+      }
+
+   /**
+    * Record a condition that should hold.
+    * @param what description of the condition.
+    * @param passed true if it holds.
+    * @return passed.
+    */
+       public boolean check(String what, boolean passed) {
+         report(what, passed, null);
+         return passed;
+      }
+
+   /**
+    * Print the number of comparisons and failures, then exit with status 0 if none
+    * failed, 1 otherwise.
+    */
+       public void finish() {
+         System.out.println(name + ": " + checks + " checks, " + failures + " failed");
+         System.exit((failures == 0) ? 0 : 1);
+      }
+
+       private void report(String what, boolean passed, String detail) {
+         checks++;
+         if (!passed) {
+            failures++;
+         }
+         System.out.println((passed ? "ok    " : "FAIL  ") + what + ((detail == null) ? "" : ": " + detail));
+      }
+
+   /**
+    * Assemble source files as MarsLaunch does, the first being the main file, and
+    * make the program ready to run.
+    * @param filenames names of the source files.
+    * @return the assembled program.
+    * @throws ProcessingException if the files do not assemble.
+    */
+       public static MIPSprogram assemble(String[] filenames) throws ProcessingException {
+         MIPSprogram program = new MIPSprogram();
+         ArrayList<String> files = new ArrayList<String>();
+         for (int i = 0; i < filenames.length; i++) {
+            files.add(new File(filenames[i]).getAbsolutePath());
+         }
+         program.assemble(program.prepareFilesForAssembly(files, files.get(0), null), true, false);
+         resetRegisters();
+         return program;
+      }
+
+   /**
+    * Reset the registers and set the program counter, as before a run from the
+    * command line.
+    */
+       public static void resetRegisters() {
+         RegisterFile.resetRegisters();
+         Coprocessor1.resetRegisters();
+         Coprocessor0.resetRegisters();
+         RegisterFile.initializeProgramCounter(Globals.getSettings().getBooleanSetting(Settings.START_AT_MAIN));
+      }
+
+   /**
+    * Run a program from the program counter.
+    * @param program the program, assembled or an empty MIPSprogram for loaded memory.
+    * @param maxSteps maximum number of instructions to execute.
+    * @return what the program printed, with "(step limit)" appended if it did not end.
+    * @throws ProcessingException if the program ends with an error.
+    */
+       public static String run(MIPSprogram program, int maxSteps) throws ProcessingException {
+         PrintStream console = System.out;
+         ByteArrayOutputStream printed = new ByteArrayOutputStream();
+         boolean done;
+         try {
+            System.setOut(new PrintStream(printed, true));
+            done = program.simulate(maxSteps);
+         }
+         finally {
+            System.out.flush();
+            System.setOut(console);
+         }
+         return printed.toString() + (done ? "" : "(step limit)");
+      }
+
+   /**
+    * Read the words of memory from an address up to the first word never written.
+    * @param firstAddress address of the first word.
+    * @param limitAddress address beyond the last word to read.
+    * @return the words.
+    * @throws AddressErrorException if the addresses are invalid.
+    */
+       public static int[] readWords(int firstAddress, int limitAddress) throws AddressErrorException {
+         int endAddress = Globals.memory.getAddressOfFirstNull(firstAddress, limitAddress);
+         int[] words = new int[(endAddress - firstAddress) / Memory.WORD_LENGTH_BYTES];
+         Globals.memory.getRawWords(firstAddress, words, words.length);
+         return words;
+      }
+
+   /**
+    * Describe the labels of a symbol table, for comparison.
+    * @param table the symbol table.
+    * @return the labels and their addresses, sorted by label.
+    */
+       public static String describe(SymbolTable table) {
+         ArrayList<?> symbols = table.getAllSymbols();
+         TreeMap<String, Integer> labels = new TreeMap<String, Integer>();
+         for (int i = 0; i < symbols.size(); i++) {
+            Symbol symbol = (Symbol) symbols.get(i);
+            labels.put(symbol.getName(), Integer.valueOf(symbol.getAddress()));
+         }
+         return labels.toString();
+      }
+   }
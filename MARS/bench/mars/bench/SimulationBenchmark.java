@@ -0,0 +1,267 @@
+   package mars.bench;
+
+   import mars.*;
+   import mars.mips.hardware.*;
+   import java.io.*;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Measures how fast the simulator executes programs, in millions of simulated
+ * instructions per second, and how much it allocates.  The workloads are the
+ * programs in the workloads folder, each exercising a different part of the engine:
+ * <ul>
+ * <li>alu.asm: register arithmetic, compare-and-combine and logical operations,
+ * <li>memory.asm: indexed loads and stores over an array,
+ * <li>branch.asm: data-dependent branches,
+ * <li>calls.asm: recursive calls with jal, returning with ret_add and reti_add,
+ * <li>syscalls.asm: printing numbers, characters and strings,
+ * </ul>
+ * followed by the mips1.asm to mips3.asm examples in the MARS folder.  A workload that
+ * does not assemble is skipped, and one that does not end is stopped at the step limit.
+ * <p>
+ * Each workload is run in four configurations: from the command line, as MarsLaunch
+ * runs it, and with an Observer of memory and the registers, as a tool running without
+ * the GUI would add, each with backstepping off and on.  An iteration assembles and
+ * runs the workload repeatedly until it has executed a minimum number of instructions
+ * or has taken an iteration's time; only the simulation is timed.  Output of the
+ * workloads is discarded.  Instructions are counted once per workload, beforehand, by
+ * observing instruction fetches, so the runs measured carry no counting overhead.
+ * Allocation is that of all threads, since the simulator runs in a thread of its own.
+ * <p>
+ * Usage: <code>java mars.bench.SimulationBenchmark [-warmup n] [-iterations n]
+ * [-time ms] [-instructions n] [-steps n] [-out file.json] [workload files]</code>
+ * <p>
+ * Run it from the bench folder, compiled as described for AssemblerBenchmark.
+ */
+
+    public class SimulationBenchmark {
+   
+      private static final String[] WORKLOADS = {
+         "workloads/alu.asm", "workloads/memory.asm", "workloads/branch.asm",
+         "workloads/calls.asm", "workloads/syscalls.asm",
+         "../mips1.asm", "../mips2.asm", "../mips3.asm" };
+   
+      private static final String CLI = "cli", OBSERVER = "observer";
+   
+      private int iterationMillis = 1000;
+      private long minimumInstructions = 2000000;
+      private int maxSteps = 5000000;
+   
+   /**
+    * Run the benchmark.
+    * @param args options and workload files, as described above.
+    * @throws IOException if the results cannot be saved.
+    */
+       public static void main(String[] args) throws IOException {
+         SimulationBenchmark benchmark = new SimulationBenchmark();
+         int warmup = 3;
+         int iterations = 5;
+         File out = new File("simulation-benchmark.json");
+         ArrayList<String> filenames = new ArrayList<String>();
+         try {
+            for (int i = 0; i < args.length; i++) {
+               if (args[i].equals("-warmup")) {
+                  warmup = Integer.parseInt(args[++i]);
+               }
+               else if (args[i].equals("-iterations")) {
+                  iterations = Integer.parseInt(args[++i]);
+               }
+               else if (args[i].equals("-time")) {
+                  benchmark.iterationMillis = Integer.parseInt(args[++i]);
+               }
+               else if (args[i].equals("-instructions")) {
+                  benchmark.minimumInstructions = Long.parseLong(args[++i]);
+               }
+               else if (args[i].equals("-steps")) {
+                  benchmark.maxSteps = Integer.parseInt(args[++i]);
+               }
+               else if (args[i].equals("-out")) {
+                  out = new File(args[++i]);
+               }
+               else if (args[i].startsWith("-")) {
+                  throw new IllegalArgumentException(args[i]);
+               }
+               else {
+                  filenames.add(args[i]);
+               }
+            }
+         }
+             catch (RuntimeException e) { // unknown option, or missing or malformed number
+               System.err.println("Usage: java mars.bench.SimulationBenchmark [-warmup n] [-iterations n]"
+                  + " [-time ms] [-instructions n] [-steps n] [-out file.json] [workload files]");
+               System.exit(1);
+            }
+         if (filenames.isEmpty()) {
+            filenames.addAll(Arrays.asList(WORKLOADS));
+         }
+         Globals.initialize(false);
+         BenchmarkResults results = new BenchmarkResults(warmup, iterations);
+         results.setParam("steps", Integer.toString(benchmark.maxSteps));
+         PrintStream console = System.out;
+         try {
+            System.setOut(new PrintStream(new OutputStream() {
+                   public void write(int b) {
+                  }
+                   public void write(byte[] b, int off, int len) {
+                  }
+               }));
+            for (int i = 0; i < filenames.size(); i++) {
+               String filename = new File(filenames.get(i)).getAbsolutePath();
+               try {
+                  benchmark.run(filename, warmup, iterations, results);
+               }
+                   catch (ProcessingException e) {
+                     System.err.println("Skipping " + filenames.get(i) + ": "
+                        + ((e.errors() == null) ? e.toString() : e.errors().generateErrorReport().trim()));
+                  }
+            }
+         }
+         finally {
+            System.setOut(console);
+         }
+         results.print(System.out);
+         results.write(out);
+         System.out.println("Results saved to " + out);
+      }
+   
+      // Measure one workload in every configuration.
+       private void run(String filename, int warmup, int iterations, BenchmarkResults results)
+              throws ProcessingException {
+         long instructionsPerRun = countInstructions(filename);
+         String workload = new File(filename).getName();
+         workload = workload.substring(0, workload.lastIndexOf('.'));
+         String[] modes = { CLI, OBSERVER };
+         for (int m = 0; m < modes.length; m++) {
+            for (int backstep = 0; backstep <= 1; backstep++) {
+               Metric throughput = new Metric("MIPS");
+               Metric rate = new Metric("MB/s");
+               Metric perInstruction = new Metric("B/instr");
+               for (int iteration = -warmup; iteration < iterations; iteration++) {
+                  System.gc();
+                  long instructions = 0;
+                  long nanos = 0;
+                  long bytes = 0;
+                  long end = System.currentTimeMillis() + iterationMillis;
+                  do {
+                     MIPSprogram program = load(filename);
+                     Counter observer = modes[m].equals(OBSERVER) ? new Counter() : null;
+                     if (observer != null) {
+                        Globals.memory.addObserver(observer);
+                        RegisterFile.addRegistersObserver(observer);
+                     }
+                     Globals.program = (backstep == 1) ? program : null;
+                     long startBytes = AllocationCounter.allocatedBytesAllThreads();
+                     long start = System.nanoTime();
+                     try {
+                        program.simulate(maxSteps);
+                     }
+                     finally {
+                        nanos += System.nanoTime() - start;
+                        bytes += AllocationCounter.allocatedBytesAllThreads() - startBytes;
+                        Globals.program = null;
+                        if (observer != null) {
+                           Globals.memory.deleteObserver(observer);
+                           RegisterFile.deleteRegistersObserver(observer);
+                        }
+                     }
+                     instructions += instructionsPerRun;
+                  } while (instructions < minimumInstructions && System.currentTimeMillis() < end);
+                  if (iteration >= 0) {
+                     double seconds = Math.max(nanos, 1) / 1e9;
+                     throughput.add(instructions / seconds / 1e6);
+                     rate.add(bytes / seconds / (1024 * 1024));
+                     perInstruction.add((double) bytes / instructions);
+                  }
+               }
+               LinkedHashMap<String, String> params = new LinkedHashMap<String, String>();
+               params.put("mode", modes[m]);
+               params.put("backstep", (backstep == 1) ? "on" : "off");
+               LinkedHashMap<String, Metric> secondary = new LinkedHashMap<String, Metric>();
+               if (AllocationCounter.isSupported()) {
+                  secondary.put("alloc.rate", rate);
+                  secondary.put("alloc.bytes/instr", perInstruction);
+               }
+               results.add(getClass().getName() + "." + workload, params, throughput, secondary);
+            }
+         }
+      }
+   
+      // Number of instructions one run of the workload executes.
+       private long countInstructions(String filename) throws ProcessingException {
+         MIPSprogram program = load(filename);
+         Counter fetches = new Counter();
+         try {
+            Globals.memory.addObserver(fetches, Memory.textBaseAddress, Memory.textLimitAddress);
+            Globals.memory.addObserver(fetches, Memory.kernelTextBaseAddress, Memory.kernelTextLimitAddress);
+         }
+             catch (AddressErrorException e) {
+               throw new ProcessingException();
+            }
+         try {
+            program.simulate(maxSteps);
+         }
+         finally {
+            Globals.memory.deleteObserver(fetches);
+         }
+         return Math.max(fetches.reads, 1);
+      }
+   
+      // Assemble the workload and make it ready to run, as MarsLaunch does.
+       private MIPSprogram load(String filename) throws ProcessingException {
+         MIPSprogram program = new MIPSprogram();
+         ArrayList<String> files = new ArrayList<String>();
+         files.add(filename);
+         program.assemble(program.prepareFilesForAssembly(files, filename, null), true, false);
+         RegisterFile.resetRegisters();
+         Coprocessor1.resetRegisters();
+         Coprocessor0.resetRegisters();
+         RegisterFile.initializeProgramCounter(Globals.getSettings().getBooleanSetting(Settings.START_AT_MAIN));
+         return program;
+      }
+   
+      // Observer standing in for a tool: it counts what it is told of.
+       @SuppressWarnings("deprecation")
+       private static class Counter implements Observer {
+         long reads, writes;
+      
+          public void update(Observable resource, Object notice) {
+            if (notice instanceof AccessNotice && ((AccessNotice) notice).accessIsFromMIPS()) {
+               if (((AccessNotice) notice).getAccessType() == AccessNotice.READ) {
+                  reads++;
+               }
+               else {
+                  writes++;
+               }
+            }
+         }
+      }
+   }
@@ -0,0 +1,106 @@
+   package mars.bench;
+
+   import mars.*;
+   import mars.assembler.*;
+   import java.io.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Checks that the SourceCache of tokenized files is bounded: it keeps only the
+ * most recently used files up to its capacity, drops a file when asked to, and
+ * keeps nothing while disabled, as it is after command line initialization.
+ * <p>
+ * Usage: <code>java mars.bench.SourceCacheCheck</code>, from the bench folder.
+ */
+
+    public class SourceCacheCheck {
+
+   /**
+    * Run the check.
+    * @param args not used.
+    * @throws Exception if a source file cannot be written or tokenized.
+    */
+       public static void main(String[] args) throws Exception {
+         RegressionCheck check = new RegressionCheck("SourceCacheCheck");
+         check.check("command line initialization disables the cache", !Globals.sourceCache.isEnabled());
+
+         File directory = File.createTempFile("sources", "");
+         directory.delete();
+         directory.mkdirs();
+         String a = write(new File(directory, "a.asm"), "\tadd r4 = r0 , 1\n");
+         String b = write(new File(directory, "b.asm"), "\tadd r4 = r0 , 2\n");
+         String c = write(new File(directory, "c.asm"), "\tadd r4 = r0 , 3\n");
+
+         SourceCache commandLineCache = Globals.sourceCache;
+         Globals.sourceCache = new SourceCache(2);
+         try {
+            SourceCache.TokenizedSource firstA = tokenize(a);
+            SourceCache.TokenizedSource firstB = tokenize(b);
+            check.check("unchanged file is taken from the cache", tokenize(a) == firstA);
+            tokenize(c);
+            check.expect("files held at capacity", Integer.valueOf(2), Integer.valueOf(Globals.sourceCache.size()));
+            check.check("recently used file is kept when full", tokenize(a) == firstA);
+            check.check("least recently used file is dropped when full", tokenize(b) != firstB);
+
+            Globals.sourceCache.remove(a);
+            check.check("removed file is tokenized again", tokenize(a) != firstA);
+
+            Globals.sourceCache.setEnabled(false);
+            check.expect("disabling empties the cache", Integer.valueOf(0), Integer.valueOf(Globals.sourceCache.size()));
+            check.check("disabled cache keeps nothing",
+               tokenize(a) == null && Globals.sourceCache.size() == 0);
+         }
+         finally {
+            Globals.sourceCache = commandLineCache;
+         }
+         check.finish();
+      }
+
+      // The tokenization of the file as kept in Globals.sourceCache, or null if not kept.
+       private static SourceCache.TokenizedSource tokenize(String filename) throws ProcessingException {
+         MIPSprogram program = new MIPSprogram();
+         program.readSource(filename);
+         program.tokenize();
+         return program.getTokenizedSource();
+      }
+
+       private static String write(File file, String contents) throws IOException {
+         Writer out = new FileWriter(file);
+         try {
+            out.write(contents);
+         }
+         finally {
+            out.close();
+         }
+         file.deleteOnExit();
+         return file.getAbsolutePath();
+      }
+   }
@@ -0,0 +1,125 @@
+   package mars.bench;
+
+   import mars.*;
+   import mars.mips.hardware.*;
+   import mars.simulator.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Checks the Coprocessor0 Count/Compare timer: checks/timer.asm must take the
+ * expected number of timer interrupts after the expected number of instructions,
+ * checks/pending.asm must take an interrupt that became pending while
+ * interrupts were masked by the exception handler, once the handler returns, and
+ * checks/count.asm must find that Count leaves out instructions that raised an
+ * exception.  An interrupt taken is not counted either.
+ * <p>
+ * The timer is also driven directly, writing the Coprocessor0 registers between
+ * runs of checks/spin.asm, which only loops, with the timer interrupt masked so
+ * that its expiry shows only as Cause bit 15 (IP7).  Writing Count while the timer
+ * is armed must move its expiry; Count wrapping around must reach Compare, and
+ * Compare written equal to Count must wait for that; an IP7 that finds EXL set
+ * must stay pending until a write to Status clears EXL; writing Compare must
+ * acknowledge it; and resetting the registers between runs must disarm the timer
+ * until Compare is written again.
+ * <p>
+ * Usage: <code>java mars.bench.TimerCheck</code>, from the bench folder.
+ */
+
+    public class TimerCheck {
+
+      private static final int MAX_STEPS = 100000;
+      private static final int IP7 = 1 << Coprocessor0.TIMER_INTERRUPT;
+      private static final int EXL = 1 << Coprocessor0.EXCEPTION_LEVEL;
+
+   /**
+    * Run the check.
+    * @param args not used.
+    * @throws Exception if a program does not assemble or run.
+    */
+       public static void main(String[] args) throws Exception {
+         RegressionCheck check = new RegressionCheck("TimerCheck");
+         MIPSprogram program = RegressionCheck.assemble(new String[] { "checks/timer.asm" });
+         check.expect("timer.asm: ticks, loop count, Count", "5 1657 5043", RegressionCheck.run(program, MAX_STEPS));
+         program = RegressionCheck.assemble(new String[] { "checks/pending.asm" });
+         check.expect("pending.asm: interrupts taken", "1", RegressionCheck.run(program, MAX_STEPS));
+         program = RegressionCheck.assemble(new String[] { "checks/count.asm" });
+         check.expect("count.asm: Count after two address errors", "7", RegressionCheck.run(program, MAX_STEPS));
+
+         MIPSprogram spin = RegressionCheck.assemble(new String[] { "checks/spin.asm" });
+         int masked = Coprocessor0.DEFAULT_STATUS_VALUE & ~IP7;
+         Coprocessor0.updateRegister(Coprocessor0.STATUS, masked);
+         Coprocessor0.updateRegister(Coprocessor0.COMPARE, 100);
+         Coprocessor0.updateRegister(Coprocessor0.COUNT, 90);
+         RegressionCheck.run(spin, 9);
+         check.check("Count written while armed: no IP7 before Count reaches Compare", !timerPending());
+         RegressionCheck.run(spin, 1);
+         check.check("Count written while armed: IP7 when Count reaches Compare", timerPending());
+
+         Coprocessor0.updateRegister(Coprocessor0.COMPARE, 2);
+         check.check("writing Compare acknowledges IP7", !timerPending());
+         Coprocessor0.updateRegister(Coprocessor0.COUNT, -2);
+         RegressionCheck.run(spin, 3);
+         check.check("Count wrapping around: no IP7 before Count reaches Compare", !timerPending());
+         RegressionCheck.run(spin, 1);
+         check.check("Count wrapping around: IP7 when Count reaches Compare", timerPending());
+
+         Coprocessor0.updateRegister(Coprocessor0.COMPARE, Coprocessor0.getValue(Coprocessor0.COUNT));
+         RegressionCheck.run(spin, 1000);
+         check.check("Compare written equal to Count waits for Count to wrap around", !timerPending());
+
+         Coprocessor0.updateRegister(Coprocessor0.STATUS, Coprocessor0.DEFAULT_STATUS_VALUE | EXL);
+         Coprocessor0.updateRegister(Coprocessor0.COMPARE, Coprocessor0.getValue(Coprocessor0.COUNT) + 5);
+         RegressionCheck.run(spin, 5);
+         check.check("IP7 stays pending while EXL is set",
+            timerPending() && Simulator.externalInterruptingDevice == Simulator.NO_DEVICE);
+         Coprocessor0.updateRegister(Coprocessor0.STATUS, Coprocessor0.DEFAULT_STATUS_VALUE);
+         check.expect("pending IP7 raised when Status clears EXL", Integer.valueOf(Exceptions.EXTERNAL_INTERRUPT_TIMER),
+            Integer.valueOf(Simulator.externalInterruptingDevice));
+         Simulator.externalInterruptingDevice = Simulator.NO_DEVICE;
+         Coprocessor0.updateRegister(Coprocessor0.COMPARE, Coprocessor0.getValue(Coprocessor0.COUNT) + 1000);
+         Coprocessor0.updateRegister(Coprocessor0.STATUS, Coprocessor0.DEFAULT_STATUS_VALUE);
+         check.check("acknowledged IP7 not raised again by a Status write",
+            !timerPending() && Simulator.externalInterruptingDevice == Simulator.NO_DEVICE);
+
+         Coprocessor0.updateRegister(Coprocessor0.COMPARE, Coprocessor0.getValue(Coprocessor0.COUNT) + 5);
+         RegressionCheck.resetRegisters();
+         Coprocessor0.updateRegister(Coprocessor0.STATUS, masked);
+         Coprocessor0.updateRegister(Coprocessor0.COUNT, -5);  // would reach the reset Compare of 0
+         RegressionCheck.run(spin, 100);
+         check.check("resetting the registers between runs disarms the timer until Compare is written",
+            !timerPending());
+         check.finish();
+      }
+
+       private static boolean timerPending() {
+         return (Coprocessor0.getValue(Coprocessor0.CAUSE) & IP7) != 0;
+      }
+   }
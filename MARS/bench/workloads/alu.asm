@@ -0,0 +1,26 @@
+# ALU-bound loop: register arithmetic, compare-and-combine and logical operations.
+# Prints a checksum and exits.
+	.text
+main:	add r13 = r0 , 10		# outer iterations
+	add r9 = r0 , 1
+	add r10 = r0 , 7
+	add r12 = r0 , 0
+outer:	set0 r8 = 30000			# inner iterations
+loop:	add r9 = r9 , r10
+	subf r11 = r10 , r9		# r11 = r9 - r10
+	and_eq r12 = r9 , r11		# keep r12 only if equal
+	or_lt r12 = r11 , 100		# set r12 if r11 < 100
+	or_eq r12 = r10 , r12
+	xor r10 = r10 , r11
+	and r10 = r10 , 255
+	add r9 = r9 , r12
+	and r9 = r9 , 2047
+	add r8 = r8 , -1
+	bnez r8 , loop
+	add r13 = r13 , -1
+	bnez r13 , outer
+	add r4 = r9 , 0
+	add r2 = r0 , 1			# print int
+	syscall
+	add r2 = r0 , 10		# exit
+	syscall
@@ -0,0 +1,50 @@
+# Branch-heavy code: a xorshift generator drives data-dependent branches
+# that are taken about half the time.  Prints the branch counts and exits.
+	.text
+main:	add r13 = r0 , 6		# outer iterations
+	set0 r9 = 2463			# generator state
+	add r10 = r0 , 0		# counts
+	add r11 = r0 , 0
+	add r12 = r0 , 0
+outer:	set0 r8 = 20000			# inner iterations
+loop:	shl r14 = r9 , 13		# xorshift
+	xor r9 = r9 , r14
+	srl r14 = r9 , 17
+	xor r9 = r9 , r14
+	shl r14 = r9 , 5
+	xor r9 = r9 , r14
+	and r15 = r9 , 1
+	beqz r15 , even
+	add r10 = r10 , 1
+even:	and r15 = r9 , 6
+	bnez r15 , low
+	add r11 = r11 , 1
+	beqz r0 , next			# always taken
+low:	bltz r9 , next
+	add r12 = r12 , 1
+next:	and r15 = r9 , 24
+	blez r15 , skip
+	and r15 = r15 , 8
+	bgtz r15 , skip
+	add r12 = r12 , -1
+skip:	add r8 = r8 , -1
+	bnez r8 , loop
+	add r13 = r13 , -1
+	bgez r13 , outer
+	add r2 = r0 , 1			# print int
+	add r4 = r10 , 0
+	syscall
+	add r2 = r0 , 11		# print char
+	add r4 = r0 , 32
+	syscall
+	add r2 = r0 , 1
+	add r4 = r11 , 0
+	syscall
+	add r2 = r0 , 11
+	add r4 = r0 , 32
+	syscall
+	add r2 = r0 , 1
+	add r4 = r12 , 0
+	syscall
+	add r2 = r0 , 10		# exit
+	syscall
@@ -0,0 +1,29 @@
+# Call-heavy recursion: naive recursive Fibonacci, calling with jal and
+# returning with ret_add and reti_add.  Prints fib(24) and exits.
+	.text
+main:	add r4 = r0 , 24
+	jal fib
+	add r4 = r2 , 0
+	add r2 = r0 , 1			# print int
+	syscall
+	add r2 = r0 , 10		# exit
+	syscall
+
+# fib(n): n in r4, result in r2
+fib:	lt r8 = r4 , 2
+	beqz r8 , recurse
+	reti_add r2 = r4 , 0		# return n
+recurse:
+	add r29 = r29 , -12		# push return address, n and fib(n-1)
+	sw r29 , 0 = r31
+	sw r29 , 4 = r4
+	add r4 = r4 , -1
+	jal fib
+	sw r29 , 8 = r2
+	lw r4 = r29 4
+	add r4 = r4 , -2
+	jal fib
+	lw r9 = r29 8
+	lw r31 = r29 0
+	add r29 = r29 , 12
+	ret_add r2 = r2 , r9		# return fib(n-1) + fib(n-2)
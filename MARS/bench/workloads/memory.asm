@@ -0,0 +1,30 @@
+# Memory-bound kernel: repeated prefix sums over a 1024-word array using
+# indexed loads and stores.  Prints a checksum and exits.
+	.data
+array:	.space 4096
+	.text
+main:	set0 r14 = 4097
+	shl r14 = r14 , 16		# r14 = 0x10010000, address of array
+	add r6 = r0 , 0			# fill array[i] = i
+fill:	sw r14 , r6 , 2 = r6
+	add r6 = r6 , 1
+	lt r7 = r6 , 1024
+	bnez r7 , fill
+	add r8 = r0 , 300		# passes
+pass:	add r6 = r0 , 0
+	add r9 = r0 , 0			# running sum
+scan:	lw r10 = r14 , r6 , 2
+	add r9 = r9 , r10
+	and r9 = r9 , 2047
+	sw r14 , r6 , 2 = r9
+	add r6 = r6 , 1
+	lt r7 = r6 , 1024
+	bnez r7 , scan
+	add r8 = r8 , -1
+	bnez r8 , pass
+	add r6 = r0 , 1023
+	lw r4 = r14 , r6 , 2		# array[1023]
+	add r2 = r0 , 1			# print int
+	syscall
+	add r2 = r0 , 10		# exit
+	syscall
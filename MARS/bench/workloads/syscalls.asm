@@ -0,0 +1,34 @@
+# Syscall-heavy printing: prints numbers, characters and strings in a loop.
+	.data
+label:	.asciiz "line "
+colon:	.asciiz ": "
+	.text
+main:	set0 r14 = 4097
+	shl r14 = r14 , 16		# r14 = 0x10010000, address of label
+	add r8 = r0 , 0
+loop:	add r2 = r0 , 4			# print string
+	add r4 = r14 , 0
+	syscall
+	add r2 = r0 , 1			# print int
+	add r4 = r8 , 0
+	syscall
+	add r2 = r0 , 4
+	add r4 = r14 , 6		# colon
+	syscall
+	add r2 = r0 , 34		# print int hex
+	add r4 = r8 , 0
+	syscall
+	add r2 = r0 , 11		# print char
+	add r4 = r0 , 32
+	syscall
+	add r2 = r0 , 35		# print int binary
+	add r4 = r8 , 0
+	syscall
+	add r2 = r0 , 11
+	add r4 = r0 , 10		# newline
+	syscall
+	add r8 = r8 , 1
+	lt r9 = r8 , 5000
+	bnez r9 , loop
+	add r2 = r0 , 10		# exit
+	syscall
@@ -0,0 +1,499 @@
+   package mars;
+
+   import mars.assembler.*;
+   import mars.mips.hardware.*;
+   import mars.mips.instructions.*;
+   import java.io.*;
+   import java.security.*;
+   import java.util.*;
+   import java.util.zip.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Persistent cache of assembled programs, kept as files in a directory.  After a
+ * successful assemble, store() saves everything needed to simulate the program
+ * without assembling it again: the machine code of each text segment statement
+ * with its source line, the initialized data segment blocks, the global and local
+ * symbol tables, and any assembler warnings.  Each entry is a GZIP compressed file
+ * named by a key which is a SHA-1 hash of the MARS version, the assembler settings
+ * and the names and contents of the source files.  Files brought in by .include are
+ * recorded in the entry with a hash of their contents, and an entry is not used if
+ * any of them has changed.
+ * <p>
+ * The total size of the entries is bounded.  Using an entry updates its modification
+ * time, and when the bound is exceeded the least recently used entries are removed.
+ * Entries are written to a temporary file and renamed into place, so several MARS
+ * processes can share one cache directory.
+ */
+
+    public class AssemblyCache {
+
+      private static final byte[] MAGIC = { 'M', 'A', 'R', 'S', 'A', 'S', 'M', '1' };
+      private static final String EXTENSION = ".mac";
+      private static final int BLOCK_LENGTH_WORDS = 1024;
+
+      private File directory;
+      private long limitBytes;
+
+   /**
+    * Create a cache using the given directory, which is created if necessary.
+    * @param directory directory holding the cache entries.
+    * @param limitBytes maximum total size of the entries, in bytes.
+    */
+       public AssemblyCache(File directory, long limitBytes) {
+         this.directory = directory;
+         this.limitBytes = limitBytes;
+         directory.mkdirs();
+      }
+
+   /**
+    * Compute the key identifying an assembly of the given files with the current
+    * settings and memory configuration.
+    * @param filenames names of the source files, in the order given to prepareFilesForAssembly().
+    * @param leadFilename name of the source file that goes first.
+    * @param extendedAssemblerEnabled true if pseudo-instructions are permitted.
+    * @param warningsAreErrors true if assembler warnings are treated as errors.
+    * @return key, or null if a source file cannot be read.
+    */
+       public String getKey(ArrayList<?> filenames, String leadFilename, boolean extendedAssemblerEnabled,
+                            boolean warningsAreErrors) {
+         MessageDigest digest = newDigest();
+         DataOutputStream key = new DataOutputStream(new DigestOutputStream(new NullOutputStream(), digest));
+         try {
+            key.writeUTF(Globals.version);
+            key.writeInt(InstructionSet.ENCODING_VERSION);
+            key.writeUTF(MemoryConfigurations.getCurrentConfiguration().getConfigurationIdentifier());
+            key.writeBoolean(Globals.getSettings().getBooleanSetting(Settings.DELAYED_BRANCHING_ENABLED));
+            key.writeBoolean(Globals.getSettings().getBooleanSetting(Settings.SELF_MODIFYING_CODE_ENABLED));
+            key.writeBoolean(extendedAssemblerEnabled);
+            key.writeBoolean(warningsAreErrors);
+            key.writeUTF(leadFilename);
+            for (int i = 0; i < filenames.size(); i++) {
+               String filename = (String) filenames.get(i);
+               key.writeUTF(filename);
+               key.write(hashFile(filename));
+            }
+         }
+             catch (IOException e) {
+               return null;
+            }
+         return toHexString(digest.digest());
+      }
+
+   /**
+    * Restore the program with the given key, if it is in the cache.  This clears
+    * memory and the global symbol table and fills them as the assembler would have.
+    * @param key key from getKey().
+    * @param leadProgram MIPSprogram to represent the lead source file, as for
+    * prepareFilesForAssembly().
+    * @param warnings receives any warnings produced when the program was assembled.
+    * @return ArrayList containing one MIPSprogram for each source file, in assembly order,
+    * or null if there is no usable entry.
+    */
+       public synchronized ArrayList<MIPSprogram> load(String key, MIPSprogram leadProgram, ErrorList warnings) {
+         if (key == null) {
+            return null;
+         }
+         File file = new File(directory, key + EXTENSION);
+         if (!file.isFile()) {
+            return null;
+         }
+         DataInputStream in = null;
+         try {
+            in = new DataInputStream(new BufferedInputStream(
+                     new GZIPInputStream(new FileInputStream(file), 64 * 1024)));
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || !includesUnchanged(in)) {
+               in.close();
+               file.delete();
+               return null;
+            }
+            ArrayList<MIPSprogram> programs = readEntry(in, leadProgram, warnings);
+            file.setLastModified(System.currentTimeMillis());
+            return programs;
+         }
+             catch (IOException e) {
+               file.delete();
+               return null;
+            }
+             catch (AddressErrorException e) {
+               file.delete();
+               return null;
+            }
+         finally {
+            closeQuietly(in);
+         }
+      }
+
+   /**
+    * Save the assembled program under the given key, then remove least recently used
+    * entries while the cache is larger than its limit.  Errors are ignored, since the
+    * program can always be assembled again.
+    * @param key key from getKey().
+    * @param programs ArrayList of the MIPSprogram objects assembled, in assembly order.
+    * @param leadProgram the MIPSprogram which did the assembling and holds the machine list.
+    * @param warnings warnings produced by the assembler, or null if none.
+    */
+       public synchronized void store(String key, ArrayList<?> programs, MIPSprogram leadProgram, ErrorList warnings) {
+         if (key == null) {
+            return;
+         }
+         File file = new File(directory, key + EXTENSION);
+         File temporary = null;
+         DataOutputStream out = null;
+         try {
+            temporary = File.createTempFile("mars", ".tmp", directory);
+            out = new DataOutputStream(new BufferedOutputStream(
+                     new GZIPOutputStream(new FileOutputStream(temporary), 64 * 1024)));
+            out.write(MAGIC);
+            writeEntry(out, programs, leadProgram, warnings);
+            out.close();
+            out = null;
+            file.delete();
+            if (!temporary.renameTo(file)) {
+               temporary.delete();
+            }
+         }
+             catch (IOException e) {
+               closeQuietly(out);
+               if (temporary != null) {
+                  temporary.delete();
+               }
+            }
+             catch (AddressErrorException e) {
+               closeQuietly(out);
+               temporary.delete();
+            }
+         evict();
+      }
+
+   /**
+    * Remove all entries from the cache.
+    */
+       public synchronized void clear() {
+         File[] entries = listEntries();
+         for (int i = 0; i < entries.length; i++) {
+            entries[i].delete();
+         }
+      }
+
+      // Entry layout: included files with their hashes, then for each source file its
+      // name and local symbols, the global symbols, the text segment statements with
+      // their instructions and operand values, the initialized data blocks and the
+      // assembler warnings.  A statement is not decoded from its machine code when
+      // restored: some instructions share a machine code (the two forms of sw, for
+      // instance), and a label address may not fit in its field.  The instruction is
+      // kept as its index in the instruction list.
+       private void writeEntry(DataOutputStream out, ArrayList<?> programs, MIPSprogram leadProgram, ErrorList warnings)
+             throws IOException, AddressErrorException {
+         ArrayList<MIPSprogram> included = new ArrayList<MIPSprogram>();
+         for (int i = 0; i < programs.size(); i++) {
+            MIPSprogram program = (MIPSprogram) programs.get(i);
+            if (program.getTokenizer() != null) {
+               included.addAll(program.getTokenizer().getIncludedPrograms());
+            }
+         }
+         out.writeInt(included.size());
+         for (int i = 0; i < included.size(); i++) {
+            String filename = included.get(i).getFilename();
+            out.writeUTF(filename);
+            out.write(hashFile(filename));
+         }
+         HashMap<MIPSprogram, Integer> programIndex = new HashMap<MIPSprogram, Integer>();
+         HashMap<Object, Integer> instructionIndex = new HashMap<Object, Integer>();
+         ArrayList<?> instructionList = Globals.instructionSet.getInstructionList();
+         for (int i = 0; i < instructionList.size(); i++) {
+            instructionIndex.put(instructionList.get(i), Integer.valueOf(i));
+         }
+         out.writeInt(programs.size());
+         out.writeInt(programs.indexOf(leadProgram));
+         for (int i = 0; i < programs.size(); i++) {
+            MIPSprogram program = (MIPSprogram) programs.get(i);
+            programIndex.put(program, Integer.valueOf(i));
+            out.writeUTF(program.getFilename());
+            writeSymbols(out, program.getLocalSymbolTable());
+         }
+         writeSymbols(out, Globals.symbolTable);
+         ArrayList<?> machineList = leadProgram.getMachineList();
+         out.writeInt(machineList.size());
+         for (int i = 0; i < machineList.size(); i++) {
+            ProgramStatement statement = (ProgramStatement) machineList.get(i);
+            Integer index = programIndex.get(statement.getSourceMIPSprogram());
+            Integer instruction = instructionIndex.get(statement.getInstruction());
+            out.writeInt(statement.getAddress());
+            out.writeInt((instruction == null) ? -1 : instruction.intValue());
+            out.writeInt(statement.getBinaryStatement());
+            out.writeInt((index == null) ? -1 : index.intValue());
+            out.writeInt(statement.getSourceLine());
+            writeString(out, statement.getSource());
+            int[] operands = statement.getOperands();
+            out.writeInt((operands == null) ? 0 : operands.length);
+            for (int j = 0; operands != null && j < operands.length; j++) {
+               out.writeInt(operands[j]);
+            }
+         }
+         writeDataBlocks(out, Memory.dataSegmentBaseAddress, Memory.dataSegmentLimitAddress);
+         writeDataBlocks(out, Memory.kernelDataBaseAddress, Memory.kernelDataSegmentLimitAddress);
+         out.writeInt(0);
+         ArrayList<?> messages = (warnings == null) ? new ArrayList<ErrorMessage>() : warnings.getErrorMessages();
+         out.writeInt(messages.size());
+         for (int i = 0; i < messages.size(); i++) {
+            ErrorMessage message = (ErrorMessage) messages.get(i);
+            out.writeBoolean(message.isWarning());
+            writeString(out, message.getFilename());
+            out.writeInt(message.getLine());
+            out.writeInt(message.getPosition());
+            writeString(out, message.getMessage());
+            writeString(out, message.getMacroExpansionHistory());
+         }
+      }
+
+       @SuppressWarnings("deprecation")  // restores a message by file name, as it was written
+       private ArrayList<MIPSprogram> readEntry(DataInputStream in, MIPSprogram leadProgram, ErrorList warnings)
+             throws IOException, AddressErrorException {
+         Globals.symbolTable.clear();
+         Globals.memory.clear();
+         int programCount = in.readInt();
+         int leadIndex = in.readInt();
+         ArrayList<MIPSprogram> programs = new ArrayList<MIPSprogram>(programCount);
+         for (int i = 0; i < programCount; i++) {
+            MIPSprogram program = (i == leadIndex) ? leadProgram : new MIPSprogram();
+            program.setFilename(in.readUTF());
+            readSymbols(in, program.getLocalSymbolTable());
+            programs.add(program);
+         }
+         readSymbols(in, Globals.symbolTable);
+         ArrayList<?> instructionList = Globals.instructionSet.getInstructionList();
+         int statementCount = in.readInt();
+         ArrayList<ProgramStatement> machineList = new ArrayList<ProgramStatement>(statementCount);
+         for (int i = 0; i < statementCount; i++) {
+            int address = in.readInt();
+            int instructionIndex = in.readInt();
+            int binary = in.readInt();
+            if (instructionIndex < 0 || instructionIndex >= instructionList.size()
+                  || !(instructionList.get(instructionIndex) instanceof BasicInstruction)) {
+               throw new IOException("statement has no basic instruction");
+            }
+            BasicInstruction instruction = (BasicInstruction) instructionList.get(instructionIndex);
+            if ((binary & instruction.getOpcodeMask()) != instruction.getOpcodeMatch()) {
+               throw new IOException("statement does not match its instruction");
+            }
+            int index = in.readInt();
+            int line = in.readInt();
+            String source = readString(in);
+            int[] operands = new int[in.readInt()];
+            for (int j = 0; j < operands.length; j++) {
+               operands[j] = in.readInt();
+            }
+            MIPSprogram program = (index < 0) ? null : programs.get(index);
+            ProgramStatement statement = new ProgramStatement(instruction, binary, address, operands,
+               program, source, line);
+            Globals.memory.setStatement(address, statement);
+            machineList.add(statement);
+         }
+         int[] words = new int[BLOCK_LENGTH_WORDS];
+         for (int count = in.readInt(); count > 0; count = in.readInt()) {
+            int address = in.readInt();
+            for (int i = 0; i < count; i++) {
+               words[i] = in.readInt();
+            }
+            Globals.memory.setRawWords(address, words, count);
+         }
+         for (int count = in.readInt(); count > 0; count--) {
+            boolean isWarning = in.readBoolean();
+            String filename = readString(in);
+            int line = in.readInt();
+            int position = in.readInt();
+            String message = readString(in);
+            warnings.add(new ErrorMessage(isWarning, filename, line, position, message, readString(in)));
+         }
+         leadProgram.setMachineList(machineList);
+         return programs;
+      }
+
+      // The data segments are written one allocated 4K block at a time, as word count
+      // then address and words.  Unallocated blocks are skipped.  A count of zero ends the list.
+       private void writeDataBlocks(DataOutputStream out, int baseAddress, int limitAddress)
+             throws IOException, AddressErrorException {
+         int[] words = new int[BLOCK_LENGTH_WORDS];
+         for (long address = baseAddress; address < limitAddress; address += BLOCK_LENGTH_WORDS * Memory.WORD_LENGTH_BYTES) {
+            int wanted = (int) Math.min(BLOCK_LENGTH_WORDS, (limitAddress - address) / Memory.WORD_LENGTH_BYTES);
+            int count = Globals.memory.getRawWords((int) address, words, wanted);
+            if (count > 0) {
+               out.writeInt(count);
+               out.writeInt((int) address);
+               for (int i = 0; i < count; i++) {
+                  out.writeInt(words[i]);
+               }
+            }
+         }
+      }
+
+       private void writeSymbols(DataOutputStream out, SymbolTable table) throws IOException {
+         ArrayList<?> symbols = table.getAllSymbols();
+         out.writeInt(symbols.size());
+         for (int i = 0; i < symbols.size(); i++) {
+            Symbol symbol = (Symbol) symbols.get(i);
+            out.writeUTF(symbol.getName());
+            out.writeInt(symbol.getAddress());
+            out.writeBoolean(symbol.getType());
+         }
+      }
+
+       private void readSymbols(DataInputStream in, SymbolTable table) throws IOException {
+         int count = in.readInt();
+         for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            int address = in.readInt();
+            boolean data = in.readBoolean();
+            table.addSymbol(new Symbol(name, address, data));
+         }
+      }
+
+       private boolean includesUnchanged(DataInputStream in) throws IOException {
+         int count = in.readInt();
+         boolean unchanged = true;
+         byte[] hash = new byte[newDigest().getDigestLength()];
+         for (int i = 0; i < count; i++) {
+            String filename = in.readUTF();
+            in.readFully(hash);
+            if (unchanged) {
+               try {
+                  unchanged = Arrays.equals(hash, hashFile(filename));
+               }
+                   catch (IOException e) {
+                     unchanged = false;
+                  }
+            }
+         }
+         return unchanged;
+      }
+
+      // Remove least recently used entries until the total size is within the limit.
+       private void evict() {
+         File[] entries = listEntries();
+         long total = 0;
+         for (int i = 0; i < entries.length; i++) {
+            total += entries[i].length();
+         }
+         if (total <= limitBytes) {
+            return;
+         }
+         Arrays.sort(entries,
+               new Comparator<File>() {
+                  public int compare(File a, File b) {
+                     long difference = a.lastModified() - b.lastModified();
+                     return (difference < 0) ? -1 : (difference > 0) ? 1 : 0;
+                  }
+               });
+         for (int i = 0; i < entries.length && total > limitBytes; i++) {
+            long length = entries[i].length();
+            if (entries[i].delete()) {
+               total -= length;
+            }
+         }
+      }
+
+       private File[] listEntries() {
+         File[] entries = directory.listFiles(
+               new FilenameFilter() {
+                  public boolean accept(File dir, String name) {
+                     return name.endsWith(EXTENSION);
+                  }
+               });
+         return (entries == null) ? new File[0] : entries;
+      }
+
+       private static byte[] hashFile(String filename) throws IOException {
+         MessageDigest digest = newDigest();
+         InputStream in = new FileInputStream(filename);
+         try {
+            byte[] buffer = new byte[64 * 1024];
+            for (int count = in.read(buffer); count >= 0; count = in.read(buffer)) {
+               digest.update(buffer, 0, count);
+            }
+         }
+         finally {
+            in.close();
+         }
+         return digest.digest();
+      }
+
+       private static MessageDigest newDigest() {
+         try {
+            return MessageDigest.getInstance("SHA-1");
+         }
+             catch (NoSuchAlgorithmException e) {
+               throw new RuntimeException("SHA-1 message digest not available");
+            }
+      }
+
+       private static String toHexString(byte[] bytes) {
+         StringBuffer result = new StringBuffer(bytes.length * 2);
+         for (int i = 0; i < bytes.length; i++) {
+            result.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16));
+            result.append(Character.forDigit(bytes[i] & 0xF, 16));
+         }
+         return result.toString();
+      }
+
+      // Strings such as a warning report may be longer than writeUTF() allows.
+       private static void writeString(DataOutputStream out, String string) throws IOException {
+         byte[] bytes = string.getBytes("UTF-8");
+         out.writeInt(bytes.length);
+         out.write(bytes);
+      }
+
+       private static String readString(DataInputStream in) throws IOException {
+         byte[] bytes = new byte[in.readInt()];
+         in.readFully(bytes);
+         return new String(bytes, "UTF-8");
+      }
+
+       private static void closeQuietly(Closeable stream) {
+         if (stream != null) {
+            try {
+               stream.close();
+            }
+                catch (IOException e) {
+               }
+         }
+      }
+
+       private static class NullOutputStream extends OutputStream {
+          public void write(int b) {
+         }
+
+          public void write(byte[] b, int offset, int length) {
+         }
+      }
+   }
@@ -54,6 +54,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       public static MIPSprogram program;
    /** Symbol table for file currently being assembled. **/
       public static SymbolTable symbolTable;
+   /** Tokenized source files kept between assembles, so unchanged files are not tokenized again. **/
+      public static SourceCache sourceCache = new SourceCache();
     /** Simulated MIPS memory component. **/
       public static Memory memory;
     /** Lock variable used at head of synchronized block to guard MIPS memory and registers **/
@@ -83,6 +85,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       public static final int maximumErrorMessages = getErrorLimit();
     /** Maximum number of back-step operations to buffer */
       public static final int maximumBacksteps = getBackstepLimit();
+    /** Maximum total size in kilobytes of the assembled program cache */
+      public static final int assemblyCacheLimit = getAssemblyCacheLimit();
    	/** MARS copyright years */
       public static final String copyrightYears = getCopyrightYears();
    	/** MARS copyright holders */
@@ -125,6 +129,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             instructionSet.populate();    
             symbolTable = new SymbolTable("global");
             settings = new Settings(gui);
+            sourceCache.setEnabled(gui); // only the IDE assembles the same files again
             initialized = true;
             debug = false; 
 				memory.clear(); // will establish memory configuration from setting
@@ -145,6 +150,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        private static int getBackstepLimit() {
          return getIntegerProperty(configPropertiesFile, "BackstepLimit", 1000);
       } 
+   
+   	// Read size limit of assembled program cache (kilobytes) from properties file.
+       private static int getAssemblyCacheLimit() {
+         return getIntegerProperty(configPropertiesFile, "AssemblyCacheLimit", 65536);
+      } 
 		
    	// Read ASCII default display character for non-printing characters, from properties file.
        public static String getAsciiNonPrint() {
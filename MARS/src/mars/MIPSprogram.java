@@ -6,6 +6,7 @@
    import mars.mips.hardware.*;
 	
    import java.util.*;
+   import java.util.concurrent.*;
    import java.io.*;
    import java.awt.event.*;
    import javax.swing.*;
@@ -62,6 +63,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private MacroPool macroPool;
       private ArrayList<SourceLine> sourceLineList;
 		private Tokenizer tokenizer;
+      private SourceCache.TokenizedSource tokenizedSource;
    
    /**
     * Produces list of source statements that comprise the program.
@@ -124,6 +126,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public Tokenizer getTokenizer() {
          return tokenizer;
       }	
+   
+   /**
+    * Retrieves the results of tokenizing this program as kept in Globals.sourceCache.
+    * The assembler keeps its first pass of the program there too.
+    * @return TokenizedSource, or null if the program has not been tokenized or the
+    * cache is disabled.
+    **/
+    
+       public SourceCache.TokenizedSource getTokenizedSource() {
+         return tokenizedSource;
+      }
 		
    /**
     * Produces new empty list to hold parsed source code statements.
@@ -236,12 +249,25 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    
    /**
     * Tokenizes the MIPS source program. Program must have already been read from file.
+    * If the file, and any file it includes, is unchanged since it was last tokenized,
+    * the tokens are taken from Globals.sourceCache instead.
     * @throws ProcessingException Will throw exception if errors occured while tokenizing.
     **/
    
        public void tokenize() throws ProcessingException {
-         this.tokenizer = new Tokenizer();
-         this.tokenList = tokenizer.tokenize(this);
+         SourceCache.TokenizedSource cached = Globals.sourceCache.get(this);
+         if (cached != null) {
+            this.setSourceLineList(cached.getSourceLineList());
+            this.tokenizer = cached.getTokenizer();
+            this.tokenList = cached.getTokenList();
+            this.tokenizedSource = cached;
+         } 
+         else {
+            ArrayList source = this.sourceList;
+            this.tokenizer = new Tokenizer();
+            this.tokenList = tokenizer.tokenize(this);
+            this.tokenizedSource = Globals.sourceCache.put(this, source);
+         }
          this.localSymbolTable = new SymbolTable(this.filename); // prepare for assembly
          return;
       }
@@ -249,6 +275,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    /**
     * Prepares the given list of files for assembly.  This involves
     * reading and tokenizing all the source files.  There may be only one.
+    * If there are several, they are read and tokenized in parallel; should
+    * any fail, the exception for the first of them in list order is thrown.
     * @param filenames  ArrayList containing the source file name(s) in no particular order
     * @param leadFilename String containing name of source file that needs to go first and 
     * will be represented by "this" MIPSprogram object.
@@ -268,11 +296,34 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             filenames.add(0, exceptionHandler);
             leadFilePosition = 1;
          }
+         MIPSprogram[] preparees = new MIPSprogram[filenames.size()];
          for (int i=0; i<filenames.size(); i++) {
             String filename = (String) filenames.get(i);  
-            MIPSprogram preparee = (filename.equals(leadFilename)) ? this : new MIPSprogram();
-            preparee.readSource(filename);
-            preparee.tokenize();
+            preparees[i] = (filename.equals(leadFilename)) ? this : new MIPSprogram();
+         }
+         ProcessingException[] failures = new ProcessingException[preparees.length];
+         TokenizeTask task = new TokenizeTask(preparees, filenames, failures, 0, preparees.length);
+         if (preparees.length > 1 && !Globals.debug // keep debug output in order
+             && Runtime.getRuntime().availableProcessors() > 1) {
+         // The pool lives only as long as this call, so no threads are left behind.
+            ForkJoinPool pool = new ForkJoinPool();
+            try {
+               pool.invoke(task);
+            } 
+            finally {
+               pool.shutdown();
+            }
+         } 
+         else {
+            task.prepareFiles();
+         }
+         for (int i=0; i<failures.length; i++) {
+            if (failures[i] != null) {
+               throw failures[i];
+            }
+         }
+         for (int i=0; i<preparees.length; i++) {
+            MIPSprogram preparee = preparees[i];
          	// I want "this" MIPSprogram to be the first in the list...except for exception handler
             if (preparee == this && MIPSprogramsToAssemble.size()>0) {
                MIPSprogramsToAssemble.add(leadFilePosition,preparee);
@@ -284,6 +335,49 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return MIPSprogramsToAssemble;
       }
    
+   // Reads and tokenizes a range of the files, splitting it in half until only one is left.
+   // Tokenizing files is independent: each has its own Tokenizer, and the instruction set,
+   // directives and register tables it consults are not modified after initialization.
+       private static class TokenizeTask extends RecursiveAction {
+         private static final long serialVersionUID = 1L;
+         private MIPSprogram[] programs;
+         private ArrayList filenames;
+         private ProcessingException[] failures;
+         private int first, last;
+      
+          TokenizeTask(MIPSprogram[] programs, ArrayList filenames, ProcessingException[] failures, int first, int last) {
+            this.programs = programs;
+            this.filenames = filenames;
+            this.failures = failures;
+            this.first = first;
+            this.last = last;
+         }
+      
+          protected void compute() {
+            if (last - first > 1) {
+               int middle = (first + last) >>> 1;
+               invokeAll(new TokenizeTask(programs, filenames, failures, first, middle),
+                         new TokenizeTask(programs, filenames, failures, middle, last));
+            } 
+            else {
+               prepareFiles();
+            }
+         }
+      
+         // Read and tokenize the files of this range in the current thread.
+          void prepareFiles() {
+            for (int i = first; i < last; i++) {
+               try {
+                  programs[i].readSource((String) filenames.get(i));
+                  programs[i].tokenize();
+               } 
+                   catch (ProcessingException e) {
+                     failures[i] = e;
+                  }
+            }
+         }
+      }
+   
    /**
     * Assembles the MIPS source program. All files comprising the program must have 
     * already been tokenized.  Assembler warnings are not considered errors.
@@ -321,6 +415,24 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       }
    
    
+   /**
+    * Links relocatable object modules into a program ready to simulate, as assemble()
+    * would have done given all their source files.  This program represents the first
+    * source file of the first module.
+    * @param objectModules ArrayList of ObjectModule, in the order their sections are to be placed.
+    * @throws ProcessingException Will throw exception if errors occured while linking.
+    * @return ErrorList containing nothing (otherwise would have thrown exception).
+    * @see mars.assembler.Linker
+    **/
+    
+       public ErrorList link(ArrayList<ObjectModule> objectModules) throws ProcessingException {
+         this.backStepper = null;
+         Linker linker = new Linker();
+         this.machineList = linker.link(objectModules, this);
+         this.backStepper = new BackStepper();
+         return linker.getErrorList();
+      }
+   
    /**
     * Simulates execution of the MIPS program. Program must have already been assembled.
     * Begins simulation at beginning of text segment and continues to completion.
@@ -389,6 +501,27 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return steppedExecution;
       }
    
+   /**
+    * Sets up this program to represent the given source file without reading it,
+    * with an empty local symbol table.  Used by AssemblyCache to restore an
+    * assembled program and by the Linker for the files of linked object modules.
+    * @param file String containing name of MIPS source code file.
+    **/
+       public void setFilename(String file) {
+         this.filename = file;
+         this.localSymbolTable = new SymbolTable(file);
+      }
+   
+   /**
+    * Sets the list of machine statements assembled from the program, as assemble()
+    * would.  Used by AssemblyCache to restore an assembled program.
+    * @param machineList ArrayList of ProgramStatement, in address order.
+    **/
+       void setMachineList(ArrayList machineList) {
+         this.machineList = machineList;
+         this.backStepper = new BackStepper();
+      }
+   
    /**
     * Instantiates a new {@link MacroPool} and sends reference of this
     * {@link MIPSprogram} to it
@@ -4,6 +4,10 @@
    import mars.mips.dump.*;
    import mars.mips.hardware.*;
    import mars.simulator.*;
+   import mars.simulator.branch.BranchEvaluator;
+   import mars.tools.HeadlessToolRunner;
+   import mars.assembler.Assembler;
+   import mars.assembler.ObjectModule;
    import java.io.*;
    import java.util.*;
    import java.awt.*;
@@ -67,7 +71,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   are <tt>Binary</tt>, <tt>HexText</tt>, <tt>BinaryText</tt>.<br>
             h  -- display help.  Use by itself and with no filename</br>
           hex  -- display memory or register contents in hexadecimal (default)<br>
+           hs  -- display heap statistics for malloc, free and realloc syscalls<br>
            ic  -- display count of MIPS basic instructions 'executed'");
+         load  -- load memory image from file.  Option has 3 arguments, e.g. <br>
+                  <tt>load &lt;segment&gt; &lt;format&gt; &lt;file&gt;</tt>.  Image is stored starting<br>
+                  at first address of the segment; an address may be given instead.  Occurs<br>
+                  after assembly and before simulation.  No source file is required.<br>
            mc  -- set memory configuration.  Option has 1 argument, e.g.<br>
                   <tt>mc &lt;config$gt;</tt>, where &lt;config$gt; is <tt>Default</tt><br>
                   for the MARS default 32-bit address space, <tt>CompactDataAtZero</tt> for<br>
@@ -77,9 +86,31 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
            nc  -- do not display copyright notice (for cleaner redirected/piped output).</br>
    		  np  -- No Pseudo-instructions allowed ("ne" will work also).<br>
    		   p  -- Project mode - assemble all files in the same directory as given file.<br>
+         prof  -- profile execution and display the hot spots, with their source lines, and the calls,<br>
+                  inclusive and exclusive instruction counts and call graph of each function at end of run.<br>
    	  se<n>  -- terminate MARS with integer exit code <n> if a simulation (run) error occurs.<br>
            sm  -- Start execution at Main - Execution will start at program statement globally labeled main.<br>
           smc  -- Self Modifying Code - Program can write and branch to either text or data segment<br>
+        cache  -- keep assembled programs in a cache directory and reuse them when the<br>
+                  sources and settings are unchanged.  Option has 1 argument, e.g.<br>
+                  <tt>cache &lt;directory&gt;</tt>.  Size is limited by <tt>AssemblyCacheLimit</tt> in Config.properties.<br>
+        trace  -- record binary execution trace to file.  Option has 1 argument, e.g.<br>
+                  <tt>trace &lt;file&gt;</tt>.  Decode using <tt>mars.simulator.TraceReader</tt>.<br>
+     cachesim  -- simulate a cache hierarchy and display hit/miss statistics of each level at end<br>
+                  of run.  Option has 1 argument, e.g. <tt>cachesim L1I=16K:32:2,L1D=16K:32:4,L2=256K:64:8</tt>.<br>
+                  Each level is <tt>name=size:block:ways[:policy][:wb|wt]</tt>; see <tt>mars.mips.hardware.CacheHierarchy</tt>.<br>
+   cachesweep  -- find LRU miss ratios of many cache organizations in one run, displayed at end<br>
+                  of run.  Option has 1 argument, e.g. <tt>cachesweep 1K-64K:16,32:1-8,full</tt>, giving<br>
+                  sizes, block sizes and associativities; see <tt>mars.mips.hardware.CacheSweep</tt>.<br>
+           bp  -- evaluate branch predictors side by side and display their accuracy for each branch at<br>
+                  end of run.  Option has 1 argument, e.g. <tt>bp static,bimodal:1024:2,gshare,tournament,btb</tt>;<br>
+                  see <tt>mars.simulator.branch.BranchEvaluator</tt>.<br>
+        tools  -- attach headless tools to the run and write their results at end of run.  Option has<br>
+                  3 arguments, e.g. <tt>tools statistics,cache=1K:16:2,bht JSON &lt;file&gt;</tt>; the<br>
+                  format is <tt>JSON</tt> or <tt>CSV</tt>.  See <tt>mars.tools.HeadlessToolRunner</tt>.<br>
+          obj  -- assemble the source files into a relocatable object module, do not simulate.<br>
+                  Option has 1 argument, e.g. <tt>obj &lt;file&gt;</tt>.  Files named <tt>*.obj</tt><br>
+                  on the command line are object modules, linked with the assembled sources.<br>
            we  -- assembler Warnings will be considered Errors<br>
           <n>  -- where <n> is an integer maximum count of steps to simulate.<br>
                   If 0, negative or not specified, there is no maximum.<br>
@@ -107,6 +138,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private boolean warningsAreErrors; // Whether assembler warnings should be considered errors.
       private boolean startAtMain; // Whether to start execution at statement labeled 'main' 
       private boolean countInstructions; // Whether to count and report number of instructions executed 
+      private boolean heapStatistics; // Whether to report heap allocator statistics at end of run
       private boolean selfModifyingCode; // Whether to allow self-modifying code (e.g. write to text segment)
       private static final String rangeSeparator = "-";
       private static final int splashDuration = 2000; // time in MS to show splash screen
@@ -122,6 +154,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private int instructionCount;
       private PrintStream out; // stream for display of command line output
       private ArrayList dumpTriples = null; // each element holds 3 arguments for dump option
+      private ArrayList loadTriples = null; // each element holds 3 arguments for load option
+      private String traceFilename = null; // file for binary execution trace, if "trace" option used
+      private String cacheDirectory = null; // directory of assembled program cache, if "cache" option used
+      private String objectFilename = null; // file for relocatable object module, if "obj" option used
+      private CacheHierarchy cacheHierarchy = null; // caches to simulate, if "cachesim" option used
+      private CacheSweep cacheSweep = null; // cache organizations to evaluate, if "cachesweep" option used
+      private BranchEvaluator branchEvaluator = null; // branch predictors to evaluate, if "bp" option used
+      private Profiler profiler = null; // execution profile, if "prof" option used
+      private HeadlessToolRunner toolRunner = null; // headless tools to attach, if "tools" option used
+      private String toolFormat = null; // format of their results
+      private String toolFilename = null; // file for their results
       private ArrayList programArgumentList; // optional program args for MIPS program (becomes argc, argv)
       private int assembleErrorExitCode;  // MARS command exit code to return if assemble error occurs
       private int simulateErrorExitCode;// MARS command exit code to return if simulation error occurs
@@ -144,6 +187,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             warningsAreErrors = false;
             startAtMain = false;
             countInstructions = false;
+            heapStatistics = false;
 				selfModifyingCode = false;
             instructionCount = 0;
             assembleErrorExitCode = 0;
@@ -230,6 +274,64 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
       } 	
    	
+      /////////////////////////////////////////////////////////////
+   	// Perform any specified load operations.  See "load" option.
+   	// Each memory image is stored into memory starting at the first
+   	// address of the given segment or address range, or at the given
+   	// address.  Returns false if any of them could not be loaded.
+   	//
+   
+      private boolean loadSegments() {
+       
+         if (loadTriples == null) 
+            return true;
+         
+         for (int i=0; i<loadTriples.size(); i++) {
+            String[] triple = (String[])loadTriples.get(i);
+            File file = new File(triple[2]);
+            Integer[] segInfo = MemoryDump.getSegmentBounds(triple[0]);
+            if (segInfo == null) {
+               try {
+                  String[] memoryRange = checkMemoryAddressRange(triple[0]);
+                  String firstAddress = (memoryRange == null) ? triple[0] : memoryRange[0];
+                  if (!Memory.wordAligned(Binary.stringToInt(firstAddress))) {
+                     throw new NumberFormatException();
+                  }
+                  segInfo = new Integer[] { Integer.valueOf(Binary.stringToInt(firstAddress)) };
+               }    
+                  catch (NumberFormatException nfe) {
+                     segInfo = null;
+                  }
+            }
+            if (segInfo == null) {
+               out.println("Error while attempting to load memory image, segment/address " + triple[0] + " is invalid!");
+               return false;
+            }
+            ArrayList dumpFormats = (new DumpFormatLoader()).loadDumpFormats();
+            LoadFormat format = DumpFormatLoader.findLoadFormatGivenCommandDescriptor(dumpFormats, triple[1]);
+            if (format == null) {
+               out.println("Error while attempting to load memory image, format " + triple[1] + " was not found or cannot be loaded!");
+               return false;
+            }
+            try {
+               format.loadMemoryRange(file, segInfo[0].intValue()); 
+            } 
+               catch (FileNotFoundException e) {
+                  out.println("Error while attempting to load memory image, file " + file + " was not found!");
+                  return false;
+               } 
+               catch (AddressErrorException e) {
+                  out.println("Error while attempting to load memory image, file " + file + "!  Could not access address: " + e.getAddress() + "!");
+                  return false;
+               } 
+               catch (IOException e) {
+                  out.println("Error while attempting to load memory image, file " + file + "!  " + e.getMessage());
+                  return false;
+               }
+         }
+         return true;
+      } 	
+   	
    		
    	/////////////////////////////////////////////////////////////////
    	// There are no command arguments, so run in interactive mode by
@@ -311,6 +413,121 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                }
                continue;
             } 
+            if (args[i].toLowerCase().equals("load")) {
+               if (args.length <= (i+3)) {
+                  out.println("Load command line argument requires a segment or address, format and file name.");
+                  argsOK = false;
+               } 
+               else {
+                  if (loadTriples == null) 
+                     loadTriples = new ArrayList();
+                  loadTriples.add(new String[] {args[++i], args[++i], args[++i]});
+               }
+               continue;
+            } 
+            if (args[i].toLowerCase().equals("cache")) {
+               if (args.length <= (i+1)) {
+                  out.println("Cache command line argument requires a directory name.");
+                  argsOK = false;
+               } 
+               else {
+                  cacheDirectory = args[++i];
+               }
+               continue;
+            } 
+            if (args[i].toLowerCase().equals("trace")) {
+               if (args.length <= (i+1)) {
+                  out.println("Trace command line argument requires a file name.");
+                  argsOK = false;
+               } 
+               else {
+                  traceFilename = args[++i];
+               }
+               continue;
+            } 
+            if (args[i].toLowerCase().equals("cachesim")) {
+               if (args.length <= (i+1)) {
+                  out.println("Cachesim command line argument requires a cache description.");
+                  argsOK = false;
+               } 
+               else {
+                  try {
+                     cacheHierarchy = new CacheHierarchy(args[++i]);
+                  } 
+                     catch (IllegalArgumentException e) {
+                        out.println("Invalid cache description: "+e.getMessage());
+                        argsOK = false;
+                     }
+               }
+               continue;
+            } 
+            if (args[i].toLowerCase().equals("cachesweep")) {
+               if (args.length <= (i+1)) {
+                  out.println("Cachesweep command line argument requires a sweep description.");
+                  argsOK = false;
+               } 
+               else {
+                  try {
+                     cacheSweep = new CacheSweep(args[++i]);
+                  } 
+                     catch (IllegalArgumentException e) {
+                        out.println("Invalid cache sweep: "+e.getMessage());
+                        argsOK = false;
+                     }
+               }
+               continue;
+            } 
+            if (args[i].toLowerCase().equals("bp")) {
+               if (args.length <= (i+1)) {
+                  out.println("Bp command line argument requires a list of branch predictors.");
+                  argsOK = false;
+               } 
+               else {
+                  try {
+                     branchEvaluator = new BranchEvaluator(args[++i]);
+                  } 
+                     catch (IllegalArgumentException e) {
+                        out.println("Invalid branch predictors: "+e.getMessage());
+                        argsOK = false;
+                     }
+               }
+               continue;
+            } 
+            if (args[i].toLowerCase().equals("tools")) {
+               if (args.length <= (i+3)) {
+                  out.println("Tools command line argument requires a list of tools, a format and a file name.");
+                  argsOK = false;
+               } 
+               else {
+                  String description = args[++i];
+                  toolFormat = args[++i];
+                  toolFilename = args[++i];
+                  try {
+                     toolRunner = new HeadlessToolRunner(description);
+                  } 
+                     catch (IllegalArgumentException e) {
+                        out.println("Invalid tools: "+e.getMessage());
+                        argsOK = false;
+                     }
+                  if (!toolFormat.equalsIgnoreCase(HeadlessToolRunner.JSON) && 
+                      !toolFormat.equalsIgnoreCase(HeadlessToolRunner.CSV)) {
+                     out.println("Invalid tool result format: "+toolFormat+"; use JSON or CSV");
+                     argsOK = false;
+                  }
+               }
+               continue;
+            } 
+            if (args[i].toLowerCase().equals("obj")) {
+               if (args.length <= (i+1)) {
+                  out.println("Obj command line argument requires a file name.");
+                  argsOK = false;
+               } 
+               else {
+                  objectFilename = args[++i];
+                  simulate = false;
+               }
+               continue;
+            } 
             if (args[i].toLowerCase().equals("mc")) {
                String configName = args[++i];
                MemoryConfiguration config = MemoryConfigurations.getConfigurationByName(configName);
@@ -403,6 +620,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                countInstructions = true;
                continue;
             }
+            if (args[i].toLowerCase().equals("hs")) {
+               heapStatistics = true;
+               continue;
+            }
+            if (args[i].toLowerCase().equals("prof")) {
+               profiler = new Profiler();
+               continue;
+            }
          
          
             if (args[i].toLowerCase().indexOf("R") == 0) {
@@ -461,49 +686,88 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       	
       private boolean runCommand() {
          boolean programRan = false;
-         if (filenameList.size()==0) {
+         if (filenameList.size()==0 && loadTriples==null) {
             return programRan;
          }
          try {
             Globals.getSettings().setBooleanSettingNonPersistent(Settings.DELAYED_BRANCHING_ENABLED, delayedBranching);
             Globals.getSettings().setBooleanSettingNonPersistent(Settings.SELF_MODIFYING_CODE_ENABLED, selfModifyingCode);
-            File mainFile = new File((String) filenameList.get(0)).getAbsoluteFile();// First file is "main" file
-            ArrayList filesToAssemble;
-            if (assembleProject) { 
-               filesToAssemble = FilenameFinder.getFilenameList(mainFile.getParent(), Globals.fileExtensions);
-               if (filenameList.size() > 1) {
-                  // Using "p" project option PLUS listing more than one filename on command line.
-                  // Add the additional files, avoiding duplicates.
-                  filenameList.remove(0); // first one has already been processed
-                  ArrayList moreFilesToAssemble = FilenameFinder.getFilenameList(filenameList, FilenameFinder.MATCH_ALL_EXTENSIONS);
-                  // Remove any duplicates then merge the two lists.
-                  for (int index2 = 0; index2<moreFilesToAssemble.size(); index2++) {
-                     for (int index1 = 0; index1<filesToAssemble.size(); index1++) {
-                        if (filesToAssemble.get(index1).equals(moreFilesToAssemble.get(index2))) {
-                           moreFilesToAssemble.remove(index2);
-                           index2--; // adjust for left shift in moreFilesToAssemble...
-                           break;    // break out of inner loop...
+            // Memory images alone can be simulated, without assembling any source.
+            if (filenameList.size() > 0) {
+               File mainFile = new File((String) filenameList.get(0)).getAbsoluteFile();// First file is "main" file
+               ArrayList filesToAssemble;
+               if (assembleProject) { 
+                  filesToAssemble = FilenameFinder.getFilenameList(mainFile.getParent(), Globals.fileExtensions);
+                  if (filenameList.size() > 1) {
+                     // Using "p" project option PLUS listing more than one filename on command line.
+                     // Add the additional files, avoiding duplicates.
+                     filenameList.remove(0); // first one has already been processed
+                     ArrayList moreFilesToAssemble = FilenameFinder.getFilenameList(filenameList, FilenameFinder.MATCH_ALL_EXTENSIONS);
+                     // Remove any duplicates then merge the two lists.
+                     for (int index2 = 0; index2<moreFilesToAssemble.size(); index2++) {
+                        for (int index1 = 0; index1<filesToAssemble.size(); index1++) {
+                           if (filesToAssemble.get(index1).equals(moreFilesToAssemble.get(index2))) {
+                              moreFilesToAssemble.remove(index2);
+                              index2--; // adjust for left shift in moreFilesToAssemble...
+                              break;    // break out of inner loop...
+                           }
                         }
                      }
+                     filesToAssemble.addAll(moreFilesToAssemble);
                   }
-                  filesToAssemble.addAll(moreFilesToAssemble);
+               } 
+               else {
+                  filesToAssemble = FilenameFinder.getFilenameList(filenameList, FilenameFinder.MATCH_ALL_EXTENSIONS);
+               }
+               if (Globals.debug) {
+                  out.println("--------  TOKENIZING BEGINS  -----------");
+               }
+               // Object modules listed among the files are linked with the assembled sources.
+               ArrayList objectFiles = new ArrayList();
+               for (int i = 0; i < filesToAssemble.size(); i++) {
+                  if (((String) filesToAssemble.get(i)).toLowerCase().endsWith("."+ObjectModule.EXTENSION)) {
+                     objectFiles.add(filesToAssemble.remove(i--));
+                  }
+               }
+               if (objectFilename != null && (objectFiles.size() > 0 || filesToAssemble.size() == 0)) {
+                  out.println("Obj option requires source files and cannot be used with object modules.");
+                  return programRan;
+               }
+               ErrorList warnings = new ErrorList();
+               if (objectFilename != null || objectFiles.size() > 0) {
+                  warnings = assembleAndLink(filesToAssemble, mainFile, objectFiles);
+               }
+               else {
+                  // Use the previously assembled program if it is in the cache.
+                  AssemblyCache cache = null;
+                  String cacheKey = null;
+                  ArrayList MIPSprogramsToAssemble = null;
+                  if (cacheDirectory != null) {
+                     cache = new AssemblyCache(new File(cacheDirectory), Globals.assemblyCacheLimit * 1024L);
+                     cacheKey = cache.getKey(filesToAssemble, mainFile.getAbsolutePath(), pseudo, warningsAreErrors);
+                     MIPSprogramsToAssemble = cache.load(cacheKey, code, warnings);
+                  }
+                  if (MIPSprogramsToAssemble == null) {
+                     MIPSprogramsToAssemble = 
+                            code.prepareFilesForAssembly(filesToAssemble, mainFile.getAbsolutePath(), null);		
+                     if (Globals.debug) {
+                        out.println("--------  ASSEMBLY BEGINS  -----------");
+                     }
+                  	// Added logic to check for warnings and print if any. DPS 11/28/06
+                     warnings = code.assemble(MIPSprogramsToAssemble, pseudo, warningsAreErrors);
+                     if (cache != null) {
+                        cache.store(cacheKey, MIPSprogramsToAssemble, code, warnings);
+                     }
+                  }
+               }
+               if (warnings != null && warnings.warningsOccurred()) {
+                  out.println(warnings.generateWarningReport());
                }
-            } 
-            else {
-               filesToAssemble = FilenameFinder.getFilenameList(filenameList, FilenameFinder.MATCH_ALL_EXTENSIONS);
-            }
-            if (Globals.debug) {
-               out.println("--------  TOKENIZING BEGINS  -----------");
-            }
-            ArrayList MIPSprogramsToAssemble = 
-                      code.prepareFilesForAssembly(filesToAssemble, mainFile.getAbsolutePath(), null);		
-            if (Globals.debug) {
-               out.println("--------  ASSEMBLY BEGINS  -----------");
             }
-         	// Added logic to check for warnings and print if any. DPS 11/28/06
-            ErrorList warnings = code.assemble(MIPSprogramsToAssemble, pseudo, warningsAreErrors);
-            if (warnings != null && warnings.warningsOccurred()) {
-               out.println(warnings.generateWarningReport());
+            if (!loadSegments()) {
+               Globals.exitCode = assembleErrorExitCode;
+               out.println("Processing terminated due to errors.");
+               return programRan;
             }
             RegisterFile.initializeProgramCounter(startAtMain); // DPS 3/9/09
             if (simulate) {
@@ -515,7 +779,32 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   out.println("--------  SIMULATION BEGINS  -----------");
                }
                programRan = true;
-               boolean done = code.simulate(maxSteps);
+               startTrace();
+               if (cacheHierarchy != null) {
+                  cacheHierarchy.start();
+               }
+               if (cacheSweep != null) {
+                  cacheSweep.start();
+               }
+               if (branchEvaluator != null) {
+                  branchEvaluator.start();
+               }
+               if (profiler != null) {
+                  profiler.start();
+               }
+               boolean done;
+               try {
+                  connectTools();
+                  done = code.simulate(maxSteps);
+               }
+               finally {
+                  stopTrace();
+                  CacheHierarchy.stop();
+                  CacheSweep.stop();
+                  BranchEvaluator.stop();
+                  Profiler.stop();
+                  disconnectTools();
+               }
                if (!done) {
                   out.println("\nProgram terminated when maximum step limit "+maxSteps+" reached.");
                }
@@ -533,6 +822,50 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       }
    
    
+   	//////////////////////////////////////////////////////////////////////
+      // Separate assembly: assemble the source files, if any, into a relocatable
+      // object module, then either write it to the "obj" file or link it with the
+      // given object modules.  Returns the assembler warnings.
+   	
+      private ErrorList assembleAndLink(ArrayList sourceFiles, File mainFile, ArrayList objectFiles) 
+              throws ProcessingException {
+         ErrorList warnings = new ErrorList();
+         ArrayList<ObjectModule> modules = new ArrayList<ObjectModule>();
+         if (sourceFiles.size() > 0) {
+            String leadFilename = (sourceFiles.contains(mainFile.getAbsolutePath())) 
+                                  ? mainFile.getAbsolutePath() : (String) sourceFiles.get(0);
+            ArrayList MIPSprogramsToAssemble = code.prepareFilesForAssembly(sourceFiles, leadFilename, null);
+            if (Globals.debug) {
+               out.println("--------  ASSEMBLY BEGINS  -----------");
+            }
+            Assembler assembler = new Assembler();
+            modules.add(assembler.assembleObject(MIPSprogramsToAssemble, pseudo, warningsAreErrors));
+            warnings = assembler.getErrorList();
+         }
+         String filename = objectFilename;
+         try {
+            if (objectFilename != null) {
+               modules.get(0).write(new File(objectFilename));
+               return warnings;
+            }
+            for (int i = 0; i < objectFiles.size(); i++) {
+               filename = (String) objectFiles.get(i);
+               modules.add(ObjectModule.read(new File(filename)));
+            }
+         } 
+            catch (IOException e) {
+               ErrorList errors = new ErrorList();
+               errors.add(new ErrorMessage((MIPSprogram) null, 0, 0, 
+                  "Object module "+filename+" could not be "+((objectFilename != null) ? "written" : "read")+": "+e.getMessage()));
+               throw new ProcessingException(errors);
+            }
+         if (Globals.debug) {
+            out.println("--------  LINKING BEGINS  -----------");
+         }
+         code.link(modules);
+         return warnings;
+      }
+   
    	//////////////////////////////////////////////////////////////////////
       // Check for memory address subrange.  Has to be two integers separated
       // by "-"; no embedded spaces.  e.g. 0x00400000-0x00400010
@@ -558,6 +891,55 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return memoryRange;
       }
    
+      /////////////////////////////////////////////////////////////////
+   	// Start and stop recording the binary execution trace, if the "trace"
+   	// option is specified.  See TraceRecorder and TraceReader.
+      private void startTrace() {
+         if (traceFilename != null) {
+            try {
+               TraceRecorder.start(new File(traceFilename));
+            } 
+               catch (IOException e) {
+                  out.println("Error while attempting to record trace, file " + traceFilename + " could not be created!");
+               }
+         }
+      }
+   
+      private void stopTrace() {
+         try {
+            TraceRecorder.stop();
+         } 
+            catch (IOException e) {
+               out.println("Error while attempting to record trace, file " + traceFilename + "!  Disk IO failed!");
+            }
+      }
+   
+      /////////////////////////////////////////////////////////////////
+   	// Connect the headless tools, if the "tools" option is specified.  After the run,
+   	// disconnect them and write their results, even if the run ended in error.
+      private void connectTools() {
+         if (toolRunner != null) {
+            try {
+               toolRunner.connect();
+            } 
+               catch (AddressErrorException aee) {
+                  out.println("Error while attempting to connect tools: "+aee.getMessage());
+               }
+         }
+      }
+   
+      private void disconnectTools() {
+         if (toolRunner != null) {
+            toolRunner.disconnect();
+            try {
+               toolRunner.writeResults(new File(toolFilename), toolFormat);
+            } 
+               catch (IOException e) {
+                  out.println("Error while attempting to write tool results, file " + toolFilename + "!  Disk IO failed!");
+               }
+         }
+      }
+   
       /////////////////////////////////////////////////////////////////
    	// Required for counting instructions executed, if that option is specified.
    	// DPS 19 July 2012
@@ -598,6 +980,43 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          if (countInstructions) {
             out.println("\n"+instructionCount);
          }
+         if (heapStatistics) {
+            displayHeapStatistics();
+         }
+         if (cacheHierarchy != null) {
+            out.println();
+            cacheHierarchy.printStatistics(out);
+         }
+         if (cacheSweep != null) {
+            out.println();
+            cacheSweep.printMissRatios(out);
+         }
+         if (branchEvaluator != null) {
+            out.println();
+            branchEvaluator.printReport(out);
+         }
+         if (profiler != null) {
+            out.println();
+            profiler.printReport(out, Profiler.DEFAULT_HOT_SPOTS);
+         }
+      }
+   
+   	//////////////////////////////////////////////////////////////////////
+   	// Displays statistics of the heap allocator used by the malloc, free
+   	// and realloc syscalls.
+      private void displayHeapStatistics() {
+         HeapAllocator heap = Globals.memory.getHeapAllocator();
+         out.println();
+         out.println("malloc calls:         "+heap.getMallocCount());
+         out.println("free calls:           "+heap.getFreeCount());
+         out.println("realloc calls:        "+heap.getReallocCount());
+         out.println("failed requests:      "+heap.getFailedCount());
+         out.println("allocated bytes:      "+heap.getAllocatedBytes());
+         out.println("peak allocated bytes: "+heap.getPeakAllocatedBytes());
+         out.println("heap bytes:           "+heap.getHeapBytes());
+         out.println("free bytes:           "+heap.getFreeBytes()+" in "+heap.getFreeBlockCount()+" blocks");
+         out.println("largest free block:   "+heap.getLargestFreeBlock());
+         out.println("fragmentation:        "+Math.round(heap.getFragmentation() * 1000) / 10.0+"%");
       }
    
    	     		   	
@@ -786,6 +1205,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                formats += ", ";
             }
          }
+         String loadFormats = "";
+         for (int i=0; i<dumpFormats.size(); i++) {
+            if (dumpFormats.get(i) instanceof LoadFormat) {
+               loadFormats += (loadFormats.length()==0) ? "" : ", ";
+               loadFormats += ((LoadFormat) dumpFormats.get(i)).getCommandDescriptor();
+            }
+         }
          out.println("Usage:  Mars  [options] filename [additional filenames]");
          out.println("  Valid options (not case sensitive, separate by spaces) are:");
          out.println("      a  -- assemble only, do not simulate");
@@ -804,6 +1230,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          out.println("      h  -- display this help.  Use by itself with no filename.");
          out.println("    hex  -- display memory or register contents in hexadecimal (default)");
          out.println("     ic  -- display count of MIPS basic instructions 'executed'");
+         out.println("     hs  -- display heap statistics (calls, peak and current allocation, fragmentation)");
+         out.println("            for the malloc, free and realloc syscalls");
+         out.println("   load <segment> <format> <file> -- load memory image from specified file in");
+         out.println("            specified format, starting at first address of specified segment.");
+         out.println("            An address may be given instead of a segment.  Option may be repeated.");
+         out.println("            Load occurs after assembly and before simulation.  If no source file");
+         out.println("            is given, the loaded image is simulated as is.  Formats which can");
+         out.println("            be loaded are "+loadFormats);
          out.println("     mc <config>  -- set memory configuration.  Argument <config> is");
          out.println("            case-sensitive and possible values are: Default for the default");
          out.println("            32-bit address space, CompactDataAtZero for a 32KB memory with");
@@ -814,9 +1248,50 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          out.println("     nc  -- do not display copyright notice (for cleaner redirected/piped output).");
          out.println("     np  -- use of pseudo instructions and formats not permitted");
          out.println("      p  -- Project mode - assemble all files in the same directory as given file.");
+         out.println("   prof  -- profile execution and display at end of run the most executed statements");
+         out.println("            and, for each function (labeled target of jal or jalr), its calls,");
+         out.println("            inclusive and exclusive instruction counts and callees");
          out.println("  se<n>  -- terminate MARS with integer exit code <n> if a simulation (run) error occurs.");
          out.println("     sm  -- start execution at statement with global label main, if defined");
          out.println("    smc  -- Self Modifying Code - Program can write and branch to either text or data segment");
+         out.println("  cache <dir>  -- keep assembled programs in the specified cache directory, and");
+         out.println("            use them instead of assembling again when the source files and");
+         out.println("            settings are unchanged.  Least recently used programs are removed when");
+         out.println("            the size set by AssemblyCacheLimit in Config.properties is exceeded.");
+         out.println("  trace <file>  -- record binary trace of instructions executed, register writes and");
+         out.println("            memory accesses to specified file (GZIP compressed).  Decode it using");
+         out.println("            java mars.simulator.TraceReader <file>");
+         out.println("  cachesim <levels>  -- simulate caches and display hit/miss statistics of each");
+         out.println("            level at end of run.  <levels> is a comma-separated list of");
+         out.println("            name=size:block:ways[:policy][:wb|wt] where name is L1I, L1D, L1 (unified)");
+         out.println("            or L2, sizes are in bytes (K or M suffix allowed), policy is LRU (default),");
+         out.println("            FIFO, RANDOM or PLRU, and wb (default) or wt is write-back or write-through.");
+         out.println("            Example: cachesim L1I=16K:32:2,L1D=16K:32:4:PLRU,L2=256K:64:8");
+         out.println("  cachesweep <sweep>  -- find LRU miss ratios of many cache organizations in one");
+         out.println("            run and display them as a table at end of run.  <sweep> is");
+         out.println("            sizes:blocks:ways[:stream], each a comma-separated list of values or");
+         out.println("            power-of-two ranges, ways may include full, and stream is D (data,");
+         out.println("            default), I (instruction fetches) or U (both).");
+         out.println("            Example: cachesweep 1K-64K:16,32:1-8,full");
+         out.println("  bp <predictors>  -- evaluate branch predictors over the run and display the");
+         out.println("            accuracy of each, in total and for each branch.  <predictors> is a");
+         out.println("            comma-separated list of static[:taken|nottaken|btfn],");
+         out.println("            bimodal[:entries[:bits]], gshare[:entries[:history]],");
+         out.println("            local[:entries[:history]], tournament[:entries[:history]] and");
+         out.println("            btb[:entries] for the targets of jr, jalr, ret_* and reti_*.");
+         out.println("            Example: bp static,bimodal:1024:2,gshare,local,tournament,btb");
+         out.println("  tools <tools> <format> <file>  -- attach headless versions of MARS tools to the");
+         out.println("            run and write their results to the specified file at end of run.");
+         out.println("            <tools> is a comma-separated list of statistics (instruction counts by");
+         out.println("            category), cache[=size:block:ways[:policy][:wb|wt]] (data cache hits and");
+         out.println("            misses), bht[=entries[:history[:taken]]] (branch history table),");
+         out.println("            references[=base[:words[:units]]] (reference counts of memory units) and");
+         out.println("            names of classes implementing mars.tools.HeadlessTool.  <format> is JSON or CSV.");
+         out.println("            Example: tools statistics,cache=1K:16:2,bht JSON results.json");
+         out.println("  obj <file>  -- assemble the source files into a relocatable object module and");
+         out.println("            write it to the specified file, without simulating.  Labels used but not");
+         out.println("            defined are imported from other modules.  Files named *.obj among the");
+         out.println("            file names are object modules, linked with the assembled source files.");
          out.println("    <n>  -- where <n> is an integer maximum count of steps to simulate.");
          out.println("            If 0, negative or not specified, there is no maximum.");
          out.println(" $<reg>  -- where <reg> is number or name (e.g. 5, t3, f10) of register whose ");
@@ -37,6 +37,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  * Represents one assembly/machine statement.  This represents the "bare machine" level.
  * Pseudo-instructions have already been processed at this point and each assembly 
  * statement generated by them is one of these.
+ * <p>
+ * A large program has one of these for every word of its text segment, so the
+ * statement keeps only what simulation needs -- the instruction, its machine code
+ * and operand values -- plus references to its source and tokens, which the
+ * assembler has already made.  The basic assembly statement and the machine code
+ * as a string of bits are not stored; they are generated from those whenever they
+ * are asked for, which happens only for display.
  * 
  * @author Pete Sanderson and Jason Bumgarner 
  * @version August 2003
@@ -45,9 +52,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 
     public class ProgramStatement {
       private MIPSprogram sourceMIPSprogram;
-      private String source, basicAssemblyStatement, machineStatement;
+      private String source, basicAssemblyStatement; // basicAssemblyStatement only if set explicitly
       private TokenList originalTokenList, strippedTokenList;
-      private BasicStatementList basicStatementList;
       private int[] operands;
       private int numOperands;
       private Instruction instruction;
@@ -55,6 +61,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private int sourceLine;
       private int binaryStatement;
       private boolean altered;
+      private boolean basicStatementBuilt, machineStatementBuilt;
       private static final String invalidOperator = "<INVALID>";
     
     //////////////////////////////////////////////////////////////////////////////////
@@ -81,13 +88,26 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          this.textAddress = textAddress;
          this.sourceLine = sourceLine;
          this.basicAssemblyStatement = null;
-         this.basicStatementList = new BasicStatementList();
-         this.machineStatement = null;
          this.binaryStatement = 0;  // nop, or sll $0, $0, 0  (32 bits of 0's)
          this.altered = false;
       }
    
    
+    //////////////////////////////////////////////////////////////////////////////////
+    /**
+     * Constructor for a copy, at another Text Segment address, of a statement as the
+     * first assembler pass produced it.  Used by the assembler to place a source file
+     * parsed before its address was known, possibly in an earlier assemble.
+     * @param statement The statement to copy.  Its basic statement must not have been built.
+     * @param sourceMIPSprogram The MIPSprogram object that contains the copy.
+     * @param textAddress The Text Segment address in memory of the copy.
+     **/
+       public ProgramStatement(ProgramStatement statement, MIPSprogram sourceMIPSprogram, int textAddress) {
+         this(sourceMIPSprogram, statement.source, statement.originalTokenList,
+              statement.strippedTokenList, statement.instruction, textAddress, statement.sourceLine);
+      }
+   
+   
     //////////////////////////////////////////////////////////////////////////////////
     /**
      * Constructor for ProgramStatement used only for writing a binary machine 
@@ -105,7 +125,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          this.textAddress = textAddress;
          this.originalTokenList = this.strippedTokenList = null;
          this.source = "";
-         this.machineStatement = this.basicAssemblyStatement = null;
+         this.basicAssemblyStatement = null;
          BasicInstruction instr = Globals.instructionSet.findByBinaryCode(binaryStatement);
          if (instr == null) {
             this.operands = null;
@@ -130,8 +150,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   int k0 = 31 - fmt.lastIndexOf(code);
                   int k1 = 31 - j;
                   int opand = (binaryStatement >> k0) & ((1 << (k1 - k0 + 1)) - 1);
-                  if (instrFormat.equals(BasicInstructionFormat.I_BRANCH_FORMAT) && numOps == 2) {
-                     opand = opand << 16 >> 16;
+                  if (instrFormat.equals(BasicInstructionFormat.I_BRANCH_FORMAT)
+                      && (i == opandCodes.length() - 1 || fmt.indexOf(opandCodes.charAt(i + 1)) < 0)) {
+                     // the branch offset is the last operand; sign extend it from its field width
+                     opand = opand << (31 - k1 + k0) >> (31 - k1 + k0);
                   } 
                   else if (instrFormat.equals(BasicInstructionFormat.J_FORMAT) && numOps == 0) {
                      opand |= (textAddress >> 2) & 0x3C000000;
@@ -143,23 +165,61 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             this.numOperands = numOps;
          }
          this.altered = false;
-         this.basicStatementList = buildBasicStatementListFromBinaryCode(binaryStatement, instr, operands, numOperands);
       }
-   	
+   
+   
+    //////////////////////////////////////////////////////////////////////////////////
+    /**
+     * Constructor for ProgramStatement used to restore a previously assembled
+     * statement, such as one loaded from an AssemblyCache.  The instruction and the
+     * operand values are those assembled rather than decoded from the machine code,
+     * since some instructions share a machine code (the two forms of sw, for instance)
+     * and an operand value, such as a label address, can hold more bits than its field.
+     * @param instruction The BasicInstruction assembled.
+     * @param binaryStatement The 32-bit machine code.
+     * @param textAddress The Text Segment address in memory where the binary machine code for this statement
+     * is stored.
+     * @param operands The operand values, as returned by getOperands() after assembly.
+     * @param sourceMIPSprogram The MIPSprogram containing this statement, or null if none.
+     * @param source The source code of the statement.
+     * @param sourceLine The line number of the source code within the program.
+     **/
+       public ProgramStatement(BasicInstruction instruction, int binaryStatement, int textAddress, int[] operands,
+                               MIPSprogram sourceMIPSprogram, String source, int sourceLine) {
+         this.sourceMIPSprogram = sourceMIPSprogram;
+         this.source = source;
+         this.originalTokenList = this.strippedTokenList = null;
+         this.basicAssemblyStatement = null;
+         this.instruction = instruction;
+         this.textAddress = textAddress;
+         this.sourceLine = sourceLine;
+         this.binaryStatement = binaryStatement;
+         this.operands = new int[4];
+         System.arraycopy(operands, 0, this.operands, 0, Math.min(operands.length, this.operands.length));
+         this.numOperands = 0;
+         String opandCodes = "fsta";
+         String fmt = instruction.getOperationMask();
+         for (int i = 0; i < opandCodes.length(); i++) {
+            if (fmt.indexOf(opandCodes.charAt(i)) >= 0) {
+               this.numOperands++;
+            }
+         }
+         this.altered = false;
+      }
+   
    
     /////////////////////////////////////////////////////////////////////////////
     /**
      * Given specification of BasicInstruction for this operator, build the
      * corresponding assembly statement in basic assembly format (e.g. substituting
-     * register numbers for register names, replacing labels by values).
+     * register numbers for register names, replacing labels by values).  Only the
+     * operand values are computed here; the statement itself is generated from the
+     * tokens and operand values when it is displayed.
      * @param errors The list of assembly errors encountered so far.  May add to it here.
      **/
        public void buildBasicStatementFromBasicInstruction(ErrorList errors) {
-         Token token = strippedTokenList.get(0);
-         String basicStatementElement = token.getValue()+" ";;
-         String basic = basicStatementElement;
-         basicStatementList.addString(basicStatementElement); // the operator
-         TokenTypes tokenType, nextTokenType;
+         Token token;
+         TokenTypes tokenType;
          String tokenValue;
          int registerNumber;
          this.numOperands = 0;
@@ -168,9 +228,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             tokenType = token.getType();
             tokenValue = token.getValue();
             if (tokenType == TokenTypes.REGISTER_NUMBER) {
-               basicStatementElement = tokenValue;
-               basic += basicStatementElement;
-               basicStatementList.addString(basicStatementElement);
                try {
                   registerNumber = RegisterFile.getUserRegister(tokenValue).getNumber();
                } 
@@ -183,9 +240,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             } 
             else if (tokenType == TokenTypes.REGISTER_NAME) {
                registerNumber = RegisterFile.getNumber(tokenValue);
-               basicStatementElement = "R" + registerNumber;
-               basic += basicStatementElement;
-               basicStatementList.addString(basicStatementElement);
                if (registerNumber < 0) {
                     // should never happen; should be caught before now...
                   errors.add(new ErrorMessage(this.sourceMIPSprogram, token.getSourceLine(), token.getStartPos(),"invalid register name"));
@@ -195,9 +249,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             } 
             else if (tokenType == TokenTypes.FP_REGISTER_NAME) {
                registerNumber = Coprocessor1.getRegisterNumber(tokenValue);
-               basicStatementElement = "$f" + registerNumber;
-               basic += basicStatementElement;
-               basicStatementList.addString(basicStatementElement);
                if (registerNumber < 0) {
                     // should never happen; should be caught before now...
                   errors.add(new ErrorMessage(this.sourceMIPSprogram, token.getSourceLine(), token.getStartPos(),"invalid FPU register name"));
@@ -212,7 +263,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                                    "Symbol \""+tokenValue+"\" not found in symbol table."));
                   return;
                }
-               boolean absoluteAddress = true; // (used below)
             	 //////////////////////////////////////////////////////////////////////
             	 // added code 12-20-2004. If basic instruction with I_BRANCH format, then translate
             	 // address from absolute to relative and shift left 2. 
@@ -236,17 +286,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   if (format ==  BasicInstructionFormat.I_BRANCH_FORMAT) {
                      //address = (address - (this.textAddress+((Globals.getSettings().getDelayedBranchingEnabled())? Instruction.INSTRUCTION_LENGTH : 0))) >> 2;
                      address = (address - (this.textAddress+Instruction.INSTRUCTION_LENGTH)) >> 2;
-                     absoluteAddress = false;
                   }
                }
             	 //////////////////////////////////////////////////////////////////////
-               basic += address;
-               if (absoluteAddress) { // record as address if absolute, value if relative
-                  basicStatementList.addAddress(address);
-               } 
-               else {
-                  basicStatementList.addValue(address);
-               }
                this.operands[this.numOperands++] = address;
             } 
             else if (tokenType == TokenTypes.INTEGER_5 || tokenType == TokenTypes.INTEGER_16 ||
@@ -295,30 +337,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             *        }
             **************************  END DPS 3-July-2008 COMMENTS *******************************/
             
-               basic += tempNumeric;
-               basicStatementList.addValue(tempNumeric);  
                this.operands[this.numOperands++] = tempNumeric;
                 ///// End modification 1/7/05 KENV   ///////////////////////////////////////////
             } 
-            else {
-               basicStatementElement = tokenValue;
-               basic += basicStatementElement;
-               basicStatementList.addString(basicStatementElement);
-            }
-            // add separator if not at end of token list AND neither current nor 
-            // next token is a parenthesis
-            if ((i < strippedTokenList.size()-1)) {
-               nextTokenType = strippedTokenList.get(i+1).getType();
-               if (tokenType != TokenTypes.LEFT_PAREN  &&  tokenType != TokenTypes.RIGHT_PAREN  &&
-                   nextTokenType != TokenTypes.LEFT_PAREN && nextTokenType != TokenTypes.RIGHT_PAREN)
-               {
-                  basicStatementElement = ",";
-                  basic += basicStatementElement;
-                  basicStatementList.addString(basicStatementElement);
-               }
-            }
          }
-         this.basicAssemblyStatement = basic;
+         this.basicStatementBuilt = true;
       } //buildBasicStatementFromBasicInstruction()
     
     
@@ -330,10 +353,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      * @param errors The list of assembly errors encountered so far.  May add to it here.
      **/
        public void buildMachineStatementFromBasicStatement(ErrorList errors) {
-      
+         String mask;
          try {
                //mask indicates bit positions for 'f'irst, 's'econd, 't'hird operand
-            this.machineStatement = ((BasicInstruction)instruction).getOperationMask();
+            mask = ((BasicInstruction)instruction).getOperationMask();
          }   // This means the pseudo-instruction expansion generated another
              // pseudo-instruction (expansion must be to all basic instructions).
          	 // This is an error on the part of the pseudo-instruction author.
@@ -343,6 +366,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                return;            
             }        
          BasicInstructionFormat format = ((BasicInstruction)instruction).getInstructionFormat();
+         // start from the constant bits of the mask, the operand fields all 0's
+         this.binaryStatement = ((BasicInstruction)instruction).getOpcodeMatch();
       
          if (format == BasicInstructionFormat.J_FORMAT) {
             if ((this.textAddress & 0xF0000000) != (this.operands[0] & 0xF0000000)) {
@@ -354,19 +379,19 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             }
             // Note the  bit shift to make this a word address.
             this.operands[0] = this.operands[0] >>> 2;
-            this.insertBinaryCode(this.operands[0], Instruction.operandMask[0], errors);          
+            this.insertBinaryCode(mask, this.operands[0], Instruction.operandMask[0], errors);          
          } 
          else if (format == BasicInstructionFormat.I_BRANCH_FORMAT) { 
             for (int i=0; i<this.numOperands-1; i++) {
-               this.insertBinaryCode(this.operands[i], Instruction.operandMask[i], errors);
+               this.insertBinaryCode(mask, this.operands[i], Instruction.operandMask[i], errors);
             }
-            this.insertBinaryCode(operands[this.numOperands-1], Instruction.operandMask[this.numOperands-1], errors);         
+            this.insertBinaryCode(mask, operands[this.numOperands-1], Instruction.operandMask[this.numOperands-1], errors);         
          } 
          else {  // R_FORMAT or I_FORMAT
             for (int i=0; i<this.numOperands; i++)
-               this.insertBinaryCode(this.operands[i], Instruction.operandMask[i], errors);
+               this.insertBinaryCode(mask, this.operands[i], Instruction.operandMask[i], errors);
          }
-         this.binaryStatement = Binary.binaryStringToInt(this.machineStatement);
+         this.machineStatementBuilt = true;
          return;
       } // buildMachineStatementFromBasicStatement(
         
@@ -382,10 +407,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
         // a crude attempt at string formatting.  Where's C when you need it?
          String blanks = "                               ";
          String result = "["+this.textAddress+"]";
-         if (this.basicAssemblyStatement != null) {
-            int firstSpace = this.basicAssemblyStatement.indexOf(" ");
-            result += blanks.substring(0, 16-result.length()) + this.basicAssemblyStatement.substring(0,firstSpace);
-            result += blanks.substring(0, 24-result.length()) + this.basicAssemblyStatement.substring(firstSpace+1);;
+         String basicAssemblyStatement = getBasicAssemblyStatement();
+         if (basicAssemblyStatement != null) {
+            int firstSpace = basicAssemblyStatement.indexOf(" ");
+            result += blanks.substring(0, 16-result.length()) + basicAssemblyStatement.substring(0,firstSpace);
+            result += blanks.substring(0, 24-result.length()) + basicAssemblyStatement.substring(firstSpace+1);;
          } 
          else {
             result += blanks.substring(0, 16 - result.length()) + "0x" + Integer.toString(this.binaryStatement, 16);
@@ -396,11 +422,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             // result += operands[i] + " ";
                result += Integer.toString(operands[i], 16) + " ";
          }
-         if (this.machineStatement != null) {
-            result += "["+Binary.binaryStringToHexString(this.machineStatement)+"]";
-            result += "  "+this.machineStatement.substring(0,6)+"|" + this.machineStatement.substring(6,11)+"|"+
-               this.machineStatement.substring(11,16)+"|" + this.machineStatement.substring(16,21)+"|"+
-               this.machineStatement.substring(21,26)+"|" + this.machineStatement.substring(26,32);
+         String machineStatement = getMachineStatement();
+         if (machineStatement != null) {
+            result += "["+Binary.binaryStringToHexString(machineStatement)+"]";
+            result += "  "+machineStatement.substring(0,6)+"|" + machineStatement.substring(6,11)+"|"+
+               machineStatement.substring(11,16)+"|" + machineStatement.substring(16,21)+"|"+
+               machineStatement.substring(21,26)+"|" + machineStatement.substring(26,32);
          }
          return result;
       } // toString()
@@ -421,7 +448,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      **/
          
        public void setMachineStatement(String statement) {
-         machineStatement = statement;
+         binaryStatement = Binary.binaryStringToInt(statement);
+         machineStatementBuilt = true;
       }
    
     /**
@@ -484,11 +512,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     /**
      * Produces Basic Assembly statement for this MIPS source statement.
      * All numeric values are in decimal.
-     * @return The Basic Assembly statement.
+     * @return The Basic Assembly statement, or null if it has not been built from source.
      **/
      
        public String getBasicAssemblyStatement() {
-         return basicAssemblyStatement;
+         if (basicAssemblyStatement != null || !basicStatementBuilt) {
+            return basicAssemblyStatement;
+         }
+         return buildBasicStatementList().toString(mars.venus.NumberDisplayBaseChooser.DECIMAL,
+            mars.venus.NumberDisplayBaseChooser.DECIMAL);
       }
     
     /**
@@ -499,16 +531,20 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      * @return The Basic Assembly statement.
      **/   
        public String getPrintableBasicAssemblyStatement() {
-         return basicStatementList.toString();
+         return buildBasicStatementList().toString();
       }
    	 
     /**
      * Produces binary machine statement as 32 character string, all '0' and '1' chars.
-     * @return The String version of 32-bit binary machine code.
+     * @return The String version of 32-bit binary machine code, or null if it has not
+     * been built from the basic statement.
      **/
      
        public String getMachineStatement() {
-         return machineStatement;
+         if (!machineStatementBuilt && strippedTokenList != null) {
+            return null;
+         }
+         return Binary.intToBinaryString(binaryStatement);
       }
     
     /**
@@ -572,24 +608,92 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     
     //////////////////////////////////////////////////////////////////////////////
     //  Given operand (register or integer) and mask character ('f', 's', or 't'),
-    //  generate the correct sequence of bits and replace the mask with them.
-       private void insertBinaryCode(int value, char mask, ErrorList errors) {
-         int startPos = this.machineStatement.indexOf(mask);
-         int endPos = this.machineStatement.lastIndexOf(mask);
+    //  put the low order bits of the operand in the field of the machine code
+    //  marked by that character in the operation mask.
+       private void insertBinaryCode(String operationMask, int value, char mask, ErrorList errors) {
+         int startPos = operationMask.indexOf(mask);
+         int endPos = operationMask.lastIndexOf(mask);
          if (startPos == -1 || endPos == -1) { // should NEVER occur
             errors.add(new ErrorMessage(this.sourceMIPSprogram,this.sourceLine,0,
                    "INTERNAL ERROR: mismatch in number of operands in statement vs mask"));
             return;
          }
-         String bitString = Binary.intToBinaryString(value, endPos-startPos+1);
-         String state = this.machineStatement.substring(0, startPos) + bitString;
-         if (endPos < this.machineStatement.length()-1)
-            state = state + this.machineStatement.substring(endPos+1);
-         this.machineStatement = state;
+         int width = endPos-startPos+1;
+         int field = (width == 32) ? -1 : (1 << width) - 1;
+         int shift = operationMask.length()-1-endPos;
+         this.binaryStatement = (this.binaryStatement & ~(field << shift)) | ((value & field) << shift);
          return;
       } // insertBinaryCode()
    
    
+    //////////////////////////////////////////////////////////////////////////////
+   /*
+    *   Build the basic statement list for display.  A statement assembled from source is
+    *   rendered from its stripped token list, with the operand values computed by
+    *   buildBasicStatementFromBasicInstruction() in place of register names and labels.
+    *   One made from binary code is rendered from its instruction's format.
+    */
+       private BasicStatementList buildBasicStatementList() {
+         if (strippedTokenList == null) {
+            return buildBasicStatementListFromBinaryCode(binaryStatement, 
+               (operands == null) ? null : (BasicInstruction) instruction, operands, numOperands);
+         }
+         BasicStatementList statementList = new BasicStatementList();
+         if (!basicStatementBuilt) {
+            return statementList;
+         }
+         statementList.addString(strippedTokenList.get(0).getValue()+" "); // the operator
+         BasicInstructionFormat format = (instruction instanceof BasicInstruction) 
+                                         ? ((BasicInstruction)instruction).getInstructionFormat() : null;
+         int operand = 0;
+         for (int i=1; i<strippedTokenList.size(); i++) {
+            Token token = strippedTokenList.get(i);
+            TokenTypes tokenType = token.getType();
+            if (tokenType == TokenTypes.REGISTER_NUMBER) {
+               statementList.addString(token.getValue());
+               operand++;
+            } 
+            else if (tokenType == TokenTypes.REGISTER_NAME) {
+               statementList.addString("R" + operands[operand++]);
+            } 
+            else if (tokenType == TokenTypes.FP_REGISTER_NAME) {
+               statementList.addString("$f" + operands[operand++]);
+            } 
+            else if (tokenType == TokenTypes.IDENTIFIER) {
+               int address = operands[operand++];
+               if (format == BasicInstructionFormat.I_BRANCH_FORMAT) { 
+                  statementList.addValue(address); // relative, so a value
+               } 
+               else {
+                  if (format == BasicInstructionFormat.J_FORMAT && machineStatementBuilt) {
+                     // building the machine code made this a word address
+                     address = (address << 2) | (this.textAddress & 0xF0000000);
+                  }
+                  statementList.addAddress(address);
+               }
+            } 
+            else if (tokenType == TokenTypes.INTEGER_5 || tokenType == TokenTypes.INTEGER_16 ||
+                     tokenType == TokenTypes.INTEGER_16U || tokenType == TokenTypes.INTEGER_32) {
+               statementList.addValue(operands[operand++]);
+            } 
+            else {
+               statementList.addString(token.getValue());
+            }
+            // add separator if not at end of token list AND neither current nor 
+            // next token is a parenthesis
+            if ((i < strippedTokenList.size()-1)) {
+               TokenTypes nextTokenType = strippedTokenList.get(i+1).getType();
+               if (tokenType != TokenTypes.LEFT_PAREN  &&  tokenType != TokenTypes.RIGHT_PAREN  &&
+                   nextTokenType != TokenTypes.LEFT_PAREN && nextTokenType != TokenTypes.RIGHT_PAREN)
+               {
+                  statementList.addString(",");
+               }
+            }
+         }
+         return statementList;
+      } // buildBasicStatementList()
+   
+   
     //////////////////////////////////////////////////////////////////////////////
    /*
     *   Given a model BasicInstruction and the assembled (not source) operand array for a statement, 
@@ -690,7 +794,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
           public String toString() {
             int addressBase =  (Globals.getSettings().getBooleanSetting(Settings.DISPLAY_ADDRESSES_IN_HEX)) ? mars.venus.NumberDisplayBaseChooser.HEXADECIMAL : mars.venus.NumberDisplayBaseChooser.DECIMAL;
             int valueBase =  (Globals.getSettings().getBooleanSetting(Settings.DISPLAY_VALUES_IN_HEX)) ? mars.venus.NumberDisplayBaseChooser.HEXADECIMAL : mars.venus.NumberDisplayBaseChooser.DECIMAL;
-         	
+            return toString(addressBase, valueBase);
+         }
+      
+          String toString(int addressBase, int valueBase) {
             StringBuffer result = new StringBuffer();
             for (int i=0; i<list.size(); i++) {
                ListElement e = (ListElement) list.get(i);
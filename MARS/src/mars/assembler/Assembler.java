@@ -1,8 +1,12 @@
    package mars.assembler;
 
    import java.util.ArrayList;
+   import java.util.Arrays;
    import java.util.Collections;
    import java.util.Comparator;
+   import java.util.HashMap;
+   import java.util.concurrent.ForkJoinPool;
+   import java.util.concurrent.RecursiveAction;
 
    import mars.ErrorList;
    import mars.ErrorMessage;
@@ -10,9 +14,12 @@
    import mars.MIPSprogram;
    import mars.ProcessingException;
    import mars.ProgramStatement;
+   import mars.Settings;
    import mars.mips.hardware.AddressErrorException;
    import mars.mips.hardware.Memory;
+   import mars.mips.hardware.MemoryConfigurations;
    import mars.mips.instructions.BasicInstruction;
+   import mars.mips.instructions.BasicInstructionFormat;
    import mars.mips.instructions.ExtendedInstruction;
    import mars.mips.instructions.Instruction;
    import mars.util.Binary;
@@ -71,6 +78,15 @@
       private UserKernelAddressSpace dataAddress;
       private DataSegmentForwardReferences currentFileDataSegmentForwardReferences,
       	accumulatedDataSegmentForwardReferences;
+      private boolean relocatable; // assembling an object module, see assembleObject()
+      private HashMap imports; // name -> Token of labels used but not defined
+      private ArrayList dataReferences; // DataReference for each label operand of a data directive
+      private AssemblyPhaseListener phaseListener;
+   // The rest only in a worker of firstPassThenPlace(): what its file's first pass produced.
+      private DeferredStores deferredStores;
+      private ArrayList parsedStatements, localSymbols;
+      private MacroPool macroPool;
+      private int[] configuration;
    
    /**
     * Parse and generate machine code for the given MIPS program. It must have
@@ -123,6 +139,53 @@
          return this.assemble(programFiles, extendedAssemblerEnabled, warningsAreErrors);
       }
    
+   /**
+    * Assemble the given source files into a relocatable object module, to be
+    * combined with other modules by the Linker, rather than into a program ready
+    * to run. Labels used but not defined in these files are not errors; they are
+    * imported, and must be exported (declared .globl) by another module. A label
+    * declared .globl but not defined here is likewise taken to be imported. Since
+    * the address of a label is not known until linking, a pseudo-instruction
+    * may have a label operand only if its expansion passes the label on unchanged.
+    * Memory and the symbol tables are left as for assemble(), with imported labels
+    * at address 0.
+    * 
+    * @param tokenizedProgramFiles
+    *            An ArrayList of MIPSprogram objects, each produced from a
+    *            different source code file, representing the module source.
+    * @param extendedAssemblerEnabled
+    *            A boolean value that if true permits use of extended (pseudo)
+    *            instructions in the source code.
+    * @param warningsAreErrors
+    *            A boolean value - true means assembler warnings will be
+    *            considered errors and terminate the assemble.
+    * @return the ObjectModule, or null if incoming array list is null or empty.
+    * 
+    * @see Linker
+    **/
+      public ObjectModule assembleObject(ArrayList tokenizedProgramFiles, boolean extendedAssemblerEnabled,
+       	boolean warningsAreErrors) throws ProcessingException {
+         this.relocatable = true;
+         try {
+            if (this.assemble(tokenizedProgramFiles, extendedAssemblerEnabled, warningsAreErrors) == null)
+               return null;
+         } 
+         finally {
+            this.relocatable = false;
+         }
+         return this.buildObjectModule(tokenizedProgramFiles);
+      }
+   
+   /**
+    * Set the listener to be told as each phase of assembly begins.
+    * 
+    * @param listener
+    *            the AssemblyPhaseListener, or null for none.
+    */
+      public void setPhaseListener(AssemblyPhaseListener listener) {
+         this.phaseListener = listener;
+      }
+   
    /**
     * Get list of assembler errors and warnings
     * 
@@ -189,6 +252,8 @@
          dataAddress = new UserKernelAddressSpace(Memory.dataBaseAddress,
             Memory.kernelDataBaseAddress);
          externAddress = Memory.externBaseAddress;
+         imports = new HashMap();
+         dataReferences = new ArrayList();
          currentFileDataSegmentForwardReferences = new DataSegmentForwardReferences();
          accumulatedDataSegmentForwardReferences = new DataSegmentForwardReferences();
          Globals.symbolTable.clear();
@@ -197,72 +262,23 @@
          this.errors = new ErrorList(); 
          if (Globals.debug)
             System.out.println("Assembler first pass begins:");
+         phaseBegins(AssemblyPhaseListener.FIRST_PASS);
       // PROCESS THE FIRST ASSEMBLY PASS FOR ALL SOURCE FILES BEFORE PROCEEDING
       // TO SECOND PASS. THIS ASSURES ALL SYMBOL TABLES ARE CORRECTLY BUILT.
       // THERE IS ONE GLOBAL SYMBOL TABLE (for identifiers declared .globl) PLUS
       // ONE LOCAL SYMBOL TABLE FOR EACH SOURCE FILE.
-         for (int fileIndex = 0; fileIndex < tokenizedProgramFiles.size(); fileIndex++) {
-            if (errors.errorLimitExceeded())
-               break;
-            this.fileCurrentlyBeingAssembled = (MIPSprogram) tokenizedProgramFiles.get(fileIndex); 
-         // List of labels declared ".globl". new list for each file assembled
-            this.globalDeclarationList = new TokenList();
-         // Parser begins by default in text segment until directed otherwise.
-            this.inDataSegment = false;
-         // Macro segment will be started by .macro directive
-            this.inMacroSegment = false;
-         // Default is to align data from directives on appropriate boundary (word, half, byte)
-         // This can be turned off for remainder of current data segment with ".align 0"
-            this.autoAlign = true;
-         // Default data directive is .word for 4 byte data items
-            this.dataDirective = Directives.WORD;
-         // Clear out (initialize) symbol table related structures.
-            fileCurrentlyBeingAssembled.getLocalSymbolTable().clear();
-            currentFileDataSegmentForwardReferences.clear();
-         // sourceList is an ArrayList of String objects, one per source line.
-         // tokenList is an ArrayList of TokenList objects, one per source line;
-         // each ArrayList in tokenList consists of Token objects.
-            ArrayList<SourceLine> sourceLineList = fileCurrentlyBeingAssembled.getSourceLineList();
-            ArrayList tokenList = fileCurrentlyBeingAssembled.getTokenList();
-            ArrayList parsedList = fileCurrentlyBeingAssembled.createParsedList();
-         // each file keeps its own macro definitions
-            MacroPool macroPool = fileCurrentlyBeingAssembled.createMacroPool();
-         // FIRST PASS OF ASSEMBLER VERIFIES SYNTAX, GENERATES SYMBOL TABLE,
-         // INITIALIZES DATA SEGMENT
-            ArrayList<ProgramStatement> statements;
-            for (int i = 0; i < tokenList.size(); i++) {
+         if (!relocatable && !Globals.debug // debug output follows the source
+               && placementPays(tokenizedProgramFiles, extendedAssemblerEnabled)) {
+            this.firstPassThenPlace(tokenizedProgramFiles, extendedAssemblerEnabled);
+         } 
+         else {
+            for (int fileIndex = 0; fileIndex < tokenizedProgramFiles.size(); fileIndex++) {
                if (errors.errorLimitExceeded())
-                  break; 
-               for (int z=0; z<((TokenList)tokenList.get(i)).size(); z++) { 
-                  Token t = ((TokenList) tokenList.get(i)).get(z);
-               	// record this token's original source program and line #. Differs from final, if .include used
-                  t.setOriginal(sourceLineList.get(i).getMIPSprogram(),sourceLineList.get(i).getLineNumber());
-               }           	
-               statements = this.parseLine((TokenList) tokenList.get(i),
-                  sourceLineList.get(i).getSource(), 
-                  sourceLineList.get(i).getLineNumber(), 
+                  break;
+               this.firstPass((MIPSprogram) tokenizedProgramFiles.get(fileIndex),
                   extendedAssemblerEnabled);
-               if (statements != null) {
-                  parsedList.addAll(statements);
-               }
             }
-            if (inMacroSegment) {
-               errors.add(new ErrorMessage(fileCurrentlyBeingAssembled,
-                  fileCurrentlyBeingAssembled.getLocalMacroPool().getCurrent().getFromLine(),
-                  0, "Macro started but not ended (no .end_macro directive)"));
-            }
-         // move ".globl" symbols from local symtab to global
-            this.transferGlobals();
-         // Attempt to resolve forward label references that were discovered in operand fields
-         // of data segment directives in current file. Those that are not resolved after this
-         // call are either references to global labels not seen yet, or are undefined.
-         // Cannot determine which until all files are parsed, so copy unresolved entries
-         // into accumulated list and clear out this one for re-use with the next source file.
-            currentFileDataSegmentForwardReferences.resolve(fileCurrentlyBeingAssembled
-               .getLocalSymbolTable());
-            accumulatedDataSegmentForwardReferences.add(currentFileDataSegmentForwardReferences);
-            currentFileDataSegmentForwardReferences.clear();
-         } // end of first-pass loop for each MIPSprogram
+         }
       
       
       
@@ -270,6 +286,13 @@
       // references from global symbol table. Those that remain unresolved are undefined
       // and require error message.
          accumulatedDataSegmentForwardReferences.resolve(Globals.symbolTable);
+         if (relocatable) {
+         // Those that remain are imported from other object modules, as are undefined
+         // labels used as instruction operands. Define them at 0 for the rest of the assembly.
+            importUndefinedLabels(tokenizedProgramFiles);
+            accumulatedDataSegmentForwardReferences.importUnresolved();
+            accumulatedDataSegmentForwardReferences.resolve(Globals.symbolTable);
+         }
          accumulatedDataSegmentForwardReferences.generateErrorMessages(errors);
       
       // Throw collection of errors accumulated through the first pass.
@@ -278,6 +301,7 @@
          }
          if (Globals.debug)
             System.out.println("Assembler second pass begins");
+         phaseBegins(AssemblyPhaseListener.SECOND_PASS);
       // SECOND PASS OF ASSEMBLER GENERATES BASIC ASSEMBLER THEN MACHINE CODE.
       // Generates basic assembler statements...
          for (int fileIndex = 0; fileIndex < tokenizedProgramFiles.size(); fileIndex++) {
@@ -325,18 +349,39 @@
                
                // ////////////////////////////////////////////////////////////////////////////
                // If we are using compact memory config and there is a compact expansion, use it
-                  ArrayList templateList;
+                  ArrayList templateList, compiledList;
                   if (compactTranslationCanBeApplied(statement)) {
                      templateList = inst.getCompactBasicIntructionTemplateList();
+                     compiledList = inst.getCompiledCompactTemplateList();
                   } 
                   else {
                      templateList = inst.getBasicIntructionTemplateList();
+                     compiledList = inst.getCompiledTemplateList();
                   }
                
                // subsequent ProgramStatement constructor needs the correct text segment address.
                   textAddress.set(statement.getAddress());
                // Will generate one basic instruction for each template in the list.
                   for (int instrNumber = 0; instrNumber < templateList.size(); instrNumber++) {
+                  // Only first generated instruction is linked to original source
+                     String source = (instrNumber == 0) ? statement.getSource() : "";
+                  // A compiled template builds the statement directly from the source
+                  // tokens.  It returns null in the rare cases string substitution is needed.
+                     ExpansionTemplate compiled = (compiledList == null) ? null
+                                                  : (ExpansionTemplate) compiledList.get(instrNumber);
+                     if (compiled != null) {
+                        if (compiled.isOmitted()) {
+                           continue;
+                        }
+                        ProgramStatement ps = compiled.expand(this.fileCurrentlyBeingAssembled,
+                           theTokenList, source, textAddress.get(), statement.getSourceLine());
+                        if (ps != null) {
+                           textAddress.increment(Instruction.INSTRUCTION_LENGTH);
+                           ps.buildBasicStatementFromBasicInstruction(errors);
+                           this.machineList.add(ps);
+                           continue;
+                        }
+                     }
                      String instruction = ExtendedInstruction.makeTemplateSubstitutions(
                         this.fileCurrentlyBeingAssembled,
                         (String) templateList.get(instrNumber), theTokenList);
@@ -359,10 +404,8 @@
                      ArrayList instrMatches = this.matchInstruction(newTokenList.get(0));
                      Instruction instr = OperandFormat.bestOperandMatch(newTokenList,
                         instrMatches);
-                  // Only first generated instruction is linked to original source
                      ProgramStatement ps = new ProgramStatement(
-                        this.fileCurrentlyBeingAssembled,
-                        (instrNumber == 0) ? statement.getSource() : "", newTokenList,
+                        this.fileCurrentlyBeingAssembled, source, newTokenList,
                         newTokenList, instr, textAddress.get(), statement.getSourceLine());
                      textAddress.increment(Instruction.INSTRUCTION_LENGTH);
                      ps.buildBasicStatementFromBasicInstruction(errors);
@@ -374,6 +417,7 @@
          }
          if (Globals.debug)
             System.out.println("Code generation begins");
+         phaseBegins(AssemblyPhaseListener.CODE_GENERATION);
       ///////////// THIRD MAJOR STEP IS PRODUCE MACHINE CODE FROM ASSEMBLY //////////
       // Generates machine code statements from the list of basic assembler statements
       // and writes the statement to memory.
@@ -412,9 +456,522 @@
          if (errors.errorsOccurred() || errors.warningsOccurred() && warningsAreErrors) {
             throw new ProcessingException(errors);
          }
+         phaseBegins(AssemblyPhaseListener.FINISHED);
          return this.machineList;
       } // assemble()
    
+   // //////////////////////////////////////////////////////////////////////
+   // First pass for one source file, placed at the current text and data addresses.
+      private void firstPass(MIPSprogram program, boolean extendedAssemblerEnabled) {
+         this.parseFile(program, extendedAssemblerEnabled);
+         this.finishFirstPass();
+      }
+   
+   // FIRST PASS OF ASSEMBLER VERIFIES SYNTAX, GENERATES SYMBOL TABLE,
+   // INITIALIZES DATA SEGMENT. Parses every line of the file.
+      private void parseFile(MIPSprogram program, boolean extendedAssemblerEnabled) {
+         this.fileCurrentlyBeingAssembled = program;
+      // List of labels declared ".globl". new list for each file assembled
+         this.globalDeclarationList = new TokenList();
+      // Parser begins by default in text segment until directed otherwise.
+         this.inDataSegment = false;
+      // Macro segment will be started by .macro directive
+         this.inMacroSegment = false;
+      // Default is to align data from directives on appropriate boundary (word, half, byte)
+      // This can be turned off for remainder of current data segment with ".align 0"
+         this.autoAlign = true;
+      // Default data directive is .word for 4 byte data items
+         this.dataDirective = Directives.WORD;
+      // Clear out (initialize) symbol table related structures.
+         fileCurrentlyBeingAssembled.getLocalSymbolTable().clear();
+         currentFileDataSegmentForwardReferences.clear();
+      // sourceList is an ArrayList of String objects, one per source line.
+      // tokenList is an ArrayList of TokenList objects, one per source line;
+      // each ArrayList in tokenList consists of Token objects.
+         ArrayList<SourceLine> sourceLineList = fileCurrentlyBeingAssembled.getSourceLineList();
+         ArrayList tokenList = fileCurrentlyBeingAssembled.getTokenList();
+         ArrayList parsedList = fileCurrentlyBeingAssembled.createParsedList();
+      // each file keeps its own macro definitions
+         MacroPool macroPool = fileCurrentlyBeingAssembled.createMacroPool();
+         ArrayList<ProgramStatement> statements;
+         for (int i = 0; i < tokenList.size(); i++) {
+            if (errors.errorLimitExceeded())
+               break; 
+            for (int z=0; z<((TokenList)tokenList.get(i)).size(); z++) { 
+               Token t = ((TokenList) tokenList.get(i)).get(z);
+            	// record this token's original source program and line #. Differs from final, if .include used
+               t.setOriginal(sourceLineList.get(i).getMIPSprogram(),sourceLineList.get(i).getLineNumber());
+            }           	
+            statements = this.parseLine((TokenList) tokenList.get(i),
+               sourceLineList.get(i).getSource(), 
+               sourceLineList.get(i).getLineNumber(), 
+               extendedAssemblerEnabled);
+            if (statements != null) {
+               parsedList.addAll(statements);
+            }
+         }
+         if (inMacroSegment) {
+            errors.add(new ErrorMessage(fileCurrentlyBeingAssembled,
+               fileCurrentlyBeingAssembled.getLocalMacroPool().getCurrent().getFromLine(),
+               0, "Macro started but not ended (no .end_macro directive)"));
+         }
+      }
+   
+   // Complete the first pass for the file just parsed.
+      private void finishFirstPass() {
+      // move ".globl" symbols from local symtab to global
+         this.transferGlobals();
+      // Attempt to resolve forward label references that were discovered in operand fields
+      // of data segment directives in current file. Those that are not resolved after this
+      // call are either references to global labels not seen yet, or are undefined.
+      // Cannot determine which until all files are parsed, so copy unresolved entries
+      // into accumulated list and clear out this one for re-use with the next source file.
+         currentFileDataSegmentForwardReferences.resolve(fileCurrentlyBeingAssembled
+            .getLocalSymbolTable());
+         accumulatedDataSegmentForwardReferences.add(currentFileDataSegmentForwardReferences);
+         currentFileDataSegmentForwardReferences.clear();
+      }
+   
+   // //////////////////////////////////////////////////////////////////////
+   // First pass with one worker per file.  Each worker parses its file as if it
+   // were the only one, starting at the segment base addresses and holding back
+   // its memory stores.  The files are then placed in order: a file's statements,
+   // labels, stores and forward references are moved to the addresses where a
+   // sequential pass would have put them.  A file that cannot be moved that way
+   // is simply parsed again in place.
+   //
+   // Since a worker's results do not depend on where its file lands, they are
+   // kept with the tokenized source in Globals.sourceCache, and a file that has
+   // not changed since the last assemble is only placed, not parsed.  Files that
+   // do need parsing are parsed in parallel.
+      private void firstPassThenPlace(ArrayList tokenizedProgramFiles,
+       		boolean extendedAssemblerEnabled) {
+         int[] configuration = firstPassConfiguration(extendedAssemblerEnabled);
+         Assembler[] parsers = new Assembler[tokenizedProgramFiles.size()];
+         ArrayList toParse = new ArrayList();
+         for (int i = 0; i < parsers.length; i++) {
+            SourceCache.TokenizedSource source = 
+               ((MIPSprogram) tokenizedProgramFiles.get(i)).getTokenizedSource();
+            Assembler cached = (source == null) ? null : source.getFirstPass();
+            if (cached != null && Arrays.equals(cached.configuration, configuration)) {
+               parsers[i] = cached;
+            } 
+            else {
+               parsers[i] = new Assembler();
+               toParse.add(Integer.valueOf(i));
+            }
+         }
+         if (toParse.size() > 1 && Runtime.getRuntime().availableProcessors() > 1) {
+            ForkJoinPool pool = new ForkJoinPool();
+            try {
+               pool.invoke(new FirstPassTask(parsers, tokenizedProgramFiles, toParse,
+                  extendedAssemblerEnabled, 0, toParse.size()));
+            } 
+            finally {
+               pool.shutdown();
+            }
+         } 
+         else {
+            for (int i = 0; i < toParse.size(); i++) {
+               int fileIndex = ((Integer) toParse.get(i)).intValue();
+               parsers[fileIndex].parseProvisionally(
+                  (MIPSprogram) tokenizedProgramFiles.get(fileIndex), extendedAssemblerEnabled);
+            }
+         }
+         for (int i = 0; i < toParse.size(); i++) {
+            int fileIndex = ((Integer) toParse.get(i)).intValue();
+            SourceCache.TokenizedSource source = 
+               ((MIPSprogram) tokenizedProgramFiles.get(fileIndex)).getTokenizedSource();
+            if (source != null && parsers[fileIndex].isPlaceable()) {
+               source.setFirstPass(parsers[fileIndex]);
+            }
+         }
+         for (int fileIndex = 0; fileIndex < parsers.length; fileIndex++) {
+            if (errors.errorLimitExceeded())
+               break;
+            MIPSprogram program = (MIPSprogram) tokenizedProgramFiles.get(fileIndex);
+            if (!this.placeFirstPass(parsers[fileIndex], program)) {
+               this.firstPass(program, extendedAssemblerEnabled);
+            }
+         }
+      }
+   
+   // Whether firstPassThenPlace() can beat the sequential first pass: only if files can
+   // be parsed in parallel or a cached first pass can be placed instead of parsed.
+   // Otherwise its provisional parse and moving of held back stores are pure overhead.
+      private static boolean placementPays(ArrayList tokenizedProgramFiles,
+       		boolean extendedAssemblerEnabled) {
+         if (tokenizedProgramFiles.size() > 1 && Runtime.getRuntime().availableProcessors() > 1) {
+            return true;
+         }
+         int[] configuration = null;
+         for (int i = 0; i < tokenizedProgramFiles.size(); i++) {
+            SourceCache.TokenizedSource source = 
+               ((MIPSprogram) tokenizedProgramFiles.get(i)).getTokenizedSource();
+            Assembler cached = (source == null) ? null : source.getFirstPass();
+            if (cached != null) {
+               if (configuration == null) {
+                  configuration = firstPassConfiguration(extendedAssemblerEnabled);
+               }
+               if (Arrays.equals(cached.configuration, configuration)) {
+                  return true;
+               }
+            }
+         }
+         return false;
+      }
+   
+   // Everything outside the source file that its first pass depends on.
+      private static int[] firstPassConfiguration(boolean extendedAssemblerEnabled) {
+         return new int[] { Memory.textBaseAddress, Memory.kernelTextBaseAddress,
+               Memory.dataBaseAddress, Memory.kernelDataBaseAddress,
+               Globals.memory.usingCompactMemoryConfiguration() ? 1 : 0,
+               Globals.getSettings().getBooleanSetting(Settings.DELAYED_BRANCHING_ENABLED) ? 1 : 0,
+               Globals.getSettings().getBooleanSetting(Settings.BARE_MACHINE_ENABLED) ? 1 : 0,
+               extendedAssemblerEnabled ? 1 : 0 };
+      }
+   
+   // Worker side of firstPassThenPlace().  Never throws; anything that goes
+   // wrong leaves the file to be parsed again in place.  The worker keeps what
+   // the first pass left in the program, so that it can be placed in another.
+      private void parseProvisionally(MIPSprogram program, boolean extendedAssemblerEnabled) {
+         this.textAddress = new UserKernelAddressSpace(Memory.textBaseAddress,
+            Memory.kernelTextBaseAddress);
+         this.dataAddress = new UserKernelAddressSpace(Memory.dataBaseAddress,
+            Memory.kernelDataBaseAddress);
+         this.currentFileDataSegmentForwardReferences = new DataSegmentForwardReferences();
+         this.errors = new ErrorList();
+         this.deferredStores = new DeferredStores();
+         this.configuration = firstPassConfiguration(extendedAssemblerEnabled);
+         try {
+            this.parseFile(program, extendedAssemblerEnabled);
+         } 
+            catch (RuntimeException e) {
+               this.deferredStores.reparse = true;
+               return;
+            }
+         this.parsedStatements = program.getParsedList();
+         this.localSymbols = program.getLocalSymbolTable().getAllSymbols();
+         this.macroPool = program.getLocalMacroPool();
+      }
+   
+   // Whether the provisional first pass of this worker can be moved at all.
+      private boolean isPlaceable() {
+         return !deferredStores.reparse && !errors.errorsOccurred();
+      }
+   
+   // Places the provisional first pass of the given worker in the program, after
+   // the files already assembled.  The worker itself is left unchanged.  Returns
+   // false, having changed nothing the sequential pass would not overwrite, if
+   // the file must be parsed again.
+      private boolean placeFirstPass(Assembler parser, MIPSprogram program) {
+         DeferredStores stores = parser.deferredStores;
+         if (!parser.isPlaceable()
+         	|| textAddress.currentAddressSpace != textAddress.USER
+         	|| dataAddress.currentAddressSpace != dataAddress.USER
+         	|| parser.textAddress.overlaps(parser.dataAddress)) {
+            return false;
+         }
+         int[] textShift = textAddress.getDisplacements();
+         int[] dataShift = dataAddress.getDisplacements();
+         for (int space = 0; space < dataShift.length; space++) {
+         // data was aligned at provisional addresses, so the shift must keep that alignment
+            if (dataShift[space] % stores.alignment[space] != 0) {
+               return false;
+            }
+         }
+         try {
+            for (int i = 0; i < stores.size(); i++) {
+               DeferredStore store = stores.get(i);
+               int address = relocate(parser, store.address, textShift, dataShift);
+               if (store.length == DataTypes.DOUBLE_SIZE) {
+                  Globals.memory.setDouble(address, store.doubleValue);
+               } 
+               else {
+                  Globals.memory.set(address, (store.isAddress) 
+                     ? relocate(parser, store.value, textShift, dataShift) 
+                     : store.value, store.length);
+               }
+            }
+         } 
+            catch (AddressErrorException e) {
+               return false;
+            }
+         SymbolTable localSymbolTable = program.getLocalSymbolTable();
+         localSymbolTable.clear();
+         for (int i = 0; i < parser.localSymbols.size(); i++) {
+            Symbol symbol = (Symbol) parser.localSymbols.get(i);
+            localSymbolTable.addSymbol(new Symbol(symbol.getName(), 
+               relocate(parser, symbol.getAddress(), textShift, dataShift), symbol.getType()));
+         }
+         ArrayList parsedList = program.createParsedList();
+         for (int i = 0; i < parser.parsedStatements.size(); i++) {
+            ProgramStatement statement = (ProgramStatement) parser.parsedStatements.get(i);
+            parsedList.add(new ProgramStatement(statement, program, 
+               relocate(parser, statement.getAddress(), textShift, dataShift)));
+         }
+         program.setLocalMacroPool(parser.macroPool);
+         textAddress.advance(parser.textAddress, textShift);
+         dataAddress.advance(parser.dataAddress, dataShift);
+         ArrayList warnings = parser.errors.getErrorMessages();
+         for (int i = 0; i < warnings.size(); i++) {
+            errors.add((ErrorMessage) warnings.get(i));
+         }
+         this.fileCurrentlyBeingAssembled = program;
+         this.globalDeclarationList = parser.globalDeclarationList;
+         this.inDataSegment = parser.inDataSegment;
+         this.inMacroSegment = parser.inMacroSegment;
+         this.autoAlign = parser.autoAlign;
+         this.currentDirective = parser.currentDirective;
+         this.dataDirective = parser.dataDirective;
+         ArrayList references = parser.currentFileDataSegmentForwardReferences.forwardReferenceList;
+         for (int i = 0; i < references.size(); i++) {
+            DataSegmentForwardReferences.DataSegmentForwardReference entry = 
+               (DataSegmentForwardReferences.DataSegmentForwardReference) references.get(i);
+            currentFileDataSegmentForwardReferences.add(
+               relocate(parser, entry.patchAddress, textShift, dataShift), entry.length, entry.token);
+         }
+      // A sequential pass would have used globals of the files before this one
+      // right away, so try them before the labels of this file.
+         currentFileDataSegmentForwardReferences.resolve(Globals.symbolTable);
+         this.finishFirstPass();
+         return true;
+      }
+   
+   // Maps an address of a worker's provisional first pass to its final address.
+      private static int relocate(Assembler parser, int address, int[] textShift, int[] dataShift) {
+         for (int space = 0; space < textShift.length; space++) {
+            if (parser.textAddress.contains(space, address)) {
+               return address + textShift[space];
+            }
+            if (parser.dataAddress.contains(space, address)) {
+               return address + dataShift[space];
+            }
+         }
+         return address;
+      }
+   
+   // First pass memory writes go through these two, so that a worker of
+   // firstPassThenPlace() can hold them back until its file is placed.
+      private void storeInMemory(int address, int value, int lengthInBytes, boolean isAddress)
+       	throws AddressErrorException {
+         if (deferredStores == null) {
+            Globals.memory.set(address, value, lengthInBytes);
+         } 
+         else {
+            deferredStores.add(new DeferredStore(address, value, lengthInBytes, isAddress));
+         }
+      }
+   
+      private void storeDoubleInMemory(int address, double value) throws AddressErrorException {
+         if (deferredStores == null) {
+            Globals.memory.setDouble(address, value);
+         } 
+         else {
+            DeferredStore store = new DeferredStore(address, 0, DataTypes.DOUBLE_SIZE, false);
+            store.doubleValue = value;
+            deferredStores.add(store);
+         }
+      }
+   
+      private void phaseBegins(int phase) {
+         if (phaseListener != null) {
+            phaseListener.phaseBegins(phase);
+         }
+      }
+   
+   // //////////////////////////////////////////////////////////////////////
+   // When assembling an object module, labels used as instruction operands but
+   // not defined in any of the source files are imported from other modules.
+   // A pseudo-instruction label operand is checked to be passed on unchanged by
+   // the expansion, because only then will it get a relocation.
+      private void importUndefinedLabels(ArrayList programs) {
+         for (int fileIndex = 0; fileIndex < programs.size(); fileIndex++) {
+            MIPSprogram program = (MIPSprogram) programs.get(fileIndex);
+            ArrayList parsedList = program.getParsedList();
+            for (int i = 0; i < parsedList.size(); i++) {
+               ProgramStatement statement = (ProgramStatement) parsedList.get(i);
+               TokenList tokens = statement.getStrippedTokenList();
+               for (int j = 1; j < tokens.size(); j++) {
+                  Token token = tokens.get(j);
+                  if (token.getType() != TokenTypes.IDENTIFIER)
+                     continue;
+                  if (statement.getInstruction() instanceof ExtendedInstruction
+                  	&& !expansionUsesLabel((ExtendedInstruction) statement.getInstruction())) {
+                     errors.add(new ErrorMessage(program, token.getSourceLine(), token.getStartPos(),
+                        "\"" + token.getValue() + "\" cannot be relocated: this pseudo-instruction"
+                        + " does not permit a label operand in an object module"));
+                  } 
+                  else if (program.getLocalSymbolTable().getAddressLocalOrGlobal(token.getValue())
+                  	== SymbolTable.NOT_FOUND) {
+                     addImport(token);
+                  }
+               }
+            }
+         }
+      }
+   
+   // Returns true if a template of the pseudo-instruction passes its label operand on (LAB).
+      private boolean expansionUsesLabel(ExtendedInstruction instruction) {
+         ArrayList templates = instruction.getBasicIntructionTemplateList();
+         for (int i = 0; i < templates.size(); i++) {
+            if (((String) templates.get(i)).indexOf("LAB") >= 0)
+               return true;
+         }
+         return false;
+      }
+   
+   // Define an imported label in the global symbol table, at address 0.
+      private void addImport(Token token) {
+         if (!imports.containsKey(token.getValue())) {
+            imports.put(token.getValue(), token);
+            Globals.symbolTable.addSymbol(new Symbol(token.getValue(), 0, Symbol.TEXT_SYMBOL));
+         }
+      }
+   
+   // //////////////////////////////////////////////////////////////////////
+   // Build the object module from the assembled program: section sizes, text
+   // statements, data segment contents, labels, and a relocation for each label
+   // operand of an instruction or data directive.
+      private ObjectModule buildObjectModule(ArrayList programs) {
+         ObjectModule module = new ObjectModule(MemoryConfigurations.getCurrentConfiguration()
+            .getConfigurationIdentifier());
+         module.size[ObjectModule.TEXT] = textAddress.getExtent(textAddress.USER);
+         module.size[ObjectModule.KTEXT] = textAddress.getExtent(textAddress.KERNEL);
+         module.size[ObjectModule.DATA] = dataAddress.getExtent(dataAddress.USER);
+         module.size[ObjectModule.KDATA] = dataAddress.getExtent(dataAddress.KERNEL);
+         module.size[ObjectModule.EXTERN] = externAddress - Memory.externBaseAddress;
+         HashMap<MIPSprogram, Integer> programIndex = new HashMap<MIPSprogram, Integer>();
+         for (int i = 0; i < programs.size(); i++) {
+            MIPSprogram program = (MIPSprogram) programs.get(i);
+            programIndex.put(program, Integer.valueOf(i));
+            module.filenames.add(program.getFilename());
+            addDefinitions(module, program.getLocalSymbolTable(), i);
+         }
+         addDefinitions(module, Globals.symbolTable, -1);
+         HashMap<Instruction, Integer> instructionIndex = new HashMap<Instruction, Integer>();
+         ArrayList instructionList = Globals.instructionSet.getInstructionList();
+         for (int i = 0; i < instructionList.size(); i++) {
+            instructionIndex.put((Instruction) instructionList.get(i), Integer.valueOf(i));
+         }
+         for (int i = 0; i < this.machineList.size(); i++) {
+            ProgramStatement statement = (ProgramStatement) this.machineList.get(i);
+            Integer index = programIndex.get(statement.getSourceMIPSprogram());
+            ObjectModule.Statement entry = new ObjectModule.Statement();
+            entry.section = module.getSection(statement.getAddress());
+            entry.offset = module.getOffset(entry.section, statement.getAddress());
+            entry.instruction = instructionIndex.get(statement.getInstruction()).intValue();
+            entry.word = statement.getBinaryStatement();
+            entry.file = (index == null) ? -1 : index.intValue();
+            entry.line = statement.getSourceLine();
+            entry.source = statement.getSource();
+            entry.operands = (int[]) statement.getOperands().clone();
+            module.statements.add(entry);
+            addInstructionRelocations(module, statement, entry);
+         }
+         module.data[ObjectModule.DATA] = readWords(Memory.dataBaseAddress,
+            module.size[ObjectModule.DATA]);
+         module.data[ObjectModule.KDATA] = readWords(Memory.kernelDataBaseAddress,
+            module.size[ObjectModule.KDATA]);
+         for (int i = 0; i < dataReferences.size(); i++) {
+            DataReference reference = (DataReference) dataReferences.get(i);
+            Integer index = (Integer) programIndex.get(reference.program);
+            ObjectModule.Relocation relocation = new ObjectModule.Relocation();
+            relocation.section = module.getSection(reference.address);
+            relocation.offset = module.getOffset(relocation.section, reference.address);
+            relocation.kind = ObjectModule.DATA_ADDRESS;
+            relocation.width = reference.length;
+            relocation.file = index.intValue();
+            relocation.line = reference.token.getSourceLine();
+            addRelocation(module, relocation, reference.program, reference.token.getValue());
+         }
+         return module;
+      }
+   
+   // Add the labels of a symbol table to the module. Imported labels are left out.
+      private void addDefinitions(ObjectModule module, SymbolTable table, int file) {
+         ArrayList symbols = table.getAllSymbols();
+         for (int i = 0; i < symbols.size(); i++) {
+            Symbol symbol = (Symbol) symbols.get(i);
+            if (file < 0 && imports.containsKey(symbol.getName()))
+               continue;
+            ObjectModule.Definition definition = new ObjectModule.Definition();
+            definition.name = symbol.getName();
+            definition.section = module.getSection(symbol.getAddress());
+            definition.offset = module.getOffset(definition.section, symbol.getAddress());
+            definition.isData = symbol.getType();
+            definition.file = file;
+            module.symbols.add(definition);
+         }
+      }
+   
+   // Add a relocation for each label operand of the statement. Operands are
+   // counted as in ProgramStatement.buildBasicStatementFromBasicInstruction(), and
+   // each one goes in the bits of the operation mask marked by its operand letter.
+      private void addInstructionRelocations(ObjectModule module, ProgramStatement statement,
+      	ObjectModule.Statement entry) {
+         BasicInstruction instruction = (BasicInstruction) statement.getInstruction();
+         String mask = instruction.getOperationMask();
+         TokenList tokens = statement.getStrippedTokenList();
+         int operand = 0;
+         for (int i = 1; i < tokens.size(); i++) {
+            TokenTypes type = tokens.get(i).getType();
+            if (type == TokenTypes.IDENTIFIER) {
+               char letter = Instruction.operandMask[operand];
+               ObjectModule.Relocation relocation = new ObjectModule.Relocation();
+               relocation.section = entry.section;
+               relocation.offset = entry.offset;
+               if (instruction.getInstructionFormat() == BasicInstructionFormat.I_BRANCH_FORMAT)
+                  relocation.kind = ObjectModule.BRANCH;
+               else if (instruction.getInstructionFormat() == BasicInstructionFormat.J_FORMAT)
+                  relocation.kind = ObjectModule.JUMP;
+               else
+                  relocation.kind = ObjectModule.ABSOLUTE;
+               relocation.shift = Instruction.INSTRUCTION_LENGTH_BITS - 1 - mask.lastIndexOf(letter);
+               relocation.width = mask.lastIndexOf(letter) - mask.indexOf(letter) + 1;
+               relocation.operand = operand;
+               relocation.file = entry.file;
+               relocation.line = entry.line;
+               addRelocation(module, relocation, statement.getSourceMIPSprogram(),
+                  tokens.get(i).getValue());
+            }
+            if (type == TokenTypes.IDENTIFIER || type == TokenTypes.REGISTER_NUMBER
+            	|| type == TokenTypes.REGISTER_NAME || type == TokenTypes.FP_REGISTER_NAME
+            	|| type == TokenTypes.INTEGER_5 || type == TokenTypes.INTEGER_16
+            	|| type == TokenTypes.INTEGER_16U || type == TokenTypes.INTEGER_32) {
+               operand++;
+            }
+         }
+      }
+   
+   // Set the target of a relocation and add it to the module. A label local to the
+   // program is targeted by its place in the module, others by name.
+      private void addRelocation(ObjectModule module, ObjectModule.Relocation relocation,
+      	MIPSprogram program, String label) {
+         Symbol symbol = program.getLocalSymbolTable().getSymbol(label);
+         if (symbol != null) {
+            relocation.targetSection = module.getSection(symbol.getAddress());
+            relocation.targetOffset = module.getOffset(relocation.targetSection, symbol.getAddress());
+         } 
+         else {
+            relocation.name = label;
+         }
+         module.relocations.add(relocation);
+      }
+   
+   // Read the initialized contents of a data segment, given its length in bytes.
+      private int[] readWords(int address, int length) {
+         int[] words = new int[(length + Memory.WORD_LENGTH_BYTES - 1) / Memory.WORD_LENGTH_BYTES];
+         for (int i = 0; i < words.length; i++) {
+            try {
+               words[i] = Globals.memory.getRawWord(address + i * Memory.WORD_LENGTH_BYTES);
+            } 
+               catch (AddressErrorException e) {
+               } // cannot happen, address is word aligned
+         }
+         return words;
+      }
+   
    // //////////////////////////////////////////////////////////////////////
    // Will check for duplicate text addresses, which can happen inadvertantly when using
    // operand on .text directive. Will generate error message for each one that occurs.
@@ -463,7 +1020,7 @@
             detectLabels(tokens, macroPool.getCurrent());
          } 
          else {
-            stripLabels(tokens);
+            tokens = stripLabels(tokens, tokenList);
          }
          if (tokens.isEmpty())
             return null;
@@ -517,9 +1074,19 @@
             //                }
                for (int i = macro.getFromLine() + 1; i < macro.getToLine(); i++) {
                  
-                  String substituted = macro.getSubstitutedLine(i, tokens, counter, errors);
-                  TokenList tokenList2 = fileCurrentlyBeingAssembled.getTokenizer().tokenizeLine(
-                     i, substituted, errors);
+                  // Splice the arguments into the body line's tokens when that gives the same
+                  // result as substituting them into its text and tokenizing that.
+                  String substituted;
+                  TokenList tokenList2 = macro.getSubstitutedTokens(i, tokens, counter,
+                     fileCurrentlyBeingAssembled.getTokenizer());
+                  if (tokenList2 != null) {
+                     substituted = tokenList2.getProcessedLine();
+                  } 
+                  else {
+                     substituted = macro.getSubstitutedLine(i, tokens, counter, errors);
+                     tokenList2 = fileCurrentlyBeingAssembled.getTokenizer().tokenizeLine(
+                        i, substituted, errors);
+                  }
                
                   // If token list getProcessedLine() is not empty, then .eqv was performed and it contains the modified source.
                	// Put it into the line to be parsed, so it will be displayed properly in text segment display. DPS 23 Jan 2013
@@ -628,32 +1195,39 @@
    
    // //////////////////////////////////////////////////////////////////////////////////
    // Pre-process the token list for a statement by stripping off any comment.
-   // NOTE: the ArrayList parameter is not modified; a new one is cloned and
-   // returned.
+   // NOTE: the ArrayList parameter is not modified; if there is a comment, a new
+   // one is cloned and returned.  Otherwise the parameter itself is returned, so
+   // a statement with nothing to strip shares one list for its original and
+   // stripped tokens.
       private TokenList stripComment(TokenList tokenList) {
          if (tokenList.isEmpty())
             return tokenList;
-         TokenList tokens = (TokenList) tokenList.clone();
       // If there is a comment, strip it off.
-         int last = tokens.size() - 1;
-         if (tokens.get(last).getType() == TokenTypes.COMMENT) {
-            tokens.remove(last);
+         int last = tokenList.size() - 1;
+         if (tokenList.get(last).getType() != TokenTypes.COMMENT) {
+            return tokenList;
          }
+         TokenList tokens = (TokenList) tokenList.clone();
+         tokens.remove(last);
          return tokens;
       } // stripComment()
    
    /**
     * Pre-process the token list for a statement by stripping off any label, if
     * either are present. Any label definition will be recorded in the symbol
-    * table. NOTE: the ArrayList parameter will be modified.
+    * table. NOTE: the ArrayList parameter will be modified unless it is the
+    * original token list, which is cloned first.
     */
-      private void stripLabels(TokenList tokens) {
+      private TokenList stripLabels(TokenList tokens, TokenList original) {
       // If there is a label, handle it here and strip it off.
          boolean thereWasLabel = this.parseAndRecordLabel(tokens);
          if (thereWasLabel) {
+            if (tokens == original)
+               tokens = (TokenList) original.clone();
             tokens.remove(0); // Remove the IDENTIFIER.
             tokens.remove(0); // Remove the COLON, shifted to 0 by previous remove
          }
+         return tokens;
       }
    
    // //////////////////////////////////////////////////////////////////////////////////
@@ -763,6 +1337,8 @@
             this.dataAddress.setAddressSpace((direct == Directives.DATA) ? this.dataAddress.USER
                : this.dataAddress.KERNEL);
             if (tokens.size() > 1 && TokenTypes.isIntegerTokenType(tokens.get(1).getType())) {
+               if (deferredStores != null)
+                  deferredStores.reparse = true;
                this.dataAddress.set(Binary.stringToInt(tokens.get(1).getValue())); // KENV 1/6/05
             }
          } 
@@ -771,6 +1347,8 @@
             this.textAddress.setAddressSpace((direct == Directives.TEXT) ? this.textAddress.USER
                : this.textAddress.KERNEL);
             if (tokens.size() > 1 && TokenTypes.isIntegerTokenType(tokens.get(1).getType())) {
+               if (deferredStores != null)
+                  deferredStores.reparse = true;
                this.textAddress.set(Binary.stringToInt(tokens.get(1).getValue())); // KENV 1/6/05
             }
          } 
@@ -848,6 +1426,10 @@
                return;
             }
             int size = Binary.stringToInt(tokens.get(2).getValue());
+            if (deferredStores != null) { // the global symbol table is not ours to change
+               deferredStores.reparse = true;
+               return;
+            }
          // If label already in global symtab, do nothing. If not, add it right now.
             if (Globals.symbolTable.getAddress(tokens.get(1).getValue()) == SymbolTable.NOT_FOUND) {
                Globals.symbolTable.addSymbol(tokens.get(1), this.externAddress,
@@ -900,6 +1482,9 @@
             Symbol symtabEntry = fileCurrentlyBeingAssembled.getLocalSymbolTable().getSymbol(
                label.getValue());
             if (symtabEntry == null) {
+               if (relocatable) {
+                  continue; // imported from another object module
+               }
                errors.add(new ErrorMessage(fileCurrentlyBeingAssembled, label.getSourceLine(),
                   label.getStartPos(), "\"" + label.getValue()
                   		+ "\" declared global label but not defined."));
@@ -1099,7 +1684,7 @@
             ********/
             else {
                try {
-                  Globals.memory.set(this.textAddress.get(), value, lengthInBytes);
+                  storeInMemory(this.textAddress.get(), value, lengthInBytes, false);
                } 
                   catch (AddressErrorException e) {
                      errors.add(new ErrorMessage(token.getSourceMIPSprogram(),
@@ -1115,13 +1700,18 @@
             if (this.inDataSegment) {
                int value = fileCurrentlyBeingAssembled.getLocalSymbolTable()
                   .getAddressLocalOrGlobal(token.getValue());
+               int dataAddress;
                if (value == SymbolTable.NOT_FOUND) {
                // Record value 0 for now, then set up backpatch entry
-                  int dataAddress = writeToDataSegment(0, lengthInBytes, token, errors);
+                  dataAddress = writeToDataSegment(0, lengthInBytes, token, errors);
                   currentFileDataSegmentForwardReferences.add(dataAddress, lengthInBytes, token);
                } 
                else { // label already defined, so write its address
-                  writeToDataSegment(value, lengthInBytes, token, errors);
+                  dataAddress = writeToDataSegment(value, lengthInBytes, token, errors, true);
+               }
+               if (relocatable) {
+                  dataReferences.add(new DataReference(fileCurrentlyBeingAssembled, dataAddress,
+                     lengthInBytes, token));
                }
             } // Data segment check done previously, so this "else" will not be.
             // See 11/20/06 note above.
@@ -1242,8 +1832,8 @@
                      }
                   }
                   try {
-                     Globals.memory.set(this.dataAddress.get(), (int) theChar,
-                        DataTypes.CHAR_SIZE);
+                     storeInMemory(this.dataAddress.get(), (int) theChar,
+                        DataTypes.CHAR_SIZE, false);
                   } 
                      catch (AddressErrorException e) {
                         errors.add(new ErrorMessage(token.getSourceMIPSprogram(), token
@@ -1254,7 +1844,7 @@
                }
                if (direct == Directives.ASCIIZ) {
                   try {
-                     Globals.memory.set(this.dataAddress.get(), 0, DataTypes.CHAR_SIZE);
+                     storeInMemory(this.dataAddress.get(), 0, DataTypes.CHAR_SIZE, false);
                   } 
                      catch (AddressErrorException e) {
                         errors.add(new ErrorMessage(token.getSourceMIPSprogram(), token
@@ -1286,11 +1876,17 @@
    // all the integer types plus float (caller is responsible for doing floatToIntBits).
    // Returns address at which the value was stored.
       private int writeToDataSegment(int value, int lengthInBytes, Token token, ErrorList errors) {
+         return writeToDataSegment(value, lengthInBytes, token, errors, false);
+      }
+   
+   // Same, where isAddress tells whether value is the address of a label.
+      private int writeToDataSegment(int value, int lengthInBytes, Token token, ErrorList errors,
+       	boolean isAddress) {
          if (this.autoAlign) {
             this.dataAddress.set(this.alignToBoundary(this.dataAddress.get(), lengthInBytes));
          }
          try {
-            Globals.memory.set(this.dataAddress.get(), value, lengthInBytes);
+            storeInMemory(this.dataAddress.get(), value, lengthInBytes, isAddress);
          } 
             catch (AddressErrorException e) {
                errors.add(new ErrorMessage(token.getSourceMIPSprogram(), token.getSourceLine(), token
@@ -1314,7 +1910,7 @@
             this.dataAddress.set(this.alignToBoundary(this.dataAddress.get(), lengthInBytes));
          }
          try {
-            Globals.memory.setDouble(this.dataAddress.get(), value);
+            storeDoubleInMemory(this.dataAddress.get(), value);
          } 
             catch (AddressErrorException e) {
                errors.add(new ErrorMessage(token.getSourceMIPSprogram(), token.getSourceLine(), token
@@ -1331,6 +1927,9 @@
    // For instance if args are 6 and 4, returns 8 (next multiple of 4 higher than 6).
    // NOTE: it will fix any symbol table entries for this address too. See else part.
       private int alignToBoundary(int address, int byteBoundary) {
+         if (deferredStores != null) {
+            deferredStores.aligned(dataAddress.currentAddressSpace, byteBoundary);
+         }
          int remainder = address % byteBoundary;
          if (remainder == 0) {
             return address;
@@ -1377,6 +1976,7 @@
    // Instantiate one for data segment and one for text segment.
       private class UserKernelAddressSpace {
          int[] address;
+         int[] base, extent; // extent is highest address reached, relative to base
          int currentAddressSpace;
          private final int USER = 0, KERNEL = 1;
       
@@ -1385,6 +1985,8 @@
             address = new int[2];
             address[USER] = userBase;
             address[KERNEL] = kernelBase;
+            base = new int[] { userBase, kernelBase };
+            extent = new int[2];
             currentAddressSpace = USER;
          }
       
@@ -1394,10 +1996,54 @@
       
          private void set(int value) {
             address[currentAddressSpace] = value;
+            extend();
          }
       
          private void increment(int increment) {
             address[currentAddressSpace] += increment;
+            extend();
+         }
+      
+         private void extend() {
+            extent[currentAddressSpace] = Math.max(extent[currentAddressSpace],
+               address[currentAddressSpace] - base[currentAddressSpace]);
+         }
+      
+         private int getExtent(int addressSpace) {
+            return extent[addressSpace];
+         }
+      
+      // Whether the given address is within the part of the address space reached so far.
+         private boolean contains(int addressSpace, int address) {
+            int offset = address - base[addressSpace];
+            return offset >= 0 && offset <= extent[addressSpace];
+         }
+      
+      // Whether any two of the ranges reached in this and the other object overlap.
+         private boolean overlaps(UserKernelAddressSpace other) {
+            UserKernelAddressSpace[] spaces = { this, this, other, other };
+            for (int i = 0; i < spaces.length; i++) {
+               for (int j = 0; j < spaces.length; j++) {
+                  if (i != j && spaces[i].contains(i % 2, spaces[j].base[j % 2])) {
+                     return true;
+                  }
+               }
+            }
+            return false;
+         }
+      
+      // How far each current address is past its base, indexed by address space.
+         private int[] getDisplacements() {
+            return new int[] { address[USER] - base[USER], address[KERNEL] - base[KERNEL] };
+         }
+      
+      // Continue where the other object, displaced by the given amounts, left off.
+         private void advance(UserKernelAddressSpace placed, int[] displacements) {
+            for (int space = USER; space <= KERNEL; space++) {
+               address[space] = placed.address[space] + displacements[space];
+               extent[space] = Math.max(extent[space], placed.extent[space] + displacements[space]);
+            }
+            currentAddressSpace = placed.currentAddressSpace;
          }
       
          private void setAddressSpace(int addressSpace) {
@@ -1486,6 +2132,14 @@
             return count;
          }
       
+      // When assembling an object module, remaining list entries are to labels
+      // imported from other modules.
+         private void importUnresolved() {
+            for (int i = 0; i < forwardReferenceList.size(); i++) {
+               addImport(((DataSegmentForwardReference) forwardReferenceList.get(i)).token);
+            }
+         }
+      
       // Call this when you are confident that remaining list entries are to
       // undefined labels.
          private void generateErrorMessages(ErrorList errors) {
@@ -1512,4 +2166,99 @@
          }
       
       }
+   
+   // //////////////////////////////////////////////////////////////////////////
+   // Runs parseProvisionally() for a range of the source files to parse, given
+   // by their indexes, splitting the range in halves until each task has one.
+      private static class FirstPassTask extends RecursiveAction {
+         private static final long serialVersionUID = 1L;
+         private final Assembler[] parsers;
+         private final ArrayList programs, toParse;
+         private final boolean extendedAssemblerEnabled;
+         private final int from, to;
+      
+         private FirstPassTask(Assembler[] parsers, ArrayList programs, ArrayList toParse,
+          		boolean extendedAssemblerEnabled, int from, int to) {
+            this.parsers = parsers;
+            this.programs = programs;
+            this.toParse = toParse;
+            this.extendedAssemblerEnabled = extendedAssemblerEnabled;
+            this.from = from;
+            this.to = to;
+         }
+      
+         protected void compute() {
+            if (to - from == 1) {
+               int fileIndex = ((Integer) toParse.get(from)).intValue();
+               parsers[fileIndex].parseProvisionally((MIPSprogram) programs.get(fileIndex),
+                  extendedAssemblerEnabled);
+            } 
+            else {
+               int middle = (from + to) >>> 1;
+               invokeAll(new FirstPassTask(parsers, programs, toParse, extendedAssemblerEnabled,
+                  from, middle), new FirstPassTask(parsers, programs, toParse,
+                  extendedAssemblerEnabled, middle, to));
+            }
+         }
+      }
+   
+   // //////////////////////////////////////////////////////////////////////////
+   // Memory writes held back by a worker of firstPassThenPlace(), along with
+   // what it takes to decide whether they can be moved.  The alignment for
+   // each data address space is the largest boundary data was aligned on.
+      private class DeferredStores {
+         private ArrayList list = new ArrayList();
+         private int[] alignment = { 1, 1 };
+         private boolean reparse; // file uses something that depends on where it is placed
+      
+         private void add(DeferredStore store) {
+            list.add(store);
+         }
+      
+         private DeferredStore get(int index) {
+            return (DeferredStore) list.get(index);
+         }
+      
+         private int size() {
+            return list.size();
+         }
+      
+         private void aligned(int addressSpace, int byteBoundary) {
+            alignment[addressSpace] = Math.max(alignment[addressSpace], byteBoundary);
+         }
+      }
+   
+   // One held back memory write.  If isAddress, the value is a label address
+   // and moves along with the file.
+      private class DeferredStore {
+         int address;
+         int value;
+         int length;
+         boolean isAddress;
+         double doubleValue; // when length is DataTypes.DOUBLE_SIZE
+      
+         DeferredStore(int address, int value, int length, boolean isAddress) {
+            this.address = address;
+            this.value = value;
+            this.length = length;
+            this.isAddress = isAddress;
+         }
+      }
+   
+   // //////////////////////////////////////////////////////////////////////////
+   // A label operand of a data directive, recorded when assembling an object
+   // module so the linker can store the label's address once it is known.
+      private class DataReference {
+         MIPSprogram program;
+         int address;
+         int length;
+         Token token;
+      
+         DataReference(MIPSprogram program, int address, int length, Token token) {
+            this.program = program;
+            this.address = address;
+            this.length = length;
+            this.token = token;
+         }
+      }
    }
@@ -0,0 +1,57 @@
+   package mars.assembler;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Receives notice as an Assembler moves from one phase of assembly to the next,
+ * for instance to time or profile the phases separately.  The phases are reported
+ * in order, each once per assembly, and FINISHED follows the last of them when
+ * assembly completes.  An assembly ended by errors reports no further phases.
+ *
+ * @see Assembler#setPhaseListener(AssemblyPhaseListener)
+ */
+
+    public interface AssemblyPhaseListener {
+   
+   /** First pass: parse every source line, expand macros, build the symbol tables and data segment. */
+      public static final int FIRST_PASS = 0;
+   /** Second pass: translate statements to basic instructions, expanding pseudo-instructions. */
+      public static final int SECOND_PASS = 1;
+   /** Generate machine code from the basic instructions and store it in memory. */
+      public static final int CODE_GENERATION = 2;
+   /** Assembly is complete. */
+      public static final int FINISHED = 3;
+   
+   /**
+    * Called as the Assembler begins the given phase, in the assembling thread.
+    * @param phase FIRST_PASS, SECOND_PASS, CODE_GENERATION or FINISHED.
+    */
+       public void phaseBegins(int phase);
+   }
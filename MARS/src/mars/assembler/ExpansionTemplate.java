@@ -0,0 +1,461 @@
+   package mars.assembler;
+
+   import mars.*;
+   import mars.util.*;
+   import mars.mips.instructions.*;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * One basic instruction template of a pseudo-instruction, compiled when the
+ * instruction set is loaded.  The template is tokenized once and each token
+ * becomes a slot: a literal token, a copy of a source operand (RGn, OPn), or a
+ * value computed from source operands (LHn, VLn, S32, BROFFnm, etc).  The basic
+ * instruction for the template's operator is also looked up once, and resolved
+ * completely if its operand types do not depend on the source statement.
+ * <p>
+ * Expanding a compiled template builds the token list of the basic statement
+ * directly, without substituting into the template string and tokenizing the
+ * result.  The token list is the same one the tokenizer would have produced.
+ * Where it could not be, expand() returns null and the caller falls back to
+ * ExtendedInstruction.makeTemplateSubstitutions().  Templates using the NRn
+ * marker, or markers within other text, are not compiled at all.
+ */
+
+    public class ExpansionTemplate {
+
+      // Slot kinds.
+      private static final int LITERAL = 0;      // template token as is
+      private static final int COPY = 1;         // RGn, OPn
+      private static final int HIGH_ADJUSTED = 2; // LHn, LHnPm, VHn, VHnPm
+      private static final int HIGH = 3;         // VHLn, VHLnPm
+      private static final int LOW = 4;          // LLn, LLnU, LLnPm, VLn, VLnU, VLnPm, VLnPmU
+      private static final int LA_HIGH = 5;      // LHL
+      private static final int SUM_HIGH_ADJUSTED = 6; // LHPA, LHPAPm
+      private static final int SUM_HIGH = 7;     // LHPN
+      private static final int SUM_LOW = 8;      // LLP, LLPU, LLPPm
+      private static final int SHIFT_32 = 9;     // S32
+      private static final int BRANCH_OFFSET = 10; // BROFFnm
+      private static final int LABEL = 11;       // LAB
+
+      // Source operand positions used by the LHL, LHPA, LHPN and LLP markers.
+      private static final int LABEL_OPERAND = 2;
+      private static final int ADDEND_OPERAND = 4;
+      private static final String[] MARKER_PREFIXES = {
+            "RG", "OP", "NR", "LH", "LL", "VH", "VL", "S32", "BROFF", "LAB" };
+
+      private Slot[] slots;
+      private boolean delayedBranchNop;
+      private Instruction instruction;  // null if it depends on the operands
+      private ArrayList<?> candidates;  // instructions matching the operator
+
+       private ExpansionTemplate() {
+      }
+
+   /**
+    * Compile one basic instruction template of a pseudo-instruction.  Must be
+    * called after all basic instructions have been added to the instruction set.
+    * @param inst the pseudo-instruction.
+    * @param template a template from inst's template list.
+    * @return the compiled template, or null if it cannot be compiled and has to be
+    * expanded by string substitution.
+    */
+       public static ExpansionTemplate compile(ExtendedInstruction inst, String template) {
+         ExpansionTemplate compiled = new ExpansionTemplate();
+         if (template.indexOf("DBNOP") >= 0) {
+            compiled.delayedBranchNop = true;
+            template = "nop";
+         }
+         ErrorList errors = new ErrorList();
+         TokenList tokens = new Tokenizer().tokenizeLine(0, template, errors, false);
+         if (errors.errorsOccurred() || tokens.isEmpty()
+             || tokens.get(0).getType() != TokenTypes.OPERATOR) {
+            return null;
+         }
+         ArrayList<Slot> slotList = new ArrayList<Slot>();
+         HashMap<String, String> markers = new HashMap<String, String>(); // marker family -> marker
+         for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            Token next = (i + 1 < tokens.size()) ? tokens.get(i + 1) : null;
+            boolean signed = (token.getType() == TokenTypes.MINUS || token.getType() == TokenTypes.PLUS)
+                             && next != null && next.getStartPos() == token.getStartPos() + 1;
+            Slot slot = (signed) ? parseMarker(next.getValue()) : parseMarker(token.getValue());
+            if (signed && slot == null) {
+               // A sign before a literal number: tokenized as one token only if the
+               // previous token is not an identifier, which a marker would be here.
+               if (Character.isDigit(next.getValue().charAt(0)) && i > 0
+                   && parseMarker(tokens.get(i - 1).getValue()) != null) {
+                  return null;
+               }
+               signed = false;
+            }
+            if (slot == null) {
+               if (containsMarker(token.getValue())) {
+                  return null;
+               }
+               slot = new Slot(LITERAL);
+               slot.type = token.getType();
+               slot.value = token.getValue();
+            }
+            else {
+               if (!compatibleMarker(markers, signed ? next.getValue() : token.getValue(), slot)) {
+                  return null;
+               }
+               if (signed) {
+                  if (slot.kind == COPY || slot.kind == LABEL) {
+                     return null;
+                  }
+                  slot.sign = token.getValue().charAt(0);
+                  i++;
+               }
+            }
+            slot.startPos = token.getStartPos();
+            slotList.add(slot);
+         }
+         compiled.slots = slotList.toArray(new Slot[slotList.size()]);
+         compiled.candidates = Globals.instructionSet.matchOperator(tokens.get(0).getValue());
+         if (compiled.candidates == null) {
+            return null;
+         }
+         compiled.instruction = compiled.resolveInstruction(inst);
+         return compiled;
+      }
+
+   /**
+    * Determine whether this template generates no instruction.  That is the case for
+    * a DBNOP template when delayed branching is disabled.
+    * @return true if no instruction is to be generated.
+    */
+       public boolean isOmitted() {
+         return delayedBranchNop && !Globals.getSettings().getBooleanSetting(Settings.DELAYED_BRANCHING_ENABLED);
+      }
+
+   /**
+    * Generate the basic statement for this template.
+    * @param program the MIPSprogram being assembled.
+    * @param sourceTokens tokens of the pseudo-instruction statement in basic assembly
+    * form, as used by ExtendedInstruction.makeTemplateSubstitutions().
+    * @param source source code to record for the statement.
+    * @param textAddress text segment address of the generated statement.
+    * @param sourceLine source line number of the pseudo-instruction statement.
+    * @return ProgramStatement for the basic instruction, not yet translated to basic
+    * and binary form, or null if this expansion has to be done by string substitution.
+    */
+       public ProgramStatement expand(MIPSprogram program, TokenList sourceTokens, String source,
+                                      int textAddress, int sourceLine) {
+         TokenList tokens = new TokenList();
+         TokenTypes previous = null;
+         for (int i = 0; i < slots.length; i++) {
+            Slot slot = slots[i];
+            TokenTypes type;
+            String value;
+            if (slot.kind == LITERAL) {
+               type = slot.type;
+               value = slot.value;
+            }
+            else {
+               value = slot.getValue(program, sourceTokens);
+               if (value == null || value.length() == 0) {
+                  return null;
+               }
+               if (slot.sign != 0) {
+                  if (!Character.isDigit(value.charAt(0))) {
+                     return null;
+                  }
+                  value = slot.sign + value;
+               }
+               // The tokenizer splits a leading sign off a number that follows an identifier.
+               if ((value.charAt(0) == '-' || value.charAt(0) == '+') && previous == TokenTypes.IDENTIFIER) {
+                  return null;
+               }
+               type = (slot.kind == COPY) ? sourceTokens.get(slot.operand).getType()
+                                          : TokenTypes.matchTokenType(value);
+            }
+            tokens.add(new Token(type, value, program, sourceLine, slot.startPos));
+            previous = type;
+         }
+         Instruction instr = (instruction != null) ? instruction
+                                                   : OperandFormat.bestOperandMatch(tokens, candidates);
+         return new ProgramStatement(program, source, tokens, tokens, instr, textAddress, sourceLine);
+      }
+
+      // If the choice among the operator's instructions does not depend on the
+      // source operands, make it now.  Register operands are represented by a
+      // register number, which matches wherever a register name does.
+       private Instruction resolveInstruction(ExtendedInstruction inst) {
+         if (candidates.size() == 1) {
+            return (Instruction) candidates.get(0);
+         }
+         TokenList example = new TokenList();
+         for (int i = 0; i < slots.length; i++) {
+            Slot slot = slots[i];
+            if (slot.kind == LITERAL) {
+               example.add(new Token(slot.type, slot.value, null, 0, slot.startPos));
+               continue;
+            }
+            if (slot.kind != COPY || slot.operand >= inst.getTokenList().size()) {
+               return null;
+            }
+            TokenTypes type = inst.getTokenList().get(slot.operand).getType();
+            if (type == TokenTypes.REGISTER_NAME || type == TokenTypes.REGISTER_NUMBER) {
+               example.add(new Token(TokenTypes.REGISTER_NUMBER, "$0", null, 0, slot.startPos));
+            }
+            else if (type == TokenTypes.FP_REGISTER_NAME) {
+               example.add(new Token(TokenTypes.FP_REGISTER_NAME, "$f0", null, 0, slot.startPos));
+            }
+            else {
+               return null;
+            }
+         }
+         return OperandFormat.bestOperandMatch(example, candidates);
+      }
+
+      // Markers are substituted by family: the first marker of a family found in the
+      // template determines the substitution for all of them (e.g. VL1 and VL1U cannot
+      // both be used).  Templates mixing markers of one family are left to string
+      // substitution, as is one using LAB twice, since only its first LAB is substituted.
+       private static boolean compatibleMarker(HashMap<String, String> markers, String marker, Slot slot) {
+         if (slot.kind == COPY) {
+            return true;
+         }
+         String family = marker;
+         if (family.endsWith("U")) {
+            family = family.substring(0, family.length() - 1);
+         }
+         int p = family.lastIndexOf('P');
+         if (p > 0 && p == family.length() - 2 && Character.isDigit(family.charAt(p + 1))) {
+            family = family.substring(0, p + 1);
+         }
+         if (family.startsWith("BROFF")) {
+            family = "BROFF";
+         }
+         String previous = markers.put(family, marker);
+         return previous == null || (previous.equals(marker) && slot.kind != LABEL);
+      }
+
+      // String substitution replaces markers anywhere in the template, so a token
+      // that contains one without being one cannot be compiled.
+       private static boolean containsMarker(String token) {
+         for (int i = 0; i < MARKER_PREFIXES.length; i++) {
+            if (token.indexOf(MARKER_PREFIXES[i]) >= 0) {
+               return true;
+            }
+         }
+         return false;
+      }
+
+      // Returns the slot for a template token consisting of a marker, or null if the
+      // token is not a marker.
+       private static Slot parseMarker(String token) {
+         Slot slot;
+         if (token.equals("LHL")) {
+            return new Slot(LA_HIGH);
+         }
+         if (token.equals("LHPN")) {
+            return new Slot(SUM_HIGH);
+         }
+         if (token.equals("S32")) {
+            return new Slot(SHIFT_32);
+         }
+         if (token.equals("LAB")) {
+            return new Slot(LABEL);
+         }
+         if (token.startsWith("LHPA")) {
+            slot = new Slot(SUM_HIGH_ADJUSTED);
+            return parseSuffix(slot, token, 4, true, false) ? slot : null;
+         }
+         if (token.startsWith("LLPP")) {
+            slot = new Slot(SUM_LOW);
+            slot.add = parseDigit(token, 4);
+            return (token.length() == 5 && slot.add >= 0) ? slot : null;
+         }
+         if (token.startsWith("LLP")) {
+            slot = new Slot(SUM_LOW);
+            return parseSuffix(slot, token, 3, false, true) ? slot : null;
+         }
+         if (token.startsWith("BROFF")) {
+            slot = new Slot(BRANCH_OFFSET);
+            if (token.length() != 7 || parseDigit(token, 5) < 0 || parseDigit(token, 6) < 0) {
+               return null;
+            }
+            slot.value = token.substring(5, 6);
+            slot.enabledValue = token.substring(6, 7);
+            return slot;
+         }
+         String prefix;
+         boolean plus, unsigned;
+         if (token.startsWith("RG") || token.startsWith("OP")) {
+            slot = new Slot(COPY);
+            prefix = "RG";
+            plus = unsigned = false;
+         }
+         else if (token.startsWith("VHL")) {
+            slot = new Slot(HIGH);
+            prefix = "VHL";
+            plus = true;
+            unsigned = false;
+         }
+         else if (token.startsWith("LH") || token.startsWith("VH")) {
+            slot = new Slot(HIGH_ADJUSTED);
+            prefix = "LH";
+            plus = true;
+            unsigned = false;
+         }
+         else if (token.startsWith("LL") || token.startsWith("VL")) {
+            slot = new Slot(LOW);
+            prefix = "LL";
+            plus = unsigned = true;
+         }
+         else {
+            return null;
+         }
+         int operand = parseDigit(token, prefix.length());
+         if (operand <= 0) {
+            return null;
+         }
+         slot.operand = operand;
+         if (!parseSuffix(slot, token, prefix.length() + 1, plus, unsigned)) {
+            return null;
+         }
+         // LLnPm has no unsigned form.
+         if (token.startsWith("LL") && slot.add != 0 && slot.unsigned) {
+            return null;
+         }
+         return slot;
+      }
+
+      // Parses an optional Pm followed by an optional U, which must end the token.
+       private static boolean parseSuffix(Slot slot, String token, int pos, boolean plus, boolean unsigned) {
+         if (plus && pos < token.length() && token.charAt(pos) == 'P') {
+            slot.add = parseDigit(token, pos + 1);
+            if (slot.add < 0) {
+               return false;
+            }
+            pos += 2;
+         }
+         if (unsigned && pos < token.length() && token.charAt(pos) == 'U') {
+            slot.unsigned = true;
+            pos++;
+         }
+         return pos == token.length();
+      }
+
+       private static int parseDigit(String token, int pos) {
+         return (pos < token.length() && Character.isDigit(token.charAt(pos))) ? token.charAt(pos) - '0' : -1;
+      }
+
+      // Value of a source operand in basic assembly form; 0 if it is not a number,
+      // as in string substitution.
+       private static int intValue(TokenList sourceTokens, int operand) {
+         try {
+            return Binary.stringToInt(sourceTokens.get(operand).getValue());
+         }
+             catch (NumberFormatException e) {
+               return 0;
+            }
+      }
+
+       private static int sumValue(TokenList sourceTokens, int add) {
+         try {
+            return Binary.stringToInt(sourceTokens.get(LABEL_OPERAND).getValue())
+                 + Binary.stringToInt(sourceTokens.get(ADDEND_OPERAND).getValue()) + add;
+         }
+             catch (NumberFormatException e) {
+               return 0;
+            }
+      }
+
+      ////////////////////////////////////////////////////////////////////////////
+      // One token of the generated basic statement.
+
+       private static class Slot {
+         int kind;
+         TokenTypes type;     // LITERAL
+         String value;        // LITERAL; BROFF value if delayed branching disabled
+         String enabledValue; // BROFF value if delayed branching enabled
+         int operand;         // source operand position
+         int add;             // digit following P
+         boolean unsigned;    // followed by U
+         char sign;           // '-' or '+' if marker follows a sign, else 0
+         int startPos;
+
+          Slot(int kind) {
+            this.kind = kind;
+         }
+
+         // Returns the substituted value, or null if the source statement does not
+         // have the operands the marker refers to.
+          String getValue(MIPSprogram program, TokenList sourceTokens) {
+            int size = sourceTokens.size();
+            if (operand >= size) {
+               return null;
+            }
+            if ((kind == SUM_HIGH_ADJUSTED || kind == SUM_HIGH || kind == SUM_LOW) && ADDEND_OPERAND >= size
+                || kind == LA_HIGH && LABEL_OPERAND >= size) {
+               return null;
+            }
+            int val;
+            switch (kind) {
+               case COPY :
+                  return sourceTokens.get(operand).getValue();
+               case HIGH_ADJUSTED :
+                  val = intValue(sourceTokens, operand) + add;
+                  return String.valueOf((val >> 16) + Binary.bitValue(val, 15));
+               case HIGH :
+                  return String.valueOf((intValue(sourceTokens, operand) + add) >> 16);
+               case LOW :
+                  val = intValue(sourceTokens, operand) + add;
+                  return String.valueOf(unsigned ? val & 0xffff : val << 16 >> 16);
+               case LA_HIGH :
+                  return String.valueOf(intValue(sourceTokens, LABEL_OPERAND) >> 16);
+               case SUM_HIGH_ADJUSTED :
+                  val = sumValue(sourceTokens, add);
+                  return String.valueOf((val >> 16) + Binary.bitValue(val, 15));
+               case SUM_HIGH :
+                  return String.valueOf(sumValue(sourceTokens, 0) >> 16);
+               case SUM_LOW :
+                  val = sumValue(sourceTokens, add);
+                  return String.valueOf(unsigned ? val & 0xffff : val << 16 >> 16);
+               case SHIFT_32 :
+                  return Integer.toString(32 - intValue(sourceTokens, size - 1));
+               case BRANCH_OFFSET :
+                  return Globals.getSettings().getBooleanSetting(Settings.DELAYED_BRANCHING_ENABLED)
+                     ? enabledValue : value;
+               case LABEL :
+                  Symbol sym = program.getLocalSymbolTable().getSymbolGivenAddressLocalOrGlobal(
+                                  sourceTokens.get(size - 1).getValue());
+                  return (sym == null) ? null : sym.getName();
+               default :
+                  return null;
+            }
+         }
+      }
+   }
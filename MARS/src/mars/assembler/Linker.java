@@ -0,0 +1,282 @@
+   package mars.assembler;
+
+   import mars.*;
+   import mars.mips.hardware.*;
+   import mars.mips.instructions.*;
+   import mars.util.*;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Combines relocatable object modules into a program ready to run, in the way
+ * Assembler would have produced it had all their source files been assembled
+ * together.  The sections of the modules are placed one after another, in the
+ * order the modules are given, starting at the base addresses of the current
+ * memory configuration.  Each module's text is word aligned and its data and
+ * .extern area doubleword aligned.  The labels of each module are then entered
+ * in the global and local symbol tables at their new addresses, the relocations
+ * are applied to the machine code and data, and the result is stored in memory.
+ * <p>
+ * An exported label may be defined by only one module, except that a .extern
+ * label exported by several modules refers to the area reserved by the first.
+ * Every imported label must be exported by some module.
+ */
+
+    public class Linker {
+
+      private ErrorList errors;
+      private ArrayList<ProgramStatement> machineList;
+
+   /**
+    * Link the given object modules, replacing the contents of memory and the symbol tables.
+    * @param modules ArrayList of ObjectModule, in the order their sections are to be placed.
+    * @param leadProgram MIPSprogram to represent the first source file of the first module.
+    * A new MIPSprogram is created for each of the others.
+    * @return ArrayList of ProgramStatement for the linked text segments, in address order.
+    * @throws ProcessingException if a module was assembled under a different memory
+    * configuration, a label is defined twice or not at all, or a section does not fit.
+    */
+       public ArrayList<ProgramStatement> link(ArrayList<ObjectModule> modules, MIPSprogram leadProgram)
+             throws ProcessingException {
+         errors = new ErrorList();
+         machineList = new ArrayList<ProgramStatement>();
+         Globals.symbolTable.clear();
+         Globals.memory.clear();
+         String configuration = MemoryConfigurations.getCurrentConfiguration().getConfigurationIdentifier();
+         int[] next = new int[ObjectModule.SECTION_COUNT];
+         for (int section = 0; section < ObjectModule.SECTION_COUNT; section++) {
+            next[section] = ObjectModule.getBase(section);
+         }
+         int[][] placement = new int[modules.size()][];
+         MIPSprogram[][] programs = new MIPSprogram[modules.size()][];
+         HashSet<String> externs = new HashSet<String>();
+         for (int m = 0; m < modules.size(); m++) {
+            ObjectModule module = modules.get(m);
+            programs[m] = new MIPSprogram[module.filenames.size()];
+            for (int f = 0; f < programs[m].length; f++) {
+               programs[m][f] = (m == 0 && f == 0) ? leadProgram : new MIPSprogram();
+               programs[m][f].setFilename(module.filenames.get(f));
+            }
+            if (!module.configuration.equals(configuration)) {
+               errors.add(new ErrorMessage(programs[m][0], 0, 0,
+                  "Object module assembled for memory configuration \"" + module.configuration
+                  + "\" cannot be linked under \"" + configuration + "\""));
+               continue;
+            }
+            placement[m] = new int[ObjectModule.SECTION_COUNT];
+            for (int section = 0; section < ObjectModule.SECTION_COUNT; section++) {
+               int alignment = (section == ObjectModule.TEXT || section == ObjectModule.KTEXT)
+                               ? Memory.WORD_LENGTH_BYTES : DataTypes.DOUBLE_SIZE;
+               placement[m][section] = align(next[section], alignment);
+               next[section] = placement[m][section] + module.size[section];
+            }
+            defineSymbols(module, placement[m], programs[m], externs);
+         }
+         if (errors.errorsOccurred()) {
+            throw new ProcessingException(errors);
+         }
+      // Text segment statements go in address order: the user text of each module,
+      // then the kernel text of each module.
+         for (int section = ObjectModule.TEXT; section <= ObjectModule.KTEXT; section++) {
+            for (int m = 0; m < modules.size(); m++) {
+               storeText(modules.get(m), section, placement[m], programs[m]);
+            }
+         }
+         for (int m = 0; m < modules.size(); m++) {
+            storeData(modules.get(m), placement[m], programs[m]);
+         }
+         SystemIO.resetFiles();
+         if (errors.errorsOccurred()) {
+            throw new ProcessingException(errors);
+         }
+         return machineList;
+      }
+
+   /**
+    * @return ErrorList of any linker errors.
+    */
+       public ErrorList getErrorList() {
+         return errors;
+      }
+
+       private void defineSymbols(ObjectModule module, int[] placement, MIPSprogram[] programs,
+                                  HashSet<String> externs) {
+         for (int i = 0; i < module.symbols.size(); i++) {
+            ObjectModule.Definition symbol = module.symbols.get(i);
+            Symbol entry = new Symbol(symbol.name, address(placement, symbol.section, symbol.offset), symbol.isData);
+            if (symbol.file >= 0) {
+               programs[symbol.file].getLocalSymbolTable().addSymbol(entry);
+            }
+            else if (Globals.symbolTable.getSymbol(symbol.name) == null) {
+               Globals.symbolTable.addSymbol(entry);
+               if (symbol.section == ObjectModule.EXTERN) {
+                  externs.add(symbol.name);
+               }
+            }
+            else if (symbol.section != ObjectModule.EXTERN || !externs.contains(symbol.name)) {
+               errors.add(new ErrorMessage(programs[0], 0, 0,
+                  "\"" + symbol.name + "\" already defined as global in a different file."));
+            }
+         }
+      }
+
+      // Apply the text relocations to the module's machine code, then store its statements.
+       private void storeText(ObjectModule module, int section, int[] placement, MIPSprogram[] programs) {
+         HashMap<Integer, Integer> words = new HashMap<Integer, Integer>(); // offset -> word, statements of this section
+         HashMap<Integer, int[]> operands = new HashMap<Integer, int[]>(); // offset -> operands
+         for (int i = 0; i < module.statements.size(); i++) {
+            ObjectModule.Statement statement = module.statements.get(i);
+            if (statement.section == section) {
+               words.put(statement.offset, statement.word);
+               operands.put(statement.offset, statement.operands.clone());
+            }
+         }
+         for (int i = 0; i < module.relocations.size(); i++) {
+            ObjectModule.Relocation relocation = module.relocations.get(i);
+            if (relocation.section != section) {
+               continue;
+            }
+            int site = placement[section] + relocation.offset;
+            int target = resolve(placement, programs, relocation);
+            if (target == SymbolTable.NOT_FOUND) {
+               continue;
+            }
+            int value;
+            if (relocation.kind == ObjectModule.BRANCH) {
+               value = (target - (site + Instruction.INSTRUCTION_LENGTH)) >> 2;
+            }
+            else if (relocation.kind == ObjectModule.JUMP) {
+               if ((site & 0xF0000000) != (target & 0xF0000000)) {
+                  errors.add(new ErrorMessage(program(programs, relocation.file), relocation.line, 0,
+                     "Jump target word address beyond 26-bit range"));
+                  continue;
+               }
+               value = target >>> 2;
+            }
+            else {
+               value = target;
+            }
+            int field = (relocation.width == 32) ? -1 : (1 << relocation.width) - 1;
+            int word = words.get(relocation.offset);
+            word = (word & ~(field << relocation.shift)) | ((value & field) << relocation.shift);
+            words.put(relocation.offset, word);
+            operands.get(relocation.offset)[relocation.operand] = value;
+         }
+         ArrayList<?> instructionList = Globals.instructionSet.getInstructionList();
+         for (int i = 0; i < module.statements.size(); i++) {
+            ObjectModule.Statement statement = module.statements.get(i);
+            if (statement.section != section) {
+               continue;
+            }
+            int address = placement[section] + statement.offset;
+            int word = words.get(statement.offset);
+            MIPSprogram program = (statement.file < 0) ? null : programs[statement.file];
+         // The instruction is not decoded from the machine code, since some share one.
+            Object instruction = (statement.instruction >= 0 && statement.instruction < instructionList.size())
+                                 ? instructionList.get(statement.instruction) : null;
+            if (!(instruction instanceof BasicInstruction) 
+                  || (word & ((BasicInstruction) instruction).getOpcodeMask()) 
+                     != ((BasicInstruction) instruction).getOpcodeMatch()) {
+               errors.add(new ErrorMessage(program(programs, statement.file), statement.line, 0,
+                  "Object module statement does not match its instruction"));
+               continue;
+            }
+            ProgramStatement ps = new ProgramStatement((BasicInstruction) instruction, word, address,
+               operands.get(statement.offset), program, statement.source, statement.line);
+            try {
+               Globals.memory.setStatement(address, ps);
+            }
+                catch (AddressErrorException e) {
+                  errors.add(new ErrorMessage(program(programs, statement.file), statement.line, 0,
+                     "Invalid address for text segment: " + e.getAddress()));
+                  continue;
+               }
+            machineList.add(ps);
+         }
+      }
+
+      // Store the module's initialized data, then apply its data relocations.
+       private void storeData(ObjectModule module, int[] placement, MIPSprogram[] programs) {
+         int[] sections = { ObjectModule.DATA, ObjectModule.KDATA };
+         for (int i = 0; i < sections.length; i++) {
+            int[] data = module.data[sections[i]];
+            try {
+               Globals.memory.setRawWords(placement[sections[i]], data, data.length);
+            }
+                catch (AddressErrorException e) {
+                  errors.add(new ErrorMessage(programs[0], 0, 0,
+                     "\"" + e.getAddress() + "\" is not a valid data segment address"));
+               }
+         }
+         for (int i = 0; i < module.relocations.size(); i++) {
+            ObjectModule.Relocation relocation = module.relocations.get(i);
+            if (relocation.kind != ObjectModule.DATA_ADDRESS) {
+               continue;
+            }
+            int target = resolve(placement, programs, relocation);
+            if (target == SymbolTable.NOT_FOUND) {
+               continue;
+            }
+            try {
+               Globals.memory.set(placement[relocation.section] + relocation.offset, target, relocation.width);
+            }
+                catch (AddressErrorException e) {
+                  errors.add(new ErrorMessage(program(programs, relocation.file), relocation.line, 0,
+                     "\"" + e.getAddress() + "\" is not a valid data segment address"));
+               }
+         }
+      }
+
+      // Address of a relocation's target label, or NOT_FOUND after adding an error message.
+       private int resolve(int[] placement, MIPSprogram[] programs, ObjectModule.Relocation relocation) {
+         if (relocation.name == null) {
+            return address(placement, relocation.targetSection, relocation.targetOffset);
+         }
+         int target = Globals.symbolTable.getAddress(relocation.name);
+         if (target == SymbolTable.NOT_FOUND) {
+            errors.add(new ErrorMessage(program(programs, relocation.file), relocation.line, 0,
+               "Symbol \"" + relocation.name + "\" not found in symbol table."));
+         }
+         return target;
+      }
+
+       private static int address(int[] placement, int section, int offset) {
+         return (section < 0) ? offset : placement[section] + offset;
+      }
+
+       private static int align(int address, int alignment) {
+         return (address + alignment - 1) & -alignment;
+      }
+
+       private static MIPSprogram program(MIPSprogram[] programs, int file) {
+         return programs[(file < 0) ? 0 : file];
+      }
+   }
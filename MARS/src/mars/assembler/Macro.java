@@ -38,6 +38,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 
 /**
  * Stores information of a macro definition.
+ * <p>
+ * Each line of the body is tokenized once, the first time the macro is expanded,
+ * and kept with the positions of its parameters and labels.  Later expansions
+ * splice the argument tokens and renamed labels into a copy of those tokens
+ * instead of substituting text and tokenizing the line again.  A line whose
+ * result could differ from tokenizing the substituted text, for instance one using
+ * a .eqv symbol, is always substituted as text.
  * 
  * @author M.H.Sekhavat <sekhavat17@gmail.com>
  */
@@ -56,6 +63,10 @@ public class Macro {
  * arguments like <code>%arg</code> will be substituted by macro expansion
  */
    private ArrayList<String> args;
+/**
+ * tokenized body lines, by line number - fromLine - 1; null until first expanded
+ */
+   private BodyLine[] bodyLines;
 
    public Macro() {
       name = "";
@@ -187,6 +198,82 @@ public class Macro {
    }
 
 
+/**
+ * Substitutes macro arguments in a line of source code inside macro definition,
+ * like {@link #getSubstitutedLine(int, TokenList, long, ErrorList)}, and produces
+ * the tokens that tokenizing the substituted line would.
+ * 
+ * @param line
+ *            source line number in macro definition to be substituted
+ * @param args
+ * @param counter
+ *            unique macro expansion id
+ * @param tokenizer
+ *            Tokenizer of the program, holding its .eqv definitions
+ * @return tokens of <code>line</code>-th line of source code with substituted
+ *         arguments, whose processed line is the substituted source; or null if
+ *         the line must be substituted by getSubstitutedLine() and tokenized.
+ */
+   public TokenList getSubstitutedTokens(int line, TokenList args, long counter, Tokenizer tokenizer) {
+      if (bodyLines == null) {
+         bodyLines = new BodyLine[Math.max(toLine - fromLine - 1, 0)];
+      }
+      int index = line - fromLine - 1;
+      if (index < 0 || index >= bodyLines.length) {
+         return null;
+      }
+      if (bodyLines[index] == null) {
+         bodyLines[index] = new BodyLine(line, tokenizer);
+      }
+      BodyLine body = bodyLines[index];
+      if (body.tokens == null) {
+         return null;
+      }
+      // Substitutes, checked to tokenize as single tokens in any context.
+      String[] substitutes = new String[body.tokens.length];
+      TokenTypes[] types = new TokenTypes[body.tokens.length];
+      for (int i = 0; i < body.tokens.length; i++) {
+         if (body.slots[i] == BodyLine.COPY) {
+            continue;
+         }
+         String value = body.tokens[i].getValue();
+         String substitute = (body.slots[i] == BodyLine.LABEL)
+                             ? value + "_M" + counter
+                             : args.get(body.slots[i] + 1).toString();
+         TokenTypes type = TokenTypes.matchTokenType(substitute);
+         if (type == TokenTypes.ERROR || (body.repeated[i] && substitute.indexOf(value.charAt(0)) >= 0)
+             || substitute.charAt(0) == '+' || substitute.charAt(0) == '-'
+             || (type == TokenTypes.IDENTIFIER && tokenizer.hasEquivalent(substitute))) {
+            return null;
+         }
+         for (int j = 0; j < substitute.length(); j++) {
+            if (TOKEN_BREAKS.indexOf(substitute.charAt(j)) >= 0) {
+               return null;
+            }
+         }
+         substitutes[i] = substitute;
+         types[i] = type;
+      }
+      // Splice them into the source and tokens, moving the following tokens along.
+      TokenList result = new TokenList();
+      StringBuffer source = new StringBuffer(body.source.length() + 16);
+      int copied = 0;
+      for (int i = 0; i < body.tokens.length; i++) {
+         Token token = body.tokens[i];
+         int start = token.getStartPos() - 1;
+         source.append(body.source, copied, start);
+         int column = source.length() + 1;
+         String value = (substitutes[i] == null) ? token.getValue() : substitutes[i];
+         TokenTypes type = (substitutes[i] == null) ? token.getType() : types[i];
+         result.add(new Token(type, value, program, line, column));
+         source.append(value);
+         copied = start + token.getValue().length();
+      }
+      source.append(body.source, copied, body.source.length());
+      result.setProcessedLine(source.toString());
+      return result;
+   }
+
 /**
  * returns true if <code>value</code> is name of a label defined in this macro's body.
  * @param value
@@ -249,6 +336,96 @@ public class Macro {
       Collections.sort(labels);
    }
 
+// Characters that would split or join a substitute with its neighbors when tokenized.
+   private static final String TOKEN_BREAKS = " \t,()#:\"'=";
+
+/**
+ * One line of the macro body, tokenized without .eqv substitution, with the slot
+ * each token takes its value from.  Tokens is null if the line cannot be spliced:
+ * it does not tokenize cleanly, it defines or uses a .eqv symbol, it has a parameter
+ * that is not one of the macro's, or a token following a parameter or label begins
+ * with a sign.  The places a parameter or label's text first appears in the line
+ * must also be its tokens, and a label may appear only once.  A parameter may
+ * appear several times, but since getSubstitutedLine() replaces the first place
+ * the text appears each time, its argument must then not contain its first character.
+ */
+   private class BodyLine {
+      static final int COPY = -1, LABEL = -2;
+      String source;
+      Token[] tokens;
+      int[] slots;   // COPY, LABEL, or index of the argument
+      boolean[] repeated;  // parameter appears more than once
+   
+      BodyLine(int line, Tokenizer tokenizer) {
+         source = program.getSourceLine(line);
+         TokenList fileTokens = (TokenList) program.getTokenList().get(line - 1);
+         ErrorList errors = new ErrorList();
+         TokenList lineTokens = tokenizer.tokenizeLine(line, source, errors, false);
+         if (errors.errorsOccurred() || lineTokens.size() != fileTokens.size()) {
+            return;
+         }
+         Token[] candidates = new Token[lineTokens.size()];
+         int[] candidateSlots = new int[lineTokens.size()];
+         for (int i = 0; i < candidates.length; i++) {
+            Token token = lineTokens.get(i);
+            String value = token.getValue();
+            if (!value.equals(fileTokens.get(i).getValue())) {
+               return; // .eqv substituted when the file was tokenized
+            }
+            candidateSlots[i] = COPY;
+            if (tokenIsMacroParameter(value, true)) {
+               candidateSlots[i] = args.indexOf(value);
+               if (candidateSlots[i] < 0) {
+                  return; // unknown macro parameter
+               }
+            } 
+            else if (tokenIsMacroLabel(value)) {
+               candidateSlots[i] = LABEL;
+            } 
+            else if ((token.getType() == TokenTypes.IDENTIFIER && tokenizer.hasEquivalent(value))
+                     || (token.getType() == TokenTypes.DIRECTIVE && Directives.matchDirective(value) == Directives.EQV)) {
+               return;
+            }
+            if (i > 0 && candidateSlots[i - 1] != COPY
+                && (value.charAt(0) == '+' || value.charAt(0) == '-')) {
+               return;
+            }
+            candidates[i] = token;
+         }
+         boolean[] candidateRepeats = new boolean[candidates.length];
+         for (int i = 0; i < candidates.length; i++) {
+            if (candidateSlots[i] != COPY) {
+               int places = occurrencesAsSlot(candidates, candidateSlots, i);
+               if (places < 0 || (places > 1 && candidateSlots[i] == LABEL)) {
+                  return;
+               }
+               candidateRepeats[i] = places > 1;
+            }
+         }
+         tokens = candidates;
+         slots = candidateSlots;
+         repeated = candidateRepeats;
+      }
+   
+      // Number of tokens with the text of token i, or -1 if the places that text first
+      // appears in the source, which getSubstitutedLine() replaces, are not those tokens.
+      private int occurrencesAsSlot(Token[] candidates, int[] candidateSlots, int i) {
+         String value = candidates[i].getValue();
+         int places = 0;
+         int pos = -1;
+         for (int j = 0; j < candidates.length; j++) {
+            if (candidates[j].getValue().equals(value)) {
+               pos = source.indexOf(value, pos + 1);
+               if (pos != candidates[j].getStartPos() - 1) {
+                  return -1;
+               }
+               places++;
+            }
+         }
+         return places;
+      }
+   }
+
 
 
 }
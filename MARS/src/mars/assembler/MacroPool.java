@@ -1,6 +1,7 @@
    package mars.assembler;
 
    import java.util.ArrayList;
+   import java.util.HashMap;
    import java.util.Stack;
 
    import mars.ErrorList;
@@ -38,7 +39,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  * {@link MacroPool#BeginMacro(String, int)} and skips source code lines until
  * reaches <code>.end_macro</code> directive. then calls
  * {@link MacroPool#CommitMacro(int)} and the macro information stored in a
- * {@link Macro} instance will be added to {@link #macroList}. <br>
+ * {@link Macro} instance will be added to {@link #macroTable}. <br>
+ * Macros are looked up by name in a hash table, since every source line is
+ * checked for a macro call.  A later definition with the same name and number
+ * of arguments replaces an earlier one. <br>
  * Each {@link MIPSprogram} will have one {@link MacroPool}<br>
  * NOTE: Forward referencing macros (macro expansion before its definition in
  * source code) and Nested macro definition (defining a macro inside other macro
@@ -49,9 +53,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     public class MacroPool {
       private MIPSprogram program;
    /**
-    * List of macros defined by now
+    * Macros defined by now: name -> list of the latest definition for each
+    * argument count
     */
-      private ArrayList<Macro> macroList;
+      private HashMap<String,ArrayList<Macro>> macroTable;
    /**
     * @see #BeginMacro(String, int)
     */
@@ -70,7 +75,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    */
        public MacroPool(MIPSprogram mipsProgram) {
          this.program = mipsProgram;
-         macroList = new ArrayList<Macro>();
+         macroTable = new HashMap<String,ArrayList<Macro>>();
          callStack=new ArrayList<Integer>();
          callStackOrigLines=new ArrayList<Integer>();
          current = null;
@@ -99,7 +104,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    /**
     * This method will be called by parser when reached <code>.end_macro</code>
     * directive. <br>
-    * Adds/Replaces {@link #current} macro into the {@link #macroList}.
+    * Adds/Replaces {@link #current} macro into the {@link #macroTable}.
     * 
     * @param endToken
     *            Token containing <code>.end_macro</code> directive in source code
@@ -109,7 +114,18 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          current.setToLine(endToken.getSourceLine());
          current.setOriginalToLine(endToken.getOriginalSourceLine());
          current.readyForCommit();
-         macroList.add(current);
+         ArrayList<Macro> macros = macroTable.get(current.getName());
+         if (macros == null) {
+            macros = new ArrayList<Macro>(1);
+            macroTable.put(current.getName(), macros);
+         }
+         int existing = macros.indexOf(current); // same name and argument count
+         if (existing < 0) {
+            macros.add(current);
+         } 
+         else if (macros.get(existing).getFromLine() < current.getFromLine()) {
+            macros.set(existing, current);
+         }
          current = null;
       }
    	   		
@@ -124,16 +140,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public Macro getMatchingMacro(TokenList tokens, int callerLine) {
          if (tokens.size() < 1)
             return null;
-         Macro ret = null;
-         Token firstToken = tokens.get(0);
-         for (Macro macro : macroList) {
-            if (macro.getName().equals(firstToken.getValue())
-            	&& macro.getArgs().size() + 1 == tokens.size()
+         ArrayList<Macro> macros = macroTable.get(tokens.get(0).getValue());
+         if (macros == null)
+            return null;
+         for (Macro macro : macros) {
+            if (macro.getArgs().size() + 1 == tokens.size()
             	//&& macro.getToLine() < callerLine  // condition removed; doesn't work nicely in conjunction with .include, and does not seem necessary.  DPS 8-MAR-2013
-            	&& (ret == null || ret.getFromLine() < macro.getFromLine()))
-               ret = macro;
+            	)
+               return macro;
          }
-         return ret;
+         return null;
       }
    
    /**
@@ -142,10 +158,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     *         by now, not concerning arguments count.
     */
        public boolean matchesAnyMacroName(String value) {
-         for (Macro macro : macroList)
-            if (macro.getName().equals(value))
-               return true;
-         return false;
+         return macroTable.containsKey(value);
       }
    
    
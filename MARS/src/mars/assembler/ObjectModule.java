@@ -0,0 +1,361 @@
+   package mars.assembler;
+
+   import mars.*;
+   import mars.mips.hardware.*;
+   import mars.mips.instructions.*;
+   import java.io.*;
+   import java.util.*;
+   import java.util.zip.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * A relocatable object module: the result of assembling some of the source files of
+ * a program on their own, ready to be combined with other modules by the Linker.
+ * Assembly places each section at the base address given by the current memory
+ * configuration, and the module records everything as an offset from that base:
+ * <ul>
+ * <li>the machine code of the text and kernel text segment statements, with their source
+ * and the instruction each was assembled from, since some instructions share a machine code,
+ * <li>the initialized contents of the data and kernel data segments and the size of the
+ * .extern area,
+ * <li>the labels defined in each source file; those declared .globl are exported,
+ * <li>a relocation for each instruction operand and data directive operand holding a label
+ * address, telling how to recompute it once the sections have been placed.  Labels used
+ * but not defined in the module are imported; their relocations refer to them by name.
+ * </ul>
+ * Modules are saved as GZIP compressed files.  A module can be linked only under the
+ * memory configuration it was assembled under, and read only under the instruction
+ * encodings it was assembled with (see InstructionSet.ENCODING_VERSION).
+ */
+
+    public class ObjectModule {
+
+   /** Extension of object module file names, without the dot. */
+      public static final String EXTENSION = "obj";
+
+      // Sections.  A section number of -1 means an absolute address.
+      static final int TEXT = 0, KTEXT = 1, DATA = 2, KDATA = 3, EXTERN = 4;
+      static final int SECTION_COUNT = 5;
+      // Relocation kinds.  The instruction field holds the target address (ABSOLUTE),
+      // the displacement in words from the following instruction (BRANCH) or the word
+      // address within the current 256MB region (JUMP).  DATA_ADDRESS stores the target
+      // address in the 1, 2 or 4 bytes of a data directive operand.
+      static final int ABSOLUTE = 0, BRANCH = 1, JUMP = 2, DATA_ADDRESS = 3;
+
+      private static final byte[] MAGIC = { 'M', 'A', 'R', 'S', 'O', 'B', 'J', '2' };
+
+      String configuration;
+      int[] size;
+      ArrayList<String> filenames;
+      ArrayList<Statement> statements; // in address order
+      int[][] data;                    // initialized words of DATA and KDATA
+      ArrayList<Definition> symbols;
+      ArrayList<Relocation> relocations;
+
+       ObjectModule(String configuration) {
+         this.configuration = configuration;
+         size = new int[SECTION_COUNT];
+         filenames = new ArrayList<String>();
+         statements = new ArrayList<Statement>();
+         data = new int[SECTION_COUNT][];
+         data[DATA] = new int[0];
+         data[KDATA] = new int[0];
+         symbols = new ArrayList<Definition>();
+         relocations = new ArrayList<Relocation>();
+      }
+
+   /**
+    * @return names of the source files assembled into this module.
+    */
+       public ArrayList<String> getFilenames() {
+         return filenames;
+      }
+
+   /**
+    * @return names of the labels this module exports, that is, declared .globl or .extern.
+    */
+       public ArrayList<String> getExportedSymbols() {
+         ArrayList<String> names = new ArrayList<String>();
+         for (int i = 0; i < symbols.size(); i++) {
+            Definition symbol = symbols.get(i);
+            if (symbol.file < 0) {
+               names.add(symbol.name);
+            }
+         }
+         return names;
+      }
+
+   /**
+    * @return names of the labels this module uses but does not define.
+    */
+       public ArrayList<String> getImportedSymbols() {
+         ArrayList<String> exported = getExportedSymbols();
+         ArrayList<String> names = new ArrayList<String>();
+         for (int i = 0; i < relocations.size(); i++) {
+            Relocation relocation = relocations.get(i);
+            if (relocation.name != null && !names.contains(relocation.name)
+                  && !exported.contains(relocation.name)) {
+               names.add(relocation.name);
+            }
+         }
+         return names;
+      }
+
+      // Address at which assembly places the given section.
+       static int getBase(int section) {
+         switch (section) {
+            case TEXT :
+               return Memory.textBaseAddress;
+            case KTEXT :
+               return Memory.kernelTextBaseAddress;
+            case DATA :
+               return Memory.dataBaseAddress;
+            case KDATA :
+               return Memory.kernelDataBaseAddress;
+            case EXTERN :
+               return Memory.externBaseAddress;
+            default :
+               return 0;
+         }
+      }
+
+      // Section holding the given assembled address, or -1 if it is in none of them.
+      // An address just past the end of a section belongs to it, since a label may
+      // follow the last statement or data item.
+       int getSection(int address) {
+         for (int section = 0; section < SECTION_COUNT; section++) {
+            int offset = address - getBase(section);
+            if (offset >= 0 && offset <= size[section]) {
+               return section;
+            }
+         }
+         return -1;
+      }
+
+      // Offset of an assembled address within its section, or the address itself if absolute.
+       int getOffset(int section, int address) {
+         return (section < 0) ? address : address - getBase(section);
+      }
+
+   /**
+    * Read an object module from a file.
+    * @param file file written by write().
+    * @return the module.
+    * @throws IOException if the file cannot be read, is not an object module, or was
+    * assembled with other instruction encodings.
+    */
+       public static ObjectModule read(File file) throws IOException {
+         DataInputStream in = new DataInputStream(new BufferedInputStream(
+                  new GZIPInputStream(new FileInputStream(file))));
+         try {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+               boolean older = new String(magic, 0, MAGIC.length - 1, "US-ASCII")
+                  .equals(new String(MAGIC, 0, MAGIC.length - 1, "US-ASCII"));
+               throw new IOException(file + (older ? " was written in an older format; assemble it again"
+                                                   : " is not a MARS object module"));
+            }
+            if (in.readInt() != InstructionSet.ENCODING_VERSION) {
+               throw new IOException(file + " was assembled with other instruction encodings;"
+                  + " assemble it again");
+            }
+            ObjectModule module = new ObjectModule(in.readUTF());
+            for (int section = 0; section < SECTION_COUNT; section++) {
+               module.size[section] = in.readInt();
+            }
+            for (int count = in.readInt(); count > 0; count--) {
+               module.filenames.add(in.readUTF());
+            }
+            for (int count = in.readInt(); count > 0; count--) {
+               Statement statement = new Statement();
+               statement.section = in.readByte();
+               statement.offset = in.readInt();
+               statement.instruction = in.readInt();
+               statement.word = in.readInt();
+               statement.file = in.readInt();
+               statement.line = in.readInt();
+               statement.source = readString(in);
+               statement.operands = readWords(in);
+               module.statements.add(statement);
+            }
+            module.data[DATA] = readWords(in);
+            module.data[KDATA] = readWords(in);
+            for (int count = in.readInt(); count > 0; count--) {
+               Definition symbol = new Definition();
+               symbol.name = in.readUTF();
+               symbol.section = in.readByte();
+               symbol.offset = in.readInt();
+               symbol.isData = in.readBoolean();
+               symbol.file = in.readInt();
+               module.symbols.add(symbol);
+            }
+            for (int count = in.readInt(); count > 0; count--) {
+               Relocation relocation = new Relocation();
+               relocation.section = in.readByte();
+               relocation.offset = in.readInt();
+               relocation.kind = in.readByte();
+               relocation.shift = in.readByte();
+               relocation.width = in.readByte();
+               relocation.operand = in.readByte();
+               relocation.targetSection = in.readByte();
+               relocation.targetOffset = in.readInt();
+               relocation.name = readString(in);
+               relocation.file = in.readInt();
+               relocation.line = in.readInt();
+               module.relocations.add(relocation);
+            }
+            return module;
+         }
+             catch (EOFException e) {
+               throw new IOException(file + " is not a MARS object module");
+            }
+         finally {
+            in.close();
+         }
+      }
+
+   /**
+    * Write this module to a file.
+    * @param file file to write, replaced if it exists.
+    * @throws IOException if the file cannot be written.
+    */
+       public void write(File file) throws IOException {
+         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                  new GZIPOutputStream(new FileOutputStream(file))));
+         try {
+            out.write(MAGIC);
+            out.writeInt(InstructionSet.ENCODING_VERSION);
+            out.writeUTF(configuration);
+            for (int section = 0; section < SECTION_COUNT; section++) {
+               out.writeInt(size[section]);
+            }
+            out.writeInt(filenames.size());
+            for (int i = 0; i < filenames.size(); i++) {
+               out.writeUTF(filenames.get(i));
+            }
+            out.writeInt(statements.size());
+            for (int i = 0; i < statements.size(); i++) {
+               Statement statement = statements.get(i);
+               out.writeByte(statement.section);
+               out.writeInt(statement.offset);
+               out.writeInt(statement.instruction);
+               out.writeInt(statement.word);
+               out.writeInt(statement.file);
+               out.writeInt(statement.line);
+               writeString(out, statement.source);
+               writeWords(out, statement.operands);
+            }
+            writeWords(out, data[DATA]);
+            writeWords(out, data[KDATA]);
+            out.writeInt(symbols.size());
+            for (int i = 0; i < symbols.size(); i++) {
+               Definition symbol = symbols.get(i);
+               out.writeUTF(symbol.name);
+               out.writeByte(symbol.section);
+               out.writeInt(symbol.offset);
+               out.writeBoolean(symbol.isData);
+               out.writeInt(symbol.file);
+            }
+            out.writeInt(relocations.size());
+            for (int i = 0; i < relocations.size(); i++) {
+               Relocation relocation = relocations.get(i);
+               out.writeByte(relocation.section);
+               out.writeInt(relocation.offset);
+               out.writeByte(relocation.kind);
+               out.writeByte(relocation.shift);
+               out.writeByte(relocation.width);
+               out.writeByte(relocation.operand);
+               out.writeByte(relocation.targetSection);
+               out.writeInt(relocation.targetOffset);
+               writeString(out, relocation.name);
+               out.writeInt(relocation.file);
+               out.writeInt(relocation.line);
+            }
+         }
+         finally {
+            out.close();
+         }
+      }
+
+       private static int[] readWords(DataInputStream in) throws IOException {
+         int[] words = new int[in.readInt()];
+         for (int i = 0; i < words.length; i++) {
+            words[i] = in.readInt();
+         }
+         return words;
+      }
+
+       private static void writeWords(DataOutputStream out, int[] words) throws IOException {
+         out.writeInt(words.length);
+         for (int i = 0; i < words.length; i++) {
+            out.writeInt(words[i]);
+         }
+      }
+
+       private static String readString(DataInputStream in) throws IOException {
+         return in.readBoolean() ? in.readUTF() : null;
+      }
+
+       private static void writeString(DataOutputStream out, String value) throws IOException {
+         out.writeBoolean(value != null);
+         if (value != null) {
+            out.writeUTF(value);
+         }
+      }
+
+      // A text segment statement.  Instruction is the index of its BasicInstruction in
+      // the instruction list.  File is an index into filenames, or -1.  The operand
+      // values are kept since they may not fit in the machine code fields.
+       static class Statement {
+         int section, offset, instruction, word, file, line;
+         String source;
+         int[] operands;
+      }
+
+      // A label definition.  File is the index of the source file whose local symbol
+      // table holds it, or -1 for a global label.
+       static class Definition {
+         String name;
+         int section, offset, file;
+         boolean isData;
+      }
+
+      // An operand to recompute.  For an instruction, operand is its position and shift
+      // and width locate its field in the machine code word; for a data directive width
+      // is its length in bytes.
+      // The target is a label of this module given by section and offset, or a global
+      // label given by name.  File and line locate the operand for error messages.
+       static class Relocation {
+         int section, offset, kind, shift, width, operand, targetSection, targetOffset, file, line;
+         String name;
+      }
+   }
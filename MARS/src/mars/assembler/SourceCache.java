@@ -0,0 +1,267 @@
+   package mars.assembler;
+
+   import mars.*;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Cache of tokenized source files, so that assembling again after an edit
+ * reads and tokenizes only the files that changed.  Each entry holds the
+ * results of Tokenizer.tokenize() for one source file (expanded SourceLine
+ * list, TokenList for each line, and the Tokenizer with its .eqv definitions)
+ * along with the source it was produced from.  An entry is reused only if the
+ * file, and every file it includes directly or indirectly, still has exactly
+ * the same content.  Macros and .eqv definitions are local to a file and the
+ * files it includes, so a change to one file never invalidates another file's
+ * entry unless it is included there.
+ * <p>
+ * Tokens and source lines refer to the MIPSprogram they belong to.  Since the
+ * IDE and tools create a new MIPSprogram for each assemble, a reused entry is
+ * moved over to the new program before it is returned.
+ * <p>
+ * An entry also holds the assembler's first pass of the file.  The first pass
+ * is done as if the file started at the segment base addresses, and each
+ * assemble moves it to wherever the file lands, so an edit to one file does
+ * not make the others parse again even though their addresses change.
+ * <p>
+ * The cache holds at most a fixed number of files, dropping the least recently
+ * used when full.  It pays off only when the same files are assembled again, as
+ * in the IDE, so it can be disabled, as it is for a one-shot assemble from the
+ * command line.
+ */
+
+    public class SourceCache {
+
+      /** Number of source files a cache holds unless another capacity is given. */
+      public static final int DEFAULT_CAPACITY = 16;
+
+      private LinkedHashMap<String, Entry> entries; // file name -> Entry, least recently used first
+      private int capacity;
+      private boolean enabled = true;
+
+   /**
+    * Create an empty cache holding up to DEFAULT_CAPACITY files.
+    */
+       public SourceCache() {
+         this(DEFAULT_CAPACITY);
+      }
+
+   /**
+    * Create an empty cache.
+    * @param capacity maximum number of source files held.
+    */
+       public SourceCache(int capacity) {
+         this.capacity = capacity;
+         entries = new LinkedHashMap<String, Entry>(16, 0.75f, true); // in access order
+      }
+
+   /**
+    * Enable or disable the cache.  A disabled cache holds nothing and finds nothing.
+    * @param enabled true to keep tokenized files, false to discard them.
+    */
+       public synchronized void setEnabled(boolean enabled) {
+         this.enabled = enabled;
+         if (!enabled) {
+            entries.clear();
+         }
+      }
+
+   /**
+    * @return true if the cache keeps tokenized files.
+    */
+       public synchronized boolean isEnabled() {
+         return enabled;
+      }
+
+   /**
+    * Look for a cached tokenization of the program's source file.  The program must
+    * have read its source, and its source list must not yet have been replaced by
+    * tokenizing.  If one is found it is moved over to the program, so that its tokens
+    * and source lines belong to that program.
+    * @param program MIPSprogram whose source has just been read.
+    * @return cached tokenization, or null if there is none or the file or any file it
+    * includes has changed.
+    */
+       public synchronized TokenizedSource get(MIPSprogram program) {
+         Entry entry = entries.get(program.getFilename());
+         if (entry == null) {
+            return null;
+         }
+         if (!entry.source.equals(program.getSourceList()) || includesChanged(entry)) {
+            entries.remove(program.getFilename());
+            return null;
+         }
+         if (entry.owner != program) {
+            entry.moveTo(program);
+         }
+         return entry.tokenized;
+      }
+
+   /**
+    * Add the tokenization of the program's source file, replacing any earlier one.
+    * @param program MIPSprogram that has just been tokenized successfully.
+    * @param source list of source lines as read from the file, before tokenizing.
+    * @return the tokenization as added, or null if the cache is disabled.
+    */
+       public synchronized TokenizedSource put(MIPSprogram program, ArrayList<?> source) {
+         if (!enabled) {
+            return null;
+         }
+         Entry entry = new Entry();
+         entry.owner = program;
+         entry.source = source;
+         entry.included = program.getTokenizer().getIncludedPrograms();
+         entry.tokenized = new TokenizedSource(program.getSourceLineList(), program.getTokenList(),
+                                               program.getTokenizer());
+         entries.put(program.getFilename(), entry);
+         if (entries.size() > capacity) {
+            Iterator<String> eldest = entries.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+         }
+         return entry.tokenized;
+      }
+
+   /**
+    * Remove the entry of a source file, if any.  Called when the file is closed.
+    * @param filename name of the file, as given by MIPSprogram.getFilename().
+    */
+       public synchronized void remove(String filename) {
+         entries.remove(filename);
+      }
+
+   /**
+    * Remove all entries.
+    */
+       public synchronized void clear() {
+         entries.clear();
+      }
+
+   /**
+    * @return number of source files cached.
+    */
+       public synchronized int size() {
+         return entries.size();
+      }
+
+      // Re-read each included file and compare with the source it had when cached.
+       private boolean includesChanged(Entry entry) {
+         for (int i = 0; i < entry.included.size(); i++) {
+            MIPSprogram included = entry.included.get(i);
+            MIPSprogram current = new MIPSprogram();
+            try {
+               current.readSource(included.getFilename());
+            }
+                catch (ProcessingException e) {
+                  return true;
+               }
+            if (!current.getSourceList().equals(included.getSourceList())) {
+               return true;
+            }
+         }
+         return false;
+      }
+
+   /**
+    * Results of tokenizing one source file: the source lines after .include
+    * expansion and .eqv substitution, the TokenList for each, and the Tokenizer
+    * used, which holds the file's .eqv definitions.  The assembler adds its
+    * first pass of the file.
+    */
+       public static class TokenizedSource {
+         private ArrayList<SourceLine> sourceLineList;
+         private ArrayList<?> tokenList;
+         private Tokenizer tokenizer;
+         private Assembler firstPass;
+
+          TokenizedSource(ArrayList<SourceLine> sourceLineList, ArrayList<?> tokenList, Tokenizer tokenizer) {
+            this.sourceLineList = sourceLineList;
+            this.tokenList = tokenList;
+            this.tokenizer = tokenizer;
+         }
+
+      /** @return ArrayList of SourceLine, one per line of expanded source. */
+          public ArrayList<SourceLine> getSourceLineList() {
+            return sourceLineList;
+         }
+
+      /** @return ArrayList of TokenList, one per line of expanded source. */
+          public ArrayList<?> getTokenList() {
+            return tokenList;
+         }
+
+      /** @return Tokenizer that produced the token lists. */
+          public Tokenizer getTokenizer() {
+            return tokenizer;
+         }
+
+      // The Assembler that did the first pass of the file, holding its results.
+          synchronized Assembler getFirstPass() {
+            return firstPass;
+         }
+
+          synchronized void setFirstPass(Assembler firstPass) {
+            this.firstPass = firstPass;
+         }
+      }
+
+       private static class Entry {
+         MIPSprogram owner;
+         ArrayList<?> source;
+         ArrayList<MIPSprogram> included;
+         TokenizedSource tokenized;
+
+         // Make the program the owner of the tokens and of the source lines that
+         // came from its own file.  Lines from included files keep their programs.
+          void moveTo(MIPSprogram program) {
+            ArrayList<?> tokenList = tokenized.tokenList;
+            for (int i = 0; i < tokenList.size(); i++) {
+               TokenList tokens = (TokenList) tokenList.get(i);
+               for (int j = 0; j < tokens.size(); j++) {
+                  if (tokens.get(j).getSourceMIPSprogram() == owner) {
+                     tokens.get(j).setSourceMIPSprogram(program);
+                  }
+               }
+            }
+            ArrayList<SourceLine> lines = tokenized.sourceLineList;
+            ArrayList<SourceLine> moved = new ArrayList<SourceLine>(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+               SourceLine line = lines.get(i);
+               moved.add((line.getMIPSprogram() == owner)
+                            ? new SourceLine(line.getSource(), program, line.getLineNumber())
+                            : line);
+            }
+            tokenized.sourceLineList = moved;
+            tokenized.tokenizer.setSourceMIPSprogram(program);
+            owner = program;
+         }
+      }
+   }
@@ -40,6 +40,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private static String startLabel = "main";
       private String filename;
       private ArrayList table;
+      private HashMap index; // label -> Symbol, so that lookups by label need no search
    	// Note -1 is legal 32 bit address (0xFFFFFFFF) but it is the high address in 
    	// kernel address space so highly unlikely that any symbol will have this as 
    	// its associated address!
@@ -53,6 +54,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public SymbolTable(String filename) {
          this.filename = filename;
          this.table = new ArrayList();
+         this.index = new HashMap();
       }    
    	/**
    	  *  Adds a Symbol object into the array of Symbols.
@@ -70,11 +72,30 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          else {
             Symbol s= new Symbol(label, address, b);
             table.add(s);
+            index.put(label, s);
             if (Globals.debug) System.out.println("The symbol " + label + " with address " + address + " has been added to the "+this.filename+" symbol table.");
          }
       }
    
    
+   	/**
+   	  *  Adds a Symbol that did not come from source code, such as one read
+   	  *  from an object file.  Does nothing if the label is already defined.
+   	  *   @param symbol The Symbol to add.
+   	  *   @return true if added, false if a symbol with that label is already defined.
+   	  **/
+   	
+       public boolean addSymbol(Symbol symbol) {
+         if (getSymbol(symbol.getName()) != null) {
+            return false;
+         }
+         table.add(symbol);
+         index.put(symbol.getName(), symbol);
+         if (Globals.debug) System.out.println("The symbol " + symbol.getName() + " with address " + symbol.getAddress() + " has been added to the "+this.filename+" symbol table.");
+         return true;
+      }
+   
+   
    	/**
    	  *   Removes a symbol from the Symbol table.  If not found, it does nothing.
    	  *   This will rarely happen (only when variable is declared .globl after already
@@ -87,6 +108,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          for (int i=0; i < table.size(); i++) {
             if (((Symbol)(table.get(i))).getName().equals(label)){
                table.remove(i);
+               index.remove(label);
                if (Globals.debug) System.out.println("The symbol " + label + " has been removed from the "+this.filename+" symbol table.");
                break;
             }
@@ -101,12 +123,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  *   @return The memory address of the label given, or NOT_FOUND if not found in symbol table.
    	  **/
        public int getAddress(String s){
-         for(int i=0; i < table.size(); i++){
-            if (((Symbol)(table.get(i))).getName().equals(s)){
-               return((Symbol) table.get(i)).getAddress();
-            }
-         }
-         return NOT_FOUND;
+         Symbol symbol = (Symbol) index.get(s);
+         return (symbol == null) ? NOT_FOUND : symbol.getAddress();
       }
       
    	/**
@@ -129,12 +147,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        **/
        
        public Symbol getSymbol(String s){
-         for(int i=0; i < table.size(); i++){
-            if (((Symbol)(table.get(i))).getName().equals(s)){
-               return (Symbol) table.get(i);
-            }
-         }
-         return null;
+         return (Symbol) index.get(s);
       }
    
       /**
@@ -231,6 +244,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 
        public void clear(){
          table= new ArrayList();
+         index= new HashMap();
       }
    	
    /**
@@ -82,6 +82,19 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          this.originalSourceLine = origSourceLine;
       }
 		
+   /**
+    * Set program containing this token.  Used when a cached token list is
+    * reused for a new MIPSprogram representing the same source file.
+    * 
+    * @param program MIPS program now containing this token.
+    **/  		
+       void setSourceMIPSprogram(MIPSprogram program) {
+         if (this.originalMIPSprogram == this.sourceMIPSprogram) {
+            this.originalMIPSprogram = program;
+         }
+         this.sourceMIPSprogram = program;
+      }
+		
    /**
     * Produces original program containing this token.
     * 
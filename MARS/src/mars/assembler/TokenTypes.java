@@ -163,6 +163,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          if (reg != null)
             return TokenTypes.FP_REGISTER_NAME;
        
+       // Numbers begin with a digit, sign or dot, except for the NaN and Infinity
+       // accepted by parseDouble().  Skip the numeric tests, and the exceptions they
+       // throw, for the labels and other identifiers that make up most of what is left.
+         char first = value.charAt(0);
+         if ((Character.isLetter(first) || first == '_' || first == '$')
+               && !value.equals("NaN") && !value.equals("Infinity"))
+            return matchNonNumericTokenType(value);
+
        // See if it is an immediate (constant) integer value
        // Classify based on # bits needed to represent in binary
        // This is needed because most immediate operands limited to 16 bits
@@ -210,18 +218,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        *    // ------------- END    KENV 1/4/05   MODIFICATIONS --------------
        *  
 		 **************************  END DPS 3-July-2008 COMMENTS *******************************/
-           // shift operands must be in range 0-31
-            if (i>=0 && i<=31) {
-               return TokenTypes.INTEGER_5;
-            }
-            
-            if (i>=DataTypes.MIN_UHALF_VALUE && i<=DataTypes.MAX_UHALF_VALUE) {
-                return TokenTypes.INTEGER_16U;
-             }
-            if (i>=DataTypes.MIN_HALF_VALUE && i<=DataTypes.MAX_HALF_VALUE) {
-               return TokenTypes.INTEGER_16;
-            }			  
-            return TokenTypes.INTEGER_32;  // default when no other type is applicable
+            return matchIntegerTokenType(i);
             
             
             /*if (i>=0 && i<=3) {
@@ -266,7 +263,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             {
             // NO ACTION -- exception suppressed
             }
-      	 
+         return matchNonNumericTokenType(value);
+      }
+
+      // Remainder of matchTokenType(), for a value known not to be a register or number.
+       private static TokenTypes matchNonNumericTokenType(String value) {
        // See if it is an instruction operator
          if (Globals.instructionSet.matchOperator(value) != null)
             return TokenTypes.OPERATOR;
@@ -291,6 +292,27 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return TokenTypes.ERROR;
       }
    
+	   /**
+		 *
+		 *  Classifies an integer value by the number of bits needed to represent it.
+		 *
+		 *  @param i the value of an integer token
+		 *  @return INTEGER_5, INTEGER_16U, INTEGER_16 or INTEGER_32, the first whose range includes i.
+		 **/
+       public static TokenTypes matchIntegerTokenType(int i) {
+        // shift operands must be in range 0-31
+         if (i>=0 && i<=31) {
+            return TokenTypes.INTEGER_5;
+         }
+         if (i>=DataTypes.MIN_UHALF_VALUE && i<=DataTypes.MAX_UHALF_VALUE) {
+            return TokenTypes.INTEGER_16U;
+         }
+         if (i>=DataTypes.MIN_HALF_VALUE && i<=DataTypes.MAX_HALF_VALUE) {
+            return TokenTypes.INTEGER_16;
+         }
+         return TokenTypes.INTEGER_32;  // default when no other type is applicable
+      }
+
 	   /**
 		 *
 		 *  Lets you know if given tokentype is for integers (INTGER_5, INTEGER_16, INTEGER_32).
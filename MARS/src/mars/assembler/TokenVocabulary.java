@@ -0,0 +1,165 @@
+   package mars.assembler;
+
+   import mars.*;
+   import mars.mips.hardware.*;
+   import mars.mips.instructions.*;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * The fixed words of the assembly language: punctuation, register names and numbers,
+ * instruction mnemonics, directives and small integers.  Each is held as a single
+ * String along with its token type as given by TokenTypes.matchTokenType(), so the
+ * Tokenizer can look a token up by its position in the source line and, when it is one
+ * of these, neither allocate a String for its value nor classify it again.  Most of
+ * the tokens in a typical program are found here.
+ * <p>
+ * The table is built from the current instruction set the first time it is needed and
+ * is never changed afterward, so it can be shared by tokenizers running in parallel.
+ */
+
+    class TokenVocabulary {
+
+      private static final int SMALL_INTEGERS = 256;
+
+      private static volatile TokenVocabulary current;
+
+      private InstructionSet instructionSet;
+      private String[] values;  // open addressing hash table, null where empty
+      private TokenTypes[] types;
+      private int mask;
+
+   /**
+    * Get the vocabulary of the current instruction set.
+    * @return the vocabulary, built if this is the first use or the instruction set was replaced.
+    */
+       static TokenVocabulary getInstance() {
+         TokenVocabulary vocabulary = current;
+         if (vocabulary == null || vocabulary.instructionSet != Globals.instructionSet) {
+            vocabulary = new TokenVocabulary(Globals.instructionSet);
+            current = vocabulary;
+         }
+         return vocabulary;
+      }
+
+       private TokenVocabulary(InstructionSet instructionSet) {
+         this.instructionSet = instructionSet;
+         ArrayList<String> words = new ArrayList<String>();
+         if (instructionSet != null) {
+            String[] punctuation = { "(", ")", ":", "+", "-", "=" };
+            words.addAll(Arrays.asList(punctuation));
+            Register[] registers = RegisterFile.getRegisters();
+            for (int i = 0; i < registers.length; i++) {
+               words.add(registers[i].getName());
+               words.add("$" + i);
+               words.add("r" + i);
+               words.add("R" + i);
+            }
+            registers = Coprocessor1.getRegisters();
+            for (int i = 0; i < registers.length; i++) {
+               words.add(registers[i].getName());
+            }
+            ArrayList<?> instructions = instructionSet.getInstructionList();
+            for (int i = 0; i < instructions.size(); i++) {
+               words.add(((Instruction) instructions.get(i)).getName());
+            }
+            ArrayList<?> directives = Directives.getDirectiveList();
+            for (int i = 0; i < directives.size(); i++) {
+               words.add(((Directives) directives.get(i)).getName());
+            }
+            for (int i = 0; i < SMALL_INTEGERS; i++) {
+               words.add(Integer.toString(i));
+            }
+         }
+         int capacity = 16;
+         while (capacity < 2 * words.size()) {
+            capacity <<= 1;
+         }
+         values = new String[capacity];
+         types = new TokenTypes[capacity];
+         mask = capacity - 1;
+         for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            if (find(word, 0, word.length()) < 0) {
+               int slot = hash(word, 0, word.length()) & mask;
+               while (values[slot] != null) {
+                  slot = (slot + 1) & mask;
+               }
+               values[slot] = word;
+               types[slot] = TokenTypes.matchTokenType(word);
+            }
+         }
+      }
+
+   /**
+    * Look up the token occupying part of a source line.
+    * @param line the source line.
+    * @param start index in line of the first character of the token.
+    * @param length number of characters in the token.
+    * @return index for getValue() and getType(), or -1 if the token is not in the vocabulary.
+    */
+       int find(String line, int start, int length) {
+         int slot = hash(line, start, length) & mask;
+         String value;
+         while ((value = values[slot]) != null) {
+            if (value.length() == length && line.regionMatches(start, value, 0, length)) {
+               return slot;
+            }
+            slot = (slot + 1) & mask;
+         }
+         return -1;
+      }
+
+   /**
+    * @param index result of find().
+    * @return the token value, shared by all tokens with that value.
+    */
+       String getValue(int index) {
+         return values[index];
+      }
+
+   /**
+    * @param index result of find().
+    * @return the token type.
+    */
+       TokenTypes getType(int index) {
+         return types[index];
+      }
+
+      // String.hashCode() of the characters, spread so the low bits used as the slot vary.
+       private static int hash(String line, int start, int length) {
+         int h = 0;
+         for (int i = start; i < start + length; i++) {
+            h = 31 * h + line.charAt(i);
+         }
+         return h ^ (h >>> 16);
+      }
+   }
@@ -52,6 +52,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private ErrorList errors;
       private MIPSprogram sourceMIPSprogram;
       private HashMap<String,String> equivalents; // DPS 11-July-2012
+      private ArrayList<MIPSprogram> includedPrograms; // files read by .include, for SourceCache
    	// The 8 escaped characters are: single quote, double quote, backslash, newline (linefeed),
    	// tab, backspace, return, form feed.  The characters and their corresponding decimal codes:
       private static final String escapedCharacters = "'\"\\ntbrf0";
@@ -86,6 +87,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public ArrayList tokenize(MIPSprogram p) throws ProcessingException {
          sourceMIPSprogram = p;
          equivalents = new HashMap<String,String>(); // DPS 11-July-2012
+         includedPrograms = new ArrayList<MIPSprogram>();
          ArrayList tokenList = new ArrayList();
          //ArrayList source = p.getSourceList();
          ArrayList<SourceLine> source = processIncludes(p, new HashMap<String,String>()); // DPS 9-Jan-2013
@@ -155,6 +157,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                            "Error reading include file "+filename));	
                         throw new ProcessingException(errors);
                      }
+                  includedPrograms.add(incl);
                   ArrayList<SourceLine> allLines = processIncludes(incl, inclFiles);
                   result.addAll(allLines);
                   hasInclude = true;
@@ -280,23 +283,24 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          TokenList result = new TokenList();
          if (theLine.length() == 0)
             return result;
-      // will be faster to work with char arrays instead of strings
+      // Tokens are scanned in place: each one is the tokenPos characters of theLine
+      // starting at column tokenStartPos, so none is copied until it is classified.
          char c;
-         char[] line = theLine.toCharArray();
+         int lineLength = theLine.length();
          int linePos = 0;
-         char[] token = new char[line.length];
          int tokenPos = 0;
          int tokenStartPos = 1;
+         TokenVocabulary vocabulary = TokenVocabulary.getInstance();
          boolean insideQuotedString = false;  
          if (Globals.debug) 
             System.out.println("source line --->"+theLine+"<---");
       // Each iteration of this loop processes one character in the source line.
-         while (linePos < line.length) {
-            c = line[linePos];
+         while (linePos < lineLength) {
+            c = theLine.charAt(linePos);
             if (insideQuotedString) { // everything goes into token
-               token[tokenPos++] = c;
-               if (c == '"' && token[tokenPos-2] != '\\') { // If quote not preceded by backslash, this is end
-                  this.processCandidateToken(token, program, lineNum, theLine, tokenPos, tokenStartPos, result);
+               tokenPos++;
+               if (c == '"' && theLine.charAt(linePos-1) != '\\') { // If quote not preceded by backslash, this is end
+                  this.processCandidateToken(vocabulary, program, lineNum, theLine, tokenPos, tokenStartPos, result);
                   tokenPos = 0;
                   insideQuotedString = false;
                } 
@@ -305,21 +309,20 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                switch(c) {
                   case '#' :  // # denotes comment that takes remainder of line
                      if (tokenPos > 0) {
-                        this.processCandidateToken(token, program, lineNum, theLine, tokenPos, tokenStartPos, result);
+                        this.processCandidateToken(vocabulary, program, lineNum, theLine, tokenPos, tokenStartPos, result);
                         tokenPos = 0;
                      }
                      tokenStartPos = linePos+1;
-                     tokenPos = line.length-linePos;
-                     System.arraycopy(line, linePos, token, 0, tokenPos);
-                     this.processCandidateToken(token, program, lineNum, theLine, tokenPos, tokenStartPos, result);
-                     linePos = line.length;
+                     tokenPos = lineLength-linePos;
+                     this.processCandidateToken(vocabulary, program, lineNum, theLine, tokenPos, tokenStartPos, result);
+                     linePos = lineLength;
                      tokenPos = 0;
                      break;
                   case ' ' :
                   case '\t':
                   case ',' : // space, tab or comma is delimiter
                      if (tokenPos > 0) {
-                        this.processCandidateToken(token, program, lineNum, theLine, tokenPos, tokenStartPos, result);
+                        this.processCandidateToken(vocabulary, program, lineNum, theLine, tokenPos, tokenStartPos, result);
                         tokenPos = 0;
                      }
                      break;
@@ -331,22 +334,22 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   case '-' :
                       // Here's the REAL hack: recognizing signed exponent in E-notation floating point!
                   	 // (e.g. 1.2e-5) Add the + or - to the token and keep going.  DPS 17 Aug 2005
-                     if (tokenPos > 0 && line.length >= linePos+2 && Character.isDigit(line[linePos+1]) &&
-                                                       (line[linePos-1]=='e' || line[linePos-1]=='E')) {
-                        token[tokenPos++] = c;
+                     if (tokenPos > 0 && lineLength >= linePos+2 && Character.isDigit(theLine.charAt(linePos+1)) &&
+                                                       (theLine.charAt(linePos-1)=='e' || theLine.charAt(linePos-1)=='E')) {
+                        tokenPos++;
                         break;
                      }
                   	 // End of REAL hack.  
                      if (tokenPos > 0) {
-                        this.processCandidateToken(token, program, lineNum, theLine, tokenPos, tokenStartPos, result);
+                        this.processCandidateToken(vocabulary, program, lineNum, theLine, tokenPos, tokenStartPos, result);
                         tokenPos = 0;
                      }
                      tokenStartPos = linePos+1;
-                     token[tokenPos++] = c;
+                     tokenPos++;
                      if ( !((result.isEmpty() || ((Token)result.get(result.size()-1)).getType() != TokenTypes.IDENTIFIER) &&
-                           (line.length >= linePos+2 && Character.isDigit(line[linePos+1]))) ) {
+                           (lineLength >= linePos+2 && Character.isDigit(theLine.charAt(linePos+1)))) ) {
                            // treat it as binary.....
-                        this.processCandidateToken(token, program, lineNum, theLine, tokenPos, tokenStartPos, result);
+                        this.processCandidateToken(vocabulary, program, lineNum, theLine, tokenPos, tokenStartPos, result);
                         tokenPos = 0;
                      }
                      break; 
@@ -355,44 +358,44 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   case '(' :
                   case ')' :
                      if (tokenPos > 0) {
-                        this.processCandidateToken(token, program, lineNum, theLine, tokenPos, tokenStartPos, result);
+                        this.processCandidateToken(vocabulary, program, lineNum, theLine, tokenPos, tokenStartPos, result);
                         tokenPos = 0;
                      }
                      tokenStartPos = linePos+1;
-                     token[tokenPos++] = c;
-                     this.processCandidateToken(token, program, lineNum, theLine, tokenPos, tokenStartPos, result);
+                     tokenPos++;
+                     this.processCandidateToken(vocabulary, program, lineNum, theLine, tokenPos, tokenStartPos, result);
                      tokenPos = 0;
                      break; 
                   case '"' : // we're not inside a quoted string, so start a new token...
                      if (tokenPos > 0) {
-                        this.processCandidateToken(token, program, lineNum, theLine, tokenPos, tokenStartPos, result);
+                        this.processCandidateToken(vocabulary, program, lineNum, theLine, tokenPos, tokenStartPos, result);
                         tokenPos = 0;
                      }
                      tokenStartPos = linePos+1;
-                     token[tokenPos++] = c;
+                     tokenPos++;
                      insideQuotedString = true;
                      break;
                   case '\'' : // start of character constant (single quote).
                      if (tokenPos > 0) {
-                        this.processCandidateToken(token, program, lineNum, theLine, tokenPos, tokenStartPos, result);
+                        this.processCandidateToken(vocabulary, program, lineNum, theLine, tokenPos, tokenStartPos, result);
                         tokenPos = 0;
                      }
                   	// Our strategy is to process the whole thing right now...
                      tokenStartPos = linePos+1;
-                     token[tokenPos++] = c; // Put the quote in token[0]
-                     int lookaheadChars = line.length - linePos - 1;
+                     tokenPos++; // the quote is the first character of the token
+                     int lookaheadChars = lineLength - linePos - 1;
                   	// need minimum 2 more characters, 1 for char and 1 for ending quote
                      if (lookaheadChars < 2) 
                         break;  // gonna be an error
-                     c = line[++linePos]; 
-                     token[tokenPos++] = c; // grab second character, put it in token[1]
+                     c = theLine.charAt(++linePos); 
+                     tokenPos++; // grab second character
                      if (c == '\'') 
                         break; // gonna be an error: nothing between the quotes
-                     c = line[++linePos];  
-                     token[tokenPos++] = c; // grab third character, put it in token[2]
+                     c = theLine.charAt(++linePos);  
+                     tokenPos++; // grab third character
                      // Process if we've either reached second, non-escaped, quote or end of line.
-                     if (c == '\'' && token[1] != '\\' || lookaheadChars==2) { 
-                        this.processCandidateToken(token, program, lineNum, theLine, tokenPos, tokenStartPos, result);
+                     if (c == '\'' && theLine.charAt(tokenStartPos) != '\\' || lookaheadChars==2) { 
+                        this.processCandidateToken(vocabulary, program, lineNum, theLine, tokenPos, tokenStartPos, result);
                         tokenPos = 0;
                         tokenStartPos = linePos+1;
                         break;
@@ -400,11 +403,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   	// At this point, there is at least one more character on this line. If we're 
                   	// still here after seeing a second quote, it was escaped.  Not done yet;
                   	// we either have an escape code, an octal code (also escaped) or invalid.
-                     c = line[++linePos]; 
-                     token[tokenPos++] = c; // grab fourth character, put it in token[3]
+                     c = theLine.charAt(++linePos); 
+                     tokenPos++; // grab fourth character
                   	// Process, if this is ending quote for escaped character or if at end of line
                      if (c == '\'' || lookaheadChars==3) { 
-                        this.processCandidateToken(token, program, lineNum, theLine, tokenPos, tokenStartPos, result);
+                        this.processCandidateToken(vocabulary, program, lineNum, theLine, tokenPos, tokenStartPos, result);
                         tokenPos = 0;
                         tokenStartPos = linePos+1;
                         break;
@@ -412,30 +415,30 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   	// At this point, we've handled all legal possibilities except octal, e.g. '\377'
                   	// Proceed, if enough characters remain to finish off octal.
                      if (lookaheadChars >= 5) {
-                        c = line[++linePos]; 
-                        token[tokenPos++] = c;  // grab fifth character, put it in token[4]
+                        c = theLine.charAt(++linePos); 
+                        tokenPos++;  // grab fifth character
                         if (c != '\'') {
                            // still haven't reached end, last chance for validity!
-                           c = line[++linePos];   
-                           token[tokenPos++] = c;  // grab sixth character, put it in token[5]
+                           c = theLine.charAt(++linePos);   
+                           tokenPos++;  // grab sixth character
                         }
                      }
                   	// process no matter what...we either have a valid character by now or not
-                     this.processCandidateToken(token, program, lineNum, theLine, tokenPos, tokenStartPos, result);
+                     this.processCandidateToken(vocabulary, program, lineNum, theLine, tokenPos, tokenStartPos, result);
                      tokenPos = 0;
                      tokenStartPos = linePos+1;
                      break;																			
                   default :
                      if (tokenPos == 0)
                         tokenStartPos = linePos+1;
-                     token[tokenPos++] = c;
+                     tokenPos++;
                      break; 
                }  // switch
             } // if (insideQuotedString)
             linePos++;
          }  // while
          if (tokenPos > 0) {
-            this.processCandidateToken(token, program, lineNum, theLine, tokenPos, tokenStartPos, result);
+            this.processCandidateToken(vocabulary, program, lineNum, theLine, tokenPos, tokenStartPos, result);
             tokenPos = 0;
          }
          if (doEqvSubstitutes) {
@@ -526,14 +529,63 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public ErrorList getErrors() {
          return errors;
       }
+   
+   /** 
+    * Fetch the programs read for .include directives by the last call to tokenize().
+    *
+    * @return ArrayList of MIPSprogram, one per included file, holding its source as read.
+    */
+       public ArrayList<MIPSprogram> getIncludedPrograms() {
+         return includedPrograms;
+      }
+   
+   /** 
+    * Tell whether a symbol has been defined by a .eqv directive, so that tokenizing
+    * a line would substitute its expression for it.
+    *
+    * @param symbol the symbol
+    * @return true if it has been defined by .eqv
+    */
+       boolean hasEquivalent(String symbol) {
+         return equivalents != null && equivalents.containsKey(symbol);
+      }
+   
+   /** 
+    * Change the program whose lines this Tokenizer tokenizes.  Used by SourceCache
+    * when reusing this Tokenizer, and its .eqv definitions, for a new MIPSprogram.
+    *
+    * @param program the MIPSprogram
+    */
+       void setSourceMIPSprogram(MIPSprogram program) {
+         sourceMIPSprogram = program;
+      }
    	 
    
-   // Given candidate token and its position, will classify and record it.
-       private void processCandidateToken(char[] token, MIPSprogram program, int line, String theLine, 
+   // Given candidate token and its position, will classify and record it.  The token is
+   // the tokenPos characters of theLine starting at column tokenStartPos.  Operators,
+   // registers, directives and the like take their value and type from the vocabulary
+   // and plain integers are classified here, so only the rest go through matchTokenType().
+       private void processCandidateToken(TokenVocabulary vocabulary, MIPSprogram program, int line, String theLine, 
        int tokenPos, int tokenStartPos, TokenList tokenList) {
-         String value = new String(token, 0, tokenPos);
-         if (value.length() > 0 && value.charAt(0)=='\'') value = preprocessCharacterLiteral(value);
-         TokenTypes type = TokenTypes.matchTokenType(value);
+         int start = tokenStartPos - 1;
+         String value;
+         TokenTypes type;
+         int word = vocabulary.find(theLine, start, tokenPos);
+         if (word >= 0) {
+            value = vocabulary.getValue(word);
+            type = vocabulary.getType(word);
+         } 
+         else {
+            value = theLine.substring(start, start + tokenPos);
+            long integer = integerValue(theLine, start, tokenPos);
+            if (integer != Long.MIN_VALUE) {
+               type = TokenTypes.matchIntegerTokenType((int) integer);
+            } 
+            else {
+               if (value.charAt(0)=='\'') value = preprocessCharacterLiteral(value);
+               type = TokenTypes.matchTokenType(value);
+            }
+         }
          if (type == TokenTypes.ERROR) {
             errors.add(new ErrorMessage(program, line, tokenStartPos, 
                        theLine+"\nInvalid language element: "+value));
@@ -545,6 +597,42 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	
    	
    	
+   // Value of a token that is a decimal integer of at most 9 digits, possibly signed, or an
+   // unsigned hexadecimal integer of at most 8 digits; Long.MIN_VALUE for anything else,
+   // including octal.  These have the value Binary.stringToInt() would give them, and
+   // recognizing them here saves matchTokenType() the exceptions thrown by the tests it
+   // makes first.
+       private static long integerValue(String line, int start, int length) {
+         int end = start + length;
+         int pos = start;
+         char c = line.charAt(pos);
+         if (length > 2 && c == '0' && (line.charAt(pos+1) == 'x' || line.charAt(pos+1) == 'X')) {
+            if (length > 10) 
+               return Long.MIN_VALUE;
+            long value = 0;
+            for (pos += 2; pos < end; pos++) {
+               int digit = Character.digit(line.charAt(pos), 16);
+               if (digit < 0 || line.charAt(pos) > 'f') 
+                  return Long.MIN_VALUE;
+               value = (value << 4) + digit;
+            }
+            return (int) value;
+         }
+         boolean negative = (c == '-');
+         if ((c == '-' || c == '+') && length > 1) 
+            pos++;
+         if (end - pos > 9 || (line.charAt(pos) == '0' && end - pos > 1)) 
+            return Long.MIN_VALUE;
+         long value = 0;
+         for (; pos < end; pos++) {
+            c = line.charAt(pos);
+            if (c < '0' || c > '9') 
+               return Long.MIN_VALUE;
+            value = value * 10 + (c - '0');
+         }
+         return (negative) ? -value : value;
+      }
+
    	// If passed a candidate character literal, attempt to translate it into integer constant.
    	// If the translation fails, return original value.
        private String preprocessCharacterLiteral(String value) {
@@ -33,6 +33,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 /**
  * Abstract class for memory dump file formats.  Provides constructors and
  * defaults for everything except the dumpMemoryRange method itself.
+ * Formats that write one record per memory word should extend
+ * AbstractWordDumpFormat instead.
  * 
  * @author Pete Sanderson 
  * @version December 2007
@@ -114,5 +116,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    */
        public abstract void dumpMemoryRange(File file, int firstAddress, int lastAddress)
 		    throws AddressErrorException, IOException;
+
+      /** Number of memory words transferred to or from Memory at a time */
+      protected static final int DUMP_BLOCK_WORDS = 1024;
    
-   }
\ No newline at end of file
+   }
\ No newline at end of file
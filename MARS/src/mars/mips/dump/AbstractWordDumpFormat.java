@@ -0,0 +1,133 @@
+   package mars.mips.dump;
+
+   import mars.Globals;
+   import mars.mips.hardware.*;
+   import java.io.*;
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+/**
+ * Abstract class for dump formats that write one record per memory word.
+ * Subclasses implement dumpMemoryRange by calling dumpWords() and provide
+ * writeWord(), plus writePrologue() and writeEpilogue() if the format has a
+ * header or trailer.
+ */
+
+    public abstract class AbstractWordDumpFormat extends AbstractDumpFormat {
+   
+   	/**
+   	 *  Typical constructor.  Note you cannot creates objects from this
+   	 *  class but subclass constructor can call this one.
+   	 *  @param name Brief descriptive name to be displayed in selection list.
+   	 *  @param commandDescriptor One-word descriptive name to be used by MARS command mode parser and user.
+   	 *  @param description Description to go with standard file extension for
+   	 *   display in file save dialog or to be used as tool tip.
+   	 *  @param extension Standard file extension for this format.  Null if none.
+   	 */
+       public AbstractWordDumpFormat(String name, String commandDescriptor, 
+                                     String description, String extension) {
+         super(name, commandDescriptor, description, extension);
+      }
+   
+   /**
+   *  Shared streaming dump pipeline.  Reads MIPS memory a block of words at a
+   *  time using Memory.getRawWords() and passes each word to writeWord().
+   *  As with the original word-at-a-time loop, output ends at the first word that
+   *  has never been allocated (data) or that contains no instruction (text).
+   *  writePrologue() and writeEpilogue() are called before the first and after the
+   *  last word.  The writer is flushed and closed when done.
+   *
+   *  @param  file  File in which to store MIPS memory contents.  
+   *  @param firstAddress first (lowest) memory address to dump.  In bytes but
+   *  must be on word boundary.
+   *  @param lastAddress last (highest) memory address to dump.  In bytes but
+   *  must be on word boundary.  Will dump the word that starts at this address.
+   *  @throws AddressErrorException if firstAddress is invalid or not on a word boundary.
+   *  @throws IOException if error occurs during file output.
+   */
+       protected void dumpWords(File file, int firstAddress, int lastAddress)
+          throws AddressErrorException, IOException {
+         DumpWriter out = new DumpWriter(file);
+         try {
+            writePrologue(out, firstAddress, lastAddress);
+            int[] words = new int[DUMP_BLOCK_WORDS];
+            long remaining = ((long) lastAddress - firstAddress) / Memory.WORD_LENGTH_BYTES + 1;
+            int address = firstAddress;
+            while (remaining > 0) {
+               int wanted = (int) Math.min(DUMP_BLOCK_WORDS, remaining);
+               int count = Globals.memory.getRawWords(address, words, wanted);
+               for (int i = 0; i < count; i++) {
+                  writeWord(out, address, words[i]);
+                  address += Memory.WORD_LENGTH_BYTES;
+               }
+               if (count < wanted) 
+                  break;
+               remaining -= count;
+            }
+            writeEpilogue(out, firstAddress, address);
+         } 
+         finally { 
+            out.close(); 
+         }
+      }
+
+   /**
+   *  Write anything that precedes the memory words, such as a header.  Does
+   *  nothing unless overridden.
+   *
+   *  @param out DumpWriter for the dump file.
+   *  @param firstAddress first memory address to be dumped.
+   *  @param lastAddress last memory address requested to be dumped.
+   *  @throws IOException if error occurs during file output.
+   */
+       protected void writePrologue(DumpWriter out, int firstAddress, int lastAddress) throws IOException {
+      }
+
+   /**
+   *  Write one memory word in this format.
+   *
+   *  @param out DumpWriter for the dump file.
+   *  @param address memory address of the word.
+   *  @param word the 32 bit memory word.
+   *  @throws IOException if error occurs during file output.
+   */
+       protected abstract void writeWord(DumpWriter out, int address, int word) throws IOException;
+
+   /**
+   *  Write anything that follows the memory words, such as an end record.  Does
+   *  nothing unless overridden.
+   *
+   *  @param out DumpWriter for the dump file.
+   *  @param firstAddress first memory address dumped.
+   *  @param endAddress address following the last word actually dumped.
+   *  @throws IOException if error occurs during file output.
+   */
+       protected void writeEpilogue(DumpWriter out, int firstAddress, int endAddress) throws IOException {
+      }
+   
+   }
@@ -0,0 +1,140 @@
+   package mars.mips.dump;
+
+   import mars.Globals;
+   import mars.mips.hardware.*;
+   import mars.simulator.Exceptions;
+   import java.io.*;
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+/**
+ * Abstract class for word dump formats that can also be read back into memory.
+ * Subclasses implement loadMemoryRange by calling loadWords() and provide
+ * readWord().  Words are stored consecutively unless the format records an
+ * address for each word, in which case it also overrides getWordAddress().
+ */
+
+    public abstract class AbstractWordLoadFormat extends AbstractWordDumpFormat implements LoadFormat {
+   
+   	/**
+   	 *  Typical constructor.  Note you cannot creates objects from this
+   	 *  class but subclass constructor can call this one.
+   	 *  @param name Brief descriptive name to be displayed in selection list.
+   	 *  @param commandDescriptor One-word descriptive name to be used by MARS command mode parser and user.
+   	 *  @param description Description to go with standard file extension for
+   	 *   display in file save dialog or to be used as tool tip.
+   	 *  @param extension Standard file extension for this format.  Null if none.
+   	 */
+       public AbstractWordLoadFormat(String name, String commandDescriptor, 
+                                     String description, String extension) {
+         super(name, commandDescriptor, description, extension);
+      }
+   
+   /**
+   *  Shared streaming load pipeline.  Calls readWord() repeatedly to decode the
+   *  file and stores the words into MIPS memory a block at a time using
+   *  Memory.setRawWords().  A block is stored early whenever getWordAddress()
+   *  places the next word somewhere other than right after the previous one.
+   *
+   *  @param  file  File containing MIPS memory contents.
+   *  @param firstAddress memory address at which to store the first word.  In bytes but
+   *  must be on word boundary.
+   *  @return address following the last word loaded.
+   *  @throws AddressErrorException if firstAddress or a word address is not on a word
+   *  boundary or the contents extend outside the MARS addressing range.
+   *  @throws IOException if error occurs during file input.
+   */
+       protected int loadWords(File file, int firstAddress)
+          throws AddressErrorException, IOException {
+         if (firstAddress % Memory.WORD_LENGTH_BYTES != 0) {
+            throw new AddressErrorException("load address not aligned on word boundary ",
+                  Exceptions.ADDRESS_EXCEPTION_STORE, firstAddress);
+         }
+         DumpReader in = new DumpReader(file);
+         try {
+            int[] words = new int[DUMP_BLOCK_WORDS];
+            int address = firstAddress;
+            int count = 0;
+            while (readWord(in, words, count)) {
+               int next = address + count * Memory.WORD_LENGTH_BYTES;
+               int wordAddress = getWordAddress(firstAddress, next);
+               if (wordAddress != next) {
+                  if (wordAddress % Memory.WORD_LENGTH_BYTES != 0) {
+                     throw new AddressErrorException("load address not aligned on word boundary ",
+                           Exceptions.ADDRESS_EXCEPTION_STORE, wordAddress);
+                  }
+                  if (count > 0) {
+                     Globals.memory.setRawWords(address, words, count);
+                     words[0] = words[count];
+                  }
+                  address = wordAddress;
+                  count = 0;
+               }
+               count++;
+               if (count == DUMP_BLOCK_WORDS) {
+                  Globals.memory.setRawWords(address, words, count);
+                  address += count * Memory.WORD_LENGTH_BYTES;
+                  count = 0;
+               }
+            }
+            if (count > 0) {
+               Globals.memory.setRawWords(address, words, count);
+               address += count * Memory.WORD_LENGTH_BYTES;
+            }
+            return address;
+         } 
+         finally { 
+            in.close(); 
+         }
+      }
+   
+   /**
+   *  Decode the next memory word in this format.
+   *
+   *  @param in DumpReader for the dump file.
+   *  @param words array to receive the word.
+   *  @param index position in the array at which to store the word.
+   *  @return true if a word was stored, false if there are no more words.
+   *  @throws IOException if error occurs during file input or the contents are not in this format.
+   */
+       protected abstract boolean readWord(DumpReader in, int[] words, int index) throws IOException;
+   
+   /**
+   *  Memory address of the word just decoded by readWord().  Returns nextAddress,
+   *  the address following the previous word, unless overridden by a format whose
+   *  records carry their own address.
+   *
+   *  @param firstAddress memory address given to loadWords().
+   *  @param nextAddress address following the previous word loaded.
+   *  @return memory address at which to store the word.
+   */
+       protected int getWordAddress(int firstAddress, int nextAddress) {
+         return nextAddress;
+      }
+   
+   }
@@ -44,7 +44,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
 
 
-    public class AsciiTextDumpFormat extends AbstractDumpFormat {
+    public class AsciiTextDumpFormat extends AbstractWordDumpFormat {
    
    /**
    *  Constructor.  There is no standard file extension for this format.
@@ -61,7 +61,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 	*  followed by single-character code, e.g. \t for tab, \0 for null.
 	*  Non-printing character (control code,
 	*  values above 127) is rendered as a period (.).  Written
-	*  using PrintStream's println() method.
+	*  through the buffered dump pipeline in AbstractWordDumpFormat.
    *  Adapted by Pete Sanderson from code written by Greg Gibeling.
    *
    *  @param  file  File in which to store MIPS memory contents.  
@@ -74,19 +74,18 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    */
        public void dumpMemoryRange(File file, int firstAddress, int lastAddress) 
         throws AddressErrorException, IOException {
-         PrintStream out = new PrintStream(new FileOutputStream(file));
-         String string = null;
-         try {
-            for (int address = firstAddress; address <= lastAddress; address += Memory.WORD_LENGTH_BYTES) {
-               Integer temp = Globals.memory.getRawWordOrNull(address);
-               if (temp == null) 
-                  break;
-               out.println(Binary.intToAscii(temp.intValue()));
-            }
-         } 
-         finally { 
-            out.close(); 
+         dumpWords(file, firstAddress, lastAddress);
+      }
+   
+   /**
+   *  Write one word as its four ASCII renderings followed by line separator.
+   */
+       protected void writeWord(DumpWriter out, int address, int word) throws IOException {
+         for (int i = 3; i >= 0; i--) {
+            int byteValue = Binary.getByte(word, i);
+            out.putString((byteValue < Globals.ASCII_TABLE.length) ? Globals.ASCII_TABLE[byteValue] : Globals.ASCII_NON_PRINT);
          }
+         out.newLine();
       }
    
-   }
\ No newline at end of file
+   }
\ No newline at end of file
@@ -34,13 +34,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 /**
  * Class that represents the "binary" memory dump format.  The output 
  * is a binary file containing the memory words as a byte stream.  Output
- * is produced using PrintStream's write() method.
+ * is produced through the buffered dump pipeline in AbstractWordDumpFormat.
  * @author Pete Sanderson 
  * @version December 2007
  */
 
 
-    public class BinaryDumpFormat extends AbstractDumpFormat {
+    public class BinaryDumpFormat extends AbstractWordLoadFormat {
    
    /**
    *  Constructor.  There is no standard file extension for this format.
@@ -51,8 +51,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    
    
    /**
-   *  Write MIPS memory contents in pure binary format.  One byte at a time
-	*  using PrintStream's write() method.  Adapted by Pete Sanderson from
+   *  Write MIPS memory contents in pure binary format.  Each word is written
+	*  low order byte first.  Adapted by Pete Sanderson from
 	*  code written by Greg Gibeling.
 	*
    *  @param  file  File in which to store MIPS memory contents.  
@@ -65,20 +65,44 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    */
        public void dumpMemoryRange(File file, int firstAddress, int lastAddress) 
         throws AddressErrorException, IOException {
-         PrintStream out = new PrintStream(new FileOutputStream(file));
-         try {
-            for (int address = firstAddress; address <= lastAddress; address += Memory.WORD_LENGTH_BYTES) {
-               Integer temp = Globals.memory.getRawWordOrNull(address);
-               if (temp == null) 
-                  break;
-               int word = temp.intValue();
-               for (int i = 0; i < 4; i++) 
-                  out.write((word >>> (i << 3)) & 0xFF);
-            }
-         } 
-         finally { 
-            out.close(); 
-         }
+         dumpWords(file, firstAddress, lastAddress);
+      }
+   
+   /**
+   *  Write the four bytes of one word, low order byte first.
+   */
+       protected void writeWord(DumpWriter out, int address, int word) throws IOException {
+         out.putWordLittleEndian(word);
       }
    
-   }
\ No newline at end of file
+   
+   /**
+   *  Read MIPS memory contents written in binary format and store them
+   *  into memory starting at the given address, through the buffered load pipeline in
+   *  AbstractWordLoadFormat.
+   *
+   *  @param  file  File containing MIPS memory contents.
+   *  @param firstAddress memory address at which to store the first word.  In bytes but
+   *  must be on word boundary.
+   *  @return address following the last word loaded.
+   *  @throws AddressErrorException if firstAddress is not on a word boundary or the
+   *  contents extend outside the MARS addressing range.
+   *  @throws IOException if error occurs during file input.
+   */
+       public int loadMemoryRange(File file, int firstAddress)
+          throws AddressErrorException, IOException {
+         return loadWords(file, firstAddress);
+      }
+
+   /**
+   *  Read one word as 4 bytes, least significant byte first.
+   */
+       protected boolean readWord(DumpReader in, int[] words, int index) throws IOException {
+         if (in.atEnd()) {
+            return false;
+         }
+         words[index] = in.readWordLittleEndian();
+         return true;
+      }
+
+   }
\ No newline at end of file
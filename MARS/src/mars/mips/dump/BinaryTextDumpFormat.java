@@ -40,7 +40,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
 
 
-    public class BinaryTextDumpFormat extends AbstractDumpFormat {
+    public class BinaryTextDumpFormat extends AbstractWordLoadFormat {
    
    /**
    *  Constructor.  There is no standard file extension for this format.
@@ -53,7 +53,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    /**
    *  Write MIPS memory contents in binary text format.  Each line of
    *  text contains one memory word written as 32 '0' and '1' characters.  Written
-   *  using PrintStream's println() method.
+   *  through the buffered dump pipeline in AbstractWordDumpFormat.
    *  Adapted by Pete Sanderson from code written by Greg Gibeling.
    *
    *  @param  file  File in which to store MIPS memory contents.  
@@ -66,23 +66,47 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    */
        public void dumpMemoryRange(File file, int firstAddress, int lastAddress) 
         throws AddressErrorException, IOException {
-         PrintStream out = new PrintStream(new FileOutputStream(file));
-         String string = null;
-         try {
-            for (int address = firstAddress; address <= lastAddress; address += Memory.WORD_LENGTH_BYTES) {
-               Integer temp = Globals.memory.getRawWordOrNull(address);
-               if (temp == null) 
-                  break;
-               string = Integer.toBinaryString(temp.intValue());
-               while (string.length() < 32) {
-                  string = '0' + string;
-               }
-               out.println(string);
-            }
-         } 
-         finally { 
-            out.close(); 
-         }
+         dumpWords(file, firstAddress, lastAddress);
+      }
+   
+   /**
+   *  Write one word as 32 '0' and '1' characters followed by line separator.
+   */
+       protected void writeWord(DumpWriter out, int address, int word) throws IOException {
+         out.putBinary(word);
+         out.newLine();
       }
    
-   }
\ No newline at end of file
+   
+   /**
+   *  Read MIPS memory contents written in binary text format and store them
+   *  into memory starting at the given address, through the buffered load pipeline in
+   *  AbstractWordLoadFormat.
+   *
+   *  @param  file  File containing MIPS memory contents.
+   *  @param firstAddress memory address at which to store the first word.  In bytes but
+   *  must be on word boundary.
+   *  @return address following the last word loaded.
+   *  @throws AddressErrorException if firstAddress is not on a word boundary or the
+   *  contents extend outside the MARS addressing range.
+   *  @throws IOException if error occurs during file input.
+   */
+       public int loadMemoryRange(File file, int firstAddress)
+          throws AddressErrorException, IOException {
+         return loadWords(file, firstAddress);
+      }
+
+   /**
+   *  Read one word from a line of 32 '0' and '1' characters.  Blank lines are skipped.
+   */
+       protected boolean readWord(DumpReader in, int[] words, int index) throws IOException {
+         do {
+            if (!in.readLine()) {
+               return false;
+            }
+         } while (in.getLineLength() == 0);
+         words[index] = in.parseBinary(0, 32);
+         return true;
+      }
+
+   }
\ No newline at end of file
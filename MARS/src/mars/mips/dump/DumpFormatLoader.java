@@ -92,6 +92,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
          return match;
       }
+
+      /**
+       *  Find the loadable format among the given dump formats.
+       *  @param formatList ArrayList of DumpFormat, as returned by loadDumpFormats().
+       *  @param formatCommandDescriptor command descriptor of the desired format.
+       *  @return the matching format if it also implements LoadFormat, otherwise null.
+       */
+       public static LoadFormat findLoadFormatGivenCommandDescriptor(ArrayList formatList, String formatCommandDescriptor) {
+         DumpFormat match = findDumpFormatGivenCommandDescriptor(formatList, formatCommandDescriptor);
+         return (match instanceof LoadFormat) ? (LoadFormat) match : null;
+      }
    			
          
    }
@@ -0,0 +1,245 @@
+   package mars.mips.dump;
+
+   import java.io.*;
+   import java.nio.*;
+   import java.nio.channels.*;
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Buffered input channel used to load memory dump files back into MIPS memory.
+ * The file is read into a large reusable byte buffer and text formats are decoded
+ * a line at a time directly from the buffered bytes, without creating a String
+ * per line.  This is the input counterpart of DumpWriter.  All dump formats are
+ * ASCII so no character set decoding is needed.
+ */
+
+    public class DumpReader {
+
+      private static final int BUFFER_LENGTH_BYTES = 256 * 1024;
+      private static final int INITIAL_LINE_LENGTH = 128;
+
+      // Value of each hex digit character, -1 if not a hex digit.
+      private static final byte[] HEX_VALUES = buildHexValues();
+
+      private FileInputStream stream;
+      private FileChannel channel;
+      private byte[] bytes;
+      private ByteBuffer buffer;
+      private int position;
+      private int limit;
+      private boolean endOfFile;
+      private byte[] line;
+      private int lineLength;
+      private int lineNumber;
+
+   /**
+    *  Open the given file for reading a memory dump.
+    *  @param file File to read.
+    *  @throws FileNotFoundException if the file cannot be opened for reading.
+    */
+       public DumpReader(File file) throws FileNotFoundException {
+         stream = new FileInputStream(file);
+         channel = stream.getChannel();
+         bytes = new byte[BUFFER_LENGTH_BYTES];
+         buffer = ByteBuffer.wrap(bytes);
+         position = limit = 0;
+         endOfFile = false;
+         line = new byte[INITIAL_LINE_LENGTH];
+         lineLength = lineNumber = 0;
+      }
+
+   /**
+    *  Read the next line of text.  The line terminator, either "\n" or "\r\n", is
+    *  not included.  Its characters are then available through getLineLength(),
+    *  getLineByte(), parseHex() and parseBinary().
+    *  @return true if a line was read, false if the end of file was reached.
+    */
+       public boolean readLine() throws IOException {
+         lineLength = 0;
+         if (!fill()) {
+            return false;
+         }
+         while (fill()) {
+            byte b = bytes[position++];
+            if (b == '\n') {
+               break;
+            }
+            if (lineLength == line.length) {
+               byte[] longer = new byte[line.length * 2];
+               System.arraycopy(line, 0, longer, 0, lineLength);
+               line = longer;
+            }
+            line[lineLength++] = b;
+         }
+         if (lineLength > 0 && line[lineLength - 1] == '\r') {
+            lineLength--;
+         }
+         lineNumber++;
+         return true;
+      }
+
+   /**
+    *  Get the number of characters in the current line.
+    *  @return length of line most recently read by readLine().
+    */
+       public int getLineLength() {
+         return lineLength;
+      }
+
+   /**
+    *  Get one character of the current line.
+    *  @param index position of the character in the line, starting at 0.
+    *  @return the character.
+    */
+       public int getLineByte(int index) {
+         return line[index];
+      }
+
+   /**
+    *  Decode hexadecimal digits from the current line.
+    *  @param start position of the first (most significant) digit in the line.
+    *  @param digits number of digits to decode, 1 through 8.
+    *  @return the decoded value.
+    *  @throws IOException if the line is too short or contains a non-hex character.
+    */
+       public int parseHex(int start, int digits) throws IOException {
+         if (start < 0 || start + digits > lineLength) {
+            throw formatError("line too short");
+         }
+         int value = 0;
+         for (int i = start; i < start + digits; i++) {
+            int digit = HEX_VALUES[line[i] & 0xFF];
+            if (digit < 0) {
+               throw formatError("invalid hexadecimal digit '"+(char) line[i]+"'");
+            }
+            value = (value << 4) | digit;
+         }
+         return value;
+      }
+
+   /**
+    *  Decode '0' and '1' characters from the current line.
+    *  @param start position of the first (most significant) bit in the line.
+    *  @param digits number of bits to decode, 1 through 32.
+    *  @return the decoded value.
+    *  @throws IOException if the line is too short or contains a character other than '0' or '1'.
+    */
+       public int parseBinary(int start, int digits) throws IOException {
+         if (start < 0 || start + digits > lineLength) {
+            throw formatError("line too short");
+         }
+         int value = 0;
+         for (int i = start; i < start + digits; i++) {
+            int bit = line[i] - '0';
+            if ((bit & ~1) != 0) {
+               throw formatError("invalid binary digit '"+(char) line[i]+"'");
+            }
+            value = (value << 1) | bit;
+         }
+         return value;
+      }
+
+   /**
+    *  Determine whether all bytes of the file have been consumed.
+    *  @return true if there is nothing left to read.
+    */
+       public boolean atEnd() throws IOException {
+         return !fill();
+      }
+
+   /**
+    *  Read the next four bytes as a word, least significant byte first.
+    *  @return the word.
+    *  @throws IOException if fewer than four bytes remain.
+    */
+       public int readWordLittleEndian() throws IOException {
+         int value = 0;
+         for (int shift = 0; shift < 32; shift += 8) {
+            if (!fill()) {
+               throw new IOException("file length is not a multiple of 4 bytes");
+            }
+            value |= (bytes[position++] & 0xFF) << shift;
+         }
+         return value;
+      }
+
+   /**
+    *  Build an exception describing a formatting problem in the current line.
+    *  @param message description of the problem.
+    *  @return IOException with the message and the line number.
+    */
+       public IOException formatError(String message) {
+         return new IOException(message+" in line "+lineNumber);
+      }
+
+   /**
+    *  Close the file.
+    */
+       public void close() throws IOException {
+         stream.close();
+      }
+
+      // Make sure at least one unread byte is in the buffer.  Returns false at end of file.
+       private boolean fill() throws IOException {
+         if (position < limit) {
+            return true;
+         }
+         if (endOfFile) {
+            return false;
+         }
+         buffer.clear();
+         int count = 0;
+         while (count == 0) {
+            count = channel.read(buffer);
+         }
+         if (count < 0) {
+            endOfFile = true;
+            position = limit = 0;
+            return false;
+         }
+         position = 0;
+         limit = count;
+         return true;
+      }
+
+       private static byte[] buildHexValues() {
+         byte[] values = new byte[256];
+         for (int i = 0; i < 256; i++) {
+            values[i] = -1;
+         }
+         for (int i = 0; i < 10; i++) {
+            values['0' + i] = (byte) i;
+         }
+         for (int i = 0; i < 6; i++) {
+            values['a' + i] = values['A' + i] = (byte) (10 + i);
+         }
+         return values;
+      }
+   }
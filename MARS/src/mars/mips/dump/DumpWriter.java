@@ -0,0 +1,223 @@
+   package mars.mips.dump;
+
+   import java.io.*;
+   import java.nio.*;
+   import java.nio.channels.*;
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+/**
+ * Buffered output channel used by the memory dump formats.  Characters are
+ * encoded directly into a large reusable byte buffer using precomputed lookup
+ * tables for hexadecimal and binary digits, and the buffer is written to the
+ * file channel only when full.  This replaces the PrintStream-per-word and
+ * string-padding approach formerly used by each format.  All dump formats
+ * produce ASCII output so no character set encoding is needed.
+ */
+
+    public class DumpWriter {
+
+      private static final int BUFFER_LENGTH_BYTES = 256 * 1024;
+
+      private static final byte[] HEX_LOWER = "0123456789abcdef".getBytes();
+      private static final byte[] HEX_UPPER = "0123456789ABCDEF".getBytes();
+      // Two hex characters for each byte value 0-255, lower and upper case.
+      private static final byte[] HEX_PAIRS_LOWER = buildHexPairs(HEX_LOWER);
+      private static final byte[] HEX_PAIRS_UPPER = buildHexPairs(HEX_UPPER);
+      // Eight '0'/'1' characters for each byte value 0-255.
+      private static final byte[] BINARY_OCTETS = buildBinaryOctets();
+      private static final byte[] LINE_SEPARATOR = System.getProperty("line.separator").getBytes();
+
+      private FileOutputStream stream;
+      private FileChannel channel;
+      private byte[] bytes;
+      private ByteBuffer buffer;
+      private int position;
+
+   /**
+    *  Open the given file for dump output, replacing any previous contents.
+    *  @param file File to write.
+    *  @throws FileNotFoundException if the file cannot be opened for writing.
+    */
+       public DumpWriter(File file) throws FileNotFoundException {
+         stream = new FileOutputStream(file);
+         channel = stream.getChannel();
+         bytes = new byte[BUFFER_LENGTH_BYTES];
+         buffer = ByteBuffer.wrap(bytes);
+         position = 0;
+      }
+
+   /**
+    *  Write the given number of low-order hexadecimal digits of the value,
+    *  with leading zeroes.
+    *  @param value Value to write.
+    *  @param digits Number of digits to write, 1 through 8.
+    *  @param upperCase true for A-F, false for a-f.
+    */
+       public void putHex(int value, int digits, boolean upperCase) throws IOException {
+         ensureRoom(digits);
+         if (digits == 8) {
+            byte[] pairs = (upperCase) ? HEX_PAIRS_UPPER : HEX_PAIRS_LOWER;
+            putPair(pairs, value >>> 24);
+            putPair(pairs, (value >>> 16) & 0xFF);
+            putPair(pairs, (value >>> 8) & 0xFF);
+            putPair(pairs, value & 0xFF);
+            return;
+         }
+         byte[] table = (upperCase) ? HEX_UPPER : HEX_LOWER;
+         for (int shift = (digits - 1) << 2; shift >= 0; shift -= 4) {
+            bytes[position++] = table[(value >>> shift) & 0xF];
+         }
+      }
+
+   /**
+    *  Write the value in hexadecimal using at least the given number of digits,
+    *  more if needed.  Equivalent to padding Integer.toHexString() with zeroes.
+    *  @param value Value to write, treated as unsigned.
+    *  @param minimumDigits Minimum number of digits to write.
+    *  @param upperCase true for A-F, false for a-f.
+    */
+       public void putHexAtLeast(int value, int minimumDigits, boolean upperCase) throws IOException {
+         int needed = Math.max(1, (32 - Integer.numberOfLeadingZeros(value) + 3) >> 2);
+         putHex(value, Math.max(needed, minimumDigits), upperCase);
+      }
+
+   /**
+    *  Write all 32 bits of the value as '0' and '1' characters, most significant first.
+    *  @param value Value to write.
+    */
+       public void putBinary(int value) throws IOException {
+         ensureRoom(32);
+         for (int shift = 24; shift >= 0; shift -= 8) {
+            System.arraycopy(BINARY_OCTETS, ((value >>> shift) & 0xFF) << 3, bytes, position, 8);
+            position += 8;
+         }
+      }
+
+   /**
+    *  Write a single byte.
+    *  @param value byte to write, in the low order 8 bits.
+    */
+       public void putByte(int value) throws IOException {
+         ensureRoom(1);
+         bytes[position++] = (byte) value;
+      }
+
+   /**
+    *  Write the four bytes of a word, least significant byte first.
+    *  @param value word to write
+    */
+       public void putWordLittleEndian(int value) throws IOException {
+         ensureRoom(4);
+         bytes[position++] = (byte) value;
+         bytes[position++] = (byte) (value >>> 8);
+         bytes[position++] = (byte) (value >>> 16);
+         bytes[position++] = (byte) (value >>> 24);
+      }
+
+   /**
+    *  Write the characters of the string.  Only the low order 8 bits of
+    *  each character are written.
+    *  @param string String to write.
+    */
+       public void putString(String string) throws IOException {
+         int length = string.length();
+         int start = 0;
+         while (start < length) {
+            ensureRoom(1);
+            int chunk = Math.min(length - start, bytes.length - position);
+            for (int i = 0; i < chunk; i++) {
+               bytes[position++] = (byte) string.charAt(start + i);
+            }
+            start += chunk;
+         }
+      }
+
+   /**
+    *  Write the platform line separator, as PrintStream.println() would.
+    */
+       public void newLine() throws IOException {
+         ensureRoom(LINE_SEPARATOR.length);
+         System.arraycopy(LINE_SEPARATOR, 0, bytes, position, LINE_SEPARATOR.length);
+         position += LINE_SEPARATOR.length;
+      }
+
+   /**
+    *  Write any buffered output to the file.
+    */
+       public void flush() throws IOException {
+         buffer.clear();
+         buffer.limit(position);
+         while (buffer.hasRemaining()) {
+            channel.write(buffer);
+         }
+         position = 0;
+      }
+
+   /**
+    *  Flush buffered output and close the file.
+    */
+       public void close() throws IOException {
+         try {
+            flush();
+         }
+         finally {
+            stream.close();
+         }
+      }
+
+       private void ensureRoom(int length) throws IOException {
+         if (position + length > bytes.length) {
+            flush();
+         }
+      }
+
+       private void putPair(byte[] pairs, int octet) {
+         bytes[position++] = pairs[octet << 1];
+         bytes[position++] = pairs[(octet << 1) + 1];
+      }
+
+       private static byte[] buildHexPairs(byte[] digits) {
+         byte[] pairs = new byte[512];
+         for (int i = 0; i < 256; i++) {
+            pairs[i << 1] = digits[i >>> 4];
+            pairs[(i << 1) + 1] = digits[i & 0xF];
+         }
+         return pairs;
+      }
+
+       private static byte[] buildBinaryOctets() {
+         byte[] octets = new byte[256 * 8];
+         for (int i = 0; i < 256; i++) {
+            for (int bit = 0; bit < 8; bit++) {
+               octets[(i << 3) + bit] = (byte) (((i >>> (7 - bit)) & 1) == 0 ? '0' : '1');
+            }
+         }
+         return octets;
+      }
+   }
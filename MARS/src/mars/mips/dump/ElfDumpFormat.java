@@ -0,0 +1,403 @@
+   package mars.mips.dump;
+
+   import mars.*;
+   import mars.assembler.*;
+   import mars.mips.hardware.*;
+   import java.io.*;
+   import java.nio.*;
+   import java.nio.channels.*;
+   import java.util.*;
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Class that represents the ELF32 executable memory dump format.  Unlike the
+ * flat formats, an ELF file describes the whole program: it contains one section
+ * and loadable segment for each of <tt>.text</tt>, <tt>.data</tt>, <tt>.ktext</tt>
+ * and <tt>.kdata</tt> that has been written to, plus a symbol table built from the
+ * global symbol table and the local symbol table of each source file.  The file is
+ * little-endian, as is MARS memory by default.
+ * <p>
+ * The format can also be loaded: each loadable segment is stored into memory at its
+ * own address and the symbols are added to the global symbol table, where the
+ * Labels window will show them.
+ */
+
+    public class ElfDumpFormat extends AbstractDumpFormat implements LoadFormat {
+
+      private static final int ELF_HEADER_SIZE = 52;
+      private static final int PROGRAM_HEADER_SIZE = 32;
+      private static final int SECTION_HEADER_SIZE = 40;
+      private static final int SYMBOL_SIZE = 16;
+
+      private static final int ELFCLASS32 = 1;
+      private static final int ELFDATA2LSB = 1;
+      private static final int ELFDATA2MSB = 2;
+      private static final int ET_EXEC = 2;
+      private static final int EM_MIPS = 8;
+      private static final int EV_CURRENT = 1;
+      private static final int PT_LOAD = 1;
+      private static final int PF_X = 1, PF_W = 2, PF_R = 4;
+      private static final int SHT_PROGBITS = 1, SHT_SYMTAB = 2, SHT_STRTAB = 3;
+      private static final int SHF_WRITE = 1, SHF_ALLOC = 2, SHF_EXECINSTR = 4;
+      private static final int SHN_ABS = 0xFFF1;
+      private static final int STB_LOCAL = 0, STB_GLOBAL = 1;
+      private static final int STT_NOTYPE = 0, STT_OBJECT = 1, STT_SECTION = 3, STT_FILE = 4;
+
+      private static final String[] SECTION_NAMES = { ".text", ".data", ".ktext", ".kdata" };
+
+   /**
+   *  Constructor.  File extension is "elf".
+   */
+       public ElfDumpFormat() {
+         super("ELF32 executable", "ELF", "ELF32 executable file", "elf");
+      }
+
+   /**
+   *  Write the assembled program as an ELF32 executable.  An ELF file always
+   *  describes the complete program, so every segment that has been written to
+   *  is included regardless of the address range given.
+   *
+   *  @param  file  File in which to store MIPS memory contents.
+   *  @param firstAddress first (lowest) memory address to dump.  Not used.
+   *  @param lastAddress last (highest) memory address to dump.  Not used.
+   *  @throws AddressErrorException if a segment cannot be read.
+   *  @throws IOException if error occurs during file output.
+   */
+       public void dumpMemoryRange(File file, int firstAddress, int lastAddress)
+          throws AddressErrorException, IOException {
+         // Find the extent of each segment, as the "dump" command does.
+         int[] bases = { Memory.textBaseAddress, Memory.dataBaseAddress,
+                         Memory.kernelTextBaseAddress, Memory.kernelDataBaseAddress };
+         int[] limits = { Memory.textLimitAddress, Memory.dataSegmentLimitAddress,
+                          Memory.kernelTextLimitAddress, Memory.kernelDataSegmentLimitAddress };
+         ArrayList<int[]> sections = new ArrayList<int[]>(); // {name index, first address, end address}
+         for (int i = 0; i < SECTION_NAMES.length; i++) {
+            int end = Globals.memory.getAddressOfFirstNull(bases[i], limits[i]);
+            if (end > bases[i]) {
+               sections.add(new int[] { i, bases[i], end });
+            }
+         }
+         ArrayList<Symbol> locals = new ArrayList<Symbol>();
+         collectLocalSymbols(sections, locals);
+         ArrayList<Symbol> symbols = new ArrayList<Symbol>(locals);
+         addSymbols(symbols, Globals.symbolTable);
+
+         // Lay out the file: headers, segment contents, symbol and string tables, section headers.
+         int sectionCount = sections.size();
+         int offset = ELF_HEADER_SIZE + sectionCount * PROGRAM_HEADER_SIZE;
+         int[] fileOffsets = new int[sectionCount];
+         for (int i = 0; i < sectionCount; i++) {
+            int[] section = sections.get(i);
+            fileOffsets[i] = offset;
+            offset += section[2] - section[1];
+         }
+         int symtabOffset = offset;
+         int symtabSize = (symbols.size() + 1) * SYMBOL_SIZE;
+         int strtabOffset = symtabOffset + symtabSize;
+         int strtabSize = 1;
+         for (int i = 0; i < symbols.size(); i++) {
+            strtabSize += symbols.get(i).getName().length() + 1;
+         }
+         String shstrtab = "\0.symtab\0.strtab\0.shstrtab\0";
+         for (int i = 0; i < sectionCount; i++) {
+            shstrtab += SECTION_NAMES[sections.get(i)[0]] + "\0";
+         }
+         int shstrtabOffset = strtabOffset + strtabSize;
+         int sectionHeaderOffset = (shstrtabOffset + shstrtab.length() + 3) & ~3;
+         // Section header indexes: 0 null, 1..n program sections, then symtab, strtab, shstrtab.
+         int symtabIndex = sectionCount + 1;
+
+         DumpWriter out = new DumpWriter(file);
+         try {
+            // ELF header
+            out.putByte(0x7F);
+            out.putString("ELF");
+            out.putByte(ELFCLASS32);
+            out.putByte(ELFDATA2LSB);
+            out.putByte(EV_CURRENT);
+            for (int i = 7; i < 16; i++) {
+               out.putByte(0);
+            }
+            putHalf(out, ET_EXEC);
+            putHalf(out, EM_MIPS);
+            out.putWordLittleEndian(EV_CURRENT);
+            out.putWordLittleEndian(getEntryAddress());
+            out.putWordLittleEndian((sectionCount == 0) ? 0 : ELF_HEADER_SIZE);
+            out.putWordLittleEndian(sectionHeaderOffset);
+            out.putWordLittleEndian(0); // flags
+            putHalf(out, ELF_HEADER_SIZE);
+            putHalf(out, PROGRAM_HEADER_SIZE);
+            putHalf(out, sectionCount);
+            putHalf(out, SECTION_HEADER_SIZE);
+            putHalf(out, sectionCount + 4);
+            putHalf(out, symtabIndex + 2);
+            // Program headers, one loadable segment per section
+            for (int i = 0; i < sectionCount; i++) {
+               int[] section = sections.get(i);
+               boolean text = section[0] == 0 || section[0] == 2;
+               out.putWordLittleEndian(PT_LOAD);
+               out.putWordLittleEndian(fileOffsets[i]);
+               out.putWordLittleEndian(section[1]);
+               out.putWordLittleEndian(section[1]);
+               out.putWordLittleEndian(section[2] - section[1]);
+               out.putWordLittleEndian(section[2] - section[1]);
+               out.putWordLittleEndian((text) ? PF_R | PF_X : PF_R | PF_W);
+               out.putWordLittleEndian(Memory.WORD_LENGTH_BYTES);
+            }
+            // Segment contents
+            int[] words = new int[DUMP_BLOCK_WORDS];
+            for (int i = 0; i < sectionCount; i++) {
+               int[] section = sections.get(i);
+               for (int address = section[1]; address < section[2]; ) {
+                  int wanted = Math.min(DUMP_BLOCK_WORDS, (section[2] - address) / Memory.WORD_LENGTH_BYTES);
+                  int count = Globals.memory.getRawWords(address, words, wanted);
+                  for (int j = 0; j < wanted; j++) {
+                     out.putWordLittleEndian((j < count) ? words[j] : 0);
+                  }
+                  address += wanted * Memory.WORD_LENGTH_BYTES;
+               }
+            }
+            // Symbol table; locals must precede globals.
+            for (int i = 0; i < SYMBOL_SIZE; i++) {
+               out.putByte(0);
+            }
+            int nameOffset = 1;
+            for (int i = 0; i < symbols.size(); i++) {
+               Symbol symbol = symbols.get(i);
+               int bind = (i < locals.size()) ? STB_LOCAL : STB_GLOBAL;
+               int type = (symbol.getType() == Symbol.DATA_SYMBOL) ? STT_OBJECT : STT_NOTYPE;
+               out.putWordLittleEndian(nameOffset);
+               out.putWordLittleEndian(symbol.getAddress());
+               out.putWordLittleEndian(0);
+               out.putByte((bind << 4) | type);
+               out.putByte(0);
+               putHalf(out, sectionIndexOf(sections, symbol.getAddress()));
+               nameOffset += symbol.getName().length() + 1;
+            }
+            // String table
+            out.putByte(0);
+            for (int i = 0; i < symbols.size(); i++) {
+               out.putString(symbols.get(i).getName());
+               out.putByte(0);
+            }
+            out.putString(shstrtab);
+            for (int i = shstrtabOffset + shstrtab.length(); i < sectionHeaderOffset; i++) {
+               out.putByte(0);
+            }
+            // Section headers
+            putSectionHeader(out, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+            int sectionNameOffset = ".symtab.strtab.shstrtab".length() + 4;
+            for (int i = 0; i < sectionCount; i++) {
+               int[] section = sections.get(i);
+               boolean text = section[0] == 0 || section[0] == 2;
+               putSectionHeader(out, sectionNameOffset, SHT_PROGBITS,
+                  (text) ? SHF_ALLOC | SHF_EXECINSTR : SHF_ALLOC | SHF_WRITE,
+                  section[1], fileOffsets[i], section[2] - section[1], 0, 0, Memory.WORD_LENGTH_BYTES, 0);
+               sectionNameOffset += SECTION_NAMES[section[0]].length() + 1;
+            }
+            putSectionHeader(out, 1, SHT_SYMTAB, 0, 0, symtabOffset, symtabSize,
+                  symtabIndex + 1, locals.size() + 1, Memory.WORD_LENGTH_BYTES, SYMBOL_SIZE);
+            putSectionHeader(out, 9, SHT_STRTAB, 0, 0, strtabOffset, strtabSize, 0, 0, 1, 0);
+            putSectionHeader(out, 17, SHT_STRTAB, 0, 0, shstrtabOffset, shstrtab.length(), 0, 0, 1, 0);
+         }
+         finally {
+            out.close();
+         }
+      }
+
+   /**
+   *  Store the loadable segments of an ELF32 executable into memory, each at
+   *  its own address, and add its symbols to the global symbol table.  Symbols
+   *  whose labels are already defined there are skipped.  Both little and big
+   *  endian files are accepted.
+   *
+   *  @param  file  File containing an ELF32 executable.
+   *  @param firstAddress memory address at which to store the first word.  Not used, since
+   *  the ELF file specifies the address of each segment.
+   *  @return address following the last word loaded.
+   *  @throws AddressErrorException if a segment is not word aligned or falls outside the
+   *  MARS addressing range.
+   *  @throws IOException if error occurs during file input or the file is not ELF32.
+   */
+       public int loadMemoryRange(File file, int firstAddress)
+          throws AddressErrorException, IOException {
+         FileInputStream stream = new FileInputStream(file);
+         try {
+            FileChannel channel = stream.getChannel();
+            ByteBuffer elf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (elf.limit() < ELF_HEADER_SIZE || elf.get(0) != 0x7F || elf.get(1) != 'E'
+                   || elf.get(2) != 'L' || elf.get(3) != 'F' || elf.get(4) != ELFCLASS32) {
+               throw new IOException("not an ELF32 file");
+            }
+            elf.order((elf.get(5) == ELFDATA2MSB) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+            int endAddress = firstAddress;
+            int programHeaderOffset = elf.getInt(28);
+            int programHeaderSize = elf.getShort(42) & 0xFFFF;
+            int programHeaderCount = elf.getShort(44) & 0xFFFF;
+            int[] words = new int[DUMP_BLOCK_WORDS];
+            for (int i = 0; i < programHeaderCount; i++) {
+               int header = programHeaderOffset + i * programHeaderSize;
+               if (elf.getInt(header) != PT_LOAD) {
+                  continue;
+               }
+               int fileOffset = elf.getInt(header + 4);
+               int address = elf.getInt(header + 8);
+               int fileWords = elf.getInt(header + 16) / Memory.WORD_LENGTH_BYTES;
+               int memoryWords = elf.getInt(header + 20) / Memory.WORD_LENGTH_BYTES;
+               // Words beyond the end of the file contents are zero, as for .bss
+               for (int done = 0; done < memoryWords; ) {
+                  int count = Math.min(DUMP_BLOCK_WORDS, memoryWords - done);
+                  for (int j = 0; j < count; j++) {
+                     words[j] = (done + j < fileWords)
+                        ? elf.getInt(fileOffset + (done + j) * Memory.WORD_LENGTH_BYTES) : 0;
+                  }
+                  Globals.memory.setRawWords(address + done * Memory.WORD_LENGTH_BYTES, words, count);
+                  done += count;
+               }
+               endAddress = address + memoryWords * Memory.WORD_LENGTH_BYTES;
+            }
+            loadSymbols(elf);
+            return endAddress;
+         }
+            catch (IndexOutOfBoundsException e) {
+               throw new IOException("ELF file is truncated or corrupt");
+            }
+         finally {
+            stream.close();
+         }
+      }
+
+      // Add symbols from every symbol table section to the global symbol table.
+       private void loadSymbols(ByteBuffer elf) {
+         int sectionHeaderOffset = elf.getInt(32);
+         int sectionHeaderSize = elf.getShort(46) & 0xFFFF;
+         int sectionHeaderCount = elf.getShort(48) & 0xFFFF;
+         for (int i = 0; i < sectionHeaderCount; i++) {
+            int header = sectionHeaderOffset + i * sectionHeaderSize;
+            if (elf.getInt(header + 4) != SHT_SYMTAB) {
+               continue;
+            }
+            int symbolOffset = elf.getInt(header + 16);
+            int symbolCount = elf.getInt(header + 20) / SYMBOL_SIZE;
+            int stringHeader = sectionHeaderOffset + elf.getInt(header + 24) * sectionHeaderSize;
+            int stringOffset = elf.getInt(stringHeader + 16);
+            for (int j = 1; j < symbolCount; j++) {
+               int symbol = symbolOffset + j * SYMBOL_SIZE;
+               int name = elf.getInt(symbol);
+               int type = elf.get(symbol + 12) & 0xF;
+               if (name == 0 || type == STT_SECTION || type == STT_FILE) {
+                  continue;
+               }
+               int address = elf.getInt(symbol + 4);
+               boolean text = Memory.inTextSegment(address) || Memory.inKernelTextSegment(address);
+               Globals.symbolTable.addSymbol(new Symbol(readString(elf, stringOffset + name), address,
+                                            (text) ? Symbol.TEXT_SYMBOL : Symbol.DATA_SYMBOL));
+            }
+         }
+      }
+
+      // Read a null-terminated string.
+       private String readString(ByteBuffer elf, int offset) {
+         StringBuffer result = new StringBuffer();
+         for (int i = offset; elf.get(i) != 0; i++) {
+            result.append((char) (elf.get(i) & 0xFF));
+         }
+         return result.toString();
+      }
+
+      // Gather local symbols of each source file that contributed statements to
+      // the text sections.  A file is identified by the MIPSprogram of its statements.
+       private void collectLocalSymbols(ArrayList<int[]> sections, ArrayList<Symbol> locals) throws AddressErrorException {
+         ArrayList<MIPSprogram> programs = new ArrayList<MIPSprogram>();
+         for (int i = 0; i < sections.size(); i++) {
+            int[] section = sections.get(i);
+            if (!Memory.inTextSegment(section[1]) && !Memory.inKernelTextSegment(section[1])) {
+               continue;
+            }
+            for (int address = section[1]; address < section[2]; address += Memory.WORD_LENGTH_BYTES) {
+               ProgramStatement statement = Globals.memory.getStatementNoNotify(address);
+               MIPSprogram program = (statement == null) ? null : statement.getSourceMIPSprogram();
+               if (program != null && program.getLocalSymbolTable() != null && !programs.contains(program)) {
+                  programs.add(program);
+                  addSymbols(locals, program.getLocalSymbolTable());
+               }
+            }
+         }
+      }
+
+      // Append the symbols of the table to the list.
+       private static void addSymbols(ArrayList<Symbol> list, SymbolTable table) {
+         ArrayList<?> all = table.getAllSymbols();
+         for (int i = 0; i < all.size(); i++) {
+            list.add((Symbol) all.get(i));
+         }
+      }
+
+      // Entry point is the "main" label if it is in a text segment, else the reset address.
+       private int getEntryAddress() {
+         int mainAddress = Globals.symbolTable.getAddress(SymbolTable.getStartLabel());
+         if (mainAddress != SymbolTable.NOT_FOUND &&
+               (Memory.inTextSegment(mainAddress) || Memory.inKernelTextSegment(mainAddress))) {
+            return mainAddress;
+         }
+         return RegisterFile.getInitialProgramCounter();
+      }
+
+      // Section header index of the section containing the address, SHN_ABS if none.
+       private int sectionIndexOf(ArrayList<int[]> sections, int address) {
+         for (int i = 0; i < sections.size(); i++) {
+            int[] section = sections.get(i);
+            if (address - section[1] >= 0 && address - section[1] < section[2] - section[1]) {
+               return i + 1;
+            }
+         }
+         return SHN_ABS;
+      }
+
+       private void putHalf(DumpWriter out, int value) throws IOException {
+         out.putByte(value);
+         out.putByte(value >>> 8);
+      }
+
+       private void putSectionHeader(DumpWriter out, int name, int type, int flags, int address,
+                                     int offset, int size, int link, int info, int align, int entrySize)
+                                     throws IOException {
+         out.putWordLittleEndian(name);
+         out.putWordLittleEndian(type);
+         out.putWordLittleEndian(flags);
+         out.putWordLittleEndian(address);
+         out.putWordLittleEndian(offset);
+         out.putWordLittleEndian(size);
+         out.putWordLittleEndian(link);
+         out.putWordLittleEndian(info);
+         out.putWordLittleEndian(align);
+         out.putWordLittleEndian(entrySize);
+      }
+   }
@@ -10,7 +10,10 @@
  * @version July 2011
  */
 
-    public class IntelHexDumpFormat extends AbstractDumpFormat {
+    public class IntelHexDumpFormat extends AbstractWordLoadFormat {
+   
+      private int firstAddressOfDump;
+      private int recordOffset;
    
    /**
    * Constructor.  File extention is "hex".
@@ -33,42 +36,110 @@
    */
        public void dumpMemoryRange(File file, int firstAddress, int lastAddress)
           throws AddressErrorException, IOException {
-            PrintStream out = new PrintStream(new FileOutputStream(file));
-            String string = null;
-            try {
-               for (int address = firstAddress; address <= lastAddress; address += Memory.WORD_LENGTH_BYTES) {
-                  Integer temp = Globals.memory.getRawWordOrNull(address);
-                  if (temp == null) 
-                     break;
-                  string = Integer.toHexString(temp.intValue());
-                  while (string.length() < 8) {
-                     string = '0' + string;
-                  }
-                  String addr = Integer.toHexString(address-firstAddress);
-                  while (addr.length() < 4) {
-                     addr = '0' + addr;
-                  }
-                  String chksum;
-                  int tmp_chksum = 0;
-                  tmp_chksum += 4;
-                  tmp_chksum += 0xFF & (address-firstAddress);
-                  tmp_chksum += 0xFF & ((address-firstAddress)>>8);
-                  tmp_chksum += 0xFF & temp.intValue();
-                  tmp_chksum += 0xFF & (temp.intValue()>>8);
-                  tmp_chksum += 0xFF & (temp.intValue()>>16);
-                  tmp_chksum += 0xFF & (temp.intValue()>>24);
-                  tmp_chksum = tmp_chksum % 256;
-                  tmp_chksum = ~tmp_chksum + 1;
-                  chksum = Integer.toHexString(0xFF & tmp_chksum);
-                  if(chksum.length()==1) chksum = '0' + chksum;
-                  String finalstr = ":04"+addr+"00"+string+chksum;
-                  out.println(finalstr.toUpperCase());
-               }
-               out.println(":00000001FF");
-            } 
-            finally { 
-               out.close(); 
+         dumpWords(file, firstAddress, lastAddress);
+      }
+   
+   /**
+   *  Write one 4-byte data record: ":04", 16 bit offset from first address,
+   *  record type "00", the word and the checksum, all upper case hex.
+   */
+       protected void writeWord(DumpWriter out, int address, int word) throws IOException {
+         int offset = address - firstAddressOfDump;
+         int chksum = 4;
+         chksum += 0xFF & offset;
+         chksum += 0xFF & (offset>>8);
+         chksum += 0xFF & word;
+         chksum += 0xFF & (word>>8);
+         chksum += 0xFF & (word>>16);
+         chksum += 0xFF & (word>>24);
+         chksum = ~(chksum % 256) + 1;
+         out.putString(":04");
+         out.putHexAtLeast(offset, 4, true);
+         out.putString("00");
+         out.putHex(word, 8, true);
+         out.putHex(chksum, 2, true);
+         out.newLine();
+      }
+   
+   /**
+   *  Remember the first address; record offsets are relative to it.
+   */
+       protected void writePrologue(DumpWriter out, int firstAddress, int lastAddress) throws IOException {
+         firstAddressOfDump = firstAddress;
+      }
+   
+   /**
+   *  Write the end-of-file record.
+   */
+       protected void writeEpilogue(DumpWriter out, int firstAddress, int endAddress) throws IOException {
+         out.putString(":00000001FF");
+         out.newLine();
+      }
+   
+   /**
+   *  Read MIPS memory contents written in Intel hex format and store them
+   *  into memory starting at the given address, through the buffered load pipeline in
+   *  AbstractWordLoadFormat.
+   *
+   *  @param  file  File containing MIPS memory contents.
+   *  @param firstAddress memory address at which to store the first word.  In bytes but
+   *  must be on word boundary.
+   *  @return address following the last word loaded.
+   *  @throws AddressErrorException if firstAddress is not on a word boundary or the
+   *  contents extend outside the MARS addressing range.
+   *  @throws IOException if error occurs during file input.
+   */
+       public int loadMemoryRange(File file, int firstAddress)
+          throws AddressErrorException, IOException {
+         return loadWords(file, firstAddress);
+      }
+
+   /**
+   *  Read one 4-byte data record, as written by writeWord().  The offset
+   *  field is kept for getWordAddress().  Returns false at the end-of-file
+   *  record.  The checksum of each record is verified.
+   */
+       protected boolean readWord(DumpReader in, int[] words, int index) throws IOException {
+         do {
+            if (!in.readLine()) {
+               return false;
             }
-            
+         } while (in.getLineLength() == 0);
+         int length = in.getLineLength();
+         if (in.getLineByte(0) != ':' || length < 11) {
+            throw in.formatError("invalid Intel hex record");
+         }
+         int byteCount = in.parseHex(1, 2);
+         int recordType = in.parseHex(length - 4 - 2 * byteCount, 2);
+         if (recordType == 1) {
+            return false;
+         }
+         if (byteCount != 4 || recordType != 0 || length < 19) {
+            throw in.formatError("unsupported Intel hex record");
+         }
+         int offset = in.parseHex(3, Math.min(length - 15, 8));
+         int word = in.parseHex(length - 10, 8);
+         int chksum = 4;
+         chksum += 0xFF & offset;
+         chksum += 0xFF & (offset>>8);
+         chksum += 0xFF & word;
+         chksum += 0xFF & (word>>8);
+         chksum += 0xFF & (word>>16);
+         chksum += 0xFF & (word>>24);
+         chksum = (~(chksum % 256) + 1) & 0xFF;
+         if (chksum != in.parseHex(length - 2, 2)) {
+            throw in.formatError("Intel hex checksum mismatch");
+         }
+         words[index] = word;
+         recordOffset = offset;
+         return true;
       }
+   
+   /**
+   *  Records are stored at their offset from the first address.
+   */
+       protected int getWordAddress(int firstAddress, int nextAddress) {
+         return firstAddress + recordOffset;
+      }
+
    }
@@ -0,0 +1,67 @@
+   package mars.mips.dump;
+
+   import mars.mips.hardware.*;
+   import java.io.*;
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Interface for memory dump file formats that can also be read back into
+ * MIPS memory.  This is the inverse of DumpFormat: the contents of a file written
+ * by dumpMemoryRange() are stored into memory starting at a given address, so a
+ * saved program or data image can be restored without assembling it.  Formats that
+ * support loading implement this interface in addition to DumpFormat.
+ */
+
+    public interface LoadFormat {
+
+   /**
+	 * A short one-word descriptor that will be used by the MARS
+	 * command line parser (and the MARS command line user) to specify
+	 * that this format is to be used.  Same as the DumpFormat descriptor.
+	 */
+       public String getCommandDescriptor();
+
+   /**
+   *  Read MIPS memory contents written according to the specification
+   *  for this format and store them into memory.  Words loaded into a text
+   *  segment are decoded into program statements.  Observers are not notified.
+   *
+   *  @param  file  File containing the MIPS memory contents.
+   *  @param firstAddress memory address at which to store the first word.  In bytes but
+   *  must be on word boundary.
+   *  @return address following the last word loaded.
+   *  @throws AddressErrorException if firstAddress is not on a word boundary or the
+   *  contents extend outside the MARS addressing range.
+   *  @throws IOException if error occurs during file input or the file is not in this format.
+   */
+       public int loadMemoryRange(File file, int firstAddress)
+		    throws AddressErrorException, IOException;
+
+   }
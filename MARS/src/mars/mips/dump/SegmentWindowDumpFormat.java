@@ -80,7 +80,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public void dumpMemoryRange(File file, int firstAddress, int lastAddress) 
         throws AddressErrorException, IOException {
       
-         PrintStream out = new PrintStream(new FileOutputStream(file));
+         PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(file)));
       
          boolean hexAddresses = Globals.getSettings().getDisplayAddressesInHex();
       	
@@ -147,4 +147,4 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       }
    
    
-   }
\ No newline at end of file
+   }
\ No newline at end of file
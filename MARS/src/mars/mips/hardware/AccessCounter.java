@@ -0,0 +1,127 @@
+   package mars.mips.hardware;
+
+   import mars.simulator.ToolEventBus;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Counts the references the running MIPS program makes to each unit of a range of
+ * memory, a unit being a power-of-two number of bytes.  The counts are kept in a plain
+ * int array, one element per unit, in address order.
+ * <p>
+ * Once attached with Memory.addAccessListener(), Memory reports each access it would
+ * report to its observers, and the counter increments the element for the address if
+ * the access was made by the simulation thread.  That is all the work done per access:
+ * nothing is allocated or locked, and no other thread is involved.  Only the simulation
+ * thread writes the counts, so a display may read getCounts() at a fixed rate from any
+ * thread without synchronizing; a count it reads may be a few references stale.
+ */
+
+    public class AccessCounter implements MemoryAccessListener {
+
+      private int baseAddress;
+      private int bytesPerUnit;
+      private int shift;          // log2 of bytesPerUnit
+      private int countedUnits;   // units that lie below the top of the 32 bit address space
+      private int[] counts;
+
+   /**
+    * Create an access counter.  It counts nothing until attached to Memory.
+    * @param baseAddress address of the first byte of the first unit.
+    * @param bytesPerUnit bytes in each unit; must be a power of two.
+    * @param units number of units.
+    * @throws IllegalArgumentException if bytesPerUnit is not a power of two or units is negative.
+    */
+       public AccessCounter(int baseAddress, int bytesPerUnit, int units) {
+         if (bytesPerUnit < 1 || (bytesPerUnit & (bytesPerUnit - 1)) != 0) {
+            throw new IllegalArgumentException("bytes per unit must be a power of two");
+         }
+         if (units < 0) {
+            throw new IllegalArgumentException("number of units must not be negative");
+         }
+         this.baseAddress = baseAddress;
+         this.bytesPerUnit = bytesPerUnit;
+         shift = Integer.numberOfTrailingZeros(bytesPerUnit);
+         long room = (1L << 32) - (baseAddress & 0xFFFFFFFFL);
+         countedUnits = (int) Math.min(units, room >>> shift);
+         counts = new int[units];
+      }
+
+   /**
+    * @return address of the first byte of the first unit.
+    */
+       public int getBaseAddress() {
+         return baseAddress;
+      }
+
+   /**
+    * @return bytes in each unit.
+    */
+       public int getBytesPerUnit() {
+         return bytesPerUnit;
+      }
+
+   /**
+    * @return number of units.
+    */
+       public int getUnits() {
+         return counts.length;
+      }
+
+   /**
+    * Get the counts themselves, not a copy.  Element i holds the references to the unit
+    * beginning at baseAddress + i * bytesPerUnit.  Callers must not modify it.
+    * @return the array of counts, one element per unit.
+    */
+       public int[] getCounts() {
+         return counts;
+      }
+
+   /**
+    * Set all counts to zero.  Call it while the program is not running, or holding
+    * Globals.memoryAndRegistersLock, or an increment made meanwhile may be lost.
+    */
+       public void reset() {
+         for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+         }
+      }
+
+   /**
+    * Called by Memory for each access.  Counts it if it lies in range and was made by
+    * the simulation thread, which the Simulator names through ToolEventBus.setProducer().
+    */
+       public void memoryAccessed(int type, int address, int length, int value) {
+         int unit = (address - baseAddress) >>> shift;
+         if (unit >= 0 && unit < countedUnits && Thread.currentThread() == ToolEventBus.getProducer()) {
+            counts[unit]++;
+         }
+      }
+   }
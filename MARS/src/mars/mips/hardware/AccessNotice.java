@@ -54,6 +54,14 @@ public abstract class AccessNotice {
 		accessType = type;
 		thread = Thread.currentThread();
 	}
+	
+	/** Constructor for a notice created after the access, on behalf of the thread
+	 * that made it, as when it is delivered through the ToolEventBus.
+	 */
+	protected AccessNotice(int type, Thread thread) {
+	   this(type);
+		this.thread = thread;
+	}
 	/** Get the access type: READ or WRITE.  
 	 * @return Access type, either AccessNotice.READ or AccessNotice.WRITE
 	 */
@@ -86,4 +94,4 @@ public abstract class AccessNotice {
 	   return thread.getName().startsWith("MIPS");
 	}	
 	
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,404 @@
+   package mars.mips.hardware;
+
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Model of one level of a cache, independent of any display.  Only the tags are kept,
+ * not the memory contents, so it tells whether each access hits or misses and counts
+ * them.  The number of blocks, the block size in bytes and the number of blocks in
+ * each set (the associativity) must be powers of two, so the set and tag are taken
+ * from the address by shifting and masking.  Direct mapping is associativity 1, and
+ * full associativity is one set holding every block.
+ * <p>
+ * A write-back cache allocates a block on a write miss and marks it dirty; a dirty block
+ * is written to the next level when it is replaced.  A write-through cache passes every
+ * write to the next level and does not allocate on a write miss.  Misses are read from
+ * the next level, if there is one.  When a set is full the block replaced is the least
+ * recently used (LRU), the first filled (FIFO), one chosen at random, or the one given
+ * by a binary tree of bits per set approximating LRU (PLRU).  Accesses allocate nothing.
+ */
+
+    public class Cache {
+
+      /** Replacement policy: least recently used */
+      public static final int LRU = 0;
+      /** Replacement policy: first in, first out */
+      public static final int FIFO = 1;
+      /** Replacement policy: random, from a fixed seed so runs are repeatable */
+      public static final int RANDOM = 2;
+      /** Replacement policy: tree pseudo-LRU */
+      public static final int PLRU = 3;
+      /** Names of the replacement policies, indexed by policy */
+      public static final String[] POLICY_NAMES = { "LRU", "FIFO", "Random", "PLRU" };
+
+      private String name;
+      private int blockCount, blockSize, associativity, policy;
+      private boolean writeBack;
+      private Cache next;
+      private int offsetBits, setBits, setMask;
+
+      private int[] blocks;      // block number (address >>> offsetBits) held, by set * associativity + way
+      private boolean[] valid;
+      private boolean[] dirty;
+      private long[] stamps;     // time of last use (LRU) or of filling (FIFO)
+      private int[] trees;       // PLRU bits of each set; bit n is node n of the tree, root 1
+      private Random random;
+      private long time;
+      private int lastBlock;
+
+      private long reads, writes, readMisses, writeMisses, writebacks;
+
+   /**
+    * Create an empty cache.
+    * @param name name of the level, used in reports, e.g. "L1D".
+    * @param sizeInBytes total capacity.
+    * @param blockSizeInBytes bytes in each block, at least one word.
+    * @param associativity blocks in each set, at most the number of blocks.
+    * @param policy replacement policy: LRU, FIFO, RANDOM or PLRU.
+    * @param writeBack true for write-back, false for write-through.
+    * @param next the next level, to which misses and writes go, or null if it is memory.
+    * @throws IllegalArgumentException if a size is not a power of two or does not fit.
+    */
+       public Cache(String name, int sizeInBytes, int blockSizeInBytes, int associativity, int policy,
+                  boolean writeBack, Cache next) {
+         if (!isPowerOfTwo(sizeInBytes) || !isPowerOfTwo(blockSizeInBytes) || !isPowerOfTwo(associativity)) {
+            throw new IllegalArgumentException(name + ": sizes and associativity must be powers of two");
+         }
+         if (blockSizeInBytes < Memory.WORD_LENGTH_BYTES || blockSizeInBytes > sizeInBytes) {
+            throw new IllegalArgumentException(name + ": block size must be from " + Memory.WORD_LENGTH_BYTES
+               + " bytes to the size of the cache");
+         }
+         if (associativity > sizeInBytes / blockSizeInBytes) {
+            throw new IllegalArgumentException(name + ": more blocks per set than blocks in the cache");
+         }
+         if (policy < LRU || policy > PLRU) {
+            throw new IllegalArgumentException(name + ": unknown replacement policy " + policy);
+         }
+         if (policy == PLRU && associativity > 32) {
+            throw new IllegalArgumentException(name + ": PLRU supports at most 32 blocks per set");
+         }
+         this.name = name;
+         this.blockSize = blockSizeInBytes;
+         this.blockCount = sizeInBytes / blockSizeInBytes;
+         this.associativity = associativity;
+         this.policy = policy;
+         this.writeBack = writeBack;
+         this.next = next;
+         offsetBits = Integer.numberOfTrailingZeros(blockSizeInBytes);
+         setBits = Integer.numberOfTrailingZeros(blockCount / associativity);
+         setMask = (1 << setBits) - 1;
+         blocks = new int[blockCount];
+         valid = new boolean[blockCount];
+         dirty = new boolean[blockCount];
+         stamps = new long[blockCount];
+         trees = new int[blockCount / associativity];
+         reset();
+      }
+
+   /**
+    * Empty the cache and clear its counts.  The next level is not affected.
+    */
+       public void reset() {
+         Arrays.fill(valid, false);
+         Arrays.fill(dirty, false);
+         Arrays.fill(stamps, 0);
+         Arrays.fill(trees, 0);
+         random = new Random(0);
+         time = 0;
+         lastBlock = 0;
+         reads = writes = readMisses = writeMisses = writebacks = 0;
+      }
+
+   /**
+    * Read from the cache, filling the block from the next level on a miss.
+    * @param address memory address read.
+    * @return true if it was a hit.
+    */
+       public boolean read(int address) {
+         reads++;
+         if (lookup(address)) {
+            return true;
+         }
+         readMisses++;
+         fill(address);
+         return false;
+      }
+
+   /**
+    * Write to the cache, according to its write policy.
+    * @param address memory address written.
+    * @return true if it was a hit.
+    */
+       public boolean write(int address) {
+         writes++;
+         boolean hit = lookup(address);
+         if (!hit) {
+            writeMisses++;
+         }
+         if (writeBack) {
+            if (!hit) {
+               fill(address);
+            }
+            dirty[lastBlock] = true;
+         }
+         else if (next != null) {
+            next.write(address);
+         }
+         return hit;
+      }
+
+   /**
+    * Write every dirty block to the next level, as at the end of a run.  The blocks stay
+    * valid.  Does nothing for a write-through cache.
+    */
+       public void flush() {
+         for (int i = 0; i < blockCount; i++) {
+            if (valid[i] && dirty[i]) {
+               writeBackBlock(i);
+            }
+         }
+      }
+
+      // Find the block holding the address, making it the most recently used.
+       private boolean lookup(int address) {
+         time++;
+         int block = address >>> offsetBits;
+         int first = (block & setMask) * associativity;
+         for (int i = first; i < first + associativity; i++) {
+            if (valid[i] && blocks[i] == block) {
+               touch(i, first);
+               lastBlock = i;
+               return true;
+            }
+         }
+         return false;
+      }
+
+      // Bring the block holding the address into its set, replacing one if the set is full.
+       private void fill(int address) {
+         int block = address >>> offsetBits;
+         int first = (block & setMask) * associativity;
+         int victim = -1;
+         for (int i = first; i < first + associativity; i++) {
+            if (!valid[i]) {
+               victim = i;
+               break;
+            }
+         }
+         if (victim < 0) {
+            victim = selectVictim(first);
+            if (dirty[victim]) {
+               writeBackBlock(victim);
+            }
+         }
+         if (next != null) {
+            next.read(block << offsetBits);
+         }
+         blocks[victim] = block;
+         valid[victim] = true;
+         dirty[victim] = false;
+         stamps[victim] = time;
+         touch(victim, first);
+         lastBlock = victim;
+      }
+
+       private void writeBackBlock(int i) {
+         writebacks++;
+         dirty[i] = false;
+         if (next != null) {
+            next.write(blocks[i] << offsetBits);
+         }
+      }
+
+      // Record a use of block i of the set starting at first.
+       private void touch(int i, int first) {
+         if (policy == LRU) {
+            stamps[i] = time;
+         }
+         else if (policy == PLRU && associativity > 1) {
+            // Along the path from the root to the block, point each node away from it.
+            int set = first / associativity;
+            int way = i - first;
+            int tree = trees[set];
+            int node = 1;
+            for (int bit = associativity >> 1; bit > 0; bit >>= 1) {
+               if ((way & bit) == 0) {
+                  tree |= 1 << node;
+                  node = 2 * node;
+               }
+               else {
+                  tree &= ~(1 << node);
+                  node = 2 * node + 1;
+               }
+            }
+            trees[set] = tree;
+         }
+      }
+
+      // Block to replace in the full set starting at first.
+       private int selectVictim(int first) {
+         switch (policy) {
+            case RANDOM :
+               return first + random.nextInt(associativity);
+            case PLRU :
+               int tree = trees[first / associativity];
+               int node = 1;
+               while (node < associativity) {
+                  node = 2 * node + ((tree >>> node) & 1);
+               }
+               return first + node - associativity;
+            default : // LRU and FIFO both replace the oldest stamp
+               int victim = first;
+               for (int i = first + 1; i < first + associativity; i++) {
+                  if (stamps[i] < stamps[victim]) {
+                     victim = i;
+                  }
+               }
+               return victim;
+         }
+      }
+
+       private static boolean isPowerOfTwo(int n) {
+         return n > 0 && (n & (n - 1)) == 0;
+      }
+
+   /**
+    * @return index of the block found or filled by the latest access, numbered from 0
+    * in set order, so the blocks of set s are s * associativity onward.
+    */
+       public int getLastBlock() {
+         return lastBlock;
+      }
+
+   /**
+    * @param address a memory address.
+    * @return number of the set the address maps to.
+    */
+       public int getSet(int address) {
+         return (address >>> offsetBits) & setMask;
+      }
+
+   /**
+    * @param address a memory address.
+    * @return the tag of the address, the bits above the set number.
+    */
+       public int getTag(int address) {
+         return address >>> (offsetBits + setBits);
+      }
+
+   /** @return name of the level */
+       public String getName() {
+         return name;
+      }
+
+   /** @return the next level, or null */
+       public Cache getNext() {
+         return next;
+      }
+
+   /** @return capacity in bytes */
+       public int getSizeInBytes() {
+         return blockCount * blockSize;
+      }
+
+   /** @return bytes per block */
+       public int getBlockSizeInBytes() {
+         return blockSize;
+      }
+
+   /** @return number of blocks */
+       public int getBlockCount() {
+         return blockCount;
+      }
+
+   /** @return blocks per set */
+       public int getAssociativity() {
+         return associativity;
+      }
+
+   /** @return replacement policy, LRU, FIFO, RANDOM or PLRU */
+       public int getPolicy() {
+         return policy;
+      }
+
+   /** @return true if write-back, false if write-through */
+       public boolean isWriteBack() {
+         return writeBack;
+      }
+
+   /** @return number of reads */
+       public long getReads() {
+         return reads;
+      }
+
+   /** @return number of writes */
+       public long getWrites() {
+         return writes;
+      }
+
+   /** @return number of reads that missed */
+       public long getReadMisses() {
+         return readMisses;
+      }
+
+   /** @return number of writes that missed */
+       public long getWriteMisses() {
+         return writeMisses;
+      }
+
+   /** @return number of dirty blocks written to the next level */
+       public long getWritebacks() {
+         return writebacks;
+      }
+
+   /** @return fraction of accesses that hit, 0 if there were none */
+       public double getHitRate() {
+         long accesses = reads + writes;
+         return (accesses == 0) ? 0.0 : (accesses - readMisses - writeMisses) / (double) accesses;
+      }
+
+   /**
+    * @return description of the organization, e.g. "L1D 32KB, 64B blocks, 4-way, LRU, write-back".
+    */
+       public String toString() {
+         String ways = (associativity == 1) ? "direct mapped"
+                      : (associativity == blockCount) ? "fully associative" : associativity + "-way";
+         return name + " " + formatSize(getSizeInBytes()) + ", " + blockSize + "B blocks, " + ways + ", "
+            + POLICY_NAMES[policy] + ", " + (writeBack ? "write-back" : "write-through");
+      }
+
+      // Size in bytes as written in reports, e.g. 512B, 32KB, 2MB.
+       static String formatSize(int size) {
+         return (size % (1024 * 1024) == 0) ? size / (1024 * 1024) + "MB"
+               : (size % 1024 == 0) ? size / 1024 + "KB" : size + "B";
+      }
+   }
@@ -0,0 +1,259 @@
+   package mars.mips.hardware;
+
+   import mars.simulator.*;
+   import java.io.*;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * A hierarchy of caches fed by the instruction fetches and data accesses of the
+ * running program, for reporting hit and miss counts of each level after a run.
+ * It is described by a comma-separated list of levels, each written
+ * <pre>
+ *   name=size:block:ways[:policy][:wb|wt]
+ * </pre>
+ * where name is L1I, L1D, L1 (a unified first level) or L2, size is in bytes with an
+ * optional K or M suffix, block is the block size in bytes, ways is the associativity,
+ * policy is LRU (the default), FIFO, RANDOM or PLRU, and wb (the default) or wt selects
+ * write-back or write-through.  For example
+ * <pre>
+ *   L1I=16K:32:2,L1D=16K:32:4:PLRU:wt,L2=256K:64:8
+ * </pre>
+ * L1I receives instruction fetches and L1D data accesses; L1 receives both.  Misses
+ * and write traffic of the first level go to L2 if it is given, otherwise to memory.
+ * A first level may be left out, in which case those accesses go straight to L2.
+ * <p>
+ * Like TraceRecorder, only one hierarchy is active at a time.  While active it is
+ * attached to the Simulator as an InstructionListener and to Memory as a
+ * MemoryAccessListener.
+ */
+
+    public class CacheHierarchy implements InstructionListener, MemoryAccessListener {
+
+      private static volatile CacheHierarchy active = null;
+
+      private Cache instructionCache; // L1I or the unified L1, else L2, else null
+      private Cache dataCache;        // L1D or the unified L1, else L2, else null
+      private ArrayList<Cache> levels; // in the order reported
+
+   /**
+    * Create a hierarchy from its description.
+    * @param description comma-separated list of levels, as described above.
+    * @throws IllegalArgumentException if the description is malformed or a level
+    * cannot be built as described.
+    */
+       public CacheHierarchy(String description) {
+         HashMap<String, String[]> specs = new HashMap<String, String[]>(); // upper case name -> fields
+         StringTokenizer st = new StringTokenizer(description, ",");
+         while (st.hasMoreTokens()) {
+            String level = st.nextToken().trim();
+            int equals = level.indexOf('=');
+            if (equals < 0) {
+               throw new IllegalArgumentException("\"" + level + "\" is not of the form name=size:block:ways");
+            }
+            String name = level.substring(0, equals).trim().toUpperCase();
+            if (!name.equals("L1I") && !name.equals("L1D") && !name.equals("L1") && !name.equals("L2")) {
+               throw new IllegalArgumentException("unknown cache level \"" + name + "\"; use L1I, L1D, L1 or L2");
+            }
+            if (specs.containsKey(name)) {
+               throw new IllegalArgumentException("cache level " + name + " is given twice");
+            }
+            specs.put(name, level.substring(equals + 1).split(":"));
+         }
+         if (specs.isEmpty()) {
+            throw new IllegalArgumentException("no cache levels given");
+         }
+         if (specs.containsKey("L1") && (specs.containsKey("L1I") || specs.containsKey("L1D"))) {
+            throw new IllegalArgumentException("a unified L1 cannot be combined with L1I or L1D");
+         }
+         Cache l2 = build("L2", specs.get("L2"), null);
+         Cache l1 = build("L1", specs.get("L1"), l2);
+         Cache l1i = build("L1I", specs.get("L1I"), l2);
+         Cache l1d = build("L1D", specs.get("L1D"), l2);
+         instructionCache = (l1 != null) ? l1 : (l1i != null) ? l1i : l2;
+         dataCache = (l1 != null) ? l1 : (l1d != null) ? l1d : l2;
+         levels = new ArrayList<Cache>();
+         Cache[] all = { l1, l1i, l1d, l2 };
+         for (int i = 0; i < all.length; i++) {
+            if (all[i] != null) {
+               levels.add(all[i]);
+            }
+         }
+      }
+
+      // Build one level from its fields size:block:ways[:policy][:wb|wt], or null if not given.
+       private static Cache build(String name, String[] fields, Cache next) {
+         if (fields == null) {
+            return null;
+         }
+         if (fields.length < 3) {
+            throw new IllegalArgumentException(name + ": expected size:block:ways[:policy][:wb|wt]");
+         }
+         int policy = Cache.LRU;
+         boolean writeBack = true;
+         for (int i = 3; i < fields.length; i++) {
+            String field = fields[i].trim().toUpperCase();
+            if (field.equals("WB") || field.equals("WT")) {
+               writeBack = field.equals("WB");
+               continue;
+            }
+            policy = -1;
+            for (int p = 0; p < Cache.POLICY_NAMES.length; p++) {
+               if (Cache.POLICY_NAMES[p].toUpperCase().equals(field)) {
+                  policy = p;
+               }
+            }
+            if (policy < 0) {
+               throw new IllegalArgumentException(name + ": unknown replacement policy \"" + fields[i]
+                  + "\"; use LRU, FIFO, RANDOM or PLRU");
+            }
+         }
+         return new Cache(name, parseSize(name, fields[0]), parseSize(name, fields[1]),
+            parseSize(name, fields[2]), policy, writeBack, next);
+      }
+
+      // Number of bytes given as digits with an optional K or M suffix.
+       static int parseSize(String name, String field) {
+         String s = field.trim().toUpperCase();
+         int multiplier = 1;
+         if (s.endsWith("K")) {
+            multiplier = 1024;
+         }
+         else if (s.endsWith("M")) {
+            multiplier = 1024 * 1024;
+         }
+         if (multiplier > 1) {
+            s = s.substring(0, s.length() - 1);
+         }
+         try {
+            return Integer.parseInt(s) * multiplier;
+         }
+             catch (NumberFormatException e) {
+               throw new IllegalArgumentException(name + ": \"" + field + "\" is not a number");
+            }
+      }
+
+   /**
+    * Begin feeding this hierarchy with the accesses of the running program, replacing
+    * any hierarchy already active.
+    */
+       public void start() {
+         activate(this);
+      }
+
+   /**
+    * Stop feeding the active hierarchy, if any, and write its dirty blocks back so
+    * the write traffic to each level is complete.
+    */
+       public static void stop() {
+         CacheHierarchy hierarchy = activate(null);
+         if (hierarchy != null) {
+            for (int i = 0; i < hierarchy.levels.size(); i++) {
+               hierarchy.levels.get(i).flush();
+            }
+         }
+      }
+
+      // Make the given hierarchy, or none if null, the active one, attaching it in place
+      // of the one active before, which is returned.
+       private static synchronized CacheHierarchy activate(CacheHierarchy hierarchy) {
+         CacheHierarchy previous = active;
+         if (previous != null) {
+            Simulator.removeInstructionListener(previous);
+            Memory.getInstance().removeAccessListener(previous);
+         }
+         active = hierarchy;
+         if (hierarchy != null) {
+            Simulator.addInstructionListener(hierarchy);
+            Memory.getInstance().addAccessListener(hierarchy);
+         }
+         return previous;
+      }
+
+   /**
+    * Called by the Simulator for every instruction fetched.
+    * @param address address of the instruction.
+    * @param binaryStatement the instruction, which is not used.
+    */
+       public void instructionExecuting(int address, int binaryStatement) {
+         if (instructionCache != null) {
+            instructionCache.read(address);
+         }
+      }
+
+   /**
+    * Called by Memory for every data read and write, and every instruction fetch, which
+    * is ignored since instructionExecuting() accounts for it.
+    * @param type AccessNotice.READ, AccessNotice.WRITE or FETCH.
+    * @param address address accessed.
+    * @param length number of bytes accessed.
+    * @param value value read or written.
+    */
+       public void memoryAccessed(int type, int address, int length, int value) {
+         if (dataCache != null) {
+            if (type == AccessNotice.WRITE) {
+               dataCache.write(address);
+            }
+            else if (type == AccessNotice.READ) {
+               dataCache.read(address);
+            }
+         }
+      }
+
+   /**
+    * @return the levels of the hierarchy, first level first.
+    */
+       public Cache[] getLevels() {
+         return levels.toArray(new Cache[levels.size()]);
+      }
+
+   /**
+    * Print the organization and the access, hit and miss counts of each level.
+    * @param out where to print.
+    */
+       public void printStatistics(PrintStream out) {
+         for (int i = 0; i < levels.size(); i++) {
+            Cache cache = levels.get(i);
+            long accesses = cache.getReads() + cache.getWrites();
+            long misses = cache.getReadMisses() + cache.getWriteMisses();
+            out.println(cache);
+            out.println("  accesses:   " + accesses + " (" + cache.getReads() + " reads, "
+               + cache.getWrites() + " writes)");
+            out.println("  hits:       " + (accesses - misses));
+            out.println("  misses:     " + misses + " (" + cache.getReadMisses() + " read, "
+               + cache.getWriteMisses() + " write)");
+            out.println("  hit rate:   " + Math.round(cache.getHitRate() * 10000) / 100.0 + "%");
+            if (cache.isWriteBack()) {
+               out.println("  writebacks: " + cache.getWritebacks());
+            }
+         }
+      }
+   }
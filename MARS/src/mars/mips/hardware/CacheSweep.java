@@ -0,0 +1,537 @@
+   package mars.mips.hardware;
+
+   import mars.simulator.*;
+   import java.io.*;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Finds the miss ratios of many LRU cache organizations in one pass over the memory
+ * references of a program, instead of simulating each organization separately.  A
+ * reference hits in an LRU cache of A blocks per set exactly when fewer than A other
+ * blocks of its set were referenced since its own previous reference: its stack
+ * distance.  So for each pair of block size and number of sets in the sweep, a
+ * histogram of stack distances is kept, and the hits of every associativity with
+ * that geometry are read from it.
+ * <p>
+ * Stack distances are counted with a Fenwick tree per set, indexed by the time of
+ * each set's references, holding a 1 at the latest reference to each block.  The
+ * distance of a reference is the number of 1s after the previous reference to its
+ * block, found in logarithmic time.  When a tree fills, its live entries are renumbered
+ * from 0, so each tree stays at most four times the number of blocks of its set.
+ * <p>
+ * The sweep is described as <code>sizes:blocks:ways[:stream]</code>, where each of
+ * sizes, blocks and ways is a comma-separated list of values or of ranges such as
+ * 1K-64K, which stand for the powers of two from one end to the other.  Sizes are in
+ * bytes with an optional K or M suffix.  A way count of "full" means fully
+ * associative.  The stream is D for data references (the default), I for instruction
+ * fetches or U for both.  For example, <code>1K-64K:16,32:1-8,full</code> gives
+ * 7 sizes, 2 block sizes and 5 associativities, 70 organizations in one run.
+ * <p>
+ * References are taken from the running program, by attaching to the Simulator and
+ * Memory as CacheHierarchy does, or from a trace file written by TraceRecorder:
+ * <code>java mars.mips.hardware.CacheSweep &lt;sweep&gt; &lt;trace file&gt;</code>
+ */
+
+    public class CacheSweep implements InstructionListener, MemoryAccessListener {
+
+      private static final int FULL = 0; // way count for fully associative
+      private static final int DATA = 0, INSTRUCTIONS = 1, UNIFIED = 2;
+
+      private static volatile CacheSweep active = null;
+
+      private int[] sizes, blockSizes, ways;
+      private int stream;
+      private Analyzer[] analyzers;
+      private long references;
+
+   /**
+    * Create a sweep from its description.
+    * @param description sizes:blocks:ways[:stream], as described above.
+    * @throws IllegalArgumentException if the description is malformed.
+    */
+       public CacheSweep(String description) {
+         String[] fields = description.split(":");
+         if (fields.length < 3 || fields.length > 4) {
+            throw new IllegalArgumentException("expected sizes:blocks:ways[:stream]");
+         }
+         sizes = parseList("sizes", fields[0], false);
+         blockSizes = parseList("blocks", fields[1], false);
+         ways = parseList("ways", fields[2], true);
+         stream = DATA;
+         if (fields.length == 4) {
+            String s = fields[3].trim().toUpperCase();
+            if (s.equals("I")) {
+               stream = INSTRUCTIONS;
+            }
+            else if (s.equals("U")) {
+               stream = UNIFIED;
+            }
+            else if (!s.equals("D")) {
+               throw new IllegalArgumentException("stream \"" + fields[3] + "\" must be D, I or U");
+            }
+         }
+         for (int i = 0; i < blockSizes.length; i++) {
+            if (blockSizes[i] < Memory.WORD_LENGTH_BYTES) {
+               throw new IllegalArgumentException("block size " + blockSizes[i] + " is less than a word");
+            }
+         }
+         // One analyzer per geometry, deep enough for the largest associativity using it.
+         ArrayList<Analyzer> list = new ArrayList<Analyzer>();
+         for (int b = 0; b < blockSizes.length; b++) {
+            for (int s = 0; s < sizes.length; s++) {
+               for (int w = 0; w < ways.length; w++) {
+                  int blocks = sizes[s] / blockSizes[b];
+                  int associativity = (ways[w] == FULL) ? blocks : ways[w];
+                  if (blocks == 0 || associativity > blocks) {
+                     continue;
+                  }
+                  int blockBits = Integer.numberOfTrailingZeros(blockSizes[b]);
+                  int setBits = Integer.numberOfTrailingZeros(blocks / associativity);
+                  Analyzer analyzer = find(list, blockBits, setBits);
+                  if (analyzer == null) {
+                     list.add(new Analyzer(blockBits, setBits, associativity));
+                  }
+                  else {
+                     analyzer.deepen(associativity);
+                  }
+               }
+            }
+         }
+         analyzers = list.toArray(new Analyzer[list.size()]);
+      }
+
+      // Values of a list such as "16,64-256" or "1-4,full"; ranges give powers of two.
+       private static int[] parseList(String name, String field, boolean fullAllowed) {
+         TreeSet<Integer> values = new TreeSet<Integer>();
+         StringTokenizer st = new StringTokenizer(field, ",");
+         while (st.hasMoreTokens()) {
+            String item = st.nextToken().trim();
+            if (fullAllowed && item.equalsIgnoreCase("full")) {
+               values.add(Integer.valueOf(Integer.MAX_VALUE)); // sorts last; stored as FULL
+               continue;
+            }
+            int dash = item.indexOf('-');
+            int low = CacheHierarchy.parseSize(name, (dash < 0) ? item : item.substring(0, dash));
+            int high = (dash < 0) ? low : CacheHierarchy.parseSize(name, item.substring(dash + 1));
+            if (low <= 0 || (low & (low - 1)) != 0 || high < low || (high & (high - 1)) != 0) {
+               throw new IllegalArgumentException(name + ": \"" + item + "\" is not a power of two or range of them");
+            }
+            for (long value = low; value <= high; value *= 2) {
+               values.add(Integer.valueOf((int) value));
+            }
+         }
+         if (values.isEmpty()) {
+            throw new IllegalArgumentException(name + ": no values given");
+         }
+         int[] result = new int[values.size()];
+         Iterator<Integer> it = values.iterator();
+         for (int i = 0; i < result.length; i++) {
+            int value = it.next().intValue();
+            result[i] = (value == Integer.MAX_VALUE) ? FULL : value;
+         }
+         return result;
+      }
+
+       private static Analyzer find(ArrayList<Analyzer> list, int blockBits, int setBits) {
+         for (int i = 0; i < list.size(); i++) {
+            Analyzer analyzer = list.get(i);
+            if (analyzer.blockBits == blockBits && analyzer.setBits == setBits) {
+               return analyzer;
+            }
+         }
+         return null;
+      }
+
+   /**
+    * Account for one memory reference in every organization of the sweep.
+    * @param address address referenced.
+    */
+       public void reference(int address) {
+         references++;
+         for (int i = 0; i < analyzers.length; i++) {
+            analyzers[i].reference(address);
+         }
+      }
+
+   /**
+    * Account for the references recorded in a trace file of the stream selected.
+    * @param file trace file written by TraceRecorder.
+    * @throws IOException if the file cannot be read or is not a trace.
+    */
+       public void read(File file) throws IOException {
+         TraceReader reader = new TraceReader(file);
+         try {
+            while (reader.next()) {
+               int type = reader.getType();
+               if (type == TraceRecorder.INSTRUCTION) {
+                  if (stream != DATA) {
+                     reference(reader.getAddress());
+                  }
+               }
+               else if (type == TraceRecorder.MEMORY_READ || type == TraceRecorder.MEMORY_WRITE) {
+                  if (stream != INSTRUCTIONS) {
+                     reference(reader.getAddress());
+                  }
+               }
+            }
+         }
+         finally {
+            reader.close();
+         }
+      }
+
+   /**
+    * Begin taking references from the running program, replacing any sweep already active.
+    */
+       public void start() {
+         activate(this);
+      }
+
+   /**
+    * Stop taking references from the running program.
+    */
+       public static void stop() {
+         activate(null);
+      }
+
+      // Make the given sweep, or none if null, the active one.  It is attached only as
+      // the listener its stream needs.
+       private static synchronized void activate(CacheSweep sweep) {
+         CacheSweep previous = active;
+         if (previous != null) {
+            Simulator.removeInstructionListener(previous);
+            Memory.getInstance().removeAccessListener(previous);
+         }
+         active = sweep;
+         if (sweep != null) {
+            if (sweep.stream != DATA) {
+               Simulator.addInstructionListener(sweep);
+            }
+            if (sweep.stream != INSTRUCTIONS) {
+               Memory.getInstance().addAccessListener(sweep);
+            }
+         }
+      }
+
+   /**
+    * Called by the Simulator for every instruction fetched, while the sweep takes them.
+    * @param address address of the instruction.
+    * @param binaryStatement the instruction, which is not used.
+    */
+       public void instructionExecuting(int address, int binaryStatement) {
+         reference(address);
+      }
+
+   /**
+    * Called by Memory for every access while the sweep takes data references.
+    * Instruction fetches are ignored; instructionExecuting() accounts for them.
+    * @param type AccessNotice.READ, AccessNotice.WRITE or FETCH.
+    * @param address address accessed.
+    * @param length number of bytes accessed.
+    * @param value value read or written.
+    */
+       public void memoryAccessed(int type, int address, int length, int value) {
+         if (type != FETCH) {
+            reference(address);
+         }
+      }
+
+   /**
+    * @return number of references accounted for.
+    */
+       public long getReferences() {
+         return references;
+      }
+
+   /**
+    * Get the miss ratio of one organization of the sweep.
+    * @param size cache size in bytes.
+    * @param blockSize block size in bytes.
+    * @param associativity blocks per set, or 0 for fully associative.
+    * @return fraction of the references that missed, or -1 if the organization is not
+    * part of the sweep or is impossible.
+    */
+       public double getMissRatio(int size, int blockSize, int associativity) {
+         if (blockSize <= 0 || size < blockSize) {
+            return -1;
+         }
+         int blocks = size / blockSize;
+         int depth = (associativity == FULL) ? blocks : associativity;
+         if (depth > blocks || !isPowerOfTwo(blocks) || !isPowerOfTwo(depth) || !isPowerOfTwo(blockSize)) {
+            return -1;
+         }
+         int setBits = Integer.numberOfTrailingZeros(blocks / depth);
+         for (int i = 0; i < analyzers.length; i++) {
+            Analyzer analyzer = analyzers[i];
+            if (analyzer.blockBits == Integer.numberOfTrailingZeros(blockSize) && analyzer.setBits == setBits
+                  && depth <= analyzer.histogram.length) {
+               return (references == 0) ? 0.0 : 1.0 - analyzer.hits(depth) / (double) references;
+            }
+         }
+         return -1;
+      }
+
+       private static boolean isPowerOfTwo(int n) {
+         return n > 0 && (n & (n - 1)) == 0;
+      }
+
+   /**
+    * Print the miss ratio curves as a table: a row for each block size and cache size
+    * and a column for each associativity.
+    * @param out where to print.
+    */
+       public void printMissRatios(PrintStream out) {
+         String[] streams = { "data references", "instruction fetches", "instruction fetches and data references" };
+         out.println("LRU miss ratios (%) for " + references + " " + streams[stream]);
+         StringBuffer line = new StringBuffer();
+         line.append(pad("block", 8)).append(pad("size", 8));
+         for (int w = 0; w < ways.length; w++) {
+            line.append(pad((ways[w] == FULL) ? "full" : ways[w] + "-way", 9));
+         }
+         out.println(line);
+         for (int b = 0; b < blockSizes.length; b++) {
+            for (int s = 0; s < sizes.length; s++) {
+               line.setLength(0);
+               line.append(pad(Cache.formatSize(blockSizes[b]), 8)).append(pad(Cache.formatSize(sizes[s]), 8));
+               for (int w = 0; w < ways.length; w++) {
+                  double ratio = getMissRatio(sizes[s], blockSizes[b], ways[w]);
+                  line.append(pad((ratio < 0) ? "-" : Double.toString(Math.round(ratio * 10000) / 100.0), 9));
+               }
+               out.println(line);
+            }
+         }
+      }
+
+       private static String pad(String s, int width) {
+         StringBuffer sb = new StringBuffer(s);
+         while (sb.length() < width) {
+            sb.append(' ');
+         }
+         return sb.toString();
+      }
+
+   /**
+    * Print the miss ratios of the sweep for the references in a trace file.
+    * @param args the sweep description and the trace file name.
+    * @throws IOException if the trace file cannot be read.
+    */
+       public static void main(String[] args) throws IOException {
+         if (args.length != 2) {
+            System.out.println("Usage: java mars.mips.hardware.CacheSweep sizes:blocks:ways[:D|I|U] <trace file>");
+            return;
+         }
+         CacheSweep sweep;
+         try {
+            sweep = new CacheSweep(args[0]);
+         }
+             catch (IllegalArgumentException e) {
+               System.out.println("Invalid cache sweep: " + e.getMessage());
+               return;
+            }
+         sweep.read(new File(args[1]));
+         sweep.printMissRatios(System.out);
+      }
+
+      // Stack distances of the references for one block size and number of sets.
+       private static class Analyzer {
+         private static final int INITIAL_CAPACITY = 16;
+
+         int blockBits, setBits, setMask;
+         long[] histogram;  // references at each stack distance below its length
+         int[][] trees;     // Fenwick tree of each set, over the set's reference times
+         int[][] owners;    // block referenced at each time of each set, or -1 once referenced again
+         int[] clocks;      // next reference time of each set
+         int[] live;        // blocks in each set's tree
+         SlotTable slots = new SlotTable(); // block -> its latest reference time in its set
+
+          Analyzer(int blockBits, int setBits, int depth) {
+            this.blockBits = blockBits;
+            this.setBits = setBits;
+            setMask = (1 << setBits) - 1;
+            histogram = new long[depth];
+            trees = new int[1 << setBits][];
+            owners = new int[1 << setBits][];
+            clocks = new int[1 << setBits];
+            live = new int[1 << setBits];
+         }
+
+         // Keep distances up to depth.  Only done before any reference.
+          void deepen(int depth) {
+            if (depth > histogram.length) {
+               histogram = new long[depth];
+            }
+         }
+
+         // Number of references that hit in a cache of this geometry with the given ways.
+          long hits(int ways) {
+            long hits = 0;
+            for (int d = 0; d < ways; d++) {
+               hits += histogram[d];
+            }
+            return hits;
+         }
+
+          void reference(int address) {
+            int block = address >>> blockBits;
+            int set = block & setMask;
+            if (trees[set] == null) {
+               trees[set] = new int[INITIAL_CAPACITY];
+               owners[set] = new int[INITIAL_CAPACITY];
+            }
+            else if (clocks[set] == trees[set].length) {
+               compact(set);
+            }
+            int[] tree = trees[set];
+            int previous = slots.get(block);
+            if (previous >= 0) {
+               // Blocks of the set referenced since: the 1s after the previous reference.
+               int distance = live[set] - prefixSum(tree, previous);
+               if (distance < histogram.length) {
+                  histogram[distance]++;
+               }
+               add(tree, previous, -1);
+               owners[set][previous] = -1;
+               live[set]--;
+            }
+            int now = clocks[set]++;
+            add(tree, now, 1);
+            owners[set][now] = block;
+            live[set]++;
+            slots.put(block, now);
+         }
+
+         // Renumber the live entries of a full tree from 0, doubling it if over half are live.
+          private void compact(int set) {
+            int[] oldOwners = owners[set];
+            int capacity = oldOwners.length;
+            if (2 * live[set] > capacity) {
+               capacity *= 2;
+            }
+            int[] tree = new int[capacity];
+            int[] newOwners = new int[capacity];
+            int n = 0;
+            for (int i = 0; i < oldOwners.length; i++) {
+               if (oldOwners[i] >= 0) {
+                  newOwners[n] = oldOwners[i];
+                  slots.put(oldOwners[i], n);
+                  n++;
+               }
+            }
+            // Build the tree of n 1s in linear time, each node adding itself to its parent.
+            for (int i = 0; i < capacity; i++) {
+               if (i < n) {
+                  tree[i]++;
+               }
+               int parent = i | (i + 1);
+               if (parent < capacity) {
+                  tree[parent] += tree[i];
+               }
+            }
+            trees[set] = tree;
+            owners[set] = newOwners;
+            clocks[set] = n;
+         }
+
+          private static void add(int[] tree, int i, int delta) {
+            for (; i < tree.length; i |= i + 1) {
+               tree[i] += delta;
+            }
+         }
+
+         // Sum of entries 0 through i.
+          private static int prefixSum(int[] tree, int i) {
+            int sum = 0;
+            for (; i >= 0; i = (i & (i + 1)) - 1) {
+               sum += tree[i];
+            }
+            return sum;
+         }
+      }
+
+      // Hash table from block number to reference time, both non-negative ints, without
+      // allocating per entry.  Open addressing, linear probing, -1 marks an empty key.
+       private static class SlotTable {
+         private int[] keys = new int[1024];
+         private int[] values = new int[1024];
+         private int size;
+
+          SlotTable() {
+            Arrays.fill(keys, -1);
+         }
+
+          int get(int key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; keys[i] != -1; i = (i + 1) & mask) {
+               if (keys[i] == key) {
+                  return values[i];
+               }
+            }
+            return -1;
+         }
+
+          void put(int key, int value) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != -1 && keys[i] != key) {
+               i = (i + 1) & mask;
+            }
+            if (keys[i] == -1) {
+               keys[i] = key;
+               if (++size * 2 > keys.length) {
+                  values[i] = value;
+                  grow();
+                  return;
+               }
+            }
+            values[i] = value;
+         }
+
+          private void grow() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[2 * oldKeys.length];
+            values = new int[2 * oldKeys.length];
+            Arrays.fill(keys, -1);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+               if (oldKeys[i] != -1) {
+                  put(oldKeys[i], oldValues[i]);
+               }
+            }
+         }
+
+          private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+         }
+      }
+   }
@@ -1,5 +1,8 @@
    package mars.mips.hardware;
    import mars.Globals;
+   import mars.simulator.DeviceScheduler;
+   import mars.simulator.Exceptions;
+   import mars.simulator.Simulator;
    import java.util.*;
 
 /*
@@ -31,7 +34,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
 
 /**
-  *  Represents Coprocessor 0.  We will use only its interrupt/exception registers.
+  *  Represents Coprocessor 0.  We will use only its interrupt/exception registers
+  *  and its Count/Compare timer.  Count advances by one for each instruction executed;
+  *  it is computed when read from the DeviceScheduler's instruction count rather than
+  *  updated every instruction.  When Count reaches Compare, the timer sets Cause bit 15
+  *  (IP7) and, if interrupts are enabled and bit 15 of the Status mask is set, raises an
+  *  external interrupt.  The timer is a DeviceScheduler event, scheduled whenever Count
+  *  or Compare is written, so nothing is checked per instruction.  An IP7 that finds
+  *  interrupts disabled stays pending and is raised when a write to Status enables them,
+  *  until writing Compare clears Cause bit 15.  After a reset the timer is off until Compare is written, so
+  *  programs that do not use it are never interrupted by it.
   *   @author 	Pete Sanderson
   *   @version August 2005
   **/
@@ -40,19 +52,28 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       /** Coprocessor register names
 		 */
 		public static final int VADDR  = 8;
+		public static final int COUNT  = 9;
+		public static final int COMPARE = 11;
 		public static final int STATUS = 12;
 	   public static final int CAUSE  = 13;
 		public static final int EPC    = 14;
 		
 		public static final int EXCEPTION_LEVEL = 1;  // bit position in STATUS register
+		public static final int TIMER_INTERRUPT = 15; // bit position in CAUSE and STATUS registers
 		// bits 8-15 (mask for interrupt levels) all set, bit 4 (user mode) set,
 		// bit 1 (exception level) not set, bit 0 (interrupt enable) set.
 		public static final int DEFAULT_STATUS_VALUE = 0x0000FF11;
 		
+      private static Register count = new CountRegister("$9 (count)", COUNT);
+      private static Register compare = new CompareRegister("$11 (compare)", COMPARE);
+      private static Register status = new StatusRegister("$12 (status)", 12, DEFAULT_STATUS_VALUE);
+      private static Register cause = new Register("$13 (cause)", 13, 0);
       private static Register [] registers = 
           { new Register("$8 (vaddr)", 8, 0),  
-            new Register("$12 (status)", 12, DEFAULT_STATUS_VALUE),
-         	new Register("$13 (cause)", 13, 0),  
+            count,
+            compare,
+            status,
+         	cause,  
          	new Register("$14 (epc)", 14, 0)
            };
         												  
@@ -151,8 +172,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       
    	/**
    	  *  Coprocessor0 implements only selected registers, so the register number
-		  *  (8, 12, 13, 14) does not correspond to its position in the list of registers
-		  *  (0, 1, 2, 3).  
+		  *  (8, 9, 11, 12, 13, 14) does not correspond to its position in the list of registers
+		  *  (0, 1, 2, 3, 4, 5).  
 		  *   @param r A coprocessor0 Register
    	  *   @return the list position of given register, -1 if not found.
    	  **/
@@ -211,5 +232,112 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             registers[i].deleteObserver(observer);
          }
       }
-
+   
+      private static DeviceScheduler.Event timer = new TimerInterrupt();
+      private static volatile boolean timerArmed = false;
+   
+   	// Schedule the timer for when Count next reaches Compare, if Compare has been written.
+   	// If they are equal now, that is after Count wraps around.
+       private static void scheduleTimer() {
+         synchronized (Globals.memoryAndRegistersLock) {
+            if (!timerArmed) {
+               DeviceScheduler.cancel(timer);
+               return;
+            }
+            long delay = (compare.getValueNoNotify() - count.getValueNoNotify()) & 0xFFFFFFFFL;
+            DeviceScheduler.schedule(timer, (delay == 0) ? 1L << 32 : delay);
+         }
+      }
+   
+   	// Count holds the instruction count at which it was zero, and computes its value
+   	// from the current instruction count when read.  It is zero when MARS starts, not
+   	// when this class is first used, which may be during the first program run.
+       private static class CountRegister extends Register {
+         private volatile long base = 0;
+      
+          CountRegister(String name, int number) {
+            super(name, number, 0);
+         }
+      
+          public int getValue() {
+            notifyAnyObservers(AccessNotice.READ);
+            return getValueNoNotify();
+         }
+      
+          public int getValueNoNotify() {
+            return (int) (DeviceScheduler.getInstructionCount() - base);
+         }
+      
+          public int setValue(int val) {
+            int old = getValueNoNotify();
+            base = DeviceScheduler.getInstructionCount() - (val & 0xFFFFFFFFL);
+            notifyAnyObservers(AccessNotice.WRITE);
+            scheduleTimer();
+            return old;
+         }
+      
+          public void resetValue() {
+            base = DeviceScheduler.getInstructionCount();
+            scheduleTimer();
+         }
+      }
+   
+   	// Writing Compare acknowledges the timer interrupt and sets the next one.
+       private static class CompareRegister extends Register {
+      
+          CompareRegister(String name, int number) {
+            super(name, number, 0);
+         }
+      
+          public int setValue(int val) {
+            int old = super.setValue(val);
+            cause.setValue(cause.getValueNoNotify() & ~(1 << TIMER_INTERRUPT));
+            timerArmed = true;
+            scheduleTimer();
+            return old;
+         }
+      
+          public void resetValue() {
+            super.resetValue();
+            timerArmed = false;
+            scheduleTimer();
+         }
+      }
+   
+   	// Count has reached Compare.  The next time is after Count wraps around, unless
+   	// Count or Compare is written first.
+       private static class TimerInterrupt extends DeviceScheduler.Event {
+          protected void fire() {
+            cause.setValue(cause.getValueNoNotify() | (1 << TIMER_INTERRUPT));
+            raisePendingTimerInterrupt();
+            DeviceScheduler.schedule(this, 1L << 32);
+         }
+      }
+   
+   	// Writing Status may enable a timer interrupt that was disabled when it occurred,
+   	// as when an exception handler returns and clears EXL.
+       private static class StatusRegister extends Register {
+      
+          StatusRegister(String name, int number, int resetValue) {
+            super(name, number, resetValue);
+         }
+      
+          public int setValue(int val) {
+            int old = super.setValue(val);
+            raisePendingTimerInterrupt();
+            return old;
+         }
+      }
+   
+   	// Raise the timer interrupt if Cause bit 15 is set, bit 15 of the Status mask is set,
+   	// interrupts are enabled and EXL is clear.
+       private static void raisePendingTimerInterrupt() {
+         int statusValue = status.getValueNoNotify();
+         if ((cause.getValueNoNotify() & (1 << TIMER_INTERRUPT)) != 0
+             && (statusValue & (1 << TIMER_INTERRUPT)) != 0
+             && (statusValue & 2) == 0
+             && (statusValue & 1) == 1) {
+            Simulator.externalInterruptingDevice = Exceptions.EXTERNAL_INTERRUPT_TIMER;
+         }
+      }
    }
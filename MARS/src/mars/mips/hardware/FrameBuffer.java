@@ -0,0 +1,204 @@
+   package mars.mips.hardware;
+
+   import java.awt.*;
+   import java.awt.image.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * A bitmap display whose pixels are words of MIPS memory.  Each word holds the 24-bit
+ * RGB color of one pixel, red in bits 16-23, green in bits 8-15 and blue in bits 0-7,
+ * and the pixels are laid out in row-major order from the base address.
+ * <p>
+ * Once attached with Memory.setFrameBuffer(), the frame buffer shares Memory's own
+ * 4K blocks: each block is the raster of a BufferedImage holding a band of whole rows,
+ * so a store lands directly in a pixel and drawing the images shows the current memory
+ * contents with nothing copied.  Memory reports each store in range by marking its row
+ * dirty, which is all the work done per store.  A display polls takeDirtyRows() at a
+ * fixed rate and repaints only those rows.
+ */
+
+    public class FrameBuffer {
+
+      private static final DirectColorModel COLOR_MODEL = new DirectColorModel(24, 0xFF0000, 0xFF00, 0xFF);
+
+      private int baseAddress;
+      private int columns, rows;
+      private int rowShift;   // log2 of the bytes in a row
+      private int length;     // bytes in the frame buffer
+      private volatile BufferedImage[] images;
+      private int rowsPerImage;
+      private boolean[] dirty;
+      private boolean anyDirty;
+
+   /**
+    * Create a frame buffer.  It shows nothing until attached to Memory.
+    * @param baseAddress address of the pixel at the upper left corner.
+    * @param columns pixels in a row; must be a power of two, at most 1024.
+    * @param rows number of rows.
+    * @throws IllegalArgumentException if columns is not a power of two up to 1024 or rows is not positive.
+    */
+       public FrameBuffer(int baseAddress, int columns, int rows) {
+         if (columns < 1 || columns > 1024 || (columns & (columns - 1)) != 0) {
+            throw new IllegalArgumentException("frame buffer width must be a power of two from 1 to 1024");
+         }
+         if (rows < 1) {
+            throw new IllegalArgumentException("frame buffer must have at least one row");
+         }
+         this.baseAddress = baseAddress;
+         this.columns = columns;
+         this.rows = rows;
+         rowShift = Integer.numberOfTrailingZeros(columns) + 2;
+         length = rows << rowShift;
+         dirty = new boolean[rows];
+      }
+
+   /**
+    * @return address of the pixel at the upper left corner.
+    */
+       public int getBaseAddress() {
+         return baseAddress;
+      }
+
+   /**
+    * @return number of words, one per pixel.
+    */
+       public int getWords() {
+         return rows * columns;
+      }
+
+   /**
+    * @return pixels in a row.
+    */
+       public int getColumns() {
+         return columns;
+      }
+
+   /**
+    * @return number of rows.
+    */
+       public int getRows() {
+         return rows;
+      }
+
+   /**
+    * Get the color of a pixel.
+    * @param row row of the pixel.
+    * @param column column of the pixel.
+    * @return the word holding its color, or 0 if the frame buffer is not attached.
+    */
+       public int getPixel(int row, int column) {
+         BufferedImage[] current = images;
+         if (current == null) {
+            return 0;
+         }
+         int[] pixels = ((DataBufferInt) current[row / rowsPerImage].getRaster().getDataBuffer()).getData();
+         return pixels[(row % rowsPerImage) * columns + column];
+      }
+
+   /**
+    * Draw the frame buffer, each pixel scaled to a rectangle of the given size, with its
+    * upper left corner at (0,0).  Images outside the clip of the graphics are skipped.
+    * @param g where to draw.
+    * @param unitWidth width of each pixel when drawn.
+    * @param unitHeight height of each pixel when drawn.
+    */
+       public void draw(Graphics g, int unitWidth, int unitHeight) {
+         BufferedImage[] current = images;
+         if (current == null) {
+            return;
+         }
+         Rectangle clip = g.getClipBounds();
+         for (int i = 0; i < current.length; i++) {
+            int y = i * rowsPerImage * unitHeight;
+            int height = current[i].getHeight() * unitHeight;
+            if (clip == null || (y < clip.y + clip.height && y + height > clip.y)) {
+               g.drawImage(current[i], 0, y, columns * unitWidth, height, null);
+            }
+         }
+      }
+
+   /**
+    * Collect the rows stored into since the last call, and mark them clean.
+    * @param rowsWritten set true for each row stored into, false for the others; its
+    * length must be at least the number of rows.
+    * @return true if any row was stored into.
+    */
+       public boolean takeDirtyRows(boolean[] rowsWritten) {
+         if (!anyDirty) {
+            return false;
+         }
+         anyDirty = false;
+         for (int row = 0; row < rows; row++) {
+            rowsWritten[row] = dirty[row];
+            dirty[row] = false;
+         }
+         return true;
+      }
+
+   /**
+    * Mark every row dirty, as after memory is loaded in bulk.
+    */
+       public void invalidate() {
+         for (int row = 0; row < rows; row++) {
+            dirty[row] = true;
+         }
+         anyDirty = true;
+      }
+
+      // Called by Memory after each store.  Marks the row holding the address, if any.
+       void written(int address) {
+         int offset = address - baseAddress;
+         if (offset >= 0 && offset < length) {
+            dirty[offset >>> rowShift] = true;
+            anyDirty = true;
+         }
+      }
+
+      // Called by Memory to attach the frame buffer to the blocks holding its words,
+      // in address order, or with null to detach it.  Each block holds whole rows.
+       void share(int[][] blocks) {
+         if (blocks == null) {
+            images = null;
+         }
+         else {
+            rowsPerImage = blocks[0].length / columns;
+            BufferedImage[] shared = new BufferedImage[blocks.length];
+            for (int i = 0; i < blocks.length; i++) {
+               int height = Math.min(rowsPerImage, rows - i * rowsPerImage);
+               WritableRaster raster = Raster.createPackedRaster(new DataBufferInt(blocks[i], height * columns),
+                  columns, height, columns, COLOR_MODEL.getMasks(), null);
+               shared[i] = new BufferedImage(COLOR_MODEL, raster, false, null);
+            }
+            images = shared;
+         }
+         invalidate();
+      }
+   }
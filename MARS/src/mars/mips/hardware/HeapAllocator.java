@@ -0,0 +1,376 @@
+   package mars.mips.hardware;
+
+   import mars.*;
+   import mars.util.*;
+   import java.util.*;
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Heap manager behind the malloc, free and realloc syscalls.  Unlike sbrk,
+ * which only ever moves the top of the heap upward, freed blocks are recycled.
+ * Heap storage is obtained from Memory.allocateBytesFromHeap() in chunks of at
+ * least MINIMUM_GROWTH bytes and divided into blocks.  Free blocks are kept on
+ * segregated free lists, one per power-of-two size class, searched first fit by
+ * address, and adjacent free blocks are coalesced when freed.
+ * <p>
+ * All bookkeeping is kept here on the host side, not in simulated memory, so a
+ * MIPS program that overruns a block cannot corrupt the heap structures.  Freeing
+ * an address that was not returned by malloc, or freeing it twice, is reported as
+ * an error.  A new HeapAllocator is created each time Memory is cleared.
+ */
+
+    public class HeapAllocator {
+
+      /** Alignment and granularity of allocated blocks, in bytes */
+      public static final int ALIGNMENT = 8;
+      /** Smallest number of bytes requested from the heap when more is needed */
+      public static final int MINIMUM_GROWTH = 4096;
+
+      private static final int SIZE_CLASSES = 32;
+
+      private TreeMap<Integer, Integer> freeBlocks;   // address -> size, for coalescing
+      private ArrayList<TreeSet<Integer>> sizeClasses; // addresses of free blocks, indexed by floor(log2(size))
+      private HashMap<Integer, Integer> allocated;    // address -> size of each allocated block
+      private int freeBytes;
+      private int allocatedBytes;
+      private int peakAllocatedBytes;
+      private int heapBytes;
+      private int mallocCount, freeCount, reallocCount, failedCount;
+
+   /**
+    * Create an allocator with no heap storage.
+    */
+       public HeapAllocator() {
+         freeBlocks = new TreeMap<Integer, Integer>();
+         sizeClasses = new ArrayList<TreeSet<Integer>>(SIZE_CLASSES);
+         for (int i = 0; i < SIZE_CLASSES; i++) {
+            sizeClasses.add(new TreeSet<Integer>());
+         }
+         allocated = new HashMap<Integer, Integer>();
+      }
+
+   /**
+    * Allocate a block of at least the given size.
+    * @param size number of bytes requested.
+    * @return address of the block, ALIGNMENT aligned, or 0 if the heap is exhausted.
+    * @throws IllegalArgumentException if the size is negative.
+    */
+       public int malloc(int size) {
+         mallocCount++;
+         return allocate(size);
+      }
+
+   /**
+    * Release a block returned by malloc() or realloc().  Releasing address 0 does nothing.
+    * @param address address of the block.
+    * @throws IllegalArgumentException if the address is not that of an allocated block.
+    */
+       public void free(int address) {
+         freeCount++;
+         release(address);
+      }
+
+   /**
+    * Change the size of an allocated block.  If the block cannot be resized in place,
+    * a new block is allocated, the contents are copied and the old block is released.
+    * As in C, address 0 allocates a new block, size 0 releases the block, and if the
+    * heap is exhausted 0 is returned and the old block is left unchanged.
+    * @param address address of the block, or 0.
+    * @param size new size in bytes.
+    * @return address of the resized block, or 0.
+    * @throws IllegalArgumentException if the address is not that of an allocated block
+    * or the size is negative.
+    * @throws AddressErrorException if the contents cannot be copied.
+    */
+       public int realloc(int address, int size) throws AddressErrorException {
+         reallocCount++;
+         if (address == 0) {
+            return allocate(size);
+         }
+         int oldSize = getAllocatedSize(address);
+         if (size < 0) {
+            throw new IllegalArgumentException("request ("+size+") is negative heap amount");
+         }
+         if (size == 0) {
+            release(address);
+            return 0;
+         }
+         int needed = roundUp(size);
+         if (needed <= 0) {
+            failedCount++;
+            return 0;
+         }
+         if (needed <= oldSize) {
+            shrink(address, oldSize, needed);
+            return address;
+         }
+         // Grow in place if the following block is free and big enough.
+         Integer next = Integer.valueOf(address + oldSize);
+         Integer nextSize = freeBlocks.get(next);
+         if (nextSize != null && oldSize + nextSize.intValue() >= needed) {
+            int combined = oldSize + nextSize.intValue();
+            removeFree(next.intValue(), nextSize.intValue());
+            if (combined - needed >= ALIGNMENT) {
+               addFree(address + needed, combined - needed);
+               combined = needed;
+            }
+            setAllocated(address, oldSize, combined);
+            return address;
+         }
+         int newAddress = allocate(size);
+         if (newAddress == 0) {
+            return 0;
+         }
+         // Copy without notifying observers or recording for backstepping: the program
+         // sees only the syscall, not the words the allocator moves.  getRawWords() stops
+         // at a block never written, so words from there on are read one at a time.
+         int words = oldSize / Memory.WORD_LENGTH_BYTES;
+         int[] contents = new int[words];
+         int copied = Globals.memory.getRawWords(address, contents, words);
+         for (int i = copied; i < words; i++) {
+            contents[i] = Globals.memory.getWordNoNotify(address + i * Memory.WORD_LENGTH_BYTES);
+         }
+         Globals.memory.setRawWords(newAddress, contents, words);
+         release(address);
+         return newAddress;
+      }
+
+   /** @return number of bytes in allocated blocks. */
+       public int getAllocatedBytes() {
+         return allocatedBytes;
+      }
+
+   /** @return largest number of bytes that have been allocated at one time. */
+       public int getPeakAllocatedBytes() {
+         return peakAllocatedBytes;
+      }
+
+   /** @return number of heap bytes obtained from Memory.allocateBytesFromHeap(). */
+       public int getHeapBytes() {
+         return heapBytes;
+      }
+
+   /** @return number of bytes in free blocks. */
+       public int getFreeBytes() {
+         return freeBytes;
+      }
+
+   /** @return number of free blocks. */
+       public int getFreeBlockCount() {
+         return freeBlocks.size();
+      }
+
+   /** @return size of the largest free block, 0 if none. */
+       public int getLargestFreeBlock() {
+         for (int i = SIZE_CLASSES - 1; i >= 0; i--) {
+            if (!sizeClasses.get(i).isEmpty()) {
+               int largest = 0;
+               Iterator<Integer> it = sizeClasses.get(i).iterator();
+               while (it.hasNext()) {
+                  largest = Math.max(largest, freeBlocks.get(it.next()).intValue());
+               }
+               return largest;
+            }
+         }
+         return 0;
+      }
+
+   /**
+    * External fragmentation of the free storage: 0 when it is all in one block,
+    * approaching 1 as it is divided into many small blocks.
+    * @return 1 - (largest free block / total free bytes), or 0 if nothing is free.
+    */
+       public double getFragmentation() {
+         return (freeBytes == 0) ? 0.0 : 1.0 - (double) getLargestFreeBlock() / freeBytes;
+      }
+
+   /** @return number of malloc() calls. */
+       public int getMallocCount() {
+         return mallocCount;
+      }
+
+   /** @return number of free() calls. */
+       public int getFreeCount() {
+         return freeCount;
+      }
+
+   /** @return number of realloc() calls. */
+       public int getReallocCount() {
+         return reallocCount;
+      }
+
+   /** @return number of allocations that failed because the heap was exhausted. */
+       public int getFailedCount() {
+         return failedCount;
+      }
+
+       private int allocate(int size) {
+         if (size < 0) {
+            throw new IllegalArgumentException("request ("+size+") is negative heap amount");
+         }
+         int needed = roundUp(Math.max(size, 1));
+         int address = (needed <= 0) ? 0 : takeFreeBlock(needed);
+         if (address == 0 && needed > 0 && grow(needed)) {
+            address = takeFreeBlock(needed);
+         }
+         if (address == 0) {
+            failedCount++;
+         }
+         return address;
+      }
+
+       private void release(int address) {
+         if (address == 0) {
+            return;
+         }
+         int size = getAllocatedSize(address);
+         allocated.remove(Integer.valueOf(address));
+         allocatedBytes -= size;
+         addFree(address, size);
+      }
+
+       private int getAllocatedSize(int address) {
+         Integer size = allocated.get(Integer.valueOf(address));
+         if (size == null) {
+            throw new IllegalArgumentException("address "+Binary.intToHexString(address)
+                                             +" is not an allocated heap block");
+         }
+         return size.intValue();
+      }
+
+      // Record new size of allocated block and update usage.
+       private void setAllocated(int address, int oldSize, int newSize) {
+         allocated.put(Integer.valueOf(address), Integer.valueOf(newSize));
+         allocatedBytes += newSize - oldSize;
+         peakAllocatedBytes = Math.max(peakAllocatedBytes, allocatedBytes);
+      }
+
+      // Reduce allocated block to the needed size, freeing the remainder if it can form a block.
+       private void shrink(int address, int size, int needed) {
+         if (size - needed >= ALIGNMENT) {
+            addFree(address + needed, size - needed);
+            setAllocated(address, size, needed);
+         }
+      }
+
+      // First fit by address within the size class of the request, then any block of
+      // a larger class.  Returns 0 if there is no free block big enough.
+       private int takeFreeBlock(int needed) {
+         for (int c = sizeClassOf(needed); c < SIZE_CLASSES; c++) {
+            Iterator<Integer> it = sizeClasses.get(c).iterator();
+            while (it.hasNext()) {
+               Integer address = it.next();
+               int size = freeBlocks.get(address).intValue();
+               if (size >= needed) {
+                  removeFree(address.intValue(), size);
+                  if (size - needed >= ALIGNMENT) {
+                     addFree(address.intValue() + needed, size - needed);
+                     size = needed;
+                  }
+                  setAllocated(address.intValue(), 0, size);
+                  return address.intValue();
+               }
+            }
+         }
+         return 0;
+      }
+
+      // Obtain more storage from the top of the heap.  A free block that ends at the
+      // top is extended rather than a whole new block requested.
+       private boolean grow(int needed) {
+         int top = Memory.heapAddress;
+         int available = 0;
+         SortedMap<Integer, Integer> below = freeBlocks.headMap(Integer.valueOf(top));
+         if (!below.isEmpty()) {
+            Integer last = below.lastKey();
+            int lastSize = (freeBlocks.get(last)).intValue();
+            if (last.intValue() + lastSize == top) {
+               available = lastSize;
+            }
+         }
+         int padding = (ALIGNMENT - top % ALIGNMENT) % ALIGNMENT;
+         int request = Math.max(needed - available, MINIMUM_GROWTH);
+         int start;
+         try {
+            start = Globals.memory.allocateBytesFromHeap(request + padding);
+         }
+             catch (IllegalArgumentException e) {
+               // Not enough left for a full chunk; try for just what is needed.
+               request = needed - available;
+               try {
+                  start = Globals.memory.allocateBytesFromHeap(request + padding);
+               }
+                   catch (IllegalArgumentException e2) {
+                     return false;
+                  }
+            }
+         heapBytes += request + padding;
+         addFree(start + padding, request);
+         return true;
+      }
+
+      // Add block to the free lists, coalescing with free neighbors.
+       private void addFree(int address, int size) {
+         SortedMap<Integer, Integer> below = freeBlocks.headMap(Integer.valueOf(address));
+         if (!below.isEmpty()) {
+            Integer previous = below.lastKey();
+            int previousSize = (freeBlocks.get(previous)).intValue();
+            if (previous.intValue() + previousSize == address) {
+               removeFree(previous.intValue(), previousSize);
+               address = previous.intValue();
+               size += previousSize;
+            }
+         }
+         Integer nextSize = freeBlocks.get(Integer.valueOf(address + size));
+         if (nextSize != null) {
+            removeFree(address + size, nextSize.intValue());
+            size += nextSize.intValue();
+         }
+         Integer key = Integer.valueOf(address);
+         freeBlocks.put(key, Integer.valueOf(size));
+         sizeClasses.get(sizeClassOf(size)).add(key);
+         freeBytes += size;
+      }
+
+       private void removeFree(int address, int size) {
+         Integer key = Integer.valueOf(address);
+         freeBlocks.remove(key);
+         sizeClasses.get(sizeClassOf(size)).remove(key);
+         freeBytes -= size;
+      }
+
+       private static int sizeClassOf(int size) {
+         return 31 - Integer.numberOfLeadingZeros(size);
+      }
+
+       private static int roundUp(int size) {
+         return (size + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+      }
+   }
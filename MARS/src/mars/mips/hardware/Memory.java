@@ -90,6 +90,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private static boolean byteOrder = LITTLE_ENDIAN;
    	
       public static int heapAddress;
+      // Manages heap blocks for the malloc, free and realloc syscalls.  Replaced when memory is cleared.
+      private HeapAllocator heapAllocator;
    
     // Memory will maintain a collection of observables.  Each one is associated
     // with a specific memory address or address range, and each will have at least
@@ -163,6 +165,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    
       private static final int MMIO_TABLE_LENGTH = 16; // Each entry of table points to a 4K block.
       private int[][] memoryMapBlockTable;
+
+    // A frame buffer may share the blocks holding its pixels; stores into it mark its rows dirty.
+
+      private volatile FrameBuffer frameBuffer = null;
+
+    // Access listeners are told of each access reported to observers.  The array is
+    // replaced, never modified, so it can be read without locking.
+
+      private volatile MemoryAccessListener[] accessListeners = new MemoryAccessListener[0];
    	    
     // I use a similar scheme for storing instructions.  MIPS text segment ranges from
     // 0x00400000 all the way to data segment (0x10000000) a range of about 250 MB!  So
@@ -286,14 +297,112 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    
        private void initialize() {
          heapAddress = heapBaseAddress;
+         heapAllocator = new HeapAllocator();
          textBlockTable  = new ProgramStatement[TEXT_BLOCK_TABLE_LENGTH][];
          dataBlockTable  = new int[BLOCK_TABLE_LENGTH][]; // array of null int[] references
          kernelTextBlockTable  = new ProgramStatement[TEXT_BLOCK_TABLE_LENGTH][];
          kernelDataBlockTable  = new int[BLOCK_TABLE_LENGTH][];      
          stackBlockTable = new int[BLOCK_TABLE_LENGTH][];
          memoryMapBlockTable = new int[MMIO_TABLE_LENGTH][];
+         FrameBuffer buffer = frameBuffer;
+         if (buffer != null) {
+            try {
+               setFrameBuffer(buffer); // share the new blocks
+            } 
+                catch (AddressErrorException e) {
+                  buffer.share(null); // no longer fits the memory configuration
+               }
+         }
          System.gc(); // call garbage collector on any Table memory just deallocated. 	  
       }  
+
+   /**
+    * Attach a frame buffer, sharing with it the blocks that hold its words so that
+    * each store into its address range lands directly in a pixel.  The blocks are
+    * shared again whenever memory is cleared.  Only one frame buffer is attached at
+    * a time.
+    * @param buffer the frame buffer, or null to detach the one attached.
+    * @throws AddressErrorException if the frame buffer does not begin on a 4K block
+    * boundary of the data, kernel data or memory-mapped I/O segment, or does not fit
+    * within that segment.  The frame buffer is not attached.
+    */
+       public void setFrameBuffer(FrameBuffer buffer) throws AddressErrorException {
+         FrameBuffer old = frameBuffer;
+         frameBuffer = null;
+         if (old != null && old != buffer) {
+            old.share(null);
+         }
+         if (buffer != null) {
+            buffer.share(getSharedBlocks(buffer.getBaseAddress(), buffer.getWords()));
+            frameBuffer = buffer;
+         }
+      }
+
+   /**
+    * Attach an access listener, to be told of each access reported to observers, and
+    * of each instruction fetch.  Several may be attached at a time.
+    * @param listener the access listener.
+    */
+       public synchronized void addAccessListener(MemoryAccessListener listener) {
+         MemoryAccessListener[] current = accessListeners;
+         MemoryAccessListener[] added = new MemoryAccessListener[current.length + 1];
+         System.arraycopy(current, 0, added, 0, current.length);
+         added[current.length] = listener;
+         accessListeners = added;
+      }
+
+   /**
+    * Detach an access listener.  Does nothing if it is not attached.
+    * @param listener the access listener.
+    */
+       public synchronized void removeAccessListener(MemoryAccessListener listener) {
+         MemoryAccessListener[] current = accessListeners;
+         for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+               MemoryAccessListener[] removed = new MemoryAccessListener[current.length - 1];
+               System.arraycopy(current, 0, removed, 0, i);
+               System.arraycopy(current, i + 1, removed, i, current.length - i - 1);
+               accessListeners = removed;
+               return;
+            }
+         }
+      }
+
+      // The blocks holding the given number of words from a block aligned address, in
+      // address order, allocated if need be.
+       private synchronized int[][] getSharedBlocks(int address, int words) throws AddressErrorException {
+         int[][] blockTable;
+         int relative;
+         if (inDataSegment(address)) {
+            blockTable = dataBlockTable;
+            relative = (address - dataSegmentBaseAddress) >> 2;
+         }
+         else if (inKernelDataSegment(address)) {
+            blockTable = kernelDataBlockTable;
+            relative = (address - kernelDataBaseAddress) >> 2;
+         }
+         else if (inMemoryMapSegment(address)) {
+            blockTable = memoryMapBlockTable;
+            relative = (address - memoryMapBaseAddress) >> 2;
+         }
+         else {
+            throw new AddressErrorException("frame buffer must be in data, kernel data or memory map segment ",
+               Exceptions.ADDRESS_EXCEPTION_STORE, address);
+         }
+         if (relative % BLOCK_LENGTH_WORDS != 0 || words > blockTable.length * BLOCK_LENGTH_WORDS - relative) {
+            throw new AddressErrorException("frame buffer not aligned on block boundary or too large ",
+               Exceptions.ADDRESS_EXCEPTION_STORE, address);
+         }
+         int[][] blocks = new int[(words + BLOCK_LENGTH_WORDS - 1) / BLOCK_LENGTH_WORDS][];
+         for (int i = 0; i < blocks.length; i++) {
+            int block = relative / BLOCK_LENGTH_WORDS + i;
+            if (blockTable[block] == null) {
+               blockTable[block] = new int[BLOCK_LENGTH_WORDS];
+            }
+            blocks[i] = blockTable[block];
+         }
+         return blocks;
+      }
      
    	/**
    	 * Returns the next available word-aligned heap address.  There is no recycling and
@@ -320,6 +429,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       }
    
    
+   	/**
+   	 * Returns the heap manager used by the malloc, free and realloc syscalls.  It takes
+   	 * its storage from allocateBytesFromHeap(), so it can be mixed with sbrk.
+   	 * @return the HeapAllocator for the current contents of memory.
+   	 */
+       public HeapAllocator getHeapAllocator() {
+         return heapAllocator;
+      }
+   
+   
      /**
       * Set byte order to either LITTLE_ENDIAN or BIG_ENDIAN.  Default is LITTLE_ENDIAN.
    	*
@@ -409,6 +528,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                Exceptions.ADDRESS_EXCEPTION_STORE, address);
          }
          notifyAnyObservers(AccessNotice.WRITE, address, length, value);
+         FrameBuffer buffer = frameBuffer;
+         if (buffer != null) {
+            buffer.written(address);
+         }
          return oldValue;
       }
    	
@@ -478,6 +601,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                Exceptions.ADDRESS_EXCEPTION_STORE,	address);
          }
          notifyAnyObservers(AccessNotice.WRITE, address, WORD_LENGTH_BYTES, value);
+         FrameBuffer buffer = frameBuffer;
+         if (buffer != null) {
+            buffer.written(address);
+         }
          if (Globals.getSettings().getBackSteppingEnabled()) {
             Globals.program.getBackStepper().addMemoryRestoreRawWord(address,oldValue);
          }
@@ -801,14 +928,151 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	*/
        public int getAddressOfFirstNull(int baseAddress, int limitAddress) throws AddressErrorException {
          int address = baseAddress;
-         for (; address < limitAddress; address += Memory.WORD_LENGTH_BYTES) {
-            if (getRawWordOrNull(address) == null) {
+         int[] words = new int[BLOCK_LENGTH_WORDS];
+         while (address < limitAddress) {
+            int wanted = (int) Math.min(BLOCK_LENGTH_WORDS,
+                  ((long) limitAddress - address + WORD_LENGTH_BYTES - 1) / WORD_LENGTH_BYTES);
+            int count = getRawWords(address, words, wanted);
+            address += count * WORD_LENGTH_BYTES;
+            if (count < wanted) {
                break;
             }
          }
          return address;
       }
-   
+
+      /////////////////////////////////////////////////////////////////////////
+       /**
+        *  Starting at the given word address, copy up to <tt>count</tt> consecutive 4 byte
+        *  words into the given array.  Words are transferred "raw" as with getRawWordOrNull(),
+        *  but a whole 4K block is copied at a time and no Integer is created per word.
+   	  *  Copying stops at the first word that getRawWordOrNull() would return null for,
+   	  *  so the return value is less than <tt>count</tt> if the end of the program (text
+   	  *  segment) or of the allocated blocks (data segment) was reached.
+   	  *  Observers are not notified.
+        *
+        * @param address Starting address of first word to be read.
+        * @param words Array to receive the words, starting at element 0.
+        * @param count Maximum number of words to read; must not exceed words.length.
+        * @return Number of words actually copied into the array.
+        * @throws AddressErrorException If address is not on word boundary or is out of range.
+       **/
+       public int getRawWords(int address, int[] words, int count) throws AddressErrorException {
+         if (address % WORD_LENGTH_BYTES != 0) {
+            throw new AddressErrorException("address for fetch not aligned on word boundary",
+                  Exceptions.ADDRESS_EXCEPTION_LOAD, address);
+         }
+         int copied = 0;
+         while (copied < count) {
+            int current = address + copied * WORD_LENGTH_BYTES;
+            int remaining = count - copied;
+            int n;
+            if (inDataSegment(current)) {
+               n = copyWordsFromTable(dataBlockTable, (current - dataSegmentBaseAddress) >> 2,
+                      words, copied, Math.min(remaining, (dataSegmentLimitAddress - current) >> 2));
+            }
+            else if (current > stackLimitAddress && current <= stackBaseAddress) {
+               // stack grows down, so consecutive words are not contiguous within a block.
+               int relative = (stackBaseAddress - current) >> 2;
+               int block = relative / BLOCK_LENGTH_WORDS;
+               n = 0;
+               if (stackBlockTable[block] != null) {
+                  words[copied] = stackBlockTable[block][relative % BLOCK_LENGTH_WORDS];
+                  n = 1;
+               }
+            }
+            else if (inTextSegment(current)) {
+               n = copyStatementWordsFromTable(textBlockTable, (current - textBaseAddress) >> 2,
+                      words, copied, Math.min(remaining, (textLimitAddress - current) >> 2));
+            }
+            else if (inKernelTextSegment(current)) {
+               n = copyStatementWordsFromTable(kernelTextBlockTable, (current - kernelTextBaseAddress) >> 2,
+                      words, copied, Math.min(remaining, (kernelTextLimitAddress - current) >> 2));
+            }
+            else if (inKernelDataSegment(current)) {
+               n = copyWordsFromTable(kernelDataBlockTable, (current - kernelDataBaseAddress) >> 2,
+                      words, copied, Math.min(remaining, (kernelDataSegmentLimitAddress - current) >> 2));
+            }
+            else if (copied == 0) {
+               // falls outside Mars addressing range
+               throw new AddressErrorException("address out of range ", Exceptions.ADDRESS_EXCEPTION_LOAD, address);
+            }
+            else {
+               n = 0;
+            }
+            if (n == 0) {
+               break;
+            }
+            copied += n;
+         }
+         return copied;
+      }
+
+      /////////////////////////////////////////////////////////////////////////
+       /**
+        *  Starting at the given word address, store <tt>count</tt> consecutive 4 byte
+        *  words from the given array.  This is the bulk counterpart of getRawWords(), used
+        *  to load a memory image.  Data is copied a whole 4K block at a time, allocating blocks
+        *  as needed.  Words stored into the text segments are decoded into ProgramStatement
+        *  objects using the ProgramStatement(int, int) constructor, as if they had been
+        *  assembled there.  Observers are not notified and nothing is recorded for backstepping.
+        *
+        * @param address Starting address of first word to be stored.
+        * @param words Array containing the words, starting at element 0.
+        * @param count Number of words to store; must not exceed words.length.
+        * @throws AddressErrorException If address is not on word boundary or any of the words
+        * falls outside the MARS addressing range.  Words preceding it will have been stored.
+       **/
+       public void setRawWords(int address, int[] words, int count) throws AddressErrorException {
+         if (address % WORD_LENGTH_BYTES != 0) {
+            throw new AddressErrorException("store address not aligned on word boundary ",
+                  Exceptions.ADDRESS_EXCEPTION_STORE, address);
+         }
+         int stored = 0;
+         while (stored < count) {
+            int current = address + stored * WORD_LENGTH_BYTES;
+            int remaining = count - stored;
+            int n;
+            if (inDataSegment(current)) {
+               n = storeWordsInTable(dataBlockTable, (current - dataSegmentBaseAddress) >> 2,
+                      words, stored, Math.min(remaining, (dataSegmentLimitAddress - current) >> 2));
+            }
+            else if (current > stackLimitAddress && current <= stackBaseAddress) {
+               // stack grows down, so consecutive words are not contiguous within a block.
+               storeWordInTable(stackBlockTable, (stackBaseAddress - current) >> 2, words[stored]);
+               n = 1;
+            }
+            else if (inTextSegment(current)) {
+               n = storeStatementWordsInTable(textBlockTable, textBaseAddress, current,
+                      words, stored, Math.min(remaining, (textLimitAddress - current) >> 2));
+            }
+            else if (inKernelTextSegment(current)) {
+               n = storeStatementWordsInTable(kernelTextBlockTable, kernelTextBaseAddress, current,
+                      words, stored, Math.min(remaining, (kernelTextLimitAddress - current) >> 2));
+            }
+            else if (inKernelDataSegment(current)) {
+               n = storeWordsInTable(kernelDataBlockTable, (current - kernelDataBaseAddress) >> 2,
+                      words, stored, Math.min(remaining, (kernelDataSegmentLimitAddress - current) >> 2));
+            }
+            else if (inMemoryMapSegment(current)) {
+               storeWordInTable(memoryMapBlockTable, (current - memoryMapBaseAddress) >> 2, words[stored]);
+               n = 1;
+            }
+            else {
+               n = 0;
+            }
+            if (n == 0) {
+               // falls outside Mars addressing range
+               throw new AddressErrorException("address out of range ", Exceptions.ADDRESS_EXCEPTION_STORE, current);
+            }
+            stored += n;
+         }
+         FrameBuffer buffer = frameBuffer;
+         if (buffer != null) {
+            buffer.invalidate();
+         }
+      }
+
    
     ///////////////////////////////////////////////////////////////////////////////////////
     /** 
@@ -1129,14 +1393,23 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       }
    
    	/**
-   	 *  Remove specified memory observers
+   	 *  Remove specified memory observers.  Address ranges left with no observers
+   	 *  are dropped, so they are no longer matched against every access.  The
+   	 *  collection is replaced rather than changed, since the simulator may be
+   	 *  iterating through it.
    	 *  @param obs  Observer to be removed
    	 */   		
        public void deleteObserver(Observer obs) {
+         Collection remaining = getNewMemoryObserversCollection();
          Iterator it = observables.iterator();
          while (it.hasNext()) {
-            ((MemoryObservable)it.next()).deleteObserver(obs);
-         }	
+            MemoryObservable mo = (MemoryObservable)it.next();
+            mo.deleteObserver(obs);
+            if (mo.countObservers() > 0) {
+               remaining.add(mo);
+            }
+         }
+         observables = remaining;
       }
    	
    	/**
@@ -1220,7 +1493,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    //
    // The "|| Globals.getGui()==null" is a hack added 19 July 2012 DPS.  IF MIPS simulation
    // is from command mode, Globals.program is null but still want ability to observe.
+   // Access listeners are also told of instruction fetches, as type FETCH; observers
+   // see those as READ.
        private void notifyAnyObservers(int type, int address, int length, int value) {
+         MemoryAccessListener[] listeners = accessListeners;
+         for (int i = 0; i < listeners.length; i++) {
+            listeners[i].memoryAccessed(type, address, length, value);
+         }
+         if (type == MemoryAccessListener.FETCH) {
+            type = AccessNotice.READ;
+         }
          if ((Globals.program != null || Globals.getGui()==null) && this.observables.size() > 0) {
             Iterator it = this.observables.iterator();
             MemoryObservable mo;
@@ -1384,7 +1666,101 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
          return new Integer(value);
       }
-   	   
+
+   ////////////////////////////////////////////////////////////////////////////////
+   //
+   // Helper method to copy consecutive 4 byte values out of a single block of a table
+   // that represents MIPS memory.  Copies at most to the end of the block containing
+   // the first word; the caller loops for more.  Returns 0 if that block has not been
+   // allocated, consistent with fetchWordOrNullFromTable() returning null.
+   //
+
+       private synchronized int copyWordsFromTable(int[][] blockTable, int relative,
+                                                  int[] words, int position, int max) {
+         int block = relative / BLOCK_LENGTH_WORDS;
+         int offset = relative % BLOCK_LENGTH_WORDS;
+         if (max <= 0 || blockTable[block] == null) {
+            return 0;
+         }
+         int length = Math.min(max, BLOCK_LENGTH_WORDS - offset);
+         System.arraycopy(blockTable[block], offset, words, position, length);
+         return length;
+      }
+
+   ////////////////////////////////////////////////////////////////////////////////
+   //
+   // Text segment counterpart of copyWordsFromTable().  Copies binary statements from
+   // a single block and stops at the first empty slot, which marks the end of program.
+   //
+
+       private synchronized int copyStatementWordsFromTable(ProgramStatement[][] blockTable, int relative,
+                                                           int[] words, int position, int max) {
+         int block = relative / TEXT_BLOCK_LENGTH_WORDS;
+         int offset = relative % TEXT_BLOCK_LENGTH_WORDS;
+         if (max <= 0 || block >= TEXT_BLOCK_TABLE_LENGTH || blockTable[block] == null) {
+            return 0;
+         }
+         ProgramStatement[] statements = blockTable[block];
+         int length = Math.min(max, TEXT_BLOCK_LENGTH_WORDS - offset);
+         int i = 0;
+         for (; i < length && statements[offset + i] != null; i++) {
+            words[position + i] = statements[offset + i].getBinaryStatement();
+         }
+         return i;
+      }
+
+   ////////////////////////////////////////////////////////////////////////////////
+   //
+   // Store counterpart of copyWordsFromTable().  Copies consecutive 4 byte values into
+   // a single block of a table that represents MIPS memory, allocating the block if
+   // necessary.  Stores at most to the end of the block containing the first word; the
+   // caller loops for more.  Returns number of words stored.
+   //
+
+       private synchronized int storeWordsInTable(int[][] blockTable, int relative,
+                                                 int[] words, int position, int max) {
+         int block = relative / BLOCK_LENGTH_WORDS;
+         int offset = relative % BLOCK_LENGTH_WORDS;
+         if (max <= 0) {
+            return 0;
+         }
+         if (blockTable[block] == null) {
+            // First time writing to this block, so allocate the space.
+            blockTable[block] = new int[BLOCK_LENGTH_WORDS];
+         }
+         int length = Math.min(max, BLOCK_LENGTH_WORDS - offset);
+         System.arraycopy(words, position, blockTable[block], offset, length);
+         return length;
+      }
+
+   ////////////////////////////////////////////////////////////////////////////////
+   //
+   // Text segment counterpart of storeWordsInTable().  Decodes each binary statement
+   // into a ProgramStatement and stores it into a single block, allocating the block
+   // if necessary.  Returns number of statements stored.
+   //
+
+       private synchronized int storeStatementWordsInTable(ProgramStatement[][] blockTable, int baseAddress,
+                                                          int address, int[] words, int position, int max) {
+         int relative = (address - baseAddress) >> 2;
+         int block = relative / TEXT_BLOCK_LENGTH_WORDS;
+         int offset = relative % TEXT_BLOCK_LENGTH_WORDS;
+         if (max <= 0 || block >= TEXT_BLOCK_TABLE_LENGTH) {
+            return 0;
+         }
+         if (blockTable[block] == null) {
+            // No instructions are stored in this block, so allocate the block.
+            blockTable[block] = new ProgramStatement[TEXT_BLOCK_LENGTH_WORDS];
+         }
+         ProgramStatement[] statements = blockTable[block];
+         int length = Math.min(max, TEXT_BLOCK_LENGTH_WORDS - offset);
+         for (int i = 0; i < length; i++) {
+            statements[offset + i] = new ProgramStatement(words[position + i], address);
+            address += WORD_LENGTH_BYTES;
+         }
+         return length;
+      }
+
    ////////////////////////////////////////////////////////////////////////////////////
    // Returns result of substituting specified byte of source value into specified byte 
    // of destination value. Byte positions are 0-1-2-3, listed from most to least 
@@ -1440,15 +1816,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          if (block < TEXT_BLOCK_TABLE_LENGTH) {
             if (blockTable[block] == null || blockTable[block][offset] == null) {
                // No instructions are stored in this block or offset.
-               if (notify) notifyAnyObservers(AccessNotice.READ, address, Instruction.INSTRUCTION_LENGTH,0);
+               if (notify) notifyAnyObservers(MemoryAccessListener.FETCH, address, Instruction.INSTRUCTION_LENGTH,0);
                return null;
             } 
             else {
-               if (notify) notifyAnyObservers(AccessNotice.READ, address, Instruction.INSTRUCTION_LENGTH, blockTable[block][offset].getBinaryStatement());
+               if (notify) notifyAnyObservers(MemoryAccessListener.FETCH, address, Instruction.INSTRUCTION_LENGTH, blockTable[block][offset].getBinaryStatement());
                return blockTable[block][offset];
             }
          }
-         if (notify) notifyAnyObservers(AccessNotice.READ, address, Instruction.INSTRUCTION_LENGTH,0);
+         if (notify) notifyAnyObservers(MemoryAccessListener.FETCH, address, Instruction.INSTRUCTION_LENGTH,0);
          return null;
       }
    	   	
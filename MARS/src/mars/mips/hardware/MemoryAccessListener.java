@@ -0,0 +1,55 @@
+   package mars.mips.hardware;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Receives each memory access that Memory reports to its observers, as primitive
+ * values, on the thread that made it.  Unlike an Observer it is called for every
+ * access in the address space, with nothing allocated, so it suits tools that watch
+ * every access of the running program, such as TraceRecorder and CacheHierarchy.
+ * Attach one with Memory.addAccessListener(); while none are attached Memory does no
+ * work for them.
+ */
+
+    public interface MemoryAccessListener {
+
+      /** Type of an instruction fetch, which observers are told of as a READ. */
+      public static final int FETCH = 2;
+
+   /**
+    * Called for each access, after it is made.  It must be quick, since the simulation
+    * waits for it, and must not access memory itself.
+    * @param type AccessNotice.READ or AccessNotice.WRITE for a data access, or FETCH.
+    * @param address memory address accessed.
+    * @param length number of bytes accessed.
+    * @param value value read or written.
+    */
+       public void memoryAccessed(int type, int address, int length, int value);
+   }
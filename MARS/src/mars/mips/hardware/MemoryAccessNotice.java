@@ -50,6 +50,15 @@ public class MemoryAccessNotice extends AccessNotice {
 	  this.length = length;
 	  this.value = value;
   }
+  /** Constructor for a notice of an access made earlier by another thread, such as
+   *  one delivered through the ToolEventBus.  Assumes address and length are valid.
+	*/
+   public MemoryAccessNotice(int type, int address, int length, int value, Thread thread) {
+     super(type, thread);
+	  this.address = address;
+	  this.length = length;
+	  this.value = value;
+  }
   /** Constructor will be called only within this package, so assume
    *  address is in valid range.
 	*/
@@ -76,4 +85,4 @@ public class MemoryAccessNotice extends AccessNotice {
      return ((this.getAccessType()==AccessNotice.READ) ? "R " : "W ") +
 	         "Mem " + address + " " + length + "B = "+value;
   }
-}
\ No newline at end of file
+}
\ No newline at end of file
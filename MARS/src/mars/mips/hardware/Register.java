@@ -142,8 +142,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    
    //
    // Method to notify any observers of register operation that has just occurred.
+   // Protected so that registers computing their values on demand can notify too.
    //
-       private void notifyAnyObservers(int type) {
+       protected void notifyAnyObservers(int type) {
          if (this.countObservers() > 0){// && Globals.program != null) && Globals.program.inSteppedExecution()) {
             this.setChanged();
             this.notifyObservers(new RegisterAccessNotice(type, this.name));
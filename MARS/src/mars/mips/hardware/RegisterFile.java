@@ -5,6 +5,7 @@
    import mars.Globals;
    import mars.assembler.SymbolTable;
    import mars.mips.instructions.Instruction;
+   import mars.simulator.TraceRecorder;
    import mars.util.Binary;
 
 /*
@@ -117,6 +118,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                	      ? Globals.program.getBackStepper().addRegisterFileRestore(num,lo.setValue(val))
                			: lo.setValue(val);
          }
+         TraceRecorder.registerWrite(num, val);
          return old;
       }
    	
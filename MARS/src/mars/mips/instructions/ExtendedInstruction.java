@@ -46,6 +46,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     public class ExtendedInstruction extends Instruction {
    
       private ArrayList translationStrings, compactTranslationStrings;
+      private ArrayList compiledTranslations, compiledCompactTranslations;
     /**
      * Constructor for ExtendedInstruction.
      * 
@@ -160,6 +161,37 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public ArrayList getCompactBasicIntructionTemplateList() {
          return compactTranslationStrings;
       }
+
+    /**
+     * Compile the basic instruction templates, so they can be expanded without
+     * string substitution.  Called by InstructionSet once all basic instructions
+     * have been added.
+     */
+       public void compileTemplates() {
+         compiledTranslations = compileTemplateList(translationStrings);
+         compiledCompactTranslations = compileTemplateList(compactTranslationStrings);
+      }
+
+    /**
+     * Get ArrayList of compiled templates, one for each String in the basic
+     * instruction template list.
+     * @return ArrayList of ExpansionTemplate.  An element is null if its template
+     * could not be compiled.  Returns null if the templates have not been compiled.
+     */
+       public ArrayList getCompiledTemplateList() {
+         return compiledTranslations;
+      }
+
+    /**
+     * Get ArrayList of compiled templates, one for each String in the compact
+     * basic instruction template list.
+     * @return ArrayList of ExpansionTemplate.  An element is null if its template
+     * could not be compiled.  Returns null if the instruction does not have a compact
+     * alternative or the templates have not been compiled.
+     */
+       public ArrayList getCompiledCompactTemplateList() {
+         return compiledCompactTranslations;
+      }
 		   
       /**
    	 * Given a basic instruction template and the list of tokens from an extended
@@ -593,6 +625,19 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       }
    
    
+    // Compiles each template in the list.  Element is null for a template that
+    // has to be expanded by makeTemplateSubstitutions().
+       private ArrayList compileTemplateList(ArrayList translationList) {
+         if (translationList == null) {
+            return null;
+         }
+         ArrayList compiledList = new ArrayList(translationList.size());
+         for (int i = 0; i < translationList.size(); i++) {
+            compiledList.add(ExpansionTemplate.compile(this, (String) translationList.get(i)));
+         }
+         return compiledList;
+      }
+
     // Takes list of basic instructions that this extended instruction
     // expands to, which is a string, and breaks out into separate
     // instructions.  They are separated by '\n' character.
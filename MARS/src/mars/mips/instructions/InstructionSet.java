@@ -1,5 +1,6 @@
    package mars.mips.instructions;
    import mars.simulator.*;
+   import mars.simulator.branch.*;
    import mars.mips.hardware.*;
    import mars.mips.instructions.syscalls.*;
    import mars.*;
@@ -46,6 +47,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 
     public class InstructionSet
    {
+    /**
+     * Version of the instruction encodings.  Increase it whenever the machine code,
+     * the operands or the order of the instructions changes, since programs kept in
+     * assembled form, such as AssemblyCache entries, depend on them.
+     */
+      public static final int ENCODING_VERSION = 2;
       private ArrayList instructionList;
 	  private ArrayList opcodeMatchMaps;
       private SyscallLoader syscallLoader;
@@ -1081,7 +1088,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      RegisterFile.updateRegister(operands[0],
                         RegisterFile.getValue(operands[1])
                         & RegisterFile.getValue(operands[2]));
-					processJump(31);	
+					processIndirectJump(statement, RegisterFile.getValue(31)&(-4));	
                   }
                }));
 		
@@ -1099,7 +1106,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      RegisterFile.updateRegister(operands[0],
                         RegisterFile.getValue(operands[1]) << 
                         (RegisterFile.getValue(operands[2]) & 0x0000001F));
-					processJump(31);
+					processIndirectJump(statement, RegisterFile.getValue(31)&(-4));
                   }
                }));
 
@@ -1117,7 +1124,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                       
                       RegisterFile.updateRegister(operands[0],
                     		  Integer.rotateRight(RegisterFile.getValue(operands[1]), (RegisterFile.getValue(operands[2]))));
-						processJump(31);
+						processIndirectJump(statement, RegisterFile.getValue(31)&(-4));
                    }
                 }));
          instructionList.add(
@@ -1134,7 +1141,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      RegisterFile.updateRegister(operands[0],
                         RegisterFile.getValue(operands[1]) >> 
                         (RegisterFile.getValue(operands[2]) & 0x0000001F));
-					processJump(31);
+					processIndirectJump(statement, RegisterFile.getValue(31)&(-4));
                   }
                }));
 
@@ -1159,7 +1166,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                             "arithmetic overflow",Exceptions.ARITHMETIC_OVERFLOW_EXCEPTION);
                      }
                      RegisterFile.updateRegister(operands[0], sum);
-					 processJump(31);
+					 processIndirectJump(statement, RegisterFile.getValue(31)&(-4));
                   }
                }));
          instructionList.add(
@@ -1183,7 +1190,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                             "arithmetic overflow",Exceptions.ARITHMETIC_OVERFLOW_EXCEPTION);
                      }
                      RegisterFile.updateRegister(operands[0], dif);
-					 processJump(31);
+					 processIndirectJump(statement, RegisterFile.getValue(31)&(-4));
                   }
                }));
          instructionList.add(
@@ -1199,7 +1206,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      RegisterFile.updateRegister(operands[0],
                         RegisterFile.getValue(operands[1])
                         | RegisterFile.getValue(operands[2]));
-					processJump(31);
+					processIndirectJump(statement, RegisterFile.getValue(31)&(-4));
                   }
                }));
 
@@ -1217,7 +1224,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      RegisterFile.updateRegister(operands[0],
                         ~(RegisterFile.getValue(operands[1])
                         | RegisterFile.getValue(operands[2])));
-					processJump(31);
+					processIndirectJump(statement, RegisterFile.getValue(31)&(-4));
                   }
                }));
 
@@ -1234,7 +1241,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      RegisterFile.updateRegister(operands[0],
                         RegisterFile.getValue(operands[1])
                         ^ RegisterFile.getValue(operands[2]));
-					processJump(31);
+					processIndirectJump(statement, RegisterFile.getValue(31)&(-4));
                   }
                }));
 
@@ -1253,7 +1260,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      RegisterFile.updateRegister(operands[0],
                         RegisterFile.getValue(operands[1]) >>> 
                         (RegisterFile.getValue(operands[2]) & 0x0000001F));
-					processJump(31);
+					processIndirectJump(statement, RegisterFile.getValue(31)&(-4));
                   }
                }));
 			   
@@ -1279,7 +1286,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                             "arithmetic overflow",Exceptions.ARITHMETIC_OVERFLOW_EXCEPTION);
                      }
                      RegisterFile.updateRegister(operands[0], sum);
-					 processJump(31);
+					 processIndirectJump(statement, RegisterFile.getValue(31)&(-4));
                   }
                }));
          instructionList.add(
@@ -1303,7 +1310,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                                   "arithmetic overflow",Exceptions.ARITHMETIC_OVERFLOW_EXCEPTION);
                            }
                       RegisterFile.updateRegister(operands[0], dif);
-					  processJump(31);
+					  processIndirectJump(statement, RegisterFile.getValue(31)&(-4));
                    }
                 }));
          instructionList.add(
@@ -1320,7 +1327,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      RegisterFile.updateRegister(operands[0],
                         RegisterFile.getValue(operands[1])
                         & (operands[2]));
-					processJump(31);
+					processIndirectJump(statement, RegisterFile.getValue(31)&(-4));
                   }
                }));
          instructionList.add(
@@ -1337,7 +1344,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      RegisterFile.updateRegister(operands[0],
                         RegisterFile.getValue(operands[1])
                         | (operands[2]));
-					processJump(31);
+					processIndirectJump(statement, RegisterFile.getValue(31)&(-4));
                   }
                }));
          instructionList.add(
@@ -1353,7 +1360,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                       RegisterFile.updateRegister(operands[0],
                          ~(RegisterFile.getValue(operands[1])
                          | RegisterFile.getValue(operands[2])));
-					processJump(31);
+					processIndirectJump(statement, RegisterFile.getValue(31)&(-4));
                    }
                 }));
 
@@ -1372,7 +1379,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      RegisterFile.updateRegister(operands[0],
                         RegisterFile.getValue(operands[1])
                         ^ (operands[2]));
-					processJump(31);
+					processIndirectJump(statement, RegisterFile.getValue(31)&(-4));
                   }
                }));					
 
@@ -1390,7 +1397,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                       
                       RegisterFile.updateRegister(operands[0],
                     		  Integer.rotateRight(RegisterFile.getValue(operands[1]), (RegisterFile.getValue(operands[2]))));
-					  processJump(31);
+					  processIndirectJump(statement, RegisterFile.getValue(31)&(-4));
                    }
                 }));
          
@@ -1407,7 +1414,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   // must sign-fill, so use ">>".
                      RegisterFile.updateRegister(operands[0],
                         RegisterFile.getValue(operands[1]) >> operands[2]);
-					processJump(31);
+					processIndirectJump(statement, RegisterFile.getValue(31)&(-4));
                   }
                }));
          instructionList.add(
@@ -1424,7 +1431,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                       RegisterFile.updateRegister(operands[0],
                          RegisterFile.getValue(operands[1]) >>> 
                          (RegisterFile.getValue(operands[2])));
-						processJump(31);
+						processIndirectJump(statement, RegisterFile.getValue(31)&(-4));
                    }
                 }));
          instructionList.add(
@@ -1439,7 +1446,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      int[] operands = statement.getOperands();
                      RegisterFile.updateRegister(operands[0],
                         RegisterFile.getValue(operands[1]) << operands[2]);
-					processJump(31);
+					processIndirectJump(statement, RegisterFile.getValue(31)&(-4));
                   }
                }));
 
@@ -1919,114 +1926,84 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          instructionList.add(
                 new BasicInstruction("beqz $t1,label",
                 "Branch if equal to zero : Branch to statement at label's address if $t1 is equal to zero",
-            	 BasicInstructionFormat.R1_FORMAT,
+            	 BasicInstructionFormat.I_BRANCH_FORMAT,
                 "101000 fffff sssssssssssssssssssss",
                 new SimulationCode()
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
                      int[] operands = statement.getOperands();
-                  
-                     if (RegisterFile.getValue(operands[0])
-                        == 0)
-                     {
-                        processBranch(operands[1]);
-                     }
+                     processConditionalBranch(statement, RegisterFile.getValue(operands[0]) == 0, operands[1]);
                   }
                }));
 
          instructionList.add(
                 new BasicInstruction("bnez $t1,label",
                 "Branch if not equal : Branch to statement at label's address if $t1 is not equal to zero",
-            	 BasicInstructionFormat.R1_FORMAT,
+            	 BasicInstructionFormat.I_BRANCH_FORMAT,
                 "101001 fffff sssssssssssssssssssss",
                 new SimulationCode()
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
                      int[] operands = statement.getOperands();
-                  
-                     if (RegisterFile.getValue(operands[0])
-                        != 0)
-                     {
-                        processBranch(operands[1]);
-                     }
+                     processConditionalBranch(statement, RegisterFile.getValue(operands[0]) != 0, operands[1]);
                   }
                }));
 
          instructionList.add(
                 new BasicInstruction("bltz $t1,label",
                 "Branch if less than zero : Branch to statement at label's address if $t1 and $t2 are equal",
-            	 BasicInstructionFormat.R1_FORMAT,
+            	 BasicInstructionFormat.I_BRANCH_FORMAT,
                 "101010 fffff sssssssssssssssssssss",
                 new SimulationCode()
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
                      int[] operands = statement.getOperands();
-                  
-                     if (RegisterFile.getValue(operands[0])
-                        < 0)
-                     {
-                        processBranch(operands[1]);
-                     }
+                     processConditionalBranch(statement, RegisterFile.getValue(operands[0]) < 0, operands[1]);
                   }
                }));
 
          instructionList.add(
                 new BasicInstruction("bgez $t1,label",
                 "Branch if equal to zero : Branch to statement at label's address if $t1 is greater than or equal to 0",
-            	 BasicInstructionFormat.R1_FORMAT,
+            	 BasicInstructionFormat.I_BRANCH_FORMAT,
                 "101011 fffff sssssssssssssssssssss",
                 new SimulationCode()
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
                      int[] operands = statement.getOperands();
-                  
-                     if (RegisterFile.getValue(operands[0])
-                        >= 0)
-                     {
-                        processBranch(operands[1]);
-                     }
+                     processConditionalBranch(statement, RegisterFile.getValue(operands[0]) >= 0, operands[1]);
                   }
                }));
 
          instructionList.add(
                 new BasicInstruction("bgtz $t1 , label",
                 "Branch if greater than zero : Branch to statement at label's address if $t1 is greater than zero",
-            	 BasicInstructionFormat.R1_FORMAT,
+            	 BasicInstructionFormat.I_BRANCH_FORMAT,
                 "101100 fffff sssssssssssssssssssss",
                 new SimulationCode()
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
                      int[] operands = statement.getOperands();
-                  
-                     if (RegisterFile.getValue(operands[0])
-                        > 0);
-                     {
-                        processBranch(operands[1]);
-                     }
+                     processConditionalBranch(statement, RegisterFile.getValue(operands[0]) > 0, operands[1]);
                   }
                }));
 
          instructionList.add(
                 new BasicInstruction("blez $t1 , label",
                 "Branch if less than or equal to zero : Branch to statement at label's address if $t1 is less than or equal to zero",
-            	 BasicInstructionFormat.R1_FORMAT,
+            	 BasicInstructionFormat.I_BRANCH_FORMAT,
                 "101101 fffff sssssssssssssssssssss",
                 new SimulationCode()
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
                      int[] operands = statement.getOperands();
-                  
-                     if (RegisterFile.getValue(operands[0])
-                        <= 0)
-                     {
-                        processBranch(operands[1]);
-                     }
+                     processConditionalBranch(statement, RegisterFile.getValue(operands[0]) <= 0, operands[1]);
                   }
                }));
 
@@ -2040,7 +2017,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                     public void simulate(ProgramStatement statement) throws ProcessingException
                    {
                       int[] operands = statement.getOperands();
-                      processJump(RegisterFile.getValue(operands[0])&(-4));
+                      processIndirectJump(statement, RegisterFile.getValue(operands[0])&(-4));
                    }
                 }));
 
@@ -2055,9 +2032,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                    {
                       int[] operands = statement.getOperands();
                       processReturnAddress(31);// RegisterFile.updateRegister(31, RegisterFile.getProgramCounter());
-                      processJump(
-                         (RegisterFile.getProgramCounter() & 0xF0000000)
-                                 | (operands[0]));
+                      int targetAddress = (RegisterFile.getProgramCounter() & 0xF0000000) | (operands[0]);
+                      Profiler.call(targetAddress, RegisterFile.getValue(31));
+                      processJump(targetAddress);
                    }
                 }));
 
@@ -2072,7 +2049,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                    {
                       int[] operands = statement.getOperands();
                       processReturnAddress(operands[0]);//RegisterFile.updateRegister(operands[0], RegisterFile.getProgramCounter());
-                      processJump(RegisterFile.getValue(operands[1])&(-4));
+                      int targetAddress = RegisterFile.getValue(operands[1])&(-4);
+                      Profiler.call(targetAddress, RegisterFile.getValue(operands[0]));
+                      processIndirectJump(statement, targetAddress);
                    }
                 }));
 
@@ -2137,6 +2116,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             inst.createExampleTokenList();
          }
 
+        // Compile the pseudo-instruction templates now that all the basic
+        // instructions they expand to are known.
+         for (int i = 0; i < instructionList.size(); i++)
+         {
+            if (instructionList.get(i) instanceof ExtendedInstruction)
+            {
+               ((ExtendedInstruction) instructionList.get(i)).compileTemplates();
+            }
+         }
+
 		 HashMap maskMap = new HashMap();
 		 ArrayList matchMaps = new ArrayList();
 		 for (int i = 0; i < instructionList.size(); i++) {
@@ -2338,6 +2327,30 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }	 
       }
    
+   	/*
+   	 * Method to process a conditional branch: report its outcome to the branch
+   	 * predictor evaluator, then branch if taken.  The parameters are the branch
+   	 * statement, whether the branch condition holds, and the branch displacement.
+   	 */
+       private void processConditionalBranch(ProgramStatement statement, boolean taken, int displacement) {
+         BranchEvaluator.conditionalBranch(statement.getAddress(),
+            statement.getAddress() + Instruction.INSTRUCTION_LENGTH + (displacement << 2), taken);
+         if (taken) {
+            processBranch(displacement);
+         }
+      }
+   
+   	/*
+   	 * Method to process a register indirect jump (jr, jalr, ret_*, reti_*):
+   	 * report its target to the branch predictor evaluator and the profiler,
+   	 * which treats it as a return if it goes back to a caller, then jump.
+   	 */
+       private void processIndirectJump(ProgramStatement statement, int targetAddress) {
+         BranchEvaluator.indirectJump(statement.getAddress(), targetAddress);
+         Profiler.indirectJump(targetAddress);
+         processJump(targetAddress);
+      }
+   
    	/*
    	 * Method to process a jump.  DO NOT USE WITH BRANCH INSTRUCTIONS!  
    	 * The branch operand is a relative displacement in words
@@ -0,0 +1,73 @@
+   package mars.mips.instructions.syscalls;
+   import mars.simulator.*;
+   import mars.mips.hardware.*;
+   import mars.util.*;
+   import mars.mips.instructions.*;
+   import mars.*;
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+
+/** 
+ * Service to return from an exception or interrupt handler: clears the Exception
+ * Level bit of the Coprocessor 0 Status register, which allows interrupts again, and
+ * continues execution after the exception.  This instruction set has no eret, and
+ * no mtc0 with which a handler could advance EPC, so unlike eret this tells the cases
+ * apart by the exception code in the Cause register.  After an interrupt (code 0) it
+ * continues at the address in EPC, the interrupted instruction; after any other
+ * exception, at the instruction following the one in EPC that caused it.
+ * <p>
+ * The service number occupies $v0, so a handler saves the interrupted program's $v0
+ * in $k0 ($26) on entry, and this service restores $v0 from $k0.
+ *
+ */
+ 
+    public class SyscallExceptionReturn extends AbstractSyscall {
+   /**
+    * Build an instance of the ExceptionReturn syscall.  Default service number
+    * is 65 and name is "ExceptionReturn".
+    */
+       public SyscallExceptionReturn() {
+         super(65, "ExceptionReturn");
+      }
+      
+   /**
+   * Performs syscall function to clear the Exception Level bit and continue after the exception.
+   */
+       public void simulate(ProgramStatement statement) throws ProcessingException {
+         Coprocessor0.updateRegister(Coprocessor0.STATUS,
+            Binary.clearBit(Coprocessor0.getValue(Coprocessor0.STATUS), Coprocessor0.EXCEPTION_LEVEL));
+         int returnAddress = Coprocessor0.getValue(Coprocessor0.EPC);
+         if ((Coprocessor0.getValue(Coprocessor0.CAUSE) & 0x7C) != 0) {
+            returnAddress += Instruction.INSTRUCTION_LENGTH;
+         }
+         RegisterFile.updateRegister(2, RegisterFile.getValue(26));
+         RegisterFile.setProgramCounter(returnAddress);
+      }
+   }
@@ -0,0 +1,59 @@
+   package mars.mips.instructions.syscalls;
+   import mars.simulator.*;
+   import mars.mips.hardware.*;
+   import mars.*;
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+
+/** 
+ * Service to set the Coprocessor 0 Compare register to the value in $a0.  A timer
+ * interrupt is raised when Count reaches Compare.  Setting Compare also clears the
+ * pending timer interrupt, so an interrupt handler uses it to acknowledge one tick
+ * and schedule the next.  This instruction set has no mtc0, so this is how a program
+ * sets the timer.
+ *
+ */
+ 
+    public class SyscallSetCompare extends AbstractSyscall {
+   /**
+    * Build an instance of the SetCompare syscall.  Default service number
+    * is 64 and name is "SetCompare".
+    */
+       public SyscallSetCompare() {
+         super(64, "SetCompare");
+      }
+      
+   /**
+   * Performs syscall function to set the Compare register to the value in $a0.
+   */
+       public void simulate(ProgramStatement statement) throws ProcessingException {
+         Coprocessor0.updateRegister(Coprocessor0.COMPARE, RegisterFile.getValue(4));
+      }
+   }
@@ -0,0 +1,207 @@
+   package mars.simulator;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Schedules the events of simulated devices by instruction count, so a device that
+ * needs to act after some number of instructions, such as a display finishing a
+ * character or a timer expiring, need not observe every instruction fetch.  The
+ * Simulator calls instructionExecuted() after each instruction that completes; that
+ * costs one compare against the deadline of the earliest event unless an event is due.
+ * An instruction that raises an exception, and an interrupt taken in place of an
+ * instruction, are not counted, so the count is that of instructions executed.  Pending events
+ * are kept in a binary heap ordered by deadline.
+ * <p>
+ * Events are scheduled, cancelled and fired on the simulation thread or by threads
+ * holding Globals.memoryAndRegistersLock, which the Simulator holds while executing
+ * each instruction and firing events.  An event may raise an interrupt by setting
+ * Simulator.externalInterruptingDevice, which is taken before the next instruction.
+ */
+
+    public class DeviceScheduler {
+
+      private static long instructionCount = 0;
+      private static long nextDeadline = Long.MAX_VALUE;
+      private static Event[] heap = new Event[16];
+      private static int size = 0;
+
+       private DeviceScheduler() {
+      }
+
+   /**
+    * Get the number of instructions executed since MARS started, over all programs run.
+    * Deadlines are measured against it.
+    * @return instructions executed.
+    */
+       public static long getInstructionCount() {
+         return instructionCount;
+      }
+
+   /**
+    * Schedule an event to fire once the given number of instructions have completed,
+    * counting the one executing now if called during execution.  An event already
+    * pending is moved to the new deadline.
+    * @param event the event.
+    * @param delay number of instructions; at least 1.
+    * @throws IllegalArgumentException if delay is less than 1.
+    */
+       public static void schedule(Event event, long delay) {
+         if (delay < 1) {
+            throw new IllegalArgumentException("device event delay must be at least one instruction");
+         }
+         if (event.index >= 0) {
+            removeAt(event.index);
+         }
+         event.deadline = instructionCount + delay;
+         if (size == heap.length) {
+            Event[] larger = new Event[2 * size];
+            System.arraycopy(heap, 0, larger, 0, size);
+            heap = larger;
+         }
+         heap[size] = event;
+         event.index = size;
+         size++;
+         siftUp(event.index);
+         nextDeadline = heap[0].deadline;
+      }
+
+   /**
+    * Cancel an event.  Does nothing if it is not pending.
+    * @param event the event.
+    */
+       public static void cancel(Event event) {
+         if (event.index >= 0) {
+            removeAt(event.index);
+            nextDeadline = (size == 0) ? Long.MAX_VALUE : heap[0].deadline;
+         }
+      }
+
+   /**
+    * Called by the Simulator after each instruction that completes without raising an
+    * exception.  Fires the events now due.
+    */
+       static void instructionExecuted() {
+         if (++instructionCount >= nextDeadline) {
+            fireDue();
+         }
+      }
+
+      // Fire the events now due, earliest first.  An event may schedule itself again.
+       private static void fireDue() {
+         while (size > 0 && heap[0].deadline <= instructionCount) {
+            Event event = heap[0];
+            removeAt(0);
+            event.fire();
+         }
+         nextDeadline = (size == 0) ? Long.MAX_VALUE : heap[0].deadline;
+      }
+
+       private static void removeAt(int index) {
+         Event removed = heap[index];
+         removed.index = -1;
+         size--;
+         if (index < size) {
+            heap[index] = heap[size];
+            heap[index].index = index;
+            heap[size] = null;
+            siftDown(index);
+            siftUp(index);
+         }
+         else {
+            heap[size] = null;
+         }
+      }
+
+       private static void siftUp(int index) {
+         Event event = heap[index];
+         while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heap[parent].deadline <= event.deadline) {
+               break;
+            }
+            heap[index] = heap[parent];
+            heap[index].index = index;
+            index = parent;
+         }
+         heap[index] = event;
+         event.index = index;
+      }
+
+       private static void siftDown(int index) {
+         Event event = heap[index];
+         while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+               break;
+            }
+            if (child + 1 < size && heap[child + 1].deadline < heap[child].deadline) {
+               child++;
+            }
+            if (event.deadline <= heap[child].deadline) {
+               break;
+            }
+            heap[index] = heap[child];
+            heap[index].index = index;
+            index = child;
+         }
+         heap[index] = event;
+         event.index = index;
+      }
+
+   /**
+    * Something a device does at a scheduled instruction count.  One Event object can be
+    * scheduled any number of times, but is pending at most once at a time.
+    */
+       public abstract static class Event {
+
+         private long deadline;
+         private int index = -1;   // position in the heap, or -1 if not pending
+
+      /**
+       * @return true if the event is scheduled and has not yet fired.
+       */
+          public boolean isPending() {
+            return index >= 0;
+         }
+
+      /**
+       * @return instruction count at which the event fires, if pending.
+       */
+          public long getDeadline() {
+            return deadline;
+         }
+
+      /**
+       * Do what the device does at this time.  Called on the simulation thread, holding
+       * Globals.memoryAndRegistersLock, after the instruction that reached the deadline.
+       */
+          protected abstract void fire();
+      }
+   }
@@ -52,6 +52,7 @@ public class Exceptions {
 	 */
    public static final int EXTERNAL_INTERRUPT_KEYBOARD = 0x00000040; // see comment above.
    public static final int EXTERNAL_INTERRUPT_DISPLAY  = 0x00000080; // see comment above.
+   public static final int EXTERNAL_INTERRUPT_TIMER    = 0x00002000; // Count/Compare timer, Cause bit 15 (IP7).
 	public static final int ADDRESS_EXCEPTION_LOAD = 4;
 	public static final int ADDRESS_EXCEPTION_STORE = 5;
 	public static final int SYSCALL_EXCEPTION = 8;
@@ -94,4 +95,4 @@ public class Exceptions {
 	  setRegisters(cause);
 	}
 
-}  // Exceptions
\ No newline at end of file
+}  // Exceptions
\ No newline at end of file
@@ -0,0 +1,550 @@
+   package mars.simulator;
+
+   import mars.*;
+   import mars.assembler.*;
+   import mars.mips.hardware.*;
+   import mars.util.*;
+   import java.io.*;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Profiles program execution from inside the simulator.  Each instruction executed
+ * increments a counter for its address; the counters are kept in one int array per
+ * 4 KB block of text, so counting allocates nothing and needs no Observer.
+ * <p>
+ * Calls (jal and jalr) and returns (jr, jalr and the ret_* and reti_* instructions)
+ * are followed on a shadow stack to build a dynamic call graph.  A function is named
+ * by the label at its entry address.  A register indirect jump to the return address
+ * of a frame on the stack returns from it and any frames above it; other indirect
+ * jumps stay within the current function.  Every instruction counts toward the
+ * exclusive count of the function it executes in, and toward the inclusive count of
+ * that function and all of its callers.  A recursive function's inclusive count is
+ * taken from its outermost activation only, so no instruction is counted twice.
+ * <p>
+ * Like TraceRecorder, only one profiler is active at a time.  While active it is
+ * attached to the Simulator as an InstructionListener; the hooks in the instruction
+ * set are static methods that do nothing unless one has been started.  Counts
+ * accumulate across any number of starts until reset.
+ */
+
+    public class Profiler implements InstructionListener {
+
+      /** Number of hot spots printed by default */
+      public static final int DEFAULT_HOT_SPOTS = 20;
+
+      private static final int PAGE_BITS = 12;
+      private static final int WORDS_PER_PAGE = 1 << (PAGE_BITS - 2);
+
+      private static volatile Profiler active = null;
+
+      // Counters by page number, open addressing; -1 marks an empty slot.
+      private int[] pageNumbers;
+      private int[][] pages;
+      private int pageCount;
+      private int lastPageNumber;
+      private int[] lastPage;
+
+      private FunctionTable functions;
+      private long instructions;
+      private Function current;
+
+      // The shadow stack.  Frame 0 is the function executing when profiling began.
+      private Function[] frameFunctions;
+      private Edge[] frameEdges;
+      private int[] frameReturns;
+      private long[] frameEntries;
+      private int depth;
+
+   /**
+    * Create a profiler with no counts.
+    */
+       public Profiler() {
+         reset();
+      }
+
+   /**
+    * Discard all counts and the call graph.
+    */
+       public void reset() {
+         pageNumbers = new int[16];
+         Arrays.fill(pageNumbers, -1);
+         pages = new int[16][];
+         pageCount = 0;
+         lastPageNumber = -1;
+         lastPage = null;
+         functions = new FunctionTable();
+         instructions = 0;
+         current = null;
+         frameFunctions = new Function[64];
+         frameEdges = new Edge[64];
+         frameReturns = new int[64];
+         frameEntries = new long[64];
+         depth = 0;
+      }
+
+   /**
+    * Begin profiling the running program, replacing any profiler already active.
+    */
+       public void start() {
+         activate(this);
+      }
+
+   /**
+    * Stop profiling.
+    */
+       public static void stop() {
+         activate(null);
+      }
+
+      // Make the given profiler, or none if null, the active one.
+       private static synchronized void activate(Profiler profiler) {
+         if (active != null) {
+            Simulator.removeInstructionListener(active);
+         }
+         active = profiler;
+         if (profiler != null) {
+            Simulator.addInstructionListener(profiler);
+         }
+      }
+
+   /**
+    * Determine whether a profiler is active.
+    * @return true if a profiler has been started and not stopped.
+    */
+       public static boolean isProfiling() {
+         return active != null;
+      }
+
+   /**
+    * Called by the Simulator before each instruction is simulated.
+    * @param pc address of the instruction.
+    * @param binaryStatement the instruction, which is not used.
+    */
+       public void instructionExecuting(int pc, int binaryStatement) {
+         count(pc);
+      }
+
+   /**
+    * Hook called by jal and jalr as they execute.
+    * @param target address of the function called.
+    * @param returnAddress address the function will return to.
+    */
+       public static void call(int target, int returnAddress) {
+         Profiler profiler = active;
+         if (profiler != null) {
+            profiler.enter(target, returnAddress);
+         }
+      }
+
+   /**
+    * Hook called by each register indirect jump as it executes.
+    * @param target address jumped to.
+    */
+       public static void indirectJump(int target) {
+         Profiler profiler = active;
+         if (profiler != null) {
+            profiler.leave(target);
+         }
+      }
+
+   /**
+    * @return total number of instructions counted.
+    */
+       public long getInstructionCount() {
+         return instructions;
+      }
+
+   /**
+    * @param address address of an instruction.
+    * @return number of times the instruction at the address was executed.
+    */
+       public int getCount(int address) {
+         int slot = findPage(address >>> PAGE_BITS);
+         return (pageNumbers[slot] < 0) ? 0 : pages[slot][(address >>> 2) & (WORDS_PER_PAGE - 1)];
+      }
+
+       private void count(int pc) {
+         int pageNumber = pc >>> PAGE_BITS;
+         if (pageNumber != lastPageNumber) {
+            lastPage = getPage(pageNumber);
+            lastPageNumber = pageNumber;
+         }
+         lastPage[(pc >>> 2) & (WORDS_PER_PAGE - 1)]++;
+         if (current == null) {
+            current = functions.get(pc);
+            current.calls++;
+            push(current, null, 0);
+         }
+         instructions++;
+         current.exclusive++;
+      }
+
+       private void enter(int target, int returnAddress) {
+         if (current == null) {
+            return;
+         }
+         Function callee = functions.get(target);
+         Edge edge = current.getEdge(callee);
+         callee.calls++;
+         edge.calls++;
+         push(callee, edge, returnAddress);
+         current = callee;
+      }
+
+       private void leave(int target) {
+         for (int d = depth - 1; d > 0; d--) {
+            if (frameReturns[d] == target) {
+               while (depth > d) {
+                  pop();
+               }
+               current = frameFunctions[depth - 1];
+               return;
+            }
+         }
+      }
+
+       private void push(Function function, Edge edge, int returnAddress) {
+         if (depth == frameFunctions.length) {
+            int length = 2 * depth;
+            Function[] functionsGrown = new Function[length];
+            Edge[] edgesGrown = new Edge[length];
+            int[] returnsGrown = new int[length];
+            long[] entriesGrown = new long[length];
+            System.arraycopy(frameFunctions, 0, functionsGrown, 0, depth);
+            System.arraycopy(frameEdges, 0, edgesGrown, 0, depth);
+            System.arraycopy(frameReturns, 0, returnsGrown, 0, depth);
+            System.arraycopy(frameEntries, 0, entriesGrown, 0, depth);
+            frameFunctions = functionsGrown;
+            frameEdges = edgesGrown;
+            frameReturns = returnsGrown;
+            frameEntries = entriesGrown;
+         }
+         frameFunctions[depth] = function;
+         frameEdges[depth] = edge;
+         frameReturns[depth] = returnAddress;
+         frameEntries[depth] = instructions;
+         depth++;
+         function.activeFrames++;
+         if (edge != null) {
+            edge.activeFrames++;
+         }
+      }
+
+       private void pop() {
+         depth--;
+         long elapsed = instructions - frameEntries[depth];
+         Function function = frameFunctions[depth];
+         if (--function.activeFrames == 0) {
+            function.inclusive += elapsed;
+         }
+         Edge edge = frameEdges[depth];
+         if (edge != null && --edge.activeFrames == 0) {
+            edge.inclusive += elapsed;
+         }
+         frameFunctions[depth] = null;
+         frameEdges[depth] = null;
+      }
+
+      // Counters of the page, created if this is its first use.
+       private int[] getPage(int pageNumber) {
+         int slot = findPage(pageNumber);
+         if (pageNumbers[slot] < 0) {
+            if (2 * (pageCount + 1) > pageNumbers.length) {
+               int[] oldNumbers = pageNumbers;
+               int[][] oldPages = pages;
+               pageNumbers = new int[2 * oldNumbers.length];
+               Arrays.fill(pageNumbers, -1);
+               pages = new int[pageNumbers.length][];
+               for (int i = 0; i < oldNumbers.length; i++) {
+                  if (oldNumbers[i] >= 0) {
+                     int j = findPage(oldNumbers[i]);
+                     pageNumbers[j] = oldNumbers[i];
+                     pages[j] = oldPages[i];
+                  }
+               }
+               slot = findPage(pageNumber);
+            }
+            pageNumbers[slot] = pageNumber;
+            pages[slot] = new int[WORDS_PER_PAGE];
+            pageCount++;
+         }
+         return pages[slot];
+      }
+
+      // Slot holding the page number, or the empty slot where it belongs.
+       private int findPage(int pageNumber) {
+         int mask = pageNumbers.length - 1;
+         int slot = (pageNumber * 0x9E3779B9 >>> 16) & mask;
+         while (pageNumbers[slot] >= 0 && pageNumbers[slot] != pageNumber) {
+            slot = (slot + 1) & mask;
+         }
+         return slot;
+      }
+
+   /**
+    * Print the hot spots, the instructions executed most often with their source lines,
+    * then the calls and the inclusive and exclusive instruction counts of each function,
+    * then the edges of the call graph.  Functions still on the shadow stack are
+    * reported as if they returned after the last instruction executed.  Do not call
+    * while the profiler is counting; the Simulator holds Globals.memoryAndRegistersLock
+    * while it executes each instruction.
+    * @param out where to print.
+    * @param hotSpots maximum number of hot spots to print.
+    */
+       public void printReport(PrintStream out, int hotSpots) {
+         out.println("Instructions executed: " + instructions);
+         ArrayList<int[]> spots = new ArrayList<int[]>(); // { address, count }
+         for (int i = 0; i < pageNumbers.length; i++) {
+            if (pageNumbers[i] >= 0) {
+               for (int j = 0; j < WORDS_PER_PAGE; j++) {
+                  if (pages[i][j] != 0) {
+                     spots.add(new int[] { (pageNumbers[i] << PAGE_BITS) | (j << 2), pages[i][j] });
+                  }
+               }
+            }
+         }
+         Collections.sort(spots,
+             new Comparator<int[]>() {
+                public int compare(int[] a, int[] b) {
+                  int x = a[1], y = b[1];
+                  return (x == y) ? compareAddresses(a[0], b[0]) : (x > y) ? -1 : 1;
+               }
+            });
+         out.println();
+         out.println("Hot spots:");
+         out.println(pad("address", 12) + pad("executed", 12) + pad("percent", 9) + "statement");
+         for (int i = 0; i < spots.size() && i < hotSpots; i++) {
+            int[] spot = spots.get(i);
+            out.println(pad(Binary.intToHexString(spot[0]), 12) + pad(Integer.toString(spot[1]), 12)
+               + pad(percent(spot[1]), 9) + describe(spot[0]));
+         }
+
+         // Frames still on the stack count as returning now.
+         HashMap<Object, Long> open = new HashMap<Object, Long>(); // Function or Edge -> elapsed
+         for (int d = 0; d < depth; d++) {
+            Long elapsed = Long.valueOf(instructions - frameEntries[d]);
+            if (!open.containsKey(frameFunctions[d])) {
+               open.put(frameFunctions[d], elapsed);
+            }
+            if (frameEdges[d] != null && !open.containsKey(frameEdges[d])) {
+               open.put(frameEdges[d], elapsed);
+            }
+         }
+         Function[] list = functions.toArray();
+         final long[] inclusive = new long[list.length];
+         final HashMap<Function, Integer> order = new HashMap<Function, Integer>(); // index in list
+         int width = 12;
+         for (int i = 0; i < list.length; i++) {
+            inclusive[i] = list[i].inclusive + pending(open, list[i]);
+            order.put(list[i], Integer.valueOf(i));
+            width = Math.max(width, list[i].name.length() + 2);
+         }
+         Comparator<Function> byInclusive =
+             new Comparator<Function>() {
+                public int compare(Function a, Function b) {
+                  long x = inclusive[order.get(a).intValue()];
+                  long y = inclusive[order.get(b).intValue()];
+                  return (x == y) ? compareAddresses(a.address, b.address) : (x > y) ? -1 : 1;
+               }
+            };
+         Function[] sorted = list.clone();
+         Arrays.sort(sorted, byInclusive);
+         out.println();
+         out.println("Functions:");
+         out.println(pad("function", width) + pad("address", 12) + pad("calls", 10) + pad("inclusive", 12)
+            + pad("percent", 9) + pad("exclusive", 12) + "percent");
+         for (int i = 0; i < sorted.length; i++) {
+            Function function = sorted[i];
+            long total = inclusive[order.get(function).intValue()];
+            out.println(pad(function.name, width) + pad(Binary.intToHexString(function.address), 12)
+               + pad(Long.toString(function.calls), 10) + pad(Long.toString(total), 12) + pad(percent(total), 9)
+               + pad(Long.toString(function.exclusive), 12) + percent(function.exclusive));
+         }
+         out.println();
+         out.println("Call graph:");
+         out.println(pad("caller", width) + pad("callee", width) + pad("calls", 10) + "inclusive");
+         for (int i = 0; i < sorted.length; i++) {
+            Function caller = sorted[i];
+            Function[] callees = new Function[caller.edgeCount];
+            for (int j = 0; j < callees.length; j++) {
+               callees[j] = caller.edges[j].callee;
+            }
+            Arrays.sort(callees, byInclusive);
+            for (int j = 0; j < callees.length; j++) {
+               Edge edge = caller.getEdge(callees[j]);
+               out.println(pad(caller.name, width) + pad(edge.callee.name, width) + pad(Long.toString(edge.calls), 10)
+                  + (edge.inclusive + pending(open, edge)));
+            }
+         }
+      }
+
+       private static long pending(HashMap<Object, Long> open, Object frame) {
+         Long elapsed = open.get(frame);
+         return (elapsed == null) ? 0 : elapsed.longValue();
+      }
+
+      // Unsigned comparison, so kernel addresses follow user addresses.
+       private static int compareAddresses(int x, int y) {
+         return (x == y) ? 0 : ((x ^ 0x80000000) < (y ^ 0x80000000)) ? -1 : 1;
+      }
+
+      // Source line number and text of the statement at the address, if known.
+       private static String describe(int address) {
+         try {
+            ProgramStatement statement = Globals.memory.getStatementNoNotify(address);
+            if (statement != null && statement.getSource() != null) {
+               return statement.getSourceLine() + ": " + statement.getSource().trim().replace('\t', ' ');
+            }
+         }
+             catch (AddressErrorException e) {
+            }
+         return "";
+      }
+
+      // Label at the address, looked up in the local symbol table of the statement there
+      // and then the global symbol table, or the address in hexadecimal.
+       private static String nameOf(int address) {
+         Symbol symbol = null;
+         try {
+            ProgramStatement statement = Globals.memory.getStatementNoNotify(address);
+            if (statement != null && statement.getSourceMIPSprogram() != null) {
+               symbol = statement.getSourceMIPSprogram().getLocalSymbolTable()
+                  .getSymbolGivenAddressLocalOrGlobal(Integer.toString(address));
+            }
+         }
+             catch (AddressErrorException e) {
+            }
+         if (symbol == null && Globals.symbolTable != null) {
+            symbol = Globals.symbolTable.getSymbolGivenAddress(Integer.toString(address));
+         }
+         return (symbol == null) ? Binary.intToHexString(address) : symbol.getName();
+      }
+
+       private String percent(long part) {
+         return ((instructions == 0) ? 0.0 : Math.round(part * 10000.0 / instructions) / 100.0) + "%";
+      }
+
+       private static String pad(String s, int width) {
+         StringBuffer sb = new StringBuffer(s);
+         do {
+            sb.append(' ');
+         } while (sb.length() < width);
+         return sb.toString();
+      }
+
+      // Counts for the function entered at an address.  The edges to its callees are
+      // few, so they are searched in order, the most recently used first.
+       private static class Function {
+         int address;
+         String name;
+         long calls, inclusive, exclusive;
+         int activeFrames;
+         Edge[] edges = new Edge[4];
+         int edgeCount;
+
+          Edge getEdge(Function callee) {
+            if (edgeCount > 0 && edges[0].callee == callee) {
+               return edges[0];
+            }
+            for (int i = 1; i < edgeCount; i++) {
+               if (edges[i].callee == callee) {
+                  Edge edge = edges[i];
+                  edges[i] = edges[0];
+                  edges[0] = edge;
+                  return edge;
+               }
+            }
+            if (edgeCount == edges.length) {
+               Edge[] grown = new Edge[2 * edgeCount];
+               System.arraycopy(edges, 0, grown, 0, edgeCount);
+               edges = grown;
+            }
+            Edge edge = new Edge();
+            edge.callee = callee;
+            edges[edgeCount++] = edge;
+            return edge;
+         }
+      }
+
+      // Calls from one function to another, and the instructions executed within them.
+       private static class Edge {
+         Function callee;
+         long calls, inclusive;
+         int activeFrames;
+      }
+
+      // Functions by entry address, open addressing, so finding one allocates nothing.
+       private static class FunctionTable {
+         private Function[] functions = new Function[64];
+         private int size;
+
+          Function get(int address) {
+            int mask = functions.length - 1;
+            int i = ((address >>> 2) * 0x9E3779B9 >>> 16) & mask;
+            while (functions[i] != null) {
+               if (functions[i].address == address) {
+                  return functions[i];
+               }
+               i = (i + 1) & mask;
+            }
+            Function function = new Function();
+            function.address = address;
+            function.name = nameOf(address);
+            functions[i] = function;
+            if (++size * 2 > functions.length) {
+               Function[] old = functions;
+               functions = new Function[2 * old.length];
+               for (int j = 0; j < old.length; j++) {
+                  if (old[j] != null) {
+                     int k = ((old[j].address >>> 2) * 0x9E3779B9 >>> 16) & (functions.length - 1);
+                     while (functions[k] != null) {
+                        k = (k + 1) & (functions.length - 1);
+                     }
+                     functions[k] = old[j];
+                  }
+               }
+            }
+            return function;
+         }
+
+          Function[] toArray() {
+            Function[] result = new Function[size];
+            int n = 0;
+            for (int i = 0; i < functions.length; i++) {
+               if (functions[i] != null) {
+                  result[n++] = functions[i];
+               }
+            }
+            return result;
+         }
+      }
+   }
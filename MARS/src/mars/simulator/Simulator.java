@@ -59,6 +59,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       public static final int NORMAL_TERMINATION = 4;
       public static final int CLIFF_TERMINATION = 5; // run off bottom of program
       public static final int PAUSE_OR_STOP = 6;
+      // Instruction listeners are told of each statement before it is simulated.  The
+      // array is replaced, never modified, so it can be read without locking.
+      private static volatile InstructionListener[] instructionListeners = new InstructionListener[0];
    
       /**
    	 * Returns the Simulator object
@@ -99,6 +102,36 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return DelayedBranch.isTriggered();
       }	
    
+   /**
+    * Attach an instruction listener, to be told of each statement before it is
+    * simulated.  Several may be attached at a time.
+    * @param listener the instruction listener.
+    */
+       public static synchronized void addInstructionListener(InstructionListener listener) {
+         InstructionListener[] current = instructionListeners;
+         InstructionListener[] added = new InstructionListener[current.length + 1];
+         System.arraycopy(current, 0, added, 0, current.length);
+         added[current.length] = listener;
+         instructionListeners = added;
+      }
+   
+   /**
+    * Detach an instruction listener.  Does nothing if it is not attached.
+    * @param listener the instruction listener.
+    */
+       public static synchronized void removeInstructionListener(InstructionListener listener) {
+         InstructionListener[] current = instructionListeners;
+         for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+               InstructionListener[] removed = new InstructionListener[current.length - 1];
+               System.arraycopy(current, 0, removed, 0, i);
+               System.arraycopy(current, i + 1, removed, i, current.length - i - 1);
+               instructionListeners = removed;
+               return;
+            }
+         }
+      }
+   
    
    /**
     * Simulate execution of given MIPS program.  It must have already been assembled.
@@ -258,6 +291,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          	// are not (because one or the other or both is not yet enabled).
             Thread.currentThread().setPriority(Thread.NORM_PRIORITY-1);
             Thread.yield();  // let the main thread run a bit to finish updating the GUI
+            ToolEventBus.setProducer(Thread.currentThread());
          	
             if (breakPoints == null || breakPoints.length == 0) {
                breakPoints = null;
@@ -342,8 +376,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                             "undefined instruction ("+Binary.intToHexString(statement.getBinaryStatement())+")",
                             Exceptions.RESERVED_INSTRUCTION_EXCEPTION);
                      }
+                     InstructionListener[] listeners = instructionListeners;
+                     if (listeners.length > 0) {
+                        int binaryStatement = statement.getBinaryStatement();
+                        for (int i = 0; i < listeners.length; i++) {
+                           listeners[i].instructionExecuting(pc, binaryStatement);
+                        }
+                     }
                      // THIS IS WHERE THE INSTRUCTION EXECUTION IS ACTUALLY SIMULATED!
                      instruction.getSimulationCode().simulate(statement);
+                     DeviceScheduler.instructionExecuted(); // only instructions that complete
                   	
                   	// IF statement added 7/26/06 (explanation above)
                      if (Globals.getSettings().getBackSteppingEnabled()) {
@@ -0,0 +1,357 @@
+   package mars.simulator;
+
+   import java.util.concurrent.atomic.*;
+   import java.util.concurrent.locks.*;
+   import mars.mips.hardware.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Delivers the memory accesses of the running MIPS program to tools on threads of
+ * their own, so a slow tool no longer slows every instruction.  Memory publishes each
+ * access that falls in some subscriber's address ranges into a single ring of
+ * CAPACITY events, held in parallel int arrays so nothing is allocated per access.
+ * Each Subscription reads the ring on its own thread at its own pace and hands the
+ * accesses in its ranges to its ToolEventListener.  Every slot of the ring carries a
+ * stamp, odd while the slot is being written and even once it holds a whole access,
+ * so a subscription reading a slot as it is overwritten sees the stamp change and
+ * counts the access as lost rather than delivering a mix of two.
+ * <p>
+ * The policy of a subscription says what happens when it falls a full ring behind:
+ * with BLOCK the simulation waits for it, so it sees every access; with DROP the
+ * simulation goes on and the oldest accesses it has not read are lost; with SAMPLE it
+ * also never waits, and when well behind the subscription reads only an evenly spaced
+ * sample of the backlog to catch up.  getDropped() counts the accesses a subscription
+ * lost or skipped.
+ * <p>
+ * While anyone subscribes, the bus is attached to the Simulator as an
+ * InstructionListener, to tag each access with the address of the statement making
+ * it, and to Memory as a MemoryAccessListener; instruction fetches are published as
+ * reads.  Only the producer, the thread the Simulator names through setProducer() as it
+ * begins running the program, publishes.  Accesses made by other threads, including
+ * the subscription threads themselves, are not published.  A BLOCK listener must not
+ * synchronize on Globals.memoryAndRegistersLock, which the simulation thread holds
+ * while it waits.
+ */
+
+    public class ToolEventBus {
+
+      /** Policy: the simulation waits for a subscriber that is a full ring behind. */
+      public static final int BLOCK = 0;
+      /** Policy: a subscriber that is a full ring behind loses the oldest accesses. */
+      public static final int DROP = 1;
+      /** Policy: a subscriber far behind reads only a sample of the accesses. */
+      public static final int SAMPLE = 2;
+      /** Names of the policies, indexed by policy. */
+      public static final String[] POLICY_NAMES = { "block", "drop", "sample" };
+      /** Number of accesses the ring holds. */
+      public static final int CAPACITY = 1 << 16;
+
+      private static final int MASK = CAPACITY - 1;
+      private static final int SAMPLE_THRESHOLD = CAPACITY / 4;  // backlog at which sampling begins
+      private static final int SAMPLE_SIZE = 1024;               // accesses read from a sampled backlog
+      private static final long IDLE_NANOS = 1000000;            // subscriber poll interval when idle
+
+      private static final AtomicLongArray stamps = new AtomicLongArray(CAPACITY);
+      private static final AtomicIntegerArray types = new AtomicIntegerArray(CAPACITY);
+      private static final AtomicIntegerArray addresses = new AtomicIntegerArray(CAPACITY);
+      private static final AtomicIntegerArray lengths = new AtomicIntegerArray(CAPACITY);
+      private static final AtomicIntegerArray values = new AtomicIntegerArray(CAPACITY);
+      private static final AtomicIntegerArray pcs = new AtomicIntegerArray(CAPACITY);
+      private static volatile long published = 0;  // sequence number of the next access
+      private static volatile Subscription[] subscriptions = new Subscription[0];
+      private static volatile Thread producer;
+      private static int pc;
+      private static final Hooks hooks = new Hooks();
+
+       private ToolEventBus() {
+      }
+
+   /**
+    * Subscribe to the accesses in the address ranges later added to the subscription.
+    * Accesses are delivered on a new daemon thread, beginning with the next access made.
+    * @param name name of the subscriber, used to name its thread.
+    * @param listener receives the accesses.
+    * @param policy BLOCK, DROP or SAMPLE.
+    * @return the subscription; close it to stop delivery.
+    * @throws IllegalArgumentException if policy is not one of the above.
+    */
+       public static Subscription subscribe(String name, ToolEventListener listener, int policy) {
+         if (policy != BLOCK && policy != DROP && policy != SAMPLE) {
+            throw new IllegalArgumentException("unknown tool event policy " + policy);
+         }
+         Subscription subscription = new Subscription(name, listener, policy);
+         synchronized (ToolEventBus.class) {
+            Subscription[] current = subscriptions;
+            Subscription[] added = new Subscription[current.length + 1];
+            System.arraycopy(current, 0, added, 0, current.length);
+            added[current.length] = subscription;
+            subscription.next = published;
+            subscriptions = added;
+            if (current.length == 0) {
+               Simulator.addInstructionListener(hooks);
+               Memory.getInstance().addAccessListener(hooks);
+            }
+         }
+         subscription.thread.start();
+         return subscription;
+      }
+
+      // Publishes the access if it is made by the producer and some subscription wants it.
+       private static void publish(int type, int address, int length, int value) {
+         Subscription[] current = subscriptions;
+         if (current.length == 0) {
+            return;
+         }
+         if (Thread.currentThread() != producer) {
+            return;
+         }
+         boolean wanted = false;
+         for (int i = 0; i < current.length && !wanted; i++) {
+            wanted = current[i].covers(address);
+         }
+         if (!wanted) {
+            return;
+         }
+         long sequence = published;
+         for (int i = 0; i < current.length; i++) {
+            if (current[i].policy == BLOCK) {
+               current[i].awaitRoom(sequence);
+            }
+         }
+         // Each lazySet is ordered after the stores before it, so no field is written
+         // before the odd stamp and the even stamp follows them all.
+         int slot = (int) sequence & MASK;
+         stamps.lazySet(slot, 2 * sequence + 1);
+         types.lazySet(slot, type);
+         addresses.lazySet(slot, address);
+         lengths.lazySet(slot, length);
+         values.lazySet(slot, value);
+         pcs.lazySet(slot, pc);
+         stamps.lazySet(slot, 2 * sequence + 2);
+         published = sequence + 1;
+      }
+
+   /**
+    * Name the thread whose memory accesses are published.  Called by the Simulator on
+    * its own thread as it begins running the program.
+    * @param thread the thread running the MIPS program.
+    */
+       public static void setProducer(Thread thread) {
+         producer = thread;
+      }
+
+   /**
+    * @return the thread whose accesses are published, or null if no program has run.
+    */
+       public static Thread getProducer() {
+         return producer;
+      }
+
+       private static synchronized void remove(Subscription subscription) {
+         Subscription[] current = subscriptions;
+         for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+               Subscription[] removed = new Subscription[current.length - 1];
+               System.arraycopy(current, 0, removed, 0, i);
+               System.arraycopy(current, i + 1, removed, i, current.length - i - 1);
+               subscriptions = removed;
+               if (removed.length == 0) {
+                  Simulator.removeInstructionListener(hooks);
+                  Memory.getInstance().removeAccessListener(hooks);
+               }
+               return;
+            }
+         }
+      }
+
+      // Attached to the Simulator and Memory while anyone subscribes.
+       private static class Hooks implements InstructionListener, MemoryAccessListener {
+
+          public void instructionExecuting(int address, int binaryStatement) {
+            pc = address;
+         }
+
+          public void memoryAccessed(int type, int address, int length, int value) {
+            publish((type == FETCH) ? AccessNotice.READ : type, address, length, value);
+         }
+      }
+
+   /**
+    * One subscriber to the bus, with its address ranges, its policy and the thread that
+    * delivers accesses to its listener.
+    */
+       public static class Subscription implements Runnable {
+
+         private ToolEventListener listener;
+         private int policy;
+         private volatile int[] ranges = new int[0];  // pairs of low and high addresses
+         private volatile long next;                  // sequence number of the next access to read
+         private volatile boolean closed;
+         private volatile long delivered, dropped;
+         private Thread thread;
+
+          private Subscription(String name, ToolEventListener listener, int policy) {
+            this.listener = listener;
+            this.policy = policy;
+            thread = new Thread(this, "Tool events: " + name);
+            thread.setDaemon(true);
+         }
+
+      /**
+       * Add an address range, matching the ranges of Memory.addObserver(): the words
+       * from lowAddress through highAddress.
+       * @param lowAddress first address of the range.
+       * @param highAddress address of the last word of the range.
+       */
+          public synchronized void addRange(int lowAddress, int highAddress) {
+            int[] current = ranges;
+            int[] added = new int[current.length + 2];
+            System.arraycopy(current, 0, added, 0, current.length);
+            added[current.length] = lowAddress;
+            added[current.length + 1] = highAddress - 1 + Memory.WORD_LENGTH_BYTES;
+            ranges = added;
+         }
+
+      /**
+       * Stop delivering accesses.  Any the thread is delivering when this is called may
+       * still arrive, but nothing waits for this subscription afterward.
+       */
+          public void close() {
+            closed = true;
+            remove(this);
+         }
+
+      /**
+       * @return the policy, BLOCK, DROP or SAMPLE.
+       */
+          public int getPolicy() {
+            return policy;
+         }
+
+      /**
+       * @return number of accesses delivered to the listener.
+       */
+          public long getDelivered() {
+            return delivered;
+         }
+
+      /**
+       * Get the number of accesses lost because the ring was overwritten, or skipped by
+       * sampling.  These are counted before their addresses are checked, so when others
+       * subscribe to other ranges the count includes accesses this one would not receive.
+       * @return number of accesses lost or skipped.
+       */
+          public long getDropped() {
+            return dropped;
+         }
+
+      /**
+       * Deliver accesses until closed.  Run by the subscription's own thread.
+       */
+          public void run() {
+            try {
+               while (!closed) {
+                  long available = published;
+                  if (available == next) {
+                     LockSupport.parkNanos(IDLE_NANOS);
+                  }
+                  else {
+                     deliver(available);
+                     listener.caughtUp();
+                  }
+               }
+            }
+            finally {
+               close();
+            }
+         }
+
+         // Deliver the accesses published before the given sequence number.
+          private void deliver(long available) {
+            long sequence = next;
+            long lost = 0;
+            if (available - sequence > CAPACITY) {
+               lost = available - CAPACITY - sequence;
+               sequence = available - CAPACITY;
+            }
+            long stride = 1;
+            if (policy == SAMPLE && available - sequence > SAMPLE_THRESHOLD) {
+               stride = (available - sequence) / SAMPLE_SIZE;
+            }
+            long count = 0;
+            for (; sequence < available && !closed; sequence += stride) {
+               int slot = (int) sequence & MASK;
+               long stamp = 2 * sequence + 2;
+               boolean whole = stamps.get(slot) == stamp;
+               int type = types.get(slot);
+               int address = addresses.get(slot);
+               int length = lengths.get(slot);
+               int value = values.get(slot);
+               int eventPc = pcs.get(slot);
+               lost += Math.min(stride, available - sequence) - 1;
+               if (!whole || stamps.get(slot) != stamp) {
+                  lost++;  // overwritten before or while being read
+               }
+               else if (covers(address)) {
+                  listener.accessed(type, address, length, value, eventPc);
+                  count++;
+               }
+               next = sequence + 1;
+            }
+            next = available;
+            delivered += count;
+            dropped += lost;
+         }
+
+          private boolean covers(int address) {
+            int[] current = ranges;
+            for (int i = 0; i < current.length; i += 2) {
+               if (address >= current[i] && address <= current[i + 1]) {
+                  return true;
+               }
+            }
+            return false;
+         }
+
+         // Called by the simulation thread before it publishes the given sequence number.
+          private void awaitRoom(long sequence) {
+            int spins = 0;
+            while (sequence - next >= CAPACITY && !closed) {
+               if (++spins < 100) {
+                  Thread.yield();
+               }
+               else {
+                  LockSupport.parkNanos(IDLE_NANOS / 10);
+               }
+            }
+         }
+      }
+   }
@@ -0,0 +1,54 @@
+   package mars.simulator;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Receives the memory accesses published on the ToolEventBus, on the subscription's own
+ * thread rather than the simulation thread.  See ToolEventBus.subscribe().
+ */
+
+    public interface ToolEventListener {
+
+   /**
+    * Called for each memory access delivered, in the order the accesses were made.
+    * @param type AccessNotice.READ or AccessNotice.WRITE.
+    * @param address memory address accessed.
+    * @param length number of bytes accessed.
+    * @param value value read or written.
+    * @param pc address of the statement executing when the access was made.
+    */
+       public void accessed(int type, int address, int length, int value, int pc);
+
+   /**
+    * Called after each batch of accesses, when the listener has caught up with the
+    * simulation.  A good time to update a display.
+    */
+       public void caughtUp();
+   }
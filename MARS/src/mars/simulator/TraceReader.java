@@ -0,0 +1,171 @@
+   package mars.simulator;
+
+   import mars.util.*;
+   import java.io.*;
+   import java.util.zip.*;
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Reads the execution trace files written by TraceRecorder, one record at a time.
+ * After next() returns true, the fields of the record are available through the
+ * getter methods.  Running this class as a program prints each record of the
+ * trace file named by its argument as a line of text.
+ */
+
+    public class TraceReader {
+
+      private DataInputStream in;
+      private byte[] record;
+      private int type, length, address, value;
+
+   /**
+    * Open a trace file.
+    * @param file trace file written by TraceRecorder.
+    * @throws IOException if the file cannot be read or is not a trace file.
+    */
+       public TraceReader(File file) throws IOException {
+         in = new DataInputStream(new BufferedInputStream(
+                  new GZIPInputStream(new FileInputStream(file), 64 * 1024)));
+         byte[] magic = new byte[TraceRecorder.MAGIC.length];
+         try {
+            in.readFully(magic);
+         }
+             catch (EOFException e) {
+               magic = null;
+            }
+         if (magic == null || !java.util.Arrays.equals(magic, TraceRecorder.MAGIC)) {
+            in.close();
+            throw new IOException(file + " is not a MARS trace file");
+         }
+         record = new byte[TraceRecorder.RECORD_LENGTH];
+      }
+
+   /**
+    * Read the next record.
+    * @return true if a record was read, false at end of trace.
+    * @throws IOException if the file cannot be read or ends in the middle of a record.
+    */
+       public boolean next() throws IOException {
+         int count = in.read(record, 0, record.length);
+         if (count < 0) {
+            return false;
+         }
+         if (count < record.length) {
+            in.readFully(record, count, record.length - count);
+         }
+         type = record[0];
+         length = record[1];
+         address = getInt(4);
+         value = getInt(8);
+         return true;
+      }
+
+   /**
+    * @return type of current record: TraceRecorder.INSTRUCTION, REGISTER_WRITE, MEMORY_READ or MEMORY_WRITE.
+    */
+       public int getType() {
+         return type;
+      }
+
+   /**
+    * @return number of bytes accessed by a memory record, 0 for other records.
+    */
+       public int getLength() {
+         return length;
+      }
+
+   /**
+    * @return program counter of an instruction record, register number of a register
+    * record, or address of a memory record.
+    */
+       public int getAddress() {
+         return address;
+      }
+
+   /**
+    * @return instruction word, new register value, or memory value read or written.
+    */
+       public int getValue() {
+         return value;
+      }
+
+   /**
+    * Describe the current record as a line of text.
+    * @return String describing the record.
+    */
+       public String toString() {
+         switch (type) {
+            case TraceRecorder.INSTRUCTION :
+               return Binary.intToHexString(address) + "  " + Binary.intToHexString(value);
+            case TraceRecorder.REGISTER_WRITE :
+               return "            r" + address + " = " + Binary.intToHexString(value);
+            case TraceRecorder.MEMORY_READ :
+               return "            load  " + length + " " + Binary.intToHexString(address) + " -> " + Binary.intToHexString(value);
+            case TraceRecorder.MEMORY_WRITE :
+               return "            store " + length + " " + Binary.intToHexString(address) + " <- " + Binary.intToHexString(value);
+            default :
+               return "unknown record type " + type;
+         }
+      }
+
+   /**
+    * Close the trace file.
+    */
+       public void close() throws IOException {
+         in.close();
+      }
+
+       private int getInt(int offset) {
+         return (record[offset] << 24) | ((record[offset + 1] & 0xFF) << 16)
+              | ((record[offset + 2] & 0xFF) << 8) | (record[offset + 3] & 0xFF);
+      }
+
+   /**
+    * Print a trace file as text.
+    * @param args name of the trace file.
+    */
+       public static void main(String[] args) throws IOException {
+         if (args.length != 1) {
+            System.out.println("Usage:  java mars.simulator.TraceReader tracefile");
+            return;
+         }
+         TraceReader reader = new TraceReader(new File(args[0]));
+         PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 64 * 1024));
+         try {
+            while (reader.next()) {
+               out.println(reader.toString());
+            }
+         }
+         finally {
+            out.flush();
+            reader.close();
+         }
+      }
+   }
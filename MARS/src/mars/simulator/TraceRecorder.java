@@ -0,0 +1,259 @@
+   package mars.simulator;
+
+   import mars.mips.hardware.*;
+   import java.io.*;
+   import java.nio.*;
+   import java.util.concurrent.*;
+   import java.util.zip.*;
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Records a binary trace of program execution: every instruction executed
+ * (program counter and instruction word), every register write and every memory
+ * read and write made while the recorder is active.  Each event is a fixed-width
+ * record of RECORD_LENGTH bytes, big-endian:
+ * <pre>
+ *   byte  type     INSTRUCTION, REGISTER_WRITE, MEMORY_READ or MEMORY_WRITE
+ *   byte  length   number of bytes accessed, for memory events; otherwise 0
+ *   short reserved 0
+ *   int   address  program counter, register number or memory address
+ *   int   value    instruction word, register value or memory value
+ * </pre>
+ * Unlike an Observer, recording allocates nothing per event.  Records are put into
+ * one of a ring of preallocated buffers.  When a buffer fills it is handed to a
+ * background writer thread, which compresses it into the GZIP trace file and returns
+ * it to the ring.  The simulation thread waits only if every buffer is full.
+ * The trace file holds the MAGIC bytes followed by the records; use TraceReader
+ * to decode it.
+ * <p>
+ * Only one recorder is active at a time.  While active it is attached to the Simulator
+ * as an InstructionListener and to Memory as a MemoryAccessListener; the RegisterFile
+ * hook is a static method that does nothing unless one has been started.
+ */
+
+    public class TraceRecorder implements InstructionListener, MemoryAccessListener {
+
+      /** Length in bytes of each trace record */
+      public static final int RECORD_LENGTH = 12;
+      /** Record type: instruction fetched for execution */
+      public static final int INSTRUCTION = 1;
+      /** Record type: register written */
+      public static final int REGISTER_WRITE = 2;
+      /** Record type: memory read */
+      public static final int MEMORY_READ = 3;
+      /** Record type: memory written */
+      public static final int MEMORY_WRITE = 4;
+      /** Bytes at the start of the uncompressed trace */
+      public static final byte[] MAGIC = { 'M', 'A', 'R', 'S', 'T', 'R', 'C', '1' };
+
+      private static final int BUFFER_COUNT = 8;
+      private static final int RECORDS_PER_BUFFER = 16384;
+      private static final ByteBuffer END_OF_TRACE = ByteBuffer.allocate(0);
+
+      private static volatile TraceRecorder active = null;
+
+      private OutputStream out;
+      private BlockingQueue<ByteBuffer> free;
+      private BlockingQueue<ByteBuffer> full;
+      private ByteBuffer current;
+      private Thread writer;
+      private IOException writeError;
+
+       private TraceRecorder(File file) throws IOException {
+         out = new GZIPOutputStream(new FileOutputStream(file), 64 * 1024);
+         out.write(MAGIC);
+         free = new ArrayBlockingQueue<ByteBuffer>(BUFFER_COUNT);
+         full = new ArrayBlockingQueue<ByteBuffer>(BUFFER_COUNT + 1);
+         for (int i = 1; i < BUFFER_COUNT; i++) {
+            free.add(ByteBuffer.allocate(RECORDS_PER_BUFFER * RECORD_LENGTH));
+         }
+         current = ByteBuffer.allocate(RECORDS_PER_BUFFER * RECORD_LENGTH);
+         writer = new Thread(
+               new Runnable() {
+                  public void run() {
+                     writeBuffers();
+                  }
+               }, "MARS trace writer");
+         writer.setDaemon(true);
+         writer.start();
+      }
+
+   /**
+    * Start recording to the given file, replacing any previous contents.
+    * Any recorder already active is stopped first.
+    * @param file trace file to write.
+    * @throws IOException if the file cannot be created.
+    */
+       public static synchronized void start(File file) throws IOException {
+         stop();
+         active = new TraceRecorder(file);
+         Simulator.addInstructionListener(active);
+         Memory.getInstance().addAccessListener(active);
+      }
+
+   /**
+    * Stop recording, if active.  Waits for all records to be written and closes the file.
+    * @throws IOException if any error occurred while writing the trace.
+    */
+       public static synchronized void stop() throws IOException {
+         TraceRecorder recorder = active;
+         if (recorder == null) {
+            return;
+         }
+         active = null;
+         Simulator.removeInstructionListener(recorder);
+         Memory.getInstance().removeAccessListener(recorder);
+         recorder.finish();
+      }
+
+   /**
+    * Determine whether a trace is being recorded.
+    * @return true if a recorder is active.
+    */
+       public static boolean isRecording() {
+         return active != null;
+      }
+
+   /**
+    * Record execution of an instruction.  Called by the Simulator before the instruction is simulated.
+    * @param pc address of the instruction.
+    * @param instruction the binary instruction word.
+    */
+       public void instructionExecuting(int pc, int instruction) {
+         record(INSTRUCTION, 0, pc, instruction);
+      }
+
+   /**
+    * Record a register write.
+    * @param number register number (33 for hi, 34 for lo).
+    * @param value new value of the register.
+    */
+       public static void registerWrite(int number, int value) {
+         TraceRecorder recorder = active;
+         if (recorder != null) {
+            recorder.record(REGISTER_WRITE, 0, number, value);
+         }
+      }
+
+   /**
+    * Record a memory read or write.  Called by Memory; instruction fetches are not recorded.
+    * @param type AccessNotice.READ, AccessNotice.WRITE or FETCH.
+    * @param address memory address accessed.
+    * @param length number of bytes accessed.
+    * @param value value read or written.
+    */
+       public void memoryAccessed(int type, int address, int length, int value) {
+         if (type == AccessNotice.READ) {
+            record(MEMORY_READ, length, address, value);
+         }
+         else if (type == AccessNotice.WRITE) {
+            record(MEMORY_WRITE, length, address, value);
+         }
+      }
+
+       private void record(int type, int length, int address, int value) {
+         if (current.remaining() < RECORD_LENGTH) {
+            full.add(current);
+            current = takeFreeBuffer();
+         }
+         current.put((byte) type);
+         current.put((byte) length);
+         current.putShort((short) 0);
+         current.putInt(address);
+         current.putInt(value);
+      }
+
+      // Waits, if necessary, for the writer to return a buffer to the ring.
+       private ByteBuffer takeFreeBuffer() {
+         while (true) {
+            try {
+               return free.take();
+            }
+                catch (InterruptedException e) {
+                  // keep waiting; records must not be lost.
+               }
+         }
+      }
+
+       private void finish() throws IOException {
+         full.add(current);
+         full.add(END_OF_TRACE);
+         boolean interrupted = false;
+         while (writer.isAlive()) {
+            try {
+               writer.join();
+            }
+                catch (InterruptedException e) {
+                  interrupted = true;
+               }
+         }
+         if (interrupted) {
+            Thread.currentThread().interrupt();
+         }
+         if (writeError != null) {
+            throw writeError;
+         }
+      }
+
+      // Body of the writer thread.  After a write error the remaining buffers are
+      // still returned to the ring so the simulation never waits forever.
+       private void writeBuffers() {
+         while (true) {
+            ByteBuffer buffer;
+            try {
+               buffer = full.take();
+            }
+                catch (InterruptedException e) {
+                  continue;
+               }
+            if (buffer == END_OF_TRACE) {
+               break;
+            }
+            if (writeError == null) {
+               try {
+                  out.write(buffer.array(), 0, buffer.position());
+               }
+                   catch (IOException e) {
+                     writeError = e;
+                  }
+            }
+            buffer.clear();
+            free.add(buffer);
+         }
+         try {
+            out.close();
+         }
+             catch (IOException e) {
+               if (writeError == null) {
+                  writeError = e;
+               }
+            }
+      }
+   }
@@ -0,0 +1,69 @@
+   package mars.simulator.branch;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Branch history table of saturating counters indexed by the low bits of the branch
+ * address: the 1-bit and 2-bit BHT.  Branches whose addresses share those bits share
+ * a counter.
+ */
+
+    public class BimodalPredictor implements BranchPredictor {
+
+      private CounterTable table;
+      private int mask, bits;
+
+   /**
+    * @param entries number of counters, a power of two.
+    * @param bits bits per counter, 1 or 2 usually.
+    */
+       public BimodalPredictor(int entries, int bits) {
+         CounterTable.indexBits("bimodal", entries);
+         table = new CounterTable(entries, bits);
+         this.mask = entries - 1;
+         this.bits = bits;
+      }
+
+       public boolean predict(int address, int target) {
+         return table.predict((address >>> 2) & mask);
+      }
+
+       public void update(int address, boolean taken) {
+         table.update((address >>> 2) & mask, taken);
+      }
+
+       public void reset() {
+         table.reset();
+      }
+
+       public String getName() {
+         return "bimodal(" + table.size() + "x" + bits + ")";
+      }
+   }
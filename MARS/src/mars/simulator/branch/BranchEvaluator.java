@@ -0,0 +1,368 @@
+   package mars.simulator.branch;
+
+   import mars.*;
+   import mars.mips.hardware.*;
+   import mars.util.*;
+   import java.io.*;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Evaluates several branch predictors side by side over the same run.  The conditional
+ * branch instructions (beqz, bnez, bltz, bgez, bgtz and blez) report each outcome as
+ * they execute, and every predictor predicts it and then learns it.  The register
+ * indirect jumps (jr, jalr, ret_* and reti_*) report their targets to the branch target
+ * buffer, if there is one.  Counts are kept for each branch site as well as in total.
+ * <p>
+ * Predictors are described by a comma-separated list in which each item is a predictor
+ * name followed by optional colon-separated parameters:
+ * <pre>
+ *   static[:taken|nottaken|btfn]      default btfn, backward taken forward not taken
+ *   bimodal[:entries[:bits]]          default 1024 2-bit counters
+ *   gshare[:entries[:history]]        default 4096 entries, 12 bits of global history
+ *   local[:entries[:history]]         default 1024 histories of 10 bits
+ *   tournament[:entries[:history]]    default 4096 entries, 12 bits of history
+ *   btb[:entries]                     default 64 entries
+ * </pre>
+ * Like TraceRecorder, only one evaluator is active at a time, and the hooks in the
+ * instruction set are static methods that do nothing unless one has been started.
+ */
+
+    public class BranchEvaluator {
+
+      private static volatile BranchEvaluator active = null;
+
+      private BranchPredictor[] predictors;
+      private BranchTargetBuffer btb;
+      private SiteTable branchSites = new SiteTable();
+      private SiteTable jumpSites = new SiteTable();
+      private long branches, taken, jumps, jumpHits;
+      private long[] correct;
+
+   /**
+    * Create an evaluator from its description.
+    * @param description comma-separated list of predictors, as described above.
+    * @throws IllegalArgumentException if the description is malformed.
+    */
+       public BranchEvaluator(String description) {
+         ArrayList<BranchPredictor> list = new ArrayList<BranchPredictor>();
+         StringTokenizer st = new StringTokenizer(description, ",");
+         while (st.hasMoreTokens()) {
+            String[] fields = st.nextToken().trim().split(":");
+            String name = fields[0].toLowerCase();
+            if (name.equals("static")) {
+               int policy = StaticPredictor.getPolicy((fields.length > 1) ? fields[1] : "btfn");
+               if (policy < 0 || fields.length > 2) {
+                  throw new IllegalArgumentException("static: use static:taken, static:nottaken or static:btfn");
+               }
+               list.add(new StaticPredictor(policy));
+            }
+            else if (name.equals("bimodal")) {
+               list.add(new BimodalPredictor(parameter(fields, 1, 1024), parameter(fields, 2, 2)));
+            }
+            else if (name.equals("gshare")) {
+               int entries = parameter(fields, 1, 4096);
+               list.add(new GsharePredictor(entries, parameter(fields, 2, CounterTable.indexBits(name, entries))));
+            }
+            else if (name.equals("local")) {
+               list.add(new LocalHistoryPredictor(parameter(fields, 1, 1024), parameter(fields, 2, 10)));
+            }
+            else if (name.equals("tournament")) {
+               int entries = parameter(fields, 1, 4096);
+               list.add(new TournamentPredictor(entries, parameter(fields, 2, CounterTable.indexBits(name, entries))));
+            }
+            else if (name.equals("btb")) {
+               if (btb != null) {
+                  throw new IllegalArgumentException("btb: only one branch target buffer may be given");
+               }
+               btb = new BranchTargetBuffer(parameter(fields, 1, 64));
+            }
+            else {
+               throw new IllegalArgumentException("unknown predictor \"" + fields[0]
+                  + "\"; use static, bimodal, gshare, local, tournament or btb");
+            }
+         }
+         if (list.isEmpty() && btb == null) {
+            throw new IllegalArgumentException("no predictors given");
+         }
+         predictors = list.toArray(new BranchPredictor[list.size()]);
+         correct = new long[predictors.length];
+      }
+
+      // Integer parameter at the given position of a predictor description, or the default if absent.
+       private static int parameter(String[] fields, int position, int defaultValue) {
+         if (fields.length > 3) {
+            throw new IllegalArgumentException(fields[0] + ": too many parameters");
+         }
+         if (position >= fields.length) {
+            return defaultValue;
+         }
+         try {
+            return Integer.parseInt(fields[position].trim());
+         }
+             catch (NumberFormatException e) {
+               throw new IllegalArgumentException(fields[0] + ": \"" + fields[position] + "\" is not a number");
+            }
+      }
+
+   /**
+    * Begin evaluating the branches of the running program, replacing any evaluator
+    * already active.
+    */
+       public void start() {
+         active = this;
+      }
+
+   /**
+    * Stop evaluating branches.
+    */
+       public static void stop() {
+         active = null;
+      }
+
+   /**
+    * Hook called by each conditional branch instruction as it executes.
+    * @param address address of the branch.
+    * @param target address the branch goes to if taken.
+    * @param taken true if the branch is taken.
+    */
+       public static void conditionalBranch(int address, int target, boolean taken) {
+         BranchEvaluator evaluator = active;
+         if (evaluator != null) {
+            evaluator.branch(address, target, taken);
+         }
+      }
+
+   /**
+    * Hook called by each register indirect jump instruction as it executes.
+    * @param address address of the jump.
+    * @param target address jumped to.
+    */
+       public static void indirectJump(int address, int target) {
+         BranchEvaluator evaluator = active;
+         if (evaluator != null && evaluator.btb != null) {
+            evaluator.jump(address, target);
+         }
+      }
+
+   /**
+    * Have every predictor predict a conditional branch, then learn its outcome.
+    * @param address address of the branch.
+    * @param target address the branch goes to if taken.
+    * @param wasTaken true if the branch was taken.
+    */
+       public void branch(int address, int target, boolean wasTaken) {
+         Site site = branchSites.get(address, predictors.length);
+         branches++;
+         site.executions++;
+         if (wasTaken) {
+            taken++;
+            site.taken++;
+         }
+         for (int i = 0; i < predictors.length; i++) {
+            if (predictors[i].predict(address, target) == wasTaken) {
+               correct[i]++;
+               site.correct[i]++;
+            }
+            predictors[i].update(address, wasTaken);
+         }
+      }
+
+   /**
+    * Have the branch target buffer predict a register indirect jump, then learn its target.
+    * @param address address of the jump.
+    * @param target address jumped to.
+    */
+       public void jump(int address, int target) {
+         Site site = jumpSites.get(address, 1);
+         jumps++;
+         site.executions++;
+         if (btb.jump(address, target)) {
+            jumpHits++;
+            site.correct[0]++;
+         }
+      }
+
+   /**
+    * @return the predictors, in the order described.
+    */
+       public BranchPredictor[] getPredictors() {
+         return predictors;
+      }
+
+   /**
+    * @return number of conditional branches executed.
+    */
+       public long getBranches() {
+         return branches;
+      }
+
+   /**
+    * @param predictor index into getPredictors().
+    * @return number of conditional branches the predictor got right.
+    */
+       public long getCorrect(int predictor) {
+         return correct[predictor];
+      }
+
+   /**
+    * Print the accuracy of each predictor, in total and for each branch site, and the
+    * target hit rate of the branch target buffer.
+    * @param out where to print.
+    */
+       public void printReport(PrintStream out) {
+         Site[] sites = branchSites.toArray();
+         out.println("Conditional branches: " + branches + " at " + sites.length + " sites, "
+            + percent(taken, branches) + " taken");
+         if (predictors.length > 0) {
+            int width = 12;
+            for (int i = 0; i < predictors.length; i++) {
+               width = Math.max(width, predictors[i].getName().length() + 2);
+            }
+            for (int i = 0; i < predictors.length; i++) {
+               out.println("  " + pad(predictors[i].getName(), width) + percent(correct[i], branches) + " correct");
+            }
+            StringBuffer line = new StringBuffer(pad("address", 12) + pad("executed", 10) + pad("taken", 9));
+            for (int i = 0; i < predictors.length; i++) {
+               line.append(pad(predictors[i].getName(), width));
+            }
+            out.println(line.append("statement"));
+            for (int s = 0; s < sites.length; s++) {
+               line.setLength(0);
+               line.append(pad(Binary.intToHexString(sites[s].address), 12)).append(pad(Long.toString(sites[s].executions), 10))
+                  .append(pad(percent(sites[s].taken, sites[s].executions), 9));
+               for (int i = 0; i < predictors.length; i++) {
+                  line.append(pad(percent(sites[s].correct[i], sites[s].executions), width));
+               }
+               out.println(line.append(describe(sites[s].address)));
+            }
+         }
+         if (btb != null) {
+            sites = jumpSites.toArray();
+            out.println();
+            out.println("Indirect jumps: " + jumps + " at " + sites.length + " sites, " + btb.getName() + " "
+               + percent(jumpHits, jumps) + " correct targets");
+            if (sites.length > 0) {
+               out.println(pad("address", 12) + pad("executed", 10) + pad("correct", 9) + "statement");
+            }
+            for (int s = 0; s < sites.length; s++) {
+               out.println(pad(Binary.intToHexString(sites[s].address), 12) + pad(Long.toString(sites[s].executions), 10)
+                  + pad(percent(sites[s].correct[0], sites[s].executions), 9) + describe(sites[s].address));
+            }
+         }
+      }
+
+      // Source line number and text of the statement at the address, if known.
+       private static String describe(int address) {
+         try {
+            ProgramStatement statement = Globals.memory.getStatementNoNotify(address);
+            if (statement != null && statement.getSource() != null) {
+               return statement.getSourceLine() + ": " + statement.getSource().trim().replace('\t', ' ');
+            }
+         }
+             catch (AddressErrorException e) {
+            }
+         return "";
+      }
+
+       private static String percent(long part, long whole) {
+         return ((whole == 0) ? 0.0 : Math.round(part * 10000.0 / whole) / 100.0) + "%";
+      }
+
+       private static String pad(String s, int width) {
+         StringBuffer sb = new StringBuffer(s);
+         do {
+            sb.append(' ');
+         } while (sb.length() < width);
+         return sb.toString();
+      }
+
+      // Counts for one branch or jump instruction.
+       private static class Site {
+         int address;
+         long executions, taken;
+         long[] correct;
+      }
+
+      // Sites by address, open addressing, so finding one allocates nothing.
+       private static class SiteTable {
+         private Site[] sites = new Site[64];
+         private int size;
+
+          Site get(int address, int counts) {
+            int mask = sites.length - 1;
+            int i = ((address >>> 2) * 0x9E3779B9 >>> 16) & mask;
+            while (sites[i] != null) {
+               if (sites[i].address == address) {
+                  return sites[i];
+               }
+               i = (i + 1) & mask;
+            }
+            Site site = new Site();
+            site.address = address;
+            site.correct = new long[counts];
+            sites[i] = site;
+            if (++size * 2 > sites.length) {
+               Site[] old = sites;
+               sites = new Site[2 * old.length];
+               for (int j = 0; j < old.length; j++) {
+                  if (old[j] != null) {
+                     int k = ((old[j].address >>> 2) * 0x9E3779B9 >>> 16) & (sites.length - 1);
+                     while (sites[k] != null) {
+                        k = (k + 1) & (sites.length - 1);
+                     }
+                     sites[k] = old[j];
+                  }
+               }
+            }
+            return site;
+         }
+
+         // The sites in address order.
+          Site[] toArray() {
+            Site[] result = new Site[size];
+            int n = 0;
+            for (int i = 0; i < sites.length; i++) {
+               if (sites[i] != null) {
+                  result[n++] = sites[i];
+               }
+            }
+            Arrays.sort(result, 
+                new Comparator<Site>() {
+                   public int compare(Site a, Site b) {
+                     int x = a.address, y = b.address;
+                     return (x == y) ? 0 : ((x ^ 0x80000000) < (y ^ 0x80000000)) ? -1 : 1;
+                  }
+               });
+            return result;
+         }
+      }
+   }
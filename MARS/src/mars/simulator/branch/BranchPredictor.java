@@ -0,0 +1,65 @@
+   package mars.simulator.branch;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * A conditional branch direction predictor, evaluated by BranchEvaluator.  For each
+ * conditional branch executed, predict() is called and then update() with the actual
+ * outcome of the same branch, before any other branch is predicted.  A predictor may
+ * therefore keep what it computed in predict() for use in update().
+ */
+
+    public interface BranchPredictor {
+
+   /**
+    * Predict the direction of a conditional branch.
+    * @param address address of the branch instruction.
+    * @param target address the branch goes to if taken.
+    * @return true if the branch is predicted taken.
+    */
+       public boolean predict(int address, int target);
+
+   /**
+    * Learn the actual outcome of the branch just predicted.
+    * @param address address of the branch instruction.
+    * @param taken true if the branch was taken.
+    */
+       public void update(int address, boolean taken);
+
+   /**
+    * Forget everything learned, as at the start of a run.
+    */
+       public void reset();
+
+   /**
+    * @return short description of the predictor and its configuration, used in reports.
+    */
+       public String getName();
+   }
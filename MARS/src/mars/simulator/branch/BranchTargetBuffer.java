@@ -0,0 +1,86 @@
+   package mars.simulator.branch;
+
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Direct mapped branch target buffer for register-indirect jumps: jr, jalr and the
+ * ret_* and reti_* instructions.  Each entry holds the address of a jump and the
+ * target it went to last time, which is the prediction for its next execution.
+ */
+
+    public class BranchTargetBuffer {
+
+      private int[] tags;    // jump address held by each entry
+      private int[] targets;
+      private boolean[] valid;
+      private int mask;
+
+   /**
+    * @param entries number of entries, a power of two.
+    */
+       public BranchTargetBuffer(int entries) {
+         CounterTable.indexBits("btb", entries);
+         tags = new int[entries];
+         targets = new int[entries];
+         valid = new boolean[entries];
+         mask = entries - 1;
+      }
+
+   /**
+    * Predict the target of a jump, then record its actual target.
+    * @param address address of the jump instruction.
+    * @param target address jumped to.
+    * @return true if the buffer predicted the target correctly.
+    */
+       public boolean jump(int address, int target) {
+         int i = (address >>> 2) & mask;
+         boolean hit = valid[i] && tags[i] == address && targets[i] == target;
+         valid[i] = true;
+         tags[i] = address;
+         targets[i] = target;
+         return hit;
+      }
+
+   /**
+    * Empty the buffer.
+    */
+       public void reset() {
+         Arrays.fill(valid, false);
+      }
+
+   /**
+    * @return description used in reports.
+    */
+       public String getName() {
+         return "btb(" + tags.length + ")";
+      }
+   }
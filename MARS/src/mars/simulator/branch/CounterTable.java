@@ -0,0 +1,86 @@
+   package mars.simulator.branch;
+
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Table of saturating counters of one or more bits, the building block of the dynamic
+ * predictors.  A counter predicts taken when in its upper half, moves up when the branch
+ * is taken and down when it is not.  Counters start just below the middle, weakly not
+ * taken (0 for 1-bit counters).
+ */
+
+    class CounterTable {
+
+      private byte[] counters;
+      private int max, threshold;
+
+       CounterTable(int entries, int bits) {
+         if (bits < 1 || bits > 7) {
+            throw new IllegalArgumentException("counters must have from 1 to 7 bits");
+         }
+         counters = new byte[entries];
+         max = (1 << bits) - 1;
+         threshold = 1 << (bits - 1);
+         reset();
+      }
+
+       void reset() {
+         Arrays.fill(counters, (byte) (threshold - 1));
+      }
+
+       boolean predict(int index) {
+         return counters[index] >= threshold;
+      }
+
+       void update(int index, boolean taken) {
+         int counter = counters[index];
+         if (taken && counter < max) {
+            counters[index] = (byte) (counter + 1);
+         }
+         else if (!taken && counter > 0) {
+            counters[index] = (byte) (counter - 1);
+         }
+      }
+
+       int size() {
+         return counters.length;
+      }
+
+      // Number of address bits used to index a table of the given number of entries,
+      // which must be a power of two.
+       static int indexBits(String name, int entries) {
+         if (entries <= 0 || (entries & (entries - 1)) != 0) {
+            throw new IllegalArgumentException(name + ": number of entries must be a power of two");
+         }
+         return Integer.numberOfTrailingZeros(entries);
+      }
+   }
@@ -0,0 +1,78 @@
+   package mars.simulator.branch;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Global history predictor: the outcomes of the most recent branches, taken as a bit
+ * string, are exclusive-ored with the branch address to index a table of 2-bit
+ * counters, so a branch is predicted by the path that led to it.
+ */
+
+    public class GsharePredictor implements BranchPredictor {
+
+      private CounterTable table;
+      private int mask, historyBits, historyMask;
+      private int history;
+      private int index; // of the latest prediction
+
+   /**
+    * @param entries number of counters, a power of two.
+    * @param historyBits number of recent outcomes kept, at most log2(entries).
+    */
+       public GsharePredictor(int entries, int historyBits) {
+         int indexBits = CounterTable.indexBits("gshare", entries);
+         if (historyBits < 0 || historyBits > indexBits) {
+            throw new IllegalArgumentException("gshare: history bits must be from 0 to " + indexBits);
+         }
+         table = new CounterTable(entries, 2);
+         mask = entries - 1;
+         this.historyBits = historyBits;
+         historyMask = (1 << historyBits) - 1;
+      }
+
+       public boolean predict(int address, int target) {
+         index = ((address >>> 2) ^ history) & mask;
+         return table.predict(index);
+      }
+
+       public void update(int address, boolean taken) {
+         table.update(index, taken);
+         history = ((history << 1) | (taken ? 1 : 0)) & historyMask;
+      }
+
+       public void reset() {
+         table.reset();
+         history = 0;
+      }
+
+       public String getName() {
+         return "gshare(" + table.size() + "," + historyBits + ")";
+      }
+   }
@@ -0,0 +1,81 @@
+   package mars.simulator.branch;
+
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Two-level local history predictor: a table indexed by branch address holds the
+ * recent outcomes of each branch, and that history indexes a table of 2-bit counters.
+ * It learns repeating patterns of individual branches, such as a loop of fixed count.
+ */
+
+    public class LocalHistoryPredictor implements BranchPredictor {
+
+      private int[] histories;
+      private CounterTable patterns;
+      private int mask, historyBits, historyMask;
+      private int site; // history table index of the latest prediction
+
+   /**
+    * @param entries number of branch histories kept, a power of two.
+    * @param historyBits outcomes kept per branch; the pattern table has 2^historyBits counters.
+    */
+       public LocalHistoryPredictor(int entries, int historyBits) {
+         CounterTable.indexBits("local", entries);
+         if (historyBits < 1 || historyBits > 20) {
+            throw new IllegalArgumentException("local: history bits must be from 1 to 20");
+         }
+         histories = new int[entries];
+         patterns = new CounterTable(1 << historyBits, 2);
+         mask = entries - 1;
+         this.historyBits = historyBits;
+         historyMask = (1 << historyBits) - 1;
+      }
+
+       public boolean predict(int address, int target) {
+         site = (address >>> 2) & mask;
+         return patterns.predict(histories[site]);
+      }
+
+       public void update(int address, boolean taken) {
+         patterns.update(histories[site], taken);
+         histories[site] = ((histories[site] << 1) | (taken ? 1 : 0)) & historyMask;
+      }
+
+       public void reset() {
+         Arrays.fill(histories, 0);
+         patterns.reset();
+      }
+
+       public String getName() {
+         return "local(" + histories.length + "," + historyBits + ")";
+      }
+   }
@@ -0,0 +1,90 @@
+   package mars.simulator.branch;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Predicts every branch the same way, learning nothing: always taken, never taken,
+ * or taken if the branch goes backward (as a loop's does) and not taken if forward.
+ */
+
+    public class StaticPredictor implements BranchPredictor {
+
+      /** Policy: predict every branch taken */
+      public static final int TAKEN = 0;
+      /** Policy: predict every branch not taken */
+      public static final int NOT_TAKEN = 1;
+      /** Policy: predict backward branches taken and forward branches not taken */
+      public static final int BACKWARD_TAKEN = 2;
+
+      private static final String[] NAMES = { "taken", "nottaken", "btfn" };
+
+      private int policy;
+
+   /**
+    * @param policy TAKEN, NOT_TAKEN or BACKWARD_TAKEN.
+    */
+       public StaticPredictor(int policy) {
+         this.policy = policy;
+      }
+
+   /**
+    * @param name name of the policy as used in getName(): taken, nottaken or btfn.
+    * @return the policy, or -1 if there is none of that name.
+    */
+       public static int getPolicy(String name) {
+         for (int i = 0; i < NAMES.length; i++) {
+            if (NAMES[i].equalsIgnoreCase(name)) {
+               return i;
+            }
+         }
+         return -1;
+      }
+
+       public boolean predict(int address, int target) {
+         switch (policy) {
+            case TAKEN :
+               return true;
+            case NOT_TAKEN :
+               return false;
+            default :
+               return target <= address;
+         }
+      }
+
+       public void update(int address, boolean taken) {
+      }
+
+       public void reset() {
+      }
+
+       public String getName() {
+         return "static(" + NAMES[policy] + ")";
+      }
+   }
@@ -0,0 +1,84 @@
+   package mars.simulator.branch;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Combines a gshare and a local history predictor, choosing between them for each
+ * branch by a table of 2-bit counters indexed by branch address.  The chooser moves
+ * toward whichever component was right when exactly one of them was.
+ */
+
+    public class TournamentPredictor implements BranchPredictor {
+
+      private GsharePredictor global;
+      private LocalHistoryPredictor local;
+      private CounterTable chooser; // taken means use the global prediction
+      private int mask, historyBits;
+      private int index;
+      private boolean globalPrediction, localPrediction;
+
+   /**
+    * @param entries number of entries of each table, a power of two.
+    * @param historyBits history bits of both components, at most log2(entries).
+    */
+       public TournamentPredictor(int entries, int historyBits) {
+         CounterTable.indexBits("tournament", entries);
+         global = new GsharePredictor(entries, historyBits);
+         local = new LocalHistoryPredictor(entries, historyBits);
+         chooser = new CounterTable(entries, 2);
+         mask = entries - 1;
+         this.historyBits = historyBits;
+      }
+
+       public boolean predict(int address, int target) {
+         globalPrediction = global.predict(address, target);
+         localPrediction = local.predict(address, target);
+         index = (address >>> 2) & mask;
+         return chooser.predict(index) ? globalPrediction : localPrediction;
+      }
+
+       public void update(int address, boolean taken) {
+         if (globalPrediction != localPrediction) {
+            chooser.update(index, globalPrediction == taken);
+         }
+         global.update(address, taken);
+         local.update(address, taken);
+      }
+
+       public void reset() {
+         global.reset();
+         local.reset();
+         chooser.reset();
+      }
+
+       public String getName() {
+         return "tournament(" + chooser.size() + "," + historyBits + ")";
+      }
+   }
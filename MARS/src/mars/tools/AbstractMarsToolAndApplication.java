@@ -10,6 +10,7 @@
    import mars.util.*;
    import mars.tools.*;
    import mars.mips.hardware.*;
+   import mars.simulator.*;
 
 /*
 Copyright (c) 2003-2008,  Pete Sanderson and Kenneth Vollmar
@@ -74,6 +75,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// For MarsTool, is set true when "Connect" clicked, false when "Disconnect" clicked.
    	// For app, is set true when "Assemble and Run" clicked, false when program terminates.
       private volatile boolean observing = false;
+      /** Value of getEventBusPolicy() to observe memory on the simulation thread. */
+      protected static final int SYNCHRONOUS = -1;
+      // Memory notices come through this instead when getEventBusPolicy() opts in.
+      private ToolEventBus.Subscription subscription = null;
    
    	// Several structures required for stand-alone use only (not MarsTool use)
       private File mostRecentlyOpenedFile = null; 
@@ -481,6 +486,20 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        protected void processMIPSUpdate(Observable resource, AccessNotice notice) {
       }
    	
+   	/**
+   	 * Override this method to receive memory notices on a thread of this tool's own
+   	 * through the ToolEventBus, rather than on the simulation thread as an Observer, so
+   	 * that the tool cannot slow the simulation.  processMIPSUpdate() is then called
+   	 * for each notice as before, on that thread, and updateDisplay() once after each
+   	 * batch of notices instead of after every one.  The policy says what the simulation
+   	 * does when the tool falls behind.  Register observers are not affected.
+   	 * By default returns SYNCHRONOUS, to observe memory directly.
+   	 * @return ToolEventBus.BLOCK, ToolEventBus.DROP, ToolEventBus.SAMPLE or SYNCHRONOUS.
+   	 */
+       protected int getEventBusPolicy() {
+         return SYNCHRONOUS;
+      }
+   	
    	/**
    	 *  This method is called when tool/app is exited either through the close/exit button or the window's X box.
    	 *  Override it to perform any special housecleaning needed.  By default it does nothing.
@@ -518,6 +537,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 */
    	
        protected void addAsObserver(int lowEnd, int highEnd) {
+         int policy = getEventBusPolicy();
+         if (policy != SYNCHRONOUS) {
+            if (subscription == null) {
+               subscription = ToolEventBus.subscribe(getName(), new EventBusBridge(), policy);
+            }
+            subscription.addRange(lowEnd, highEnd);
+            return;
+         }
          String errorMessage = "Error connecting to MIPS memory";
          try {
             Globals.memory.addObserver(thisMarsApp,lowEnd, highEnd);
@@ -552,6 +579,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 */		 
    	 
        protected void deleteAsObserver() {
+         if (subscription != null) {
+            subscription.close();
+            subscription = null;
+         }
          Globals.memory.deleteObserver(thisMarsApp);
       }
    
@@ -815,5 +846,18 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             updateDisplay();
          }
       }
+   	
+   	 //////////////////////////////////////////////////////////////////////
+       //  Hands accesses from the ToolEventBus to processMIPSUpdate() as memory notices
+       //  made by the simulation thread, so tools need not know how they arrived.
+       private class EventBusBridge implements ToolEventListener {
+          public void accessed(int type, int address, int length, int value, int pc) {
+            processMIPSUpdate(Globals.memory,
+               new MemoryAccessNotice(type, address, length, value, ToolEventBus.getProducer()));
+         }
+          public void caughtUp() {
+            updateDisplay();
+         }
+      }
                
-   }
\ No newline at end of file
+   }
\ No newline at end of file
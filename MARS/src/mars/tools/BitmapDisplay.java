@@ -85,6 +85,18 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private int baseAddress;
    	
       private Grid theGrid;
+
+      // When connected, the display's address range is shared with a frame buffer if it
+      // allows, and repainted at a fixed rate.  Otherwise every write is observed.
+      private static final int REFRESH_RATE = 60; // repaints per second
+      private FrameBuffer frameBuffer;
+      private boolean[] dirtyRows;
+      private javax.swing.Timer repaintTimer = new javax.swing.Timer(1000 / REFRESH_RATE,
+                new ActionListener() {
+                   public void actionPerformed(ActionEvent e) {
+                     repaintDirtyRows();
+                  }
+               });
    	         	
    	/**
    	 * Simple constructor, likely used to run a stand-alone bitmap display tool.
@@ -129,11 +141,23 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  the memory range as selected by the base address combo box and capacity of the visualization display 
    	 *  (number of visualization elements times the number of memory words each one represents). 
    	 *  It does so by calling the inherited 2-parameter overload of this method. 
+   	 *  If the range begins on a 4K block boundary and fits its memory segment, it is instead
+   	 *  shared with a FrameBuffer: stores go straight into the pixels and no notices are sent.
    	 *  If you use the inherited GUI buttons, this 
    	 *  method is invoked when you click "Connect" button on MarsTool or the 
    	 *  "Assemble and Run" button on a Mars-based app.
    	 */
        protected void addAsObserver() {
+         frameBuffer = new FrameBuffer(baseAddress, theGrid.getColumns(), theGrid.getRows());
+         try {
+            Memory.getInstance().setFrameBuffer(frameBuffer);
+            dirtyRows = new boolean[theGrid.getRows()];
+            repaintTimer.start();
+            return;
+         } 
+             catch (AddressErrorException e) {
+               frameBuffer = null; // observe writes instead
+            }
          int highAddress = baseAddress+theGrid.getRows()*theGrid.getColumns()*Memory.WORD_LENGTH_BYTES;
       	// Special case: baseAddress<0 means we're in kernel memory (0x80000000 and up) and most likely
       	// in memory map address space (0xffff0000 and up).  In this case, we need to make sure the high address
@@ -161,6 +185,25 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       }
    
    
+      /**
+   	 *  Override the inherited method to also detach the frame buffer, if any.  The display
+   	 *  keeps showing its contents as of the moment it was detached.
+   	 */
+       protected void deleteAsObserver() {
+         if (repaintTimer.isRunning()) {
+            repaintTimer.stop();
+            try {
+               Memory.getInstance().setFrameBuffer(null);
+            } 
+                catch (AddressErrorException e) {
+                  // cannot occur when detaching.
+               }
+            repaintDirtyRows();
+         }
+         super.deleteAsObserver();
+      }
+   
+   
       //////////////////////////////////////////////////////////////////////////////////////
       //  Rest of the protected methods.  These override do-nothing methods inherited from
    	//  the abstract superclass.
@@ -243,6 +286,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             						"by the MIPS program, its position in the display will be rendered\n"+
             						"in the color that its value represents.\n"+
             						"\n"+
+            						"If the base address begins a 4K block and the display fits in its\n"+
+            						"memory segment, the display shares that memory directly and is\n"+
+            						"redrawn "+REFRESH_RATE+" times a second, which is much faster for programs\n"+
+            						"that fill the screen.  Otherwise each write is observed.\n"+
+            						"\n"+
             						"Version 1.0 is very basic and was constructed from the Memory\n"+
             						"Reference Visualization tool's code.  Feel free to improve it and\n"+
             						"send me your code for consideration in the next MARS release.\n"+
@@ -277,6 +325,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                    public void actionPerformed(ActionEvent e) {
                      unitPixelWidth = getIntComboBoxSelection(visualizationUnitPixelWidthSelector);
                      theGrid = createNewGrid();
+                     replaceFrameBuffer();
                      updateDisplay();
                   }
                });
@@ -290,6 +339,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                    public void actionPerformed(ActionEvent e) {
                      unitPixelHeight = getIntComboBoxSelection(visualizationUnitPixelHeightSelector);
                      theGrid = createNewGrid();
+                     replaceFrameBuffer();
                      updateDisplay();
                   }
                });					
@@ -305,6 +355,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      canvas.setPreferredSize(getDisplayAreaDimension());
                      canvas.setSize(getDisplayAreaDimension());
                      theGrid = createNewGrid();
+                     replaceFrameBuffer();
                      updateDisplay();
                   }
                });
@@ -320,6 +371,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      canvas.setPreferredSize(getDisplayAreaDimension());
                      canvas.setSize(getDisplayAreaDimension());
                      theGrid = createNewGrid();
+                     replaceFrameBuffer();
                      updateDisplay();
                   }
                });	      	
@@ -345,6 +397,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                         addAsObserver();
                      }
                      theGrid = createNewGrid();
+                     replaceFrameBuffer();
                      updateDisplay();
                   }
                });	      	
@@ -434,6 +487,44 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// reset all counters in the Grid.
        private void resetCounts() {
          theGrid.reset();
+         if (!repaintTimer.isRunning()) {
+            frameBuffer = null;
+         }
+      }
+   
+   	// After the grid or base address changes, the frame buffer no longer matches the display.
+   	// Attach a new one if connected, otherwise drop it and show the grid.
+       private void replaceFrameBuffer() {
+         if (repaintTimer.isRunning()) {
+            deleteAsObserver();
+            addAsObserver();
+         } 
+         else {
+            frameBuffer = null;
+         }
+      }
+   
+   	// Called at REFRESH_RATE by the repaint timer.  Repaints each run of rows of the frame
+   	// buffer stored into since the last call.
+       private void repaintDirtyRows() {
+         FrameBuffer buffer = frameBuffer;
+         if (buffer == null || !buffer.takeDirtyRows(dirtyRows)) {
+            return;
+         }
+         int row = 0;
+         while (row < buffer.getRows()) {
+            if (dirtyRows[row]) {
+               int first = row;
+               while (row < buffer.getRows() && dirtyRows[row]) {
+                  row++;
+               }
+               canvas.repaint(0, first * unitPixelHeight, buffer.getColumns() * unitPixelWidth,
+                  (row - first) * unitPixelHeight);
+            } 
+            else {
+               row++;
+            }
+         }
       }
    	
    	// Will return int equivalent of specified combo box's current selection.
@@ -489,7 +580,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
           // override default paint method to assure display updated correctly every time
       	 // the panel is repainted.
           public void paint(Graphics g) {
+            FrameBuffer buffer = frameBuffer;
+            if (buffer != null) {
+               buffer.draw(g, unitPixelWidth, unitPixelHeight);
+            } 
+            else {
                paintGrid(g, theGrid);
+            }
          }
       
       	// Paint the color codes.
@@ -563,4 +660,4 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
       }  	
    
-   }
\ No newline at end of file
+   }
\ No newline at end of file
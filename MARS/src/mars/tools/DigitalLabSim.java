@@ -11,6 +11,7 @@ import mars.mips.hardware.AddressErrorException;
 import mars.mips.hardware.Coprocessor0;
 import mars.mips.hardware.Memory;
 import mars.mips.hardware.MemoryAccessNotice;
+import mars.simulator.DeviceScheduler;
 import mars.simulator.Exceptions;
 @SuppressWarnings("serial")
 /* Add these two lines in exceptions.java file
@@ -44,7 +45,6 @@ public class DigitalLabSim extends AbstractMarsToolAndApplication {
 	private static boolean KeyboardInterruptOnOff=false;
 	// Counter
 	private static int CounterValueMax=30; 
-	private static int CounterValue=CounterValueMax;
 	private static boolean CounterInterruptOnOff=false;
 	private static OneSecondCounter SecondCounter;
 
@@ -62,8 +62,11 @@ public class DigitalLabSim extends AbstractMarsToolAndApplication {
 	}
 	protected void addAsObserver(){
     	addAsObserver(IN_ADRESS_DISPLAY_1, IN_ADRESS_DISPLAY_1);
-    	addAsObserver(Memory.textBaseAddress, Memory.textLimitAddress);
     }
+	protected void deleteAsObserver(){
+		super.deleteAsObserver();
+		SecondCounter.resetOneSecondCounter();
+	}
 	public void update(Observable ressource, Object accessNotice){
     	MemoryAccessNotice notice = (MemoryAccessNotice) accessNotice;
     	int address=notice.getAddress();
@@ -79,16 +82,6 @@ public class DigitalLabSim extends AbstractMarsToolAndApplication {
     			else
     				if (address == IN_ADRESS_COUNTER)
     					updateOneSecondCounter(value);
-    	if  (CounterInterruptOnOff)
-    		if (CounterValue >0){
-    			CounterValue--;
-    		}
-    		else{
-    			CounterValue=CounterValueMax;
-    			if((Coprocessor0.getValue(Coprocessor0.STATUS) & 2)==0){
-    				mars.simulator.Simulator.externalInterruptingDevice = /*Exceptions.*/EXTERNAL_INTERRUPT_TIMER;
-    			}
-    		}
 	}
 	protected void reset(){
     	sevenSegPanel.resetSevenSegment();
@@ -338,19 +331,33 @@ public class DigitalLabSim extends AbstractMarsToolAndApplication {
     public void updateOneSecondCounter(char value) {
     	if (value !=0){
     		CounterInterruptOnOff=true;
-    		CounterValue=CounterValueMax;
+    		SecondCounter.start();
     	}
     	else{
-    		CounterInterruptOnOff=false;
+    		SecondCounter.resetOneSecondCounter();
     	}
     }
-    public class OneSecondCounter{
+    // Interrupts every CounterValueMax instructions while enabled, counted by the DeviceScheduler.
+    public class OneSecondCounter extends DeviceScheduler.Event{
     	public OneSecondCounter(){
     		CounterInterruptOnOff=false;
+    	}
+    	public void start(){
+    		synchronized (Globals.memoryAndRegistersLock) {
+    			DeviceScheduler.schedule(this, CounterValueMax);
+    		}
     	}
  	    public void resetOneSecondCounter(){
 	    	CounterInterruptOnOff=false;
-	    	CounterValue=CounterValueMax;
+	    	synchronized (Globals.memoryAndRegistersLock) {
+	    		DeviceScheduler.cancel(this);
+	    	}
+	    }
+	    protected void fire(){
+	    	if((Coprocessor0.getValue(Coprocessor0.STATUS) & 2)==0){
+	    		mars.simulator.Simulator.externalInterruptingDevice = /*Exceptions.*/EXTERNAL_INTERRUPT_TIMER;
+	    	}
+	    	DeviceScheduler.schedule(this, CounterValueMax);
 	    }
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,206 @@
+   package mars.tools;
+   import javax.swing.*;
+   import java.awt.*;
+   import java.awt.event.*;
+   import java.io.*;
+   import java.util.*;
+   import mars.*;
+   import mars.mips.hardware.*;
+   import mars.simulator.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Tool to display the report of the simulator's built-in Profiler: the statements
+ * executed most often, and the calls, inclusive and exclusive instruction counts and
+ * callees of each function.  Unlike the Instruction Counter and Instruction Statistics
+ * tools it does not observe memory, so connecting it costs the simulation very little.
+ * The report is brought up to date whenever execution stops or pauses.  Running the
+ * program again from its first statement begins a new profile.
+ */
+    public class ExecutionProfiler extends AbstractMarsToolAndApplication {
+
+      private static final long serialVersionUID = 1L;
+
+      private static String name = "Execution Profiler";
+      private static String version = "Version 1.0";
+      private static String heading = "Hot spots, function instruction counts and call graph";
+      private static final String[] hotSpotChoices = { "10", "20", "50", "100", "500" };
+
+      private Profiler profiler = new Profiler();
+      private JTextArea report;
+      private JComboBox<String> hotSpotSelector;
+
+   /**
+    * Simple constructor, likely used to run a stand-alone profiler.
+    * @param title String containing title for title bar
+    * @param heading String containing text for heading shown in upper part of window.
+    */
+       public ExecutionProfiler(String title, String heading) {
+         super(title, heading);
+      }
+
+   /**
+    * Simple constructor, likely used by the MARS Tools menu mechanism.
+    */
+       public ExecutionProfiler() {
+         super(name + ", " + version, heading);
+      }
+
+   /**
+    * Required MarsTool method to return Tool name.
+    * @return Tool name.  MARS will display this in menu item.
+    */
+       public String getName() {
+         return name;
+      }
+
+   /**
+    * Build the report area and the choice of how many hot spots it shows.
+    */
+       protected JComponent buildMainDisplayArea() {
+         JPanel panel = new JPanel(new BorderLayout());
+         report = new JTextArea(30, 90);
+         report.setEditable(false);
+         report.setFont(new Font("Monospaced", Font.PLAIN, 12));
+         panel.add(new JScrollPane(report), BorderLayout.CENTER);
+         hotSpotSelector = new JComboBox<String>(hotSpotChoices);
+         hotSpotSelector.setSelectedItem(Integer.toString(Profiler.DEFAULT_HOT_SPOTS));
+         hotSpotSelector.addActionListener(
+                new ActionListener() {
+                   public void actionPerformed(ActionEvent e) {
+                     updateReport();
+                  }
+               });
+         JPanel choice = new JPanel(new FlowLayout(FlowLayout.LEFT));
+         choice.add(new JLabel("Hot spots shown "));
+         choice.add(hotSpotSelector);
+         panel.add(choice, BorderLayout.NORTH);
+         updateReport();
+         return panel;
+      }
+
+   /**
+    * Start the profiler and listen for the simulator to stop, instead of observing memory.
+    */
+       protected void addAsObserver() {
+         profiler.start();
+         Simulator.getInstance().addObserver(this);
+      }
+
+   /**
+    * Stop the profiler and stop listening to the simulator.
+    */
+       protected void deleteAsObserver() {
+         Profiler.stop();
+         Simulator.getInstance().deleteObserver(this);
+      }
+
+   /**
+    * Bring the report up to date when execution stops, and begin a new profile when
+    * execution starts from the first statement of the program.
+    */
+       @SuppressWarnings("deprecation")
+       public void update(Observable resource, Object notice) {
+         if (!(notice instanceof SimulatorNotice)) {
+            super.update(resource, notice);
+            return;
+         }
+         SimulatorNotice simulatorNotice = (SimulatorNotice) notice;
+         if (simulatorNotice.getAction() == SimulatorNotice.SIMULATOR_START) {
+            if (simulatorNotice.getProgramCounter() == RegisterFile.getInitialProgramCounter()) {
+               synchronized (Globals.memoryAndRegistersLock) {
+                  profiler.reset();
+               }
+            }
+         }
+         else {
+            SwingUtilities.invokeLater(
+                   new Runnable() {
+                      public void run() {
+                        updateReport();
+                     }
+                  });
+         }
+      }
+
+   /**
+    * Discard the profile.
+    */
+       protected void reset() {
+         synchronized (Globals.memoryAndRegistersLock) {
+            profiler.reset();
+         }
+         updateReport();
+      }
+
+       private void updateReport() {
+         if (report == null) {
+            return;
+         }
+         ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+         PrintStream out = new PrintStream(bytes);
+         synchronized (Globals.memoryAndRegistersLock) {
+            profiler.printReport(out, Integer.parseInt((String) hotSpotSelector.getSelectedItem()));
+         }
+         out.flush();
+         report.setText(bytes.toString());
+         report.setCaretPosition(0);
+      }
+
+   /**
+    * Provide a Help button describing the report.
+    */
+       protected JComponent getHelpComponent() {
+         final String helpContent =
+                                "Profiles the MIPS program as it runs, inside the simulator.  Click\n"+
+                                "\"Connect to MIPS\", then run the program.  The report is shown each\n"+
+                                "time execution stops or pauses.\n"+
+                                "\n"+
+                                "Hot spots are the statements executed most often, with their source\n"+
+                                "line numbers.  A function is the target of a jal or jalr and is named\n"+
+                                "by its label.  Its inclusive count is the number of instructions\n"+
+                                "executed from its call until its return, including those of the\n"+
+                                "functions it calls; its exclusive count leaves those out.  The call\n"+
+                                "graph lists the calls from each function to each callee.  A jump\n"+
+                                "register or ret_* instruction to a caller's return address returns.\n"+
+                                "\n"+
+                                "The same report is available from the command line with the \"prof\"\n"+
+                                "option.\n";
+         JButton help = new JButton("Help");
+         help.addActionListener(
+                new ActionListener() {
+                   public void actionPerformed(ActionEvent e) {
+                     JOptionPane.showMessageDialog(theWindow, helpContent);
+                  }
+               });
+         return help;
+      }
+   }
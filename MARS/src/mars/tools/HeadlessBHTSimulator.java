@@ -0,0 +1,157 @@
+   package mars.tools;
+
+   import java.util.*;
+   import mars.*;
+   import mars.mips.hardware.*;
+   import mars.mips.instructions.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Headless version of the BHT Simulator tool: predicts each conditional branch with a
+ * branch history table and counts the correct and incorrect predictions of each entry.
+ * It observes the instruction fetches from the text segment.  A statement whose
+ * instruction has the branch format is a conditional branch, and it was taken if the
+ * next statement fetched after it, or after its delay slot if delayed branching is
+ * enabled, is not the one that follows.  Its settings are entries[:history[:taken]]:
+ * the number of entries, a power of two, the history size, 1 or 2, and the initial
+ * prediction, taken or nottaken.  The default is the tool's, 16:1:nottaken.
+ */
+
+    @SuppressWarnings("deprecation")
+    public class HeadlessBHTSimulator implements HeadlessTool, Observer {
+
+      private BHTableModel table = new BHTableModel(BHTSimulator.BHT_DEFAULT_SIZE,
+         BHTSimulator.BHT_DEFAULT_HISTORY, BHTSimulator.BHT_DEFAULT_INITVAL);
+      private int pendingBranchAddress;  // address of the branch awaiting its outcome
+      private int fallThroughAddress;    // address fetched next if that branch is not taken
+      private int fetchesToOutcome;      // fetches until the outcome is known, 0 if none pending
+
+   /**
+    * @return "bht".
+    */
+       public String getName() {
+         return "bht";
+      }
+
+   /**
+    * Set the number of entries, history size and initial prediction of the table.
+    * @param options entries[:history[:taken]], as described above.
+    * @throws IllegalArgumentException if the options are malformed.
+    */
+       public void configure(String options) {
+         String[] fields = options.split(":");
+         if (fields.length > 3) {
+            throw new IllegalArgumentException("expected entries[:history[:taken]]");
+         }
+         int entries, history = BHTSimulator.BHT_DEFAULT_HISTORY;
+         boolean taken = BHTSimulator.BHT_DEFAULT_INITVAL;
+         try {
+            entries = Integer.parseInt(fields[0].trim());
+            if (fields.length > 1) {
+               history = Integer.parseInt(fields[1].trim());
+            }
+         }
+             catch (NumberFormatException e) {
+               throw new IllegalArgumentException("entries and history must be numbers");
+            }
+         if (fields.length > 2) {
+            String initial = fields[2].trim().toLowerCase();
+            if (!initial.equals("taken") && !initial.equals("nottaken")) {
+               throw new IllegalArgumentException("initial prediction must be taken or nottaken");
+            }
+            taken = initial.equals("taken");
+         }
+         table = new BHTableModel(entries, history, taken);
+      }
+
+   /**
+    * Observe the text segment.
+    */
+       public void connect() throws AddressErrorException {
+         Globals.memory.addObserver(this, Memory.textBaseAddress, Memory.textLimitAddress);
+      }
+
+   /**
+    * Stop observing the text segment.
+    */
+       public void disconnect() {
+         Globals.memory.deleteObserver(this);
+      }
+
+   /**
+    * Settle the outcome of the pending branch, if this fetch shows it, then make the
+    * statement fetched pending if it is a branch.
+    */
+       public void update(Observable resource, Object notice) {
+         if (!(notice instanceof MemoryAccessNotice)) {
+            return;
+         }
+         MemoryAccessNotice access = (MemoryAccessNotice) notice;
+         if (!access.accessIsFromMIPS() || access.getAccessType() != AccessNotice.READ) {
+            return;
+         }
+         int address = access.getAddress();
+         if (fetchesToOutcome > 0 && --fetchesToOutcome == 0) {
+            table.updatePredictionAtIdx(table.getIdxForAddress(pendingBranchAddress), address != fallThroughAddress);
+         }
+         try {
+            ProgramStatement statement = Globals.memory.getStatementNoNotify(address);
+            // The table maps only non-negative addresses, so branches in kernel text are skipped.
+            if (statement != null && address >= 0 && statement.getInstruction() instanceof BasicInstruction
+                  && ((BasicInstruction) statement.getInstruction()).getInstructionFormat() == BasicInstructionFormat.I_BRANCH_FORMAT) {
+               pendingBranchAddress = address;
+               fetchesToOutcome = Globals.getSettings().getDelayedBranchingEnabled() ? 2 : 1;
+               fallThroughAddress = address + fetchesToOutcome * Instruction.INSTRUCTION_LENGTH;
+            }
+         }
+             catch (AddressErrorException e) {
+               // not a statement; ignore it.
+            }
+      }
+
+   /**
+    * @return a table "entries" with the columns of the tool's table, and a table "total"
+    * with the number of branches predicted and the fraction predicted correctly.
+    */
+       public ToolResult getResult() {
+         ToolResult result = new ToolResult(getName());
+         result.addTable("entries", table);
+         long correct = 0, incorrect = 0;
+         for (int row = 0; row < table.getRowCount(); row++) {
+            correct += ((Integer) table.getValueAt(row, 3)).intValue();
+            incorrect += ((Integer) table.getValueAt(row, 4)).intValue();
+         }
+         result.addTable("total", new String[] { "branches", "correct", "incorrect", "accuracy" })
+            .addRow(new Object[] { Long.valueOf(correct + incorrect), Long.valueOf(correct), Long.valueOf(incorrect),
+               Double.valueOf((correct + incorrect == 0) ? 0.0 : correct / (double) (correct + incorrect)) });
+         return result;
+      }
+   }
@@ -0,0 +1,119 @@
+   package mars.tools;
+
+   import java.util.*;
+   import mars.*;
+   import mars.mips.hardware.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Headless version of the Data Cache Simulator tool: runs the data accesses of the
+ * program through one cache and counts its hits and misses.  Like the tool, it observes
+ * memory from the start of the data segment up to the stack base.  Its settings are a
+ * cache level as given to the "cachesim" option, size:block:ways[:policy][:wb|wt] with
+ * sizes in bytes; the default, 128:16:1, is the tool's default of eight blocks of four
+ * words, directly mapped, with LRU replacement and write-back.
+ */
+
+    @SuppressWarnings("deprecation")
+    public class HeadlessCacheSimulator implements HeadlessTool, Observer {
+
+      private Cache cache = createCache("128:16:1");
+
+   /**
+    * @return "cache".
+    */
+       public String getName() {
+         return "cache";
+      }
+
+   /**
+    * Set the size, block size, associativity and policies of the cache.
+    * @param options size:block:ways[:policy][:wb|wt], as described above.
+    * @throws IllegalArgumentException if the options do not describe a cache.
+    */
+       public void configure(String options) {
+         cache = createCache(options);
+      }
+
+   /**
+    * Observe the data segment, heap and stack.
+    */
+       public void connect() throws AddressErrorException {
+         Globals.memory.addObserver(this, Memory.dataSegmentBaseAddress, Memory.stackBaseAddress);
+      }
+
+   /**
+    * Stop observing memory.
+    */
+       public void disconnect() {
+         Globals.memory.deleteObserver(this);
+      }
+
+   /**
+    * Run each access the simulation makes through the cache.
+    */
+       public void update(Observable resource, Object notice) {
+         if (!(notice instanceof MemoryAccessNotice)) {
+            return;
+         }
+         MemoryAccessNotice access = (MemoryAccessNotice) notice;
+         if (!access.accessIsFromMIPS()) {
+            return;
+         }
+         if (access.getAccessType() == AccessNotice.WRITE) {
+            cache.write(access.getAddress());
+         }
+         else {
+            cache.read(access.getAddress());
+         }
+      }
+
+   /**
+    * @return a table "summary" with one row giving the organization of the cache and
+    * its access, miss and write-back counts.
+    */
+       public ToolResult getResult() {
+         ToolResult result = new ToolResult(getName());
+         result.addTable("summary", new String[] { "size", "block", "ways", "policy", "write_back",
+               "reads", "writes", "read_misses", "write_misses", "writebacks", "hit_rate" })
+            .addRow(new Object[] { Integer.valueOf(cache.getSizeInBytes()), Integer.valueOf(cache.getBlockSizeInBytes()),
+               Integer.valueOf(cache.getAssociativity()), Cache.POLICY_NAMES[cache.getPolicy()],
+               Boolean.valueOf(cache.isWriteBack()), Long.valueOf(cache.getReads()), Long.valueOf(cache.getWrites()),
+               Long.valueOf(cache.getReadMisses()), Long.valueOf(cache.getWriteMisses()),
+               Long.valueOf(cache.getWritebacks()), Double.valueOf(cache.getHitRate()) });
+         return result;
+      }
+
+      // A cache as described by a level of the "cachesim" option.
+       private static Cache createCache(String description) {
+         return new CacheHierarchy("L1D=" + description).getLevels()[0];
+      }
+   }
@@ -0,0 +1,151 @@
+   package mars.tools;
+
+   import java.util.*;
+   import mars.*;
+   import mars.mips.hardware.*;
+   import mars.mips.instructions.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Headless version of the Instruction Statistics tool: counts the instructions executed
+ * in each of the categories ALU, Jump, Branch, Memory and Other.  It observes the
+ * instruction fetches from the text segment and classifies each statement by the format
+ * and mnemonic of its instruction, so the categories hold for this instruction set:
+ * Branch is the conditional branches, Jump is j, jal, jr, jalr, ret_* and reti_*, Memory
+ * is the loads and stores, and Other is nop, syscall and break.  It takes no settings.
+ */
+
+    @SuppressWarnings("deprecation")
+    public class HeadlessInstructionStatistics implements HeadlessTool, Observer {
+
+      private static final int CATEGORY_ALU = 0;
+      private static final int CATEGORY_JUMP = 1;
+      private static final int CATEGORY_BRANCH = 2;
+      private static final int CATEGORY_MEM = 3;
+      private static final int CATEGORY_OTHER = 4;
+      private static final String[] categoryLabels = { "ALU", "Jump", "Branch", "Memory", "Other" };
+
+      private static final List<String> jumps = Arrays.asList(new String[] { "j", "jal", "jr", "jalr" });
+      private static final List<String> memoryAccesses = Arrays.asList(new String[] { "lb", "lbu", "lh", "lhu", "lw", "sb", "sh", "sw" });
+      private static final List<String> others = Arrays.asList(new String[] { "nop", "syscall", "break" });
+
+      private long total;
+      private long[] counters = new long[categoryLabels.length];
+
+   /**
+    * @return "statistics".
+    */
+       public String getName() {
+         return "statistics";
+      }
+
+   /**
+    * The tool has no settings.
+    * @throws IllegalArgumentException if any are given.
+    */
+       public void configure(String options) {
+         if (options.length() > 0) {
+            throw new IllegalArgumentException("takes no settings");
+         }
+      }
+
+   /**
+    * Observe the text segment.
+    */
+       public void connect() throws AddressErrorException {
+         Globals.memory.addObserver(this, Memory.textBaseAddress, Memory.textLimitAddress);
+      }
+
+   /**
+    * Stop observing the text segment.
+    */
+       public void disconnect() {
+         Globals.memory.deleteObserver(this);
+      }
+
+   /**
+    * Count the statement fetched, if the simulation fetched it.
+    */
+       public void update(Observable resource, Object notice) {
+         if (!(notice instanceof MemoryAccessNotice)) {
+            return;
+         }
+         MemoryAccessNotice access = (MemoryAccessNotice) notice;
+         if (!access.accessIsFromMIPS() || access.getAccessType() != AccessNotice.READ) {
+            return;
+         }
+         try {
+            ProgramStatement statement = Globals.memory.getStatementNoNotify(access.getAddress());
+            if (statement != null) {
+               total++;
+               counters[getCategory(statement)]++;
+            }
+         }
+             catch (AddressErrorException e) {
+               // not a statement; ignore it.
+            }
+      }
+
+   /**
+    * @return a table "categories" with the count and share of each category, and a
+    * table "total" with the number of instructions.
+    */
+       public ToolResult getResult() {
+         ToolResult result = new ToolResult(getName());
+         ToolResult.Table categories = result.addTable("categories", new String[] { "category", "count", "fraction" });
+         for (int i = 0; i < categoryLabels.length; i++) {
+            categories.addRow(new Object[] { categoryLabels[i], Long.valueOf(counters[i]),
+                  Double.valueOf((total == 0) ? 0.0 : counters[i] / (double) total) });
+         }
+         result.addTable("total", new String[] { "instructions" }).addRow(new Object[] { Long.valueOf(total) });
+         return result;
+      }
+
+      // The category of a statement, by the format and mnemonic of its instruction.
+       private static int getCategory(ProgramStatement statement) {
+         Instruction instruction = statement.getInstruction();
+         if (instruction instanceof BasicInstruction
+               && ((BasicInstruction) instruction).getInstructionFormat() == BasicInstructionFormat.I_BRANCH_FORMAT) {
+            return CATEGORY_BRANCH;
+         }
+         String name = instruction.getName();
+         if (jumps.contains(name) || name.startsWith("ret_") || name.startsWith("reti_")) {
+            return CATEGORY_JUMP;
+         }
+         if (memoryAccesses.contains(name)) {
+            return CATEGORY_MEM;
+         }
+         if (others.contains(name)) {
+            return CATEGORY_OTHER;
+         }
+         return CATEGORY_ALU;
+      }
+   }
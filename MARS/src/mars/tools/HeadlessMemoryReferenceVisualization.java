@@ -0,0 +1,117 @@
+   package mars.tools;
+
+   import mars.*;
+   import mars.mips.hardware.*;
+   import mars.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Headless version of the Memory Reference Visualization tool: counts the references
+ * the program makes to each unit of a range of memory, using an AccessCounter as the
+ * tool does when accumulating.  Its settings are base[:words[:units]]: the address of
+ * the first unit, the number of words in each unit, a power of two, and the number of
+ * units.  The default is the tool's, 256 units of one word from 0x10010000.
+ */
+
+    public class HeadlessMemoryReferenceVisualization implements HeadlessTool {
+
+      private AccessCounter counter = new AccessCounter(Memory.dataBaseAddress, Memory.WORD_LENGTH_BYTES, 256);
+
+   /**
+    * @return "references".
+    */
+       public String getName() {
+         return "references";
+      }
+
+   /**
+    * Set the range of memory counted and the size of a unit.
+    * @param options base[:words[:units]], as described above.
+    * @throws IllegalArgumentException if the options are malformed.
+    */
+       public void configure(String options) {
+         String[] fields = options.split(":");
+         if (fields.length > 3) {
+            throw new IllegalArgumentException("expected base[:words[:units]]");
+         }
+         int base, words = 1, units = counter.getUnits();
+         try {
+            base = Binary.stringToInt(fields[0].trim());
+            if (fields.length > 1) {
+               words = Integer.parseInt(fields[1].trim());
+            }
+            if (fields.length > 2) {
+               units = Integer.parseInt(fields[2].trim());
+            }
+         }
+             catch (NumberFormatException e) {
+               throw new IllegalArgumentException("base, words and units must be numbers");
+            }
+         if (words < 1 || words > (1 << 28) || (words & (words - 1)) != 0) {
+            throw new IllegalArgumentException("words must be a power of two, at most 0x10000000");
+         }
+         counter = new AccessCounter(base, words * Memory.WORD_LENGTH_BYTES, units);
+      }
+
+   /**
+    * Attach the access counter to memory.
+    */
+       public void connect() {
+         Globals.memory.addAccessListener(counter);
+      }
+
+   /**
+    * Detach the access counter from memory.
+    */
+       public void disconnect() {
+         Globals.memory.removeAccessListener(counter);
+      }
+
+   /**
+    * @return a table "units" with the address and reference count of each unit
+    * referenced, in address order, and a table "total" with the number of references.
+    */
+       public ToolResult getResult() {
+         ToolResult result = new ToolResult(getName());
+         ToolResult.Table units = result.addTable("units", new String[] { "address", "count" });
+         int[] counts = counter.getCounts();
+         long total = 0;
+         for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+               units.addRow(new Object[] { Binary.intToHexString(counter.getBaseAddress() + i * counter.getBytesPerUnit()),
+                     Integer.valueOf(counts[i]) });
+               total += counts[i];
+            }
+         }
+         result.addTable("total", new String[] { "references" }).addRow(new Object[] { Long.valueOf(total) });
+         return result;
+      }
+   }
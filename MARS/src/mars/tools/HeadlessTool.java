@@ -0,0 +1,76 @@
+   package mars.tools;
+
+   import mars.mips.hardware.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Interface for a tool that analyses the MIPS program during a command-line run, with
+ * no window.  Where a MarsTool builds a display, a headless tool builds a ToolResult
+ * that is written as JSON or CSV at the end of the run.  Tools are attached to a run
+ * with the "tools" command-line option; see HeadlessToolRunner.
+ * <p>
+ * Like a MarsTool, a headless tool consumes simulation events by registering as an
+ * Observer of Memory, or of registers, when connected.  Notices arrive on the
+ * simulation thread, so the tool need not synchronize.  A headless tool must have a
+ * no-argument constructor, which gives it its default settings.
+ */
+
+    public interface HeadlessTool {
+
+   /**
+    * @return short name of the tool, used to select it on the command line and to
+    * label its result.
+    */
+       public String getName();
+
+   /**
+    * Change the settings of the tool.  Called at most once, before connect().
+    * @param options the text following "name=" in the tool list.
+    * @throws IllegalArgumentException if the options are malformed.
+    */
+       public void configure(String options);
+
+   /**
+    * Begin observing.  Called after the program is loaded and before it runs.
+    * @throws AddressErrorException if the tool cannot observe the memory it needs.
+    */
+       public void connect() throws AddressErrorException;
+
+   /**
+    * Stop observing.  Called after the run, whether or not it ended normally.
+    */
+       public void disconnect();
+
+   /**
+    * @return the result of the analysis, as of the end of the run.
+    */
+       public ToolResult getResult();
+   }
@@ -0,0 +1,211 @@
+   package mars.tools;
+
+   import java.io.*;
+   import java.util.*;
+   import mars.mips.hardware.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * Attaches a set of headless tools to a command-line run and writes their results.
+ * The tools are described by a comma-separated list in which each item is a tool name
+ * followed by optional settings:
+ * <pre>
+ *   statistics                          instruction counts by category
+ *   cache[=size:block:ways[:policy][:wb|wt]]  data cache hits and misses, default 128:16:1
+ *   bht[=entries[:history[:taken]]]     branch history table, default 16:1, not taken
+ *   references[=base[:words[:units]]]   reference counts of memory units, default
+ *                                       0x10010000:1:256
+ * </pre>
+ * These are headless versions of the Instruction Statistics, Data Cache Simulator, BHT
+ * Simulator and Memory Reference Visualization tools.  Any other class implementing
+ * HeadlessTool may be given by its class name, with the package name left out if it is
+ * in mars.tools, e.g. <tt>com.example.MyAnalysis=options</tt>.
+ */
+
+    public class HeadlessToolRunner {
+
+   /** Name of the JSON result format. */
+      public static final String JSON = "JSON";
+   /** Name of the CSV result format. */
+      public static final String CSV = "CSV";
+
+      private static final String[] builtInTools = {
+         "mars.tools.HeadlessInstructionStatistics",
+         "mars.tools.HeadlessCacheSimulator",
+         "mars.tools.HeadlessBHTSimulator",
+         "mars.tools.HeadlessMemoryReferenceVisualization" };
+
+      private HeadlessTool[] tools;
+
+   /**
+    * Create the tools of a list and apply their settings.
+    * @param description comma-separated list of tools, as described above.
+    * @throws IllegalArgumentException if the description is malformed, names an unknown
+    * tool, or gives settings a tool rejects.
+    */
+       public HeadlessToolRunner(String description) {
+         ArrayList<HeadlessTool> list = new ArrayList<HeadlessTool>();
+         StringTokenizer st = new StringTokenizer(description, ",");
+         while (st.hasMoreTokens()) {
+            String item = st.nextToken().trim();
+            int equals = item.indexOf('=');
+            String name = (equals < 0) ? item : item.substring(0, equals).trim();
+            HeadlessTool tool = createTool(name);
+            if (equals >= 0) {
+               try {
+                  tool.configure(item.substring(equals + 1).trim());
+               }
+                   catch (IllegalArgumentException e) {
+                     throw new IllegalArgumentException(tool.getName() + ": " + e.getMessage());
+                  }
+            }
+            list.add(tool);
+         }
+         if (list.isEmpty()) {
+            throw new IllegalArgumentException("no tools given");
+         }
+         tools = list.toArray(new HeadlessTool[list.size()]);
+      }
+
+      // A new instance of the built-in tool of the given name, or of the named class.
+       private static HeadlessTool createTool(String name) {
+         for (int i = 0; i < builtInTools.length; i++) {
+            HeadlessTool tool = instantiate(builtInTools[i]);
+            if (tool != null && tool.getName().equalsIgnoreCase(name)) {
+               return tool;
+            }
+         }
+         HeadlessTool tool = instantiate(name);
+         if (tool == null && name.indexOf('.') < 0) {
+            tool = instantiate("mars.tools." + name);
+         }
+         if (tool == null) {
+            throw new IllegalArgumentException("unknown tool \"" + name
+               + "\"; use statistics, cache, bht, references or the name of a class implementing mars.tools.HeadlessTool");
+         }
+         return tool;
+      }
+
+      // A new instance of the named class, or null if it is not a HeadlessTool with a
+      // public no-argument constructor.
+       private static HeadlessTool instantiate(String className) {
+         try {
+            Class<?> clas = Class.forName(className);
+            if (!HeadlessTool.class.isAssignableFrom(clas)) {
+               return null;
+            }
+            return (HeadlessTool) clas.getConstructor().newInstance();
+         }
+             catch (Exception e) {
+               return null;
+            }
+             catch (LinkageError e) {
+               return null;
+            }
+      }
+
+   /**
+    * @return the tools, in the order listed.
+    */
+       public HeadlessTool[] getTools() {
+         return tools;
+      }
+
+   /**
+    * Connect every tool.  Call after the program is loaded and before it runs.
+    * @throws AddressErrorException if a tool cannot observe the memory it needs.  The
+    * tools connected before it stay connected until disconnect() is called.
+    */
+       public void connect() throws AddressErrorException {
+         for (int i = 0; i < tools.length; i++) {
+            tools[i].connect();
+         }
+      }
+
+   /**
+    * Disconnect every tool.  Call after the run, whether or not it ended normally.
+    */
+       public void disconnect() {
+         for (int i = 0; i < tools.length; i++) {
+            tools[i].disconnect();
+         }
+      }
+
+   /**
+    * Write the result of every tool: in JSON as an array of the results, in CSV as the
+    * results one after another.
+    * @param out where to write them.
+    * @param format JSON or CSV, in either case.
+    * @throws IllegalArgumentException if the format is neither.
+    */
+       public void writeResults(PrintStream out, String format) {
+         boolean json = format.equalsIgnoreCase(JSON);
+         if (!json && !format.equalsIgnoreCase(CSV)) {
+            throw new IllegalArgumentException("unknown result format \"" + format + "\"; use JSON or CSV");
+         }
+         if (json) {
+            out.print("[");
+         }
+         for (int i = 0; i < tools.length; i++) {
+            ToolResult result = tools[i].getResult();
+            if (json) {
+               out.print(((i > 0) ? "," : "") + "\n  ");
+               result.writeJson(out);
+            }
+            else {
+               result.writeCsv(out);
+            }
+         }
+         if (json) {
+            out.println("\n]");
+         }
+      }
+
+   /**
+    * Write the result of every tool to a file.
+    * @param file the file, replaced if it exists.
+    * @param format JSON or CSV, in either case.
+    * @throws IOException if the file cannot be written.
+    * @throws IllegalArgumentException if the format is neither.
+    */
+       public void writeResults(File file, String format) throws IOException {
+         PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(file)));
+         try {
+            writeResults(out, format);
+         }
+         finally {
+            out.close();
+         }
+         if (out.checkError()) {
+            throw new IOException("error writing " + file);
+         }
+      }
+   }
@@ -43,6 +43,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    import mars.mips.hardware.AddressErrorException;
    import mars.mips.hardware.Memory;
    import mars.mips.hardware.MemoryAccessNotice;
+   import mars.simulator.ToolEventBus;
 
 
 /**
@@ -208,6 +209,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       }
    
    
+   /**
+    * counts on a thread of its own through the ToolEventBus; every instruction is
+    * counted, and the simulation waits only if the tool falls a full ring behind
+    */
+       protected int getEventBusPolicy() {
+         return ToolEventBus.BLOCK;
+      }
+   
+   
    /**
     * decodes the instruction and determines the category of the instruction. 
     * 
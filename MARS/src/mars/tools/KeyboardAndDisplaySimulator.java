@@ -10,6 +10,7 @@
    import mars.Globals;
    import mars.venus.RunSpeedPanel;
    import mars.mips.hardware.*;
+   import mars.simulator.DeviceScheduler;
    import mars.simulator.Exceptions;
    import javax.swing.text.DefaultCaret;
 
@@ -87,9 +88,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       public static int RECEIVER_DATA;       // keyboard character in low-order byte
       public static int TRANSMITTER_CONTROL; // display Ready in low-order bit
       public static int TRANSMITTER_DATA;    // display character in low-order byte
-   	// These are used to track instruction counts to simulate driver delay of Transmitter Data
-      private boolean countingInstructions;
-      private int instructionCount;
+   	// These are used to schedule the end of the simulated driver delay of Transmitter Data
+      private DeviceScheduler.Event transmitterReady = new TransmitterReady();
+      private long transmitStart;
       private int transmitDelayInstructionCountLimit;
       private int currentDelayInstructionLimit;
    
@@ -190,12 +191,21 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
           // Use the Globals.memory.addObserver() methods instead of inherited method to achieve this.
          addAsObserver(RECEIVER_DATA,RECEIVER_DATA);
          addAsObserver(TRANSMITTER_DATA, TRANSMITTER_DATA);
-      	// We want to be notified of each instruction execution, because instruction count is the
-      	// basis for delay in re-setting (literally) the TRANSMITTER_CONTROL register.  SPIM does
-      	// this too.  This simulates the time required for the display unit to process the
-      	// TRANSMITTER_DATA.
-         addAsObserver(Memory.textBaseAddress, Memory.textLimitAddress);
-         addAsObserver(Memory.kernelTextBaseAddress, Memory.kernelTextLimitAddress);
+      	// Instruction count is the basis for delay in re-setting (literally) the TRANSMITTER_CONTROL
+      	// register.  SPIM does this too.  This simulates the time required for the display unit to
+      	// process the TRANSMITTER_DATA.  The DeviceScheduler counts the instructions, so there
+      	// is no need to be notified of each instruction execution.
+      }
+   
+   
+   	/**
+   	 *  Stop observing, and abandon any transmitter delay under way.
+   	 */
+      protected void deleteAsObserver() {
+         super.deleteAsObserver();
+         synchronized (Globals.memoryAndRegistersLock) {
+            DeviceScheduler.cancel(transmitterReady);
+         }
       }
    
    
@@ -245,37 +255,34 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       	// MIPS program has just written (stored) the transmitter (display) data register.  If transmitter
       	// Ready bit is clear, device is not ready yet so ignore this event -- serves 'em right for not checking!
       	// If transmitter Ready bit is set, then clear it to indicate the display device is processing the character.
-      	// Also start an intruction counter that will simulate the delay of the slower
-      	// display device processing the character.
+      	// Also schedule the end of the delay of the slower display device processing the character.
          if (isReadyBitSet(TRANSMITTER_CONTROL) && notice.getAddress()==TRANSMITTER_DATA && notice.getAccessType()==AccessNotice.WRITE) {
             updateMMIOControl(TRANSMITTER_CONTROL, readyBitCleared(TRANSMITTER_CONTROL));
             intWithCharacterToDisplay = notice.getValue();
             if (!displayAfterDelay) displayCharacter(intWithCharacterToDisplay); 
-            this.countingInstructions = true;
-            this.instructionCount = 0;
+            this.transmitStart = DeviceScheduler.getInstructionCount();
             this.transmitDelayInstructionCountLimit = generateDelay();
+            DeviceScheduler.schedule(transmitterReady, transmitDelayInstructionCountLimit);
          }
-      	// We have been notified of a MIPS instruction execution.
-      	// If we are in transmit delay period, increment instruction count and if limit
-      	// has been reached, set the transmitter Ready flag to indicate the MIPS program
-      	// can write another character to the transmitter data register.  If the Interrupt-Enabled
-      	// bit had been set by the MIPS program, generate an interrupt!
-         if (   this.countingInstructions &&
-                notice.getAccessType()==AccessNotice.READ &&
-                (Memory.inTextSegment(notice.getAddress()) || Memory.inKernelTextSegment(notice.getAddress()))) {
-            this.instructionCount++;
-            if (this.instructionCount >= this.transmitDelayInstructionCountLimit) {
-               if (displayAfterDelay) displayCharacter(intWithCharacterToDisplay);
-               this.countingInstructions = false;
-               int updatedTransmitterControl =  readyBitSet(TRANSMITTER_CONTROL);
-               updateMMIOControl(TRANSMITTER_CONTROL, updatedTransmitterControl);
-               if (updatedTransmitterControl != 1
-                   && (Coprocessor0.getValue(Coprocessor0.STATUS) & 2)==0  // Added by Carl Hauser Nov 2008
-                   && (Coprocessor0.getValue(Coprocessor0.STATUS) & 1)==1) {
-               // interrupt-enabled bit is set in both Tranmitter Control and in
-               // Coprocessor0 Status register, and Interrupt Level Bit is 0, so trigger external interrupt.
-                  mars.simulator.Simulator.externalInterruptingDevice = Exceptions.EXTERNAL_INTERRUPT_DISPLAY;
-               }
+      }
+   
+   
+   	/////////////////////////////////////////////////////////////////////
+   	// Fired by the DeviceScheduler when the transmit delay period is over.
+   	// Set the transmitter Ready flag to indicate the MIPS program
+   	// can write another character to the transmitter data register.  If the Interrupt-Enabled
+   	// bit had been set by the MIPS program, generate an interrupt!
+      private class TransmitterReady extends DeviceScheduler.Event {
+         protected void fire() {
+            if (displayAfterDelay) displayCharacter(intWithCharacterToDisplay);
+            int updatedTransmitterControl =  readyBitSet(TRANSMITTER_CONTROL);
+            updateMMIOControl(TRANSMITTER_CONTROL, updatedTransmitterControl);
+            if (updatedTransmitterControl != 1
+                && (Coprocessor0.getValue(Coprocessor0.STATUS) & 2)==0  // Added by Carl Hauser Nov 2008
+                && (Coprocessor0.getValue(Coprocessor0.STATUS) & 1)==1) {
+            // interrupt-enabled bit is set in both Tranmitter Control and in
+            // Coprocessor0 Status register, and Interrupt Level Bit is 0, so trigger external interrupt.
+               mars.simulator.Simulator.externalInterruptingDevice = Exceptions.EXTERNAL_INTERRUPT_DISPLAY;
             }
          }
       }
@@ -640,7 +647,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          delayTechniqueChooser.addActionListener(
                new ActionListener() {
                   public void actionPerformed(ActionEvent e) {
-                     transmitDelayInstructionCountLimit = generateDelay();
+                     updateTransmitDelay();
                   }
                });
          delayLengthPanel = new DelayLengthPanel();
@@ -773,12 +780,27 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// Transmit delay is simulated by counting instruction executions.
    	// Here we simly initialize (or reset) the variables.
       private void initializeTransmitDelaySimulator() {
-         this.countingInstructions = false;
-         this.instructionCount = 0;
+         synchronized (Globals.memoryAndRegistersLock) {
+            DeviceScheduler.cancel(transmitterReady);
+         }
          this.transmitDelayInstructionCountLimit = this.generateDelay();
       }
    
    
+   	/////////////////////////////////////////////////////////////////////
+   	// Delay settings changed.  A delay under way now ends the new number of
+   	// instructions after it started, or right away if that many have passed.
+      private void updateTransmitDelay() {
+         synchronized (Globals.memoryAndRegistersLock) {
+            this.transmitDelayInstructionCountLimit = this.generateDelay();
+            if (transmitterReady.isPending()) {
+               long remaining = transmitStart + transmitDelayInstructionCountLimit - DeviceScheduler.getInstructionCount();
+               DeviceScheduler.schedule(transmitterReady, Math.max(1, remaining));
+            }
+         }
+      }
+   
+   
    	/////////////////////////////////////////////////////////////////////
    	//  Calculate transmitter delay (# instruction executions) based on
    	//  current combo box and slider settings.
@@ -870,7 +892,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                JSlider source = (JSlider)e.getSource();
                if (!source.getValueIsAdjusting()) {
                   delayLengthIndex = (int)source.getValue();
-                  transmitDelayInstructionCountLimit = generateDelay();
+                  updateTransmitDelay();
                }
                else {
                   sliderLabel.setText(setLabel(source.getValue()));
@@ -1015,4 +1037,4 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	
    
    
-   }
\ No newline at end of file
+   }
\ No newline at end of file
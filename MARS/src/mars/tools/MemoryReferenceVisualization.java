@@ -4,9 +4,11 @@
    import javax.swing.event.*;
    import java.awt.*;
    import java.awt.event.*;
+   import java.awt.image.*;
    import java.util.*;
    import mars.tools.*;
    import mars.mips.hardware.*;
+   import mars.simulator.*;
 
 /*
 Copyright (c) 2003-2006,  Pete Sanderson and Kenneth Vollmar
@@ -50,7 +52,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// Major GUI components
       private JComboBox wordsPerUnitSelector, visualizationUnitPixelWidthSelector, visualizationUnitPixelHeightSelector,
                         visualizationPixelWidthSelector, visualizationPixelHeightSelector, displayBaseAddressSelector;
-      private JCheckBox drawHashMarksSelector;
+      private JCheckBox drawHashMarksSelector, accumulateSelector;
       private Graphics drawingArea;
       private JPanel canvas;
       private JPanel results;
@@ -73,6 +75,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private final String[] displayAreaPixelHeightChoices  = {"64","128","256","512","1024"};
       private final int defaultDisplayHeightIndex  = 2;
       private final boolean defaultDrawHashMarks = true;
+      private final boolean defaultAccumulate = true;
    
       // Values for display canvas.  Note their initialization uses the identifiers just above.
    
@@ -113,6 +116,22 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	
       private Grid theGrid;
       private CounterColorScale counterColorScale;
+
+      // When accumulating, memory counts the references itself while connected, and the
+      // heat map is redrawn from its counts at a fixed rate.  Otherwise each reference is
+      // observed and counted in the grid.
+      private static final int FRAME_RATE = 30; // frames per second
+      private AccessCounter accessCounter;
+      private int[] renderedCounts;   // counts shown by the heat map
+      private BufferedImage heatMap;  // one pixel per unit
+      private javax.swing.Timer frameTimer = new javax.swing.Timer(1000 / FRAME_RATE,
+                new ActionListener() {
+                   public void actionPerformed(ActionEvent e) {
+                     if (renderFrame(false)) {
+                        canvas.repaint();
+                     }
+                  }
+               });
    	         	
    	/**
    	 * Simple constructor, likely used to run a stand-alone memory reference visualizer.
@@ -157,11 +176,18 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  the memory range as selected by the base address combo box and capacity of the visualization display 
    	 *  (number of visualization elements times the number of memory words each one represents). 
    	 *  It does so by calling the inherited 2-parameter overload of this method. 
+   	 *  When accumulating, it instead attaches an AccessCounter over that range to memory
+   	 *  and starts redrawing the heat map at a fixed rate, so no notices are sent.
    	 *  If you use the inherited GUI buttons, this 
    	 *  method is invoked when you click "Connect" button on MarsTool or the 
    	 *  "Assemble and Run" button on a Mars-based app.
    	 */
        protected void addAsObserver() {
+         if (accumulateSelector.isSelected()) {
+            Memory.getInstance().addAccessListener(accessCounter);
+            frameTimer.start();
+            return;
+         }
          int highAddress = baseAddress+theGrid.getRows()*theGrid.getColumns()*Memory.WORD_LENGTH_BYTES*wordsPerUnit;
       	// Special case: baseAddress<0 means we're in kernel memory (0x80000000 and up) and most likely
       	// in memory map address space (0xffff0000 and up).  In this case, we need to make sure the high address
@@ -173,6 +199,28 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          addAsObserver(baseAddress, highAddress);
       }
    
+      /**
+   	 *  Override the inherited method to also detach the access counter, if any, and draw
+   	 *  the counts as of the moment it was detached.
+   	 */
+       protected void deleteAsObserver() {
+         if (frameTimer.isRunning()) {
+            frameTimer.stop();
+            Memory.getInstance().removeAccessListener(accessCounter);
+            renderFrame(false);
+            canvas.repaint();
+         }
+         super.deleteAsObserver();
+      }
+   
+      /**
+   	 *  When not accumulating, receive memory notices through the ToolEventBus.  When the display falls far behind
+   	 *  the program it counts a sample of the references, so the simulation never waits for it.
+   	 */
+       protected int getEventBusPolicy() {
+         return ToolEventBus.SAMPLE;
+      }
+   
       
    	/**
    	 *  Method that constructs the main display area.  It is organized vertically
@@ -217,6 +265,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       	//       needs to be allocated for initial canvas display.
          theGrid = new Grid(visualizationAreaHeightInPixels/unitPixelHeight,
                             visualizationAreaWidthInPixels/unitPixelWidth);
+         replaceAccessCounter();
       }
    
    
@@ -229,6 +278,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          wordsPerUnit = getIntComboBoxSelection(wordsPerUnitSelector);
          theGrid = createNewGrid();
          updateBaseAddress();
+         replaceAccessCounter();
       }
    	
    	
@@ -247,6 +297,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  is running in timed mode.  Overrides inherited method that does nothing.
    	 */
        protected void updateDisplay() {
+         if (accumulateSelector.isSelected()) {
+            renderFrame(true); // colors may have changed
+         }
          canvas.repaint();
       }
    
@@ -274,6 +327,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 										"This color will apply beginning at the selected count and\n"+
 										"extending up to the next slider-provided count.\n"+
 										"\n"+
+										"Accumulating counts costs the MIPS program almost nothing: the\n"+
+										"counts are kept as memory is referenced and the display is\n"+
+										"redrawn "+FRAME_RATE+" times a second.  Without it, the display\n"+
+										"is updated for each reference and may lag behind or sample the\n"+
+										"references of a program running at full speed.\n"+
+										"\n"+
 										"Contact Pete Sanderson at psanderson@otterbein.edu with\n"+
 										"questions or comments.\n";
          JButton help = new JButton("Help");
@@ -292,7 +351,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       	
    	// UI components and layout for left half of GUI, where settings are specified.
        private JComponent buildOrganizationArea() {
-         JPanel organization = new JPanel(new GridLayout(9,1));
+         JPanel organization = new JPanel(new GridLayout(10,1));
       	
          drawHashMarksSelector = new JCheckBox();
          drawHashMarksSelector.setSelected(defaultDrawHashMarks);
@@ -302,6 +361,20 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      updateDisplay();
                   }
                });	
+         accumulateSelector = new JCheckBox();
+         accumulateSelector.setSelected(defaultAccumulate);
+         accumulateSelector.setToolTipText("Count references in memory and redraw "+FRAME_RATE+" times a second, instead of observing each one");
+         accumulateSelector.addActionListener(
+                new ActionListener() {
+                   public void actionPerformed(ActionEvent e) {
+                  	// Switch how we are connected, if we are, and start counting afresh.
+                     if (connectButton != null && connectButton.isConnected()) {
+                        deleteAsObserver();
+                        addAsObserver();
+                     }
+                     reset();
+                  }
+               });	
          wordsPerUnitSelector = new JComboBox(wordsPerUnitChoices);
          wordsPerUnitSelector.setEditable(false);
          wordsPerUnitSelector.setBackground(backgroundColor);
@@ -324,6 +397,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                    public void actionPerformed(ActionEvent e) {
                      unitPixelWidth = getIntComboBoxSelection(visualizationUnitPixelWidthSelector);
                      theGrid = createNewGrid();
+                     replaceAccessCounter();
                      updateDisplay();
                   }
                });
@@ -337,6 +411,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                    public void actionPerformed(ActionEvent e) {
                      unitPixelHeight = getIntComboBoxSelection(visualizationUnitPixelHeightSelector);
                      theGrid = createNewGrid();
+                     replaceAccessCounter();
                      updateDisplay();
                   }
                });					
@@ -352,6 +427,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      canvas.setPreferredSize(getDisplayAreaDimension());
                      canvas.setSize(getDisplayAreaDimension());
                      theGrid = createNewGrid();
+                     replaceAccessCounter();
                      canvas.repaint();
                      updateDisplay();
                   }
@@ -368,6 +444,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      canvas.setPreferredSize(getDisplayAreaDimension());
                      canvas.setSize(getDisplayAreaDimension());
                      theGrid = createNewGrid();
+                     replaceAccessCounter();
                      canvas.repaint();
                      updateDisplay();
                   }
@@ -394,6 +471,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                         addAsObserver();
                      }
                      theGrid = createNewGrid();
+                     replaceAccessCounter();
                      updateDisplay();
                   }
                });	      	
@@ -405,6 +483,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          hashMarksRow.add(new JLabel("Show unit boundaries (grid marks)"), BorderLayout.WEST);
          hashMarksRow.add(drawHashMarksSelector, BorderLayout.EAST);
       	
+         JPanel accumulateRow = getPanelWithBorderLayout();
+         accumulateRow.setBorder(emptyBorder);
+         accumulateRow.add(new JLabel("Accumulate counts at full speed"), BorderLayout.WEST);
+         accumulateRow.add(accumulateSelector, BorderLayout.EAST);
+      	
          JPanel wordsPerUnitRow = getPanelWithBorderLayout();
          wordsPerUnitRow.setBorder(emptyBorder);
          wordsPerUnitRow.add(new JLabel("Memory Words per Unit "),BorderLayout.WEST);
@@ -439,6 +522,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       
       	// Lay 'em out in the grid...
          organization.add(hashMarksRow);
+         organization.add(accumulateRow);
          organization.add(wordsPerUnitRow);
          organization.add(unitWidthInPixelsRow);
          organization.add(unitHeightInPixelsRow);     
@@ -495,9 +579,45 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return new Dimension(visualizationAreaWidthInPixels, visualizationAreaHeightInPixels);
       }
    	
-   	// reset all counters in the Grid.
+   	// reset all counters in the Grid, and replace the access counter with a fresh one.
        private void resetCounts() {
          theGrid.reset();
+         replaceAccessCounter();
+      }
+   
+   	// The access counter must match the grid, base address and words per unit.  Replace it
+   	// after any of them changes, attaching the new one to memory if the old one was.  It is
+   	// replaced rather than cleared so that no count made meanwhile can survive the reset.
+       private void replaceAccessCounter() {
+         boolean attached = frameTimer.isRunning();
+         if (attached) {
+            Memory.getInstance().removeAccessListener(accessCounter);
+         }
+         accessCounter = new AccessCounter(baseAddress, wordsPerUnit*Memory.WORD_LENGTH_BYTES,
+                                           theGrid.getRows()*theGrid.getColumns());
+         renderedCounts = new int[accessCounter.getUnits()];
+         heatMap = new BufferedImage(theGrid.getColumns(), theGrid.getRows(), BufferedImage.TYPE_INT_RGB);
+         renderFrame(true);
+         if (attached) {
+            Memory.getInstance().addAccessListener(accessCounter);
+         }
+      }
+   
+   	// Recolor the units of the heat map whose counts changed since it was last drawn, or
+   	// all of them if the colors may have changed.  Returns true if any unit was recolored.
+       private boolean renderFrame(boolean all) {
+         int[] counts = accessCounter.getCounts();
+         int[] pixels = ((DataBufferInt) heatMap.getRaster().getDataBuffer()).getData();
+         boolean changed = false;
+         for (int i=0; i<counts.length; i++) {
+            int count = counts[i];
+            if (all || count != renderedCounts[i]) {
+               renderedCounts[i] = count;
+               pixels[i] = counterColorScale.getColor(count).getRGB();
+               changed = true;
+            }
+         }
+         return changed;
       }
    	
    	// Will return int equivalent of specified combo box's current selection.
@@ -550,7 +670,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
           // override default paint method to assure visualized reference pattern is produced every time
       	 // the panel is repainted.
           public void paint(Graphics g) {
-            paintGrid(g, theGrid);
+            if (accumulateSelector.isSelected()) {
+               g.drawImage(heatMap, 0, 0, heatMap.getWidth()*unitPixelWidth, heatMap.getHeight()*unitPixelHeight, null);
+            } 
+            else {
+               paintGrid(g, theGrid);
+            }
             if (drawHashMarksSelector.isSelected()) {
                paintHashMarks(g, theGrid);
             }
@@ -811,4 +936,4 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
       }  	
    
-   }
\ No newline at end of file
+   }
\ No newline at end of file
@@ -0,0 +1,228 @@
+   package mars.tools;
+
+   import java.io.*;
+   import java.util.*;
+   import javax.swing.table.TableModel;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining 
+a copy of this software and associated documentation files (the 
+"Software"), to deal in the Software without restriction, including 
+without limitation the rights to use, copy, modify, merge, publish, 
+distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject 
+to the following conditions:
+
+The above copyright notice and this permission notice shall be 
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION 
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+
+/**
+ * The result of a headless tool: one or more named tables, each with named columns
+ * and rows of values.  A value is a Number, a Boolean, a String or null.  The result
+ * is written either as a JSON object
+ * <pre>
+ *   {"tool": "cache", "tables": {"summary": [{"reads": 512, "writes": 256, ...}]}}
+ * </pre>
+ * holding each table as an array of objects, one per row, or as CSV in which each
+ * table is a header line and its rows, each line beginning with the tool and table
+ * names, and the tables are separated by empty lines.
+ */
+
+    public class ToolResult {
+
+      private String toolName;
+      private ArrayList<Table> tables = new ArrayList<Table>(); // in the order added
+
+   /**
+    * Create an empty result.
+    * @param toolName name of the tool producing it.
+    */
+       public ToolResult(String toolName) {
+         this.toolName = toolName;
+      }
+
+   /**
+    * @return name of the tool producing the result.
+    */
+       public String getToolName() {
+         return toolName;
+      }
+
+   /**
+    * Add an empty table.
+    * @param name name of the table, unique within the result.
+    * @param columns names of its columns.
+    * @return the table, to add rows to.
+    */
+       public Table addTable(String name, String[] columns) {
+         Table table = new Table(name, columns);
+         tables.add(table);
+         return table;
+      }
+
+   /**
+    * Add a table holding a copy of the contents of a table model, such as one shown
+    * by a tool's display.
+    * @param name name of the table, unique within the result.
+    * @param model the table model.
+    * @return the table, to add more rows to.
+    */
+       public Table addTable(String name, TableModel model) {
+         String[] columns = new String[model.getColumnCount()];
+         for (int column = 0; column < columns.length; column++) {
+            columns[column] = model.getColumnName(column);
+         }
+         Table table = addTable(name, columns);
+         for (int row = 0; row < model.getRowCount(); row++) {
+            Object[] values = new Object[columns.length];
+            for (int column = 0; column < columns.length; column++) {
+               values[column] = model.getValueAt(row, column);
+            }
+            table.addRow(values);
+         }
+         return table;
+      }
+
+   /**
+    * Write the result as a JSON object.
+    * @param out where to write it.
+    */
+       public void writeJson(PrintStream out) {
+         out.print("{\"tool\": " + jsonValue(toolName) + ", \"tables\": {");
+         for (int i = 0; i < tables.size(); i++) {
+            Table table = tables.get(i);
+            out.print(((i > 0) ? "," : "") + "\n    " + jsonValue(table.name) + ": [");
+            for (int row = 0; row < table.rows.size(); row++) {
+               Object[] values = table.rows.get(row);
+               out.print(((row > 0) ? "," : "") + "\n      {");
+               for (int column = 0; column < values.length; column++) {
+                  out.print(((column > 0) ? ", " : "") + jsonValue(table.columns[column]) + ": " + jsonValue(values[column]));
+               }
+               out.print("}");
+            }
+            out.print((table.rows.size() > 0) ? "\n    ]" : "]");
+         }
+         out.print((tables.size() > 0) ? "\n  }}" : "}}");
+      }
+
+   /**
+    * Write the result as CSV, each table followed by an empty line.
+    * @param out where to write it.
+    */
+       public void writeCsv(PrintStream out) {
+         for (int i = 0; i < tables.size(); i++) {
+            Table table = tables.get(i);
+            out.print("tool,table");
+            for (int column = 0; column < table.columns.length; column++) {
+               out.print("," + csvValue(table.columns[column]));
+            }
+            out.println();
+            String prefix = csvValue(toolName) + "," + csvValue(table.name);
+            for (int row = 0; row < table.rows.size(); row++) {
+               Object[] values = table.rows.get(row);
+               out.print(prefix);
+               for (int column = 0; column < values.length; column++) {
+                  out.print("," + csvValue(values[column]));
+               }
+               out.println();
+            }
+            out.println();
+         }
+      }
+
+      // A value written in JSON: numbers and booleans as themselves, except for numbers
+      // JSON cannot represent, which are null, and anything else as a string.
+       private static String jsonValue(Object value) {
+         if (value == null) {
+            return "null";
+         }
+         if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            return (Double.isNaN(d) || Double.isInfinite(d)) ? "null" : value.toString();
+         }
+         if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+         }
+         String s = value.toString();
+         StringBuffer result = new StringBuffer("\"");
+         for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+               result.append('\\').append(c);
+            }
+            else if (c < ' ') {
+               String hex = Integer.toHexString(c);
+               result.append("\\u0000".substring(0, 6 - hex.length())).append(hex);
+            }
+            else {
+               result.append(c);
+            }
+         }
+         return result.append('"').toString();
+      }
+
+      // A value written in CSV: empty if null, quoted if it holds a comma, quote or line break.
+       private static String csvValue(Object value) {
+         if (value == null) {
+            return "";
+         }
+         String s = value.toString();
+         if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+            return s;
+         }
+         StringBuffer result = new StringBuffer("\"");
+         for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') {
+               result.append('"');
+            }
+            result.append(c);
+         }
+         return result.append('"').toString();
+      }
+
+   /**
+    * A table of a result.  Rows are written in the order added.
+    */
+       public static class Table {
+
+         private String name;
+         private String[] columns;
+         private ArrayList<Object[]> rows = new ArrayList<Object[]>();
+
+          private Table(String name, String[] columns) {
+            this.name = name;
+            this.columns = columns;
+         }
+
+      /**
+       * Add a row.
+       * @param values one value for each column, in column order.
+       * @throws IllegalArgumentException if the number of values differs from the number of columns.
+       */
+          public void addRow(Object[] values) {
+            if (values.length != columns.length) {
+               throw new IllegalArgumentException("table " + name + " has " + columns.length
+                  + " columns, not " + values.length);
+            }
+            rows.add(values);
+         }
+      }
+   }
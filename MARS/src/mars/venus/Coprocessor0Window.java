@@ -365,6 +365,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       
          private String[] regToolTips = {
             /* $8  */  "Memory address at which address exception occurred",  
+            /* $9  */  "Timer: number of instructions executed, modulo 2^32",
+            /* $11 */  "Timer interrupt occurs when Count reaches this value",
             /* $12 */  "Interrupt mask and enable bits",
             /* $13 */  "Exception type and pending interrupt bits",
             /* $14 */  "Address of instruction that caused exception"